@@ -0,0 +1,14 @@
+#!/usr/bin/env sh
+# Builds the app and the benchmark jar, runs JMH and writes the results as JSON
+# to benchmarks/results/<commit>.json. Extra arguments go to JMH, e.g.
+#   benchmarks/run.sh JwtBenchmark -f 2
+set -e
+cd "$(dirname "$0")/.."
+
+mvn -B -q install -DskipTests
+mvn -B -q -f benchmarks/pom.xml package
+
+mkdir -p benchmarks/results
+out="benchmarks/results/$(git rev-parse --short HEAD 2>/dev/null || date +%Y%m%d%H%M%S).json"
+java -jar benchmarks/target/benchmarks.jar -rf json -rff "$out" "$@"
+echo "results: $out"
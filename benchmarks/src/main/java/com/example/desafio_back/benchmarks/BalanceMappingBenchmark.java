@@ -0,0 +1,78 @@
+package com.example.desafio_back.benchmarks;
+
+import com.example.desafio_back.cache.BalanceCache;
+import com.example.desafio_back.dtos.ItemHistoric;
+import com.example.desafio_back.enums.Type;
+import com.example.desafio_back.model.Money;
+import com.example.desafio_back.model.Transaction;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CPU side of a balance cache miss in QueryService.balance: mapping the newest
+ * {@link BalanceCache#MAX_HISTORIC} transactions to {@link ItemHistoric}, of
+ * which the date formatting alone is measured separately. Also {@link Type#from},
+ * used for every parsed ledger row and JSON request type.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BalanceMappingBenchmark {
+
+    static final DateTimeFormatter FMT = DateTimeFormatter.ofPattern("dd-MM-yyyy HH:mm:ss");
+
+    List<Transaction> transactions;
+    String[] rawTypes = {"DEPOSIT", "payment", " Deposit "};
+
+    @Setup
+    public void setUp() {
+        LocalDateTime start = LocalDateTime.of(2025, 1, 1, 10, 0);
+        transactions = new ArrayList<>(BalanceCache.MAX_HISTORIC);
+        for (int i = 0; i < BalanceCache.MAX_HISTORIC; i++) {
+            transactions.add(Transaction.builder()
+                    .id((long) i)
+                    .type(i % 3 == 0 ? Type.PAYMENT : Type.DEPOSIT)
+                    .value(Money.ofCents(i * 100L + 50))
+                    .dateTime(start.minusMinutes(i))
+                    .build());
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BalanceCache.MAX_HISTORIC)
+    public List<ItemHistoric> itemHistoricOf() {
+        List<ItemHistoric> out = new ArrayList<>(transactions.size());
+        for (Transaction t : transactions) {
+            out.add(ItemHistoric.of(t));
+        }
+        return out;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BalanceCache.MAX_HISTORIC)
+    public int formatDate() {
+        int length = 0;
+        for (Transaction t : transactions) {
+            length += t.getDateTime().format(FMT).length();
+        }
+        return length;
+    }
+
+    @Benchmark
+    public Type typeFrom(Cursor cursor) {
+        return Type.from(rawTypes[cursor.next++ % rawTypes.length]);
+    }
+}
@@ -0,0 +1,128 @@
+package com.example.desafio_back.benchmarks;
+
+import com.example.desafio_back.model.Money;
+import com.example.desafio_back.repository.AccountRepository;
+import com.example.desafio_back.services.CommandService;
+import com.zaxxer.hikari.HikariDataSource;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Deposit on a shared account: the single {@code UPDATE ... RETURNING} of
+ * {@link AccountRepository#APPLY_DEPOSIT} against the load-modify-save flow it
+ * replaced (SELECT, {@link CommandService#afterDeposit} in Java, UPDATE), with
+ * and without {@code FOR UPDATE}. Only the locked variant is correct; the plain
+ * one loses updates when two reads interleave. Contention comes from
+ * {@code hotAccounts}: every thread deposits into one of that many rows.
+ * <p>
+ * Needs a Postgres ({@code -p url=...}, defaults to the docker-compose one);
+ * the benchmark works in its own schema and drops it afterwards.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 3)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+@Threads(16)
+@State(Scope.Benchmark)
+public class BalanceUpdateBenchmark {
+
+    static final String SCHEMA = "balance_update_benchmark";
+
+    static final String LOAD = "SELECT id, current_balance, version FROM accounts WHERE user_id = :userId";
+    static final String SAVE = "UPDATE accounts SET current_balance = :balance, version = :version WHERE id = :id";
+
+    static final BigDecimal AMOUNT = new BigDecimal("1.00");
+
+    @Param({"jdbc:postgresql://localhost:5432/desafio"})
+    String url;
+
+    @Param({"admin"})
+    String user;
+
+    @Param({"senha123"})
+    String password;
+
+    @Param({"1", "64"})
+    int hotAccounts;
+
+    HikariDataSource dataSource;
+    NamedParameterJdbcTemplate jdbc;
+    TransactionTemplate tx;
+
+    @Setup
+    public void setUp() {
+        try (HikariDataSource admin = dataSource(null)) {
+            NamedParameterJdbcTemplate setup = new NamedParameterJdbcTemplate(admin);
+            setup.getJdbcTemplate().execute("DROP SCHEMA IF EXISTS " + SCHEMA + " CASCADE");
+            setup.getJdbcTemplate().execute("CREATE SCHEMA " + SCHEMA);
+            setup.getJdbcTemplate().execute("""
+                    CREATE TABLE %s.accounts (
+                        id bigserial PRIMARY KEY,
+                        user_id bigint NOT NULL UNIQUE,
+                        current_balance numeric(19, 2),
+                        version bigint
+                    )""".formatted(SCHEMA));
+            setup.getJdbcTemplate().execute(("INSERT INTO %s.accounts (user_id, current_balance, version) "
+                    + "SELECT g, 0, 0 FROM generate_series(0, %d) g").formatted(SCHEMA, hotAccounts - 1));
+        }
+        dataSource = dataSource(SCHEMA);
+        jdbc = new NamedParameterJdbcTemplate(dataSource);
+        tx = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+    }
+
+    @TearDown
+    public void tearDown() {
+        jdbc.getJdbcTemplate().execute("DROP SCHEMA " + SCHEMA + " CASCADE");
+        dataSource.close();
+    }
+
+    @Benchmark
+    public BigDecimal atomicUpdate() {
+        return tx.execute(s -> jdbc.queryForObject(AccountRepository.APPLY_DEPOSIT,
+                Map.of("userId", nextUser(), "amount", AMOUNT, "interest", CommandService.INTEREST),
+                (rs, n) -> rs.getBigDecimal(2)));
+    }
+
+    @Benchmark
+    public BigDecimal loadModifySave() {
+        return tx.execute(s -> loadModifySave(LOAD));
+    }
+
+    @Benchmark
+    public BigDecimal loadModifySaveForUpdate() {
+        return tx.execute(s -> loadModifySave(LOAD + " FOR UPDATE"));
+    }
+
+    private BigDecimal loadModifySave(String load) {
+        Map<String, Object> row = jdbc.queryForMap(load, Map.of("userId", nextUser()));
+        Money balance = CommandService.afterDeposit(Money.of((BigDecimal) row.get("current_balance")), Money.of(AMOUNT));
+        jdbc.update(SAVE, Map.of(
+                "balance", balance.toBigDecimal(),
+                "version", (Long) row.get("version") + 1,
+                "id", row.get("id")));
+        return balance.toBigDecimal();
+    }
+
+    private long nextUser() {
+        return ThreadLocalRandom.current().nextLong(hotAccounts);
+    }
+
+    private HikariDataSource dataSource(String schema) {
+        HikariDataSource ds = new HikariDataSource();
+        ds.setJdbcUrl(url);
+        ds.setUsername(user);
+        ds.setPassword(password);
+        ds.setSchema(schema);
+        // one connection per benchmark thread, so waits are on row locks, not on the pool
+        ds.setMaximumPoolSize(64);
+        return ds;
+    }
+}
@@ -0,0 +1,115 @@
+package com.example.desafio_back.benchmarks;
+
+import com.example.desafio_back.cache.BalanceCache;
+import com.example.desafio_back.cache.BalanceCodec;
+import com.example.desafio_back.dtos.ItemHistoric;
+import com.example.desafio_back.model.Money;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serialization cost of a full balance history ({@link BalanceCache#MAX_HISTORIC} items),
+ * the payload of BalanceCache.replace and of the write-through after a command.
+ * <ul>
+ *   <li>{@code jsonWrite}/{@code jsonRead}: one JSON object per list element
+ *       ({@code cache.balance.codec=json})</li>
+ *   <li>{@code binaryWrite}/{@code binaryRead}: the compact varint encoding
+ *       ({@code cache.balance.codec=binary}, the default)</li>
+ *   <li>{@code genericJacksonWrite}/{@code genericJacksonRead}: the whole list
+ *       through GenericJackson2JsonRedisSerializer (typed JSON), as a reference</li>
+ * </ul>
+ * The payload size of each format is printed during setup.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CacheSerializationBenchmark {
+
+    BalanceCodec json;
+    BalanceCodec binary;
+    GenericJackson2JsonRedisSerializer generic;
+    List<ItemHistoric> historic;
+    List<byte[]> jsonItems;
+    List<byte[]> binaryItems;
+    byte[] genericBytes;
+
+    @Setup
+    public void setUp() {
+        ObjectMapper mapper = new ObjectMapper();
+        json = new BalanceCodec(mapper, "json");
+        binary = new BalanceCodec(mapper, "binary");
+        generic = new GenericJackson2JsonRedisSerializer();
+        historic = new ArrayList<>(BalanceCache.MAX_HISTORIC);
+        for (int i = 0; i < BalanceCache.MAX_HISTORIC; i++) {
+            historic.add(new ItemHistoric(i % 3 == 0 ? "payment" : "deposit",
+                    Money.ofCents(i * 100L + 50), String.format("%02d-01-2025 10:%02d:00", 1 + i % 28, i % 60)));
+        }
+        jsonItems = jsonWrite();
+        binaryItems = binaryWrite();
+        genericBytes = generic.serialize(historic);
+        System.out.printf("%nbytes for %d items: json=%d binary=%d genericJackson=%d%n",
+                historic.size(), size(jsonItems), size(binaryItems), genericBytes.length);
+    }
+
+    @Benchmark
+    public List<byte[]> jsonWrite() {
+        return write(json);
+    }
+
+    @Benchmark
+    public List<ItemHistoric> jsonRead() {
+        return read(json, jsonItems);
+    }
+
+    @Benchmark
+    public List<byte[]> binaryWrite() {
+        return write(binary);
+    }
+
+    @Benchmark
+    public List<ItemHistoric> binaryRead() {
+        return read(binary, binaryItems);
+    }
+
+    @Benchmark
+    public byte[] genericJacksonWrite() {
+        return generic.serialize(historic);
+    }
+
+    @Benchmark
+    public Object genericJacksonRead() {
+        return generic.deserialize(genericBytes);
+    }
+
+    private List<byte[]> write(BalanceCodec codec) {
+        List<byte[]> out = new ArrayList<>(historic.size());
+        for (ItemHistoric item : historic) {
+            out.add(codec.encode(item));
+        }
+        return out;
+    }
+
+    private static List<ItemHistoric> read(BalanceCodec codec, List<byte[]> items) {
+        List<ItemHistoric> out = new ArrayList<>(items.size());
+        for (byte[] bytes : items) {
+            out.add(codec.decode(bytes));
+        }
+        return out;
+    }
+
+    private static long size(List<byte[]> items) {
+        long size = 0;
+        for (byte[] bytes : items) {
+            size += bytes.length;
+        }
+        return size;
+    }
+}
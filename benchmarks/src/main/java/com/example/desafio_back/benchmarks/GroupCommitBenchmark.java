@@ -0,0 +1,118 @@
+package com.example.desafio_back.benchmarks;
+
+import com.example.desafio_back.dtos.BatchItemResult;
+import com.example.desafio_back.dtos.BatchOperation;
+import com.example.desafio_back.dtos.BatchResponse;
+import com.example.desafio_back.model.Money;
+import com.example.desafio_back.services.CommandService;
+import com.example.desafio_back.services.GroupCommitService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Direct vs group-commit write path under concurrent callers. The database is
+ * replaced by a stub whose commits are serialized and cost {@code commitMicros}
+ * (the WAL flush), plus {@code rowMicros} per coalesced account, so the numbers
+ * show the effect of amortizing commits, not real Postgres throughput.
+ * <p>
+ * Run with e.g. {@code -t 32 -p commitMicros=500} and compare ops/s and the
+ * sample-time percentiles of {@code direct} and {@code grouped}.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 3)
+@Fork(1)
+@Threads(32)
+@State(Scope.Benchmark)
+public class GroupCommitBenchmark {
+
+    @Param({"500"})
+    long commitMicros;
+
+    @Param({"20"})
+    long rowMicros;
+
+    @Param({"1000"})
+    int accounts;
+
+    GroupCommitService direct;
+    GroupCommitService grouped;
+
+    @Setup
+    public void setUp() {
+        CommandService db = new StubCommandService(commitMicros * 1_000, rowMicros * 1_000);
+        direct = new GroupCommitService(db, new SimpleMeterRegistry(), false, 256, Duration.ofMillis(2), 10_000, Duration.ofSeconds(10));
+        grouped = new GroupCommitService(db, new SimpleMeterRegistry(), true, 256, Duration.ofMillis(2), 10_000, Duration.ofSeconds(10));
+        grouped.start();
+    }
+
+    @TearDown
+    public void tearDown() throws InterruptedException {
+        grouped.stop();
+    }
+
+    @Benchmark
+    public void direct() {
+        direct.deposit(nextUser(), Money.ofCents(100));
+    }
+
+    @Benchmark
+    public void grouped() {
+        grouped.deposit(nextUser(), Money.ofCents(100));
+    }
+
+    private long nextUser() {
+        return ThreadLocalRandom.current().nextLong(accounts);
+    }
+
+    static final class StubCommandService extends CommandService {
+
+        private final Object disk = new Object();
+        private final long commitNanos;
+        private final long rowNanos;
+
+        StubCommandService(long commitNanos, long rowNanos) {
+            super(null, null, null, new SimpleMeterRegistry());
+            this.commitNanos = commitNanos;
+            this.rowNanos = rowNanos;
+        }
+
+        @Override
+        public void deposit(Long userId, Money amount) {
+            LockSupport.parkNanos(rowNanos);
+            commit();
+        }
+
+        @Override
+        public Map<Long, BatchResponse> applyGroup(SortedMap<Long, List<BatchOperation>> operationsByUser) {
+            Map<Long, BatchResponse> responses = new HashMap<>();
+            operationsByUser.forEach((userId, ops) -> {
+                LockSupport.parkNanos(rowNanos);
+                List<BatchItemResult> results = new ArrayList<>(ops.size());
+                for (int i = 0; i < ops.size(); i++) {
+                    results.add(BatchItemResult.applied(i, Money.ofCents(100)));
+                }
+                responses.put(userId, new BatchResponse(Money.ofCents(100), results));
+            });
+            commit();
+            return responses;
+        }
+
+        private void commit() {
+            synchronized (disk) {
+                LockSupport.parkNanos(commitNanos);
+            }
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.desafio_back.benchmarks;
+
+import com.example.desafio_back.model.Money;
+import com.example.desafio_back.services.CommandService;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The deposit balance rule ({@link CommandService#afterDeposit}), applied per item
+ * by batches, group commits and ledger replays. A negative balance pays the
+ * interest charge (multiply + HALF_UP rounding); a positive one is a plain add.
+ * The {@code bigDecimal*} variants are the same rule on {@link BigDecimal}, as it
+ * was written before {@link Money}. Run with {@code -prof gc} for allocations.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class InterestBenchmark {
+
+    static final BigDecimal INTEREST = new BigDecimal("0.102");
+
+    Money negative = Money.parse("-1234.56");
+    Money positive = Money.parse("1234.56");
+    Money amount = Money.parse("100.00");
+
+    BigDecimal negativeDecimal = new BigDecimal("-1234.56");
+    BigDecimal positiveDecimal = new BigDecimal("1234.56");
+    BigDecimal amountDecimal = new BigDecimal("100.00");
+
+    @Benchmark
+    public Money negativeBalance() {
+        return CommandService.afterDeposit(negative, amount);
+    }
+
+    @Benchmark
+    public Money positiveBalance() {
+        return CommandService.afterDeposit(positive, amount);
+    }
+
+    @Benchmark
+    public BigDecimal bigDecimalNegativeBalance() {
+        return afterDeposit(negativeDecimal, amountDecimal);
+    }
+
+    @Benchmark
+    public BigDecimal bigDecimalPositiveBalance() {
+        return afterDeposit(positiveDecimal, amountDecimal);
+    }
+
+    static BigDecimal afterDeposit(BigDecimal balance, BigDecimal amount) {
+        if (balance.signum() < 0) {
+            balance = balance.subtract(balance.abs().multiply(INTEREST)).setScale(2, RoundingMode.HALF_UP);
+        }
+        return balance.add(amount);
+    }
+}
@@ -0,0 +1,106 @@
+package com.example.desafio_back.benchmarks;
+
+import com.example.desafio_back.security.JwtUtil;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import org.openjdk.jmh.annotations.*;
+
+import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token verification as done by JwtFilter for every authenticated request.
+ * <ul>
+ *   <li>{@code legacy}: the pre-cache path, a new parser per call and two full
+ *       parses (isValid + getSubject)</li>
+ *   <li>{@code verifyMiss}: JwtUtil.verify for tokens it has not seen, i.e. one
+ *       parse plus the digest and cache insert</li>
+ *   <li>{@code verifyHit}: JwtUtil.verify for a hot client's token</li>
+ *   <li>{@code isValid}/{@code getSubject}: the older JwtUtil entry points, both
+ *       served from the same cache as verify</li>
+ * </ul>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JwtBenchmark {
+
+    static final String SECRET = "kTx3tjjKSIHo6mjbyUo5kOLvAO1YhEocBay3FLEWGPjrwMG5WpxaScgy3M8Ee8Ff0HuYDHV5euhWcBOpeZ7TC9";
+    static final int MISS_POOL = 1 << 16;
+
+    SecretKey key;
+    JwtUtil cached;
+    JwtUtil smallCache;
+    String hotToken;
+    String[] coldTokens;
+
+    @Setup
+    public void setUp() {
+        key = Keys.hmacShaKeyFor(SECRET.getBytes(StandardCharsets.UTF_8));
+        cached = new JwtUtil(SECRET, 3_600_000, 10_000);
+        smallCache = new JwtUtil(SECRET, 3_600_000, 1_024);
+        hotToken = cached.generate("jdoe", 42L);
+        cached.verify(hotToken);
+
+        coldTokens = new String[MISS_POOL];
+        for (int i = 0; i < MISS_POOL; i++) {
+            coldTokens[i] = smallCache.generate("user" + i, (long) i);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+    }
+
+    @Benchmark
+    public String legacy() {
+        if (!legacyIsValid(hotToken)) {
+            return null;
+        }
+        return Jwts.parserBuilder().setSigningKey(key).setAllowedClockSkewSeconds(60).build()
+                .parseClaimsJws(hotToken).getBody().getSubject();
+    }
+
+    @Benchmark
+    public Optional<Claims> verifyMiss(Cursor cursor) {
+        String token = coldTokens[cursor.next++ & (MISS_POOL - 1)];
+        return smallCache.verify(token);
+    }
+
+    @Benchmark
+    public Optional<Claims> verifyHit() {
+        return cached.verify(hotToken);
+    }
+
+    @Benchmark
+    public boolean isValid() {
+        return cached.isValid(hotToken);
+    }
+
+    @Benchmark
+    public String getSubject() {
+        return cached.getSubject(hotToken);
+    }
+
+    @Benchmark
+    public String generate() {
+        return cached.generate("jdoe", 42L);
+    }
+
+    private boolean legacyIsValid(String token) {
+        try {
+            Jwts.parserBuilder().setSigningKey(key).setAllowedClockSkewSeconds(60).build().parseClaimsJws(token);
+            return true;
+        } catch (JwtException | IllegalArgumentException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.desafio_back.benchmarks;
+
+import com.example.desafio_back.model.Money;
+import com.example.desafio_back.services.CommandService;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link Money} against {@link BigDecimal} on the ledger hot path:
+ * <ul>
+ *   <li>{@code fold}: a 200-operation batch folded into the balance, as in
+ *       CommandService.apply (deposits with interest, payments)</li>
+ *   <li>{@code parse}/{@code format}: an amount in and out of its JSON text</li>
+ * </ul>
+ * Run with {@code -prof gc} to see bytes allocated per operation.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MoneyBenchmark {
+
+    static final int OPERATIONS = 200;
+
+    boolean[] deposit = new boolean[OPERATIONS];
+    Money[] amounts = new Money[OPERATIONS];
+    BigDecimal[] decimals = new BigDecimal[OPERATIONS];
+    String text = "1234.56";
+    Money money = Money.parse(text);
+    BigDecimal decimal = new BigDecimal(text);
+
+    @Setup
+    public void setUp() {
+        for (int i = 0; i < OPERATIONS; i++) {
+            // payments outweigh deposits so the balance keeps crossing zero and pays interest
+            deposit[i] = i % 3 == 0;
+            long cents = 1_000 + i * 37L;
+            amounts[i] = Money.ofCents(deposit[i] ? cents * 2 : cents);
+            decimals[i] = amounts[i].toBigDecimal();
+        }
+    }
+
+    @Benchmark
+    public Money moneyFold() {
+        Money balance = Money.ZERO;
+        for (int i = 0; i < OPERATIONS; i++) {
+            balance = deposit[i] ? CommandService.afterDeposit(balance, amounts[i]) : balance.minus(amounts[i]);
+        }
+        return balance;
+    }
+
+    @Benchmark
+    public BigDecimal bigDecimalFold() {
+        BigDecimal balance = BigDecimal.ZERO;
+        for (int i = 0; i < OPERATIONS; i++) {
+            balance = deposit[i] ? InterestBenchmark.afterDeposit(balance, decimals[i]) : balance.subtract(decimals[i]);
+        }
+        return balance;
+    }
+
+    @Benchmark
+    public Money moneyParse() {
+        return Money.parse(text);
+    }
+
+    @Benchmark
+    public BigDecimal bigDecimalParse() {
+        return new BigDecimal(text);
+    }
+
+    @Benchmark
+    public String moneyFormat() {
+        return money.toString();
+    }
+
+    @Benchmark
+    public String bigDecimalFormat() {
+        return decimal.toPlainString();
+    }
+}
@@ -0,0 +1,156 @@
+package com.example.desafio_back.benchmarks;
+
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.apache.catalina.Context;
+import org.apache.catalina.connector.Connector;
+import org.apache.catalina.startup.Tomcat;
+import org.apache.coyote.AbstractProtocol;
+import org.apache.tomcat.util.threads.VirtualThreadExecutor;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Platform vs virtual request threads under many concurrent connections.
+ * Starts an embedded Tomcat configured the way Spring Boot does it (default
+ * 200 worker threads, or a {@link VirtualThreadExecutor} when
+ * {@code spring.threads.virtual.enabled=true}) with a handler that blocks for
+ * {@code ioMillis}, standing in for the JDBC/Redis waits of the real endpoints.
+ * A closed loop of {@code connections} clients then measures throughput and
+ * latency percentiles for each mode.
+ * <p>
+ * Not a JMH benchmark: {@code java -cp benchmarks/target/benchmarks.jar
+ * com.example.desafio_back.benchmarks.ThreadModelLoad [connections] [ioMillis] [seconds]}
+ */
+public final class ThreadModelLoad {
+
+    public static void main(String[] args) throws Exception {
+        int connections = args.length > 0 ? Integer.parseInt(args[0]) : 2_000;
+        long ioMillis = args.length > 1 ? Long.parseLong(args[1]) : 20;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+
+        System.out.printf("%d connections, %d ms blocking per request, %d s per mode%n", connections, ioMillis, seconds);
+        System.out.printf("%-9s %12s %10s %10s %10s %8s%n", "mode", "req/s", "p50 ms", "p99 ms", "max ms", "errors");
+        for (String mode : List.of("platform", "virtual")) {
+            Tomcat tomcat = start(mode.equals("virtual"), ioMillis);
+            try {
+                int port = tomcat.getConnector().getLocalPort();
+                run(port, connections, 2);                 // warm-up, discarded
+                Result r = run(port, connections, seconds);
+                System.out.printf("%-9s %12.0f %10.1f %10.1f %10.1f %8d%n",
+                        mode, r.count() / (double) seconds, r.pct(0.50), r.pct(0.99), r.pct(1.0), r.errors());
+            } finally {
+                tomcat.stop();
+                tomcat.destroy();
+            }
+        }
+    }
+
+    private static Tomcat start(boolean virtual, long ioMillis) throws Exception {
+        Tomcat tomcat = new Tomcat();
+        tomcat.setBaseDir(Files.createTempDirectory("tomcat").toString());
+
+        Connector connector = new Connector("HTTP/1.1");
+        connector.setPort(0);
+        connector.setProperty("maxConnections", "20000");
+        connector.setProperty("acceptCount", "10000");
+        if (virtual) {
+            ((AbstractProtocol<?>) connector.getProtocolHandler()).setExecutor(new VirtualThreadExecutor("tomcat-handler-"));
+        }
+        tomcat.setConnector(connector);
+
+        Context ctx = tomcat.addContext("", null);
+        Tomcat.addServlet(ctx, "io", new HttpServlet() {
+            @Override
+            protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+                try {
+                    Thread.sleep(ioMillis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                resp.getWriter().write("ok");
+            }
+        });
+        ctx.addServletMappingDecoded("/", "io");
+        tomcat.start();
+        return tomcat;
+    }
+
+    private static Result run(int port, int connections, int seconds) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/")).build();
+        long deadline = System.nanoTime() + seconds * 1_000_000_000L;
+
+        try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            HttpClient http = HttpClient.newBuilder().executor(clients).version(HttpClient.Version.HTTP_1_1).build();
+            List<Future<long[]>> futures = new ArrayList<>(connections);
+            for (int i = 0; i < connections; i++) {
+                futures.add(clients.submit(() -> {
+                    long[] samples = new long[1024];
+                    int n = 0;
+                    long errors = 0;
+                    while (System.nanoTime() < deadline) {
+                        long start = System.nanoTime();
+                        try {
+                            http.send(request, HttpResponse.BodyHandlers.discarding());
+                        } catch (IOException e) {
+                            errors++;
+                            continue;
+                        }
+                        if (n == samples.length) {
+                            samples = Arrays.copyOf(samples, n * 2);
+                        }
+                        samples[n++] = System.nanoTime() - start;
+                    }
+                    long[] out = Arrays.copyOf(samples, n + 1);
+                    out[n] = -errors - 1;   // last slot carries the error count
+                    return out;
+                }));
+            }
+
+            long errors = 0;
+            List<long[]> all = new ArrayList<>(connections);
+            int total = 0;
+            for (Future<long[]> f : futures) {
+                long[] samples = f.get();
+                errors += -samples[samples.length - 1] - 1;
+                all.add(samples);
+                total += samples.length - 1;
+            }
+            long[] latencies = new long[total];
+            int at = 0;
+            for (long[] samples : all) {
+                System.arraycopy(samples, 0, latencies, at, samples.length - 1);
+                at += samples.length - 1;
+            }
+            Arrays.sort(latencies);
+            return new Result(latencies, errors);
+        }
+    }
+
+    private record Result(long[] sortedNanos, long errors) {
+
+        long count() {
+            return sortedNanos.length;
+        }
+
+        double pct(double p) {
+            if (sortedNanos.length == 0) {
+                return Double.NaN;
+            }
+            int i = (int) Math.min(sortedNanos.length - 1, Math.ceil(p * sortedNanos.length) - 1);
+            return sortedNanos[Math.max(0, i)] / 1e6;
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.example.desafio_back.loadtest;
+
+/** Requests the harness sends; register and login only run during setup. */
+enum Endpoint {
+    REGISTER(false),
+    LOGIN(false),
+    BALANCE(true),
+    DEPOSIT(true),
+    PAYMENT(true);
+
+    private final boolean inMix;
+
+    Endpoint(boolean inMix) {
+        this.inMix = inMix;
+    }
+
+    boolean inMix() {
+        return inMix;
+    }
+}
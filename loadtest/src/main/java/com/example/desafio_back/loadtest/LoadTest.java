@@ -0,0 +1,360 @@
+package com.example.desafio_back.loadtest;
+
+import com.example.desafio_back.DesafioBackApplication;
+import com.github.fppt.jedismock.RedisServer;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Open-model load generator: requests are started on a fixed schedule
+ * ({@code rate} per second) whether or not earlier ones have finished, and each
+ * latency is measured from its scheduled start, so a stalled server shows up
+ * as queueing delay instead of silently lowering the offered load.
+ * <p>
+ * Flow: register and log in {@code users} accounts, run the configured mix of
+ * balance/deposit/payment calls for {@code warmup} (discarded) plus
+ * {@code duration}, then print p50/p99/p99.9 per endpoint from HdrHistogram.
+ * Without a {@code target} the app is started in-process against jedis-mock
+ * and the Postgres at {@code db.url}. See {@link Scenario} for all settings.
+ * <p>
+ * {@code java -jar loadtest/target/loadtest.jar [scenario.properties]}
+ */
+public final class LoadTest {
+
+    static final long HIGHEST_MICROS = TimeUnit.MINUTES.toMicros(2);
+    static final int SETUP_CONCURRENCY = 16;
+    static final Pattern TOKEN = Pattern.compile("\"token\"\\s*:\\s*\"([^\"]+)\"");
+
+    private final Scenario scenario;
+    private final URI base;
+    private final HttpClient http;
+
+    private LoadTest(Scenario scenario, URI base, HttpClient http) {
+        this.scenario = scenario;
+        this.base = base;
+        this.http = http;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Scenario scenario = Scenario.load(args);
+        try (EmbeddedApp app = scenario.target().isEmpty() ? EmbeddedApp.start(scenario) : null;
+             ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            URI base = URI.create(app != null ? app.baseUrl() : scenario.target());
+            HttpClient http = HttpClient.newBuilder()
+                    .executor(clients)
+                    .version(HttpClient.Version.HTTP_1_1)
+                    .connectTimeout(Duration.ofSeconds(5))
+                    .build();
+            new LoadTest(scenario, base, http).run();
+        }
+    }
+
+    private void run() throws Exception {
+        Map<Endpoint, Stats> setup = stats();
+        System.out.printf("target %s, setting up %d users%n", base, scenario.users());
+        List<String> tokens = setUp(setup);
+        report("setup (closed loop)", setup, 0, 0);
+        if (tokens.isEmpty()) {
+            throw new IllegalStateException("No user could log in; is the app reachable?");
+        }
+
+        Map<Endpoint, Stats> measured = stats();
+        System.out.printf("%d req/s for %ds (+%ds warm-up), mix %s, %.1f%% of %d accounts hot with %.0f%% of the traffic%n",
+                scenario.rate(), scenario.duration().toSeconds(), scenario.warmup().toSeconds(), scenario.mix(),
+                scenario.hotAccounts() * 100, tokens.size(), scenario.hotShare() * 100);
+        long dropped = drive(tokens, measured);
+        report("run (open model)", measured, dropped, scenario.duration().toSeconds());
+
+        if (scenario.output() != null) {
+            write(measured);
+        }
+    }
+
+    // register + login every user, SETUP_CONCURRENCY at a time; BCrypt makes this the slow part
+    private List<String> setUp(Map<Endpoint, Stats> stats) throws InterruptedException {
+        String run = Long.toString(System.currentTimeMillis(), 36);
+        List<String> tokens = Collections.synchronizedList(new ArrayList<>(scenario.users()));
+        Semaphore slots = new Semaphore(SETUP_CONCURRENCY);
+        try (ExecutorService pool = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < scenario.users(); i++) {
+                slots.acquire();
+                String login = "lt-" + run + "-" + i;
+                pool.execute(() -> {
+                    try {
+                        String register = "{\"completeName\":\"Load Test\",\"cpf\":\"%s\",\"login\":\"%s\",\"password\":\"secret\"}"
+                                .formatted(cpf(), login);
+                        if (timed(stats.get(Endpoint.REGISTER), post("/auth/register", register, null)) == null) {
+                            return;
+                        }
+                        String body = timed(stats.get(Endpoint.LOGIN),
+                                post("/auth/login", "{\"login\":\"%s\",\"password\":\"secret\"}".formatted(login), null));
+                        Matcher m = body == null ? null : TOKEN.matcher(body);
+                        if (m != null && m.find()) {
+                            tokens.add(m.group(1));
+                        }
+                    } finally {
+                        slots.release();
+                    }
+                });
+            }
+        }
+        return new ArrayList<>(tokens);
+    }
+
+    private long drive(List<String> tokens, Map<Endpoint, Stats> measured) {
+        Endpoint[] wheel = wheel(scenario.mix());
+        int hot = (int) Math.min(tokens.size(), Math.ceil(tokens.size() * scenario.hotAccounts()));
+        Semaphore inFlight = new Semaphore(scenario.maxInFlight());
+        LongAdder dropped = new LongAdder();
+
+        long start = System.nanoTime();
+        long warmEnd = start + scenario.warmup().toNanos();
+        long end = warmEnd + scenario.duration().toNanos();
+        try (ExecutorService pool = Executors.newVirtualThreadPerTaskExecutor()) {
+            ThreadLocalRandom rnd = ThreadLocalRandom.current();
+            for (long i = 0; ; i++) {
+                long intended = start + i * 1_000_000_000L / scenario.rate();
+                if (intended >= end) {
+                    break;
+                }
+                long wait;
+                while ((wait = intended - System.nanoTime()) > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+
+                // warm-up requests go out at full rate but are not recorded
+                Map<Endpoint, Stats> stats = intended < warmEnd ? null : measured;
+                if (!inFlight.tryAcquire()) {
+                    if (stats != null) {
+                        dropped.increment();
+                    }
+                    continue;
+                }
+                Endpoint endpoint = wheel[rnd.nextInt(wheel.length)];
+                String token = tokens.get(account(rnd, tokens.size(), hot, scenario.hotShare()));
+                pool.execute(() -> {
+                    try {
+                        boolean ok = send(endpoint, token);
+                        if (stats != null) {
+                            stats.get(endpoint).record(System.nanoTime() - intended, ok);
+                        }
+                    } finally {
+                        inFlight.release();
+                    }
+                });
+            }
+        }
+        return dropped.sum();
+    }
+
+    // hot accounts are the first `hot` ones; everything else is uniform over the rest
+    static int account(ThreadLocalRandom rnd, int accounts, int hot, double hotShare) {
+        if (hot == 0 || hot == accounts) {
+            return rnd.nextInt(accounts);
+        }
+        return rnd.nextDouble() < hotShare ? rnd.nextInt(hot) : hot + rnd.nextInt(accounts - hot);
+    }
+
+    private boolean send(Endpoint endpoint, String token) {
+        HttpRequest request = switch (endpoint) {
+            case BALANCE -> authorized(HttpRequest.newBuilder(base.resolve("/api/balance")).GET(), token);
+            case DEPOSIT -> post("/api/deposits", "{\"value\":10.00}", token);
+            case PAYMENT -> post("/api/payments", "{\"value\":1.00}", token);
+            default -> throw new IllegalArgumentException(endpoint + " is not part of the mix");
+        };
+        try {
+            int status = http.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+            return status / 100 == 2;
+        } catch (IOException e) {
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    // returns the body of a 2xx response, or null
+    private String timed(Stats stats, HttpRequest request) {
+        long start = System.nanoTime();
+        try {
+            HttpResponse<String> response = http.send(request, HttpResponse.BodyHandlers.ofString());
+            boolean ok = response.statusCode() / 100 == 2;
+            stats.record(System.nanoTime() - start, ok);
+            return ok ? response.body() : null;
+        } catch (IOException e) {
+            stats.record(System.nanoTime() - start, false);
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+
+    private HttpRequest post(String path, String json, String token) {
+        HttpRequest.Builder b = HttpRequest.newBuilder(base.resolve(path))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(json));
+        return token == null ? b.timeout(Duration.ofSeconds(30)).build() : authorized(b, token);
+    }
+
+    private static HttpRequest authorized(HttpRequest.Builder b, String token) {
+        return b.header("Authorization", "Bearer " + token).timeout(Duration.ofSeconds(30)).build();
+    }
+
+    static Endpoint[] wheel(Map<Endpoint, Integer> mix) {
+        List<Endpoint> wheel = new ArrayList<>();
+        mix.forEach((endpoint, weight) -> wheel.addAll(Collections.nCopies(weight, endpoint)));
+        return wheel.toArray(Endpoint[]::new);
+    }
+
+    // random 9-digit base plus the two CPF check digits, so @CPF accepts it
+    static String cpf() {
+        int[] d = new int[11];
+        String base = Integer.toString(ThreadLocalRandom.current().nextInt(100_000_000, 1_000_000_000));
+        for (int i = 0; i < 9; i++) {
+            d[i] = base.charAt(i) - '0';
+        }
+        d[9] = checkDigit(d, 9);
+        d[10] = checkDigit(d, 10);
+        StringBuilder sb = new StringBuilder(11);
+        for (int digit : d) {
+            sb.append(digit);
+        }
+        return sb.toString();
+    }
+
+    private static int checkDigit(int[] d, int length) {
+        int sum = 0;
+        for (int i = 0; i < length; i++) {
+            sum += d[i] * (length + 1 - i);
+        }
+        int r = sum * 10 % 11;
+        return r == 10 ? 0 : r;
+    }
+
+    private static Map<Endpoint, Stats> stats() {
+        Map<Endpoint, Stats> stats = new EnumMap<>(Endpoint.class);
+        for (Endpoint e : Endpoint.values()) {
+            stats.put(e, new Stats());
+        }
+        return stats;
+    }
+
+    private static void report(String title, Map<Endpoint, Stats> stats, long dropped, long seconds) {
+        System.out.println(title);
+        System.out.printf("%-9s %9s %7s %9s %9s %9s %9s%n", "endpoint", "count", "errors", "p50 ms", "p99 ms", "p99.9 ms", "max ms");
+        long total = 0;
+        for (Map.Entry<Endpoint, Stats> e : stats.entrySet()) {
+            Histogram h = e.getValue().snapshot();
+            if (h.getTotalCount() == 0) {
+                continue;
+            }
+            total += h.getTotalCount();
+            System.out.printf("%-9s %9d %7d %9.2f %9.2f %9.2f %9.2f%n", e.getKey().name().toLowerCase(),
+                    h.getTotalCount(), e.getValue().errors.sum(),
+                    h.getValueAtPercentile(50) / 1000.0, h.getValueAtPercentile(99) / 1000.0,
+                    h.getValueAtPercentile(99.9) / 1000.0, h.getMaxValue() / 1000.0);
+        }
+        if (seconds > 0) {
+            System.out.printf("completed %.0f req/s, dropped %d (max-in-flight reached)%n", total / (double) seconds, dropped);
+        }
+        System.out.println();
+    }
+
+    private void write(Map<Endpoint, Stats> stats) throws IOException {
+        Files.createDirectories(scenario.output());
+        for (Map.Entry<Endpoint, Stats> e : stats.entrySet()) {
+            Histogram h = e.getValue().snapshot();
+            if (h.getTotalCount() == 0) {
+                continue;
+            }
+            try (PrintStream out = new PrintStream(Files.newOutputStream(
+                    scenario.output().resolve(e.getKey().name().toLowerCase() + ".hgrm")))) {
+                h.outputPercentileDistribution(out, 1000.0);   // microseconds -> ms
+            }
+        }
+        System.out.println("histograms written to " + scenario.output());
+    }
+
+    /** Latencies in microseconds; every recorder is read once, after its phase has ended. */
+    static final class Stats {
+        private final Recorder latency = new Recorder(HIGHEST_MICROS, 3);
+        private final LongAdder errors = new LongAdder();
+        private Histogram snapshot;
+
+        void record(long nanos, boolean ok) {
+            latency.recordValue(Math.min(HIGHEST_MICROS, Math.max(1, nanos / 1_000)));
+            if (!ok) {
+                errors.increment();
+            }
+        }
+
+        synchronized Histogram snapshot() {
+            if (snapshot == null) {
+                snapshot = latency.getIntervalHistogram();
+            }
+            return snapshot;
+        }
+    }
+
+    /** The app on a random port, backed by jedis-mock and the configured Postgres. */
+    private record EmbeddedApp(RedisServer redis, ConfigurableApplicationContext context) implements AutoCloseable {
+
+        static EmbeddedApp start(Scenario s) throws IOException {
+            RedisServer redis = RedisServer.newRedisServer().start();
+            List<String> args = new ArrayList<>(List.of(
+                    "--server.port=0",
+                    "--spring.main.banner-mode=off",
+                    "--logging.level.root=WARN",
+                    "--spring.data.redis.host=" + redis.getHost(),
+                    "--spring.data.redis.port=" + redis.getBindPort(),
+                    "--spring.datasource.url=" + s.dbUrl(),
+                    "--spring.datasource.username=" + s.dbUsername(),
+                    "--spring.datasource.password=" + s.dbPassword()));
+            s.appProperties().forEach((k, v) -> args.add("--" + k + "=" + v));
+            try {
+                ConfigurableApplicationContext context = new SpringApplicationBuilder(DesafioBackApplication.class)
+                        .run(args.toArray(String[]::new));
+                return new EmbeddedApp(redis, context);
+            } catch (RuntimeException e) {
+                redis.stop();
+                throw e;
+            }
+        }
+
+        String baseUrl() {
+            return "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+        }
+
+        @Override
+        public void close() throws IOException {
+            context.close();
+            redis.stop();
+        }
+    }
+}
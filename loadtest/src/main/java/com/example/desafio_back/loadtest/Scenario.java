@@ -0,0 +1,129 @@
+package com.example.desafio_back.loadtest;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+
+/**
+ * A load-test run, read from a properties file (first program argument) with
+ * {@code -Dloadtest.<key>=...} system properties on top. Keys and defaults:
+ * <pre>
+ * target=                      base URL of a running app; blank starts one in-process
+ * db.url=jdbc:postgresql://localhost:5432/desafio   (in-process only)
+ * db.username=admin
+ * db.password=senha123
+ * users=200                    accounts registered and logged in before the run
+ * rate=200                     requests per second (open model, fixed arrival rate)
+ * warmup=10s                   run at full rate but discard the samples
+ * duration=60s
+ * max-in-flight=5000           arrivals beyond this many outstanding requests are dropped
+ * mix=balance:95,deposit:3,payment:2
+ * hot.accounts=0.01            fraction of the accounts that are "hot"
+ * hot.share=0.5                fraction of the requests that go to a hot account
+ * output=                      directory for per-endpoint .hgrm files (optional)
+ * app.*                        passed to the in-process app, e.g. app.commands.group-commit.enabled=true
+ * </pre>
+ */
+record Scenario(
+        String target,
+        String dbUrl,
+        String dbUsername,
+        String dbPassword,
+        int users,
+        int rate,
+        Duration warmup,
+        Duration duration,
+        int maxInFlight,
+        Map<Endpoint, Integer> mix,
+        double hotAccounts,
+        double hotShare,
+        Path output,
+        Map<String, String> appProperties
+) {
+
+    static Scenario load(String[] args) throws IOException {
+        Properties p = new Properties();
+        if (args.length > 0) {
+            try (Reader in = Files.newBufferedReader(Path.of(args[0]))) {
+                p.load(in);
+            }
+        }
+        System.getProperties().stringPropertyNames().stream()
+                .filter(k -> k.startsWith("loadtest."))
+                .forEach(k -> p.setProperty(k.substring("loadtest.".length()), System.getProperty(k)));
+
+        Map<String, String> app = new TreeMap<>();
+        p.stringPropertyNames().stream()
+                .filter(k -> k.startsWith("app."))
+                .forEach(k -> app.put(k.substring("app.".length()), p.getProperty(k)));
+
+        String output = p.getProperty("output", "").trim();
+        Scenario s = new Scenario(
+                p.getProperty("target", "").trim(),
+                p.getProperty("db.url", "jdbc:postgresql://localhost:5432/desafio"),
+                p.getProperty("db.username", "admin"),
+                p.getProperty("db.password", "senha123"),
+                Integer.parseInt(p.getProperty("users", "200")),
+                Integer.parseInt(p.getProperty("rate", "200")),
+                duration(p.getProperty("warmup", "10s")),
+                duration(p.getProperty("duration", "60s")),
+                Integer.parseInt(p.getProperty("max-in-flight", "5000")),
+                mix(p.getProperty("mix", "balance:95,deposit:3,payment:2")),
+                Double.parseDouble(p.getProperty("hot.accounts", "0.01")),
+                Double.parseDouble(p.getProperty("hot.share", "0.5")),
+                output.isEmpty() ? null : Path.of(output),
+                app);
+        s.validate();
+        return s;
+    }
+
+    private void validate() {
+        if (users < 1 || rate < 1 || maxInFlight < 1) {
+            throw new IllegalArgumentException("users, rate and max-in-flight must be positive");
+        }
+        if (hotAccounts < 0 || hotAccounts > 1 || hotShare < 0 || hotShare > 1) {
+            throw new IllegalArgumentException("hot.accounts and hot.share must be between 0 and 1");
+        }
+    }
+
+    // "balance:95,deposit:3,payment:2"; weights need not add up to 100
+    static Map<Endpoint, Integer> mix(String raw) {
+        Map<Endpoint, Integer> mix = new EnumMap<>(Endpoint.class);
+        for (String part : raw.split(",")) {
+            String[] kv = part.trim().split(":");
+            if (kv.length != 2) {
+                throw new IllegalArgumentException("Invalid mix entry: " + part);
+            }
+            Endpoint endpoint = Endpoint.valueOf(kv[0].trim().toUpperCase());
+            if (!endpoint.inMix()) {
+                throw new IllegalArgumentException(kv[0] + " cannot be part of the mix");
+            }
+            mix.put(endpoint, Integer.parseInt(kv[1].trim()));
+        }
+        if (mix.values().stream().mapToInt(Integer::intValue).sum() <= 0) {
+            throw new IllegalArgumentException("mix weights must add up to more than 0");
+        }
+        return mix;
+    }
+
+    // "500ms", "30s", "2m" or ISO-8601
+    static Duration duration(String raw) {
+        String v = raw.trim();
+        if (v.endsWith("ms")) {
+            return Duration.ofMillis(Long.parseLong(v.substring(0, v.length() - 2)));
+        }
+        if (v.endsWith("s")) {
+            return Duration.ofSeconds(Long.parseLong(v.substring(0, v.length() - 1)));
+        }
+        if (v.endsWith("m")) {
+            return Duration.ofMinutes(Long.parseLong(v.substring(0, v.length() - 1)));
+        }
+        return Duration.parse(v);
+    }
+}
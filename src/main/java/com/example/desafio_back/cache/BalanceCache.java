@@ -0,0 +1,556 @@
+package com.example.desafio_back.cache;
+
+import com.example.desafio_back.dtos.BalanceAppend;
+import com.example.desafio_back.dtos.BalanceView;
+import com.example.desafio_back.dtos.CacheBalance;
+import com.example.desafio_back.dtos.ItemHistoric;
+import com.example.desafio_back.model.Money;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.serializer.GenericToStringSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Redis read model for balances. Each account is stored as a hash
+ * ({@code balance}, {@code version}) plus a capped list of history items,
+ * newest first. All access goes through Lua scripts so every read and write
+ * is a single round-trip, and writes are ordered by the account version so a
+ * stale writer can never overwrite a newer state.
+ * <p>
+ * Reads are served from {@link LocalBalanceCache} first; every write drops
+ * the account from the L1 of all nodes.
+ * <p>
+ * Script arguments and results travel as raw bytes so the history items can
+ * use the compact {@link BalanceCodec} encoding; the scripts never look inside them.
+ * <p>
+ * Next to the data, the hash can hold the HTTP response already rendered for
+ * its version ({@link #getView}), so hot reads skip object mapping entirely.
+ * <p>
+ * Entries expire {@code cache.balance.ttl} after their last write, minus up to
+ * 10% of jitter so entries written together do not all expire together. The
+ * remaining lifetime comes back with every read, for early refresh.
+ * <p>
+ * Every Redis call goes through {@link RedisCircuitBreaker}. When Redis is down
+ * or slow, reads report a miss so callers go to the database, and writes are
+ * skipped: the account is remembered and its entry dropped once Redis is back,
+ * so its next read rebuilds it (at most {@code cache.balance.repair.max-pending}
+ * accounts; beyond that entries are bounded by the TTL).
+ */
+@Slf4j
+@Component
+public class BalanceCache {
+
+    public static final int MAX_HISTORIC = 200;
+
+    private static final int REPAIR_CHUNK = 500;
+    private static final long REPAIR_DELAY_SECONDS = 1;
+
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> READ =
+            RedisScript.of(new ClassPathResource("redis/balance-read.lua"), List.class);
+    private static final RedisScript<Long> APPEND =
+            RedisScript.of(new ClassPathResource("redis/balance-append.lua"), Long.class);
+    private static final RedisScript<Long> REPLACE =
+            RedisScript.of(new ClassPathResource("redis/balance-replace.lua"), Long.class);
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> VIEW =
+            RedisScript.of(new ClassPathResource("redis/balance-view.lua"), List.class);
+    private static final RedisScript<Long> STORE_VIEW =
+            RedisScript.of(new ClassPathResource("redis/balance-view-store.lua"), Long.class);
+
+    static final RedisSerializer<byte[]> BYTES = RedisSerializer.byteArray();
+    static final RedisSerializer<Long> LONG = new GenericToStringSerializer<>(Long.class);
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    static final RedisSerializer<List> BYTES_LIST = (RedisSerializer) BYTES;
+
+    private final StringRedisTemplate redis;
+    private final CacheCodec codec;
+    private final LocalBalanceCache l1;
+    private final RedisCircuitBreaker breaker;
+    private final Duration ttl;
+    private final int maxRepairs;
+    private final Set<Long> repairs = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean repairScheduled = new AtomicBoolean();
+    private final Counter redisHits;
+    private final Counter redisMisses;
+    private final Counter viewHits;
+    private final Counter viewMisses;
+    private final Timer getTimer;
+    private final Timer appendTimer;
+    private final Timer replaceTimer;
+    private final Timer replaceAllTimer;
+    private final Timer appendAllTimer;
+    private final Timer viewTimer;
+    private final Timer storeViewTimer;
+    private final DistributionSummary getPayload;
+    private final DistributionSummary appendPayload;
+    private final DistributionSummary replacePayload;
+    private final DistributionSummary viewPayload;
+    private final Counter readFallbacks;
+    private final Counter writeFallbacks;
+    private final Counter lockFallbacks;
+    private final Counter repairsDropped;
+
+    public BalanceCache(StringRedisTemplate redis, CacheCodec codec, LocalBalanceCache l1, RedisCircuitBreaker breaker,
+                        MeterRegistry registry,
+                        @Value("${cache.balance.ttl}") Duration ttl,
+                        @Value("${cache.balance.repair.max-pending}") int maxRepairs) {
+        this.redis = redis;
+        this.codec = codec;
+        this.l1 = l1;
+        this.breaker = breaker;
+        this.ttl = ttl;
+        this.maxRepairs = maxRepairs;
+        // same meter and tags as the Caffeine binder uses for the L1, so both tiers chart together
+        this.redisHits = Counter.builder("cache.gets").tags("cache", "balance.l2", "result", "hit").register(registry);
+        this.redisMisses = Counter.builder("cache.gets").tags("cache", "balance.l2", "result", "miss").register(registry);
+        this.viewHits = Counter.builder("cache.gets").tags("cache", "balance.l2.view", "result", "hit").register(registry);
+        this.viewMisses = Counter.builder("cache.gets").tags("cache", "balance.l2.view", "result", "miss").register(registry);
+        this.getTimer = redisTimer("get", registry);
+        this.appendTimer = redisTimer("append", registry);
+        this.replaceTimer = redisTimer("replace", registry);
+        this.replaceAllTimer = redisTimer("replace-all", registry);
+        this.appendAllTimer = redisTimer("append-all", registry);
+        this.viewTimer = redisTimer("view", registry);
+        this.storeViewTimer = redisTimer("store-view", registry);
+        this.getPayload = payload("get", registry);
+        this.appendPayload = payload("append", registry);
+        this.replacePayload = payload("replace", registry);
+        this.viewPayload = payload("view", registry);
+        this.readFallbacks = fallbacks("read", registry);
+        this.writeFallbacks = fallbacks("write", registry);
+        this.lockFallbacks = fallbacks("lock", registry);
+        this.repairsDropped = Counter.builder("balance.cache.repairs.dropped").register(registry);
+        registry.gaugeCollectionSize("balance.cache.repairs.pending", Tags.empty(), repairs);
+        breaker.onRecovery(this::repair);
+    }
+
+    private static Timer redisTimer(String op, MeterRegistry registry) {
+        return Timer.builder("balance.cache.redis").tag("op", op).register(registry);
+    }
+
+    private static DistributionSummary payload(String op, MeterRegistry registry) {
+        return DistributionSummary.builder("balance.cache.payload").baseUnit("bytes").tag("op", op).register(registry);
+    }
+
+    private static Counter fallbacks(String op, MeterRegistry registry) {
+        return Counter.builder("balance.cache.fallbacks").tag("op", op).register(registry);
+    }
+
+    public Optional<CacheBalance> get(Long userId) {
+        CacheBalance local = l1.get(userId);
+        if (local != null) {
+            return Optional.of(local);
+        }
+
+        long generation = l1.generation(userId);
+        Timer.Sample sample = Timer.start();
+        List<byte[]> raw;
+        try {
+            raw = executeForList(READ, keys(userId));
+        } catch (RedisUnavailableException e) {
+            readFallbacks.increment();
+            return Optional.empty();
+        }
+        sample.stop(getTimer);
+        CacheBalance cached = raw == null ? null : decode(raw, codec);
+        if (cached == null) {
+            // an item written by a newer format counts as a miss and is rebuilt from the database
+            redisMisses.increment();
+            return Optional.empty();
+        }
+        redisHits.increment();
+        getPayload.record(size(raw));
+        l1.put(userId, cached, generation);
+        return Optional.of(cached);
+    }
+
+    /**
+     * Pushes new items (oldest first) onto an existing entry. Only applied when
+     * {@code version} directly follows the cached one; a cold entry is left
+     * alone so it gets rebuilt from the database with its full history.
+     */
+    public long append(Long userId, long version, Money balance, List<ItemHistoric> items) {
+        List<byte[]> args = appendArgs(version, balance, items);
+        appendPayload.record(size(args));
+        Timer.Sample sample = Timer.start();
+        Long result;
+        try {
+            result = breaker.call(() -> redis.execute(APPEND, BYTES, LONG, keys(userId), args.toArray()));
+        } catch (RedisUnavailableException e) {
+            skipWrite(userId);
+            return 0;
+        }
+        sample.stop(appendTimer);
+        invalidateEverywhere(userId);
+        return result == null ? 0 : result;
+    }
+
+    /**
+     * {@link #append} for many entries in one pipelined round-trip, applied in
+     * list order, so appends of one account must come in version order. Returns
+     * how many were applied. Like {@link #replaceAll} it fails with
+     * {@link RedisUnavailableException} when Redis is unavailable, leaving the
+     * retry to the caller.
+     */
+    public int appendAll(List<BalanceAppend> appends) {
+        if (appends.isEmpty()) {
+            return 0;
+        }
+        List<byte[][]> commands = new ArrayList<>(appends.size());
+        Set<Long> touched = new LinkedHashSet<>();
+        for (BalanceAppend append : appends) {
+            List<byte[]> args = appendArgs(append.version(), append.balance(), append.items());
+            appendPayload.record(size(args));
+            args.add(0, ascii(key(append.userId())));
+            args.add(1, ascii(historicKey(append.userId())));
+            commands.add(args.toArray(new byte[0][]));
+            touched.add(append.userId());
+        }
+
+        List<Object> results = pipelined(APPEND, commands, appendAllTimer);
+        int applied = 0;
+        for (int i = 0; i < appends.size(); i++) {
+            if (results.get(i + 1) instanceof Long n && n == 1) {
+                applied++;
+            }
+        }
+        breaker.call(() -> {
+            l1.invalidateEverywhere(touched);
+            return null;
+        });
+        return applied;
+    }
+
+    /**
+     * Replaces the whole entry with a snapshot (history newest first), unless
+     * the cache already holds this version or a newer one. An entry already at
+     * this version only gets its expiry pushed back (result 2).
+     */
+    public long replace(Long userId, long version, Money balance, List<ItemHistoric> historic) {
+        List<byte[]> args = replaceArgs(version, balance, historic);
+        replacePayload.record(size(args));
+        Timer.Sample sample = Timer.start();
+        Long result;
+        try {
+            result = breaker.call(() -> redis.execute(REPLACE, BYTES, LONG, keys(userId), args.toArray()));
+        } catch (RedisUnavailableException e) {
+            skipWrite(userId);
+            return 0;
+        }
+        sample.stop(replaceTimer);
+        // also on a refresh: the L1 copies carry the old expiry
+        if (result != null && result > 0) {
+            invalidateEverywhere(userId);
+        }
+        return result == null ? 0 : result;
+    }
+
+    /**
+     * {@link #replace} for many accounts (keyed by user id) in one pipelined
+     * round-trip, with the same version check per entry. Returns how many
+     * entries were written. Unlike the single writes this one fails with
+     * {@link RedisUnavailableException} when Redis is unavailable.
+     */
+    public int replaceAll(Map<Long, CacheBalance> entries) {
+        if (entries.isEmpty()) {
+            return 0;
+        }
+        List<Long> userIds = new ArrayList<>(entries.keySet());
+        List<byte[][]> commands = new ArrayList<>(userIds.size());
+        for (Long userId : userIds) {
+            CacheBalance entry = entries.get(userId);
+            List<byte[]> args = replaceArgs(entry.getVersion(), entry.getTotalBalance(), entry.getHistoric());
+            replacePayload.record(size(args));
+            args.add(0, ascii(key(userId)));
+            args.add(1, ascii(historicKey(userId)));
+            commands.add(args.toArray(new byte[0][]));
+        }
+
+        List<Object> results = pipelined(REPLACE, commands, replaceAllTimer);
+        List<Long> touched = new ArrayList<>();
+        int written = 0;
+        for (int i = 0; i < userIds.size(); i++) {
+            Object result = results.get(i + 1);
+            if (result instanceof Long n && n > 0) {
+                touched.add(userIds.get(i));
+                written += n == 1 ? 1 : 0;
+            }
+        }
+        breaker.call(() -> {
+            l1.invalidateEverywhere(touched);
+            return null;
+        });
+        return written;
+    }
+
+    /**
+     * The response rendered for the current version in {@code format}, if one
+     * was stored. A view of an older version or of another format is never
+     * returned; the caller renders again and calls {@link #putView}.
+     */
+    public Optional<BalanceView> getView(Long userId, String format) {
+        BalanceView local = l1.getView(userId, format);
+        if (local != null) {
+            return Optional.of(local);
+        }
+
+        long generation = l1.generation(userId);
+        Timer.Sample sample = Timer.start();
+        List<byte[]> raw;
+        try {
+            raw = executeForList(VIEW, List.of(key(userId)), ascii(format));
+        } catch (RedisUnavailableException e) {
+            readFallbacks.increment();
+            return Optional.empty();
+        }
+        sample.stop(viewTimer);
+        if (raw == null || raw.size() < 2 || raw.get(0) == null) {
+            viewMisses.increment();
+            return Optional.empty();
+        }
+        viewHits.increment();
+        BalanceView view = new BalanceView(raw.get(0), expiresAt(raw.get(1)));
+        viewPayload.record(view.json().length);
+        l1.putView(userId, format, view, generation);
+        return Optional.of(view);
+    }
+
+    /** Stores a rendered response, unless the entry has moved past {@code version} meanwhile. */
+    public long putView(Long userId, long version, String format, byte[] view) {
+        Timer.Sample sample = Timer.start();
+        Long result;
+        try {
+            result = breaker.call(() -> redis.execute(STORE_VIEW, BYTES, LONG, List.of(key(userId)),
+                    ascii(format), ascii(Long.toString(version)), view));
+        } catch (RedisUnavailableException e) {
+            // nothing to repair: a view is only ever served for the version it was rendered from
+            writeFallbacks.increment();
+            return 0;
+        }
+        sample.stop(storeViewTimer);
+        return result == null ? 0 : result;
+    }
+
+    /**
+     * Short lock held while one node rebuilds the entry from the database, so
+     * the other nodes wait for its result instead of loading it too. It simply
+     * expires if the holder dies; false when another node holds it. Without
+     * Redis every node rebuilds on its own, so this returns true.
+     */
+    public boolean tryLock(Long userId, Duration timeout) {
+        try {
+            return Boolean.TRUE.equals(breaker.call(() -> redis.opsForValue().setIfAbsent(lockKey(userId), "1", timeout)));
+        } catch (RedisUnavailableException e) {
+            lockFallbacks.increment();
+            return true;
+        }
+    }
+
+    // may drop a successor's lock if ours already expired; the cost is one extra rebuild
+    public void unlock(Long userId) {
+        try {
+            breaker.call(() -> redis.delete(lockKey(userId)));
+        } catch (RedisUnavailableException e) {
+            // expires on its own
+        }
+    }
+
+    /**
+     * Drops the entries whose write was skipped, so their next read rebuilds
+     * them from the database. Runs when the breaker closes, or shortly after a
+     * write failed while it stayed closed.
+     */
+    void repair() {
+        repairScheduled.set(false);
+        List<Long> userIds = new ArrayList<>(repairs);
+        for (int from = 0; from < userIds.size(); from += REPAIR_CHUNK) {
+            List<Long> chunk = userIds.subList(from, Math.min(from + REPAIR_CHUNK, userIds.size()));
+            // removed first: a write skipped from now on marks the account again
+            repairs.removeAll(chunk);
+            List<String> keys = new ArrayList<>(chunk.size() * 2);
+            for (Long userId : chunk) {
+                keys.add(key(userId));
+                keys.add(historicKey(userId));
+            }
+            try {
+                breaker.call(() -> redis.delete(keys));
+                breaker.call(() -> {
+                    l1.invalidateEverywhere(chunk);
+                    return null;
+                });
+            } catch (RedisUnavailableException e) {
+                repairs.addAll(userIds.subList(from, userIds.size()));
+                scheduleRepair();
+                return;
+            }
+        }
+        if (!userIds.isEmpty()) {
+            log.info("Dropped {} balance cache entries written while Redis was unavailable", userIds.size());
+        }
+    }
+
+    // the entry may now be behind the database
+    private void skipWrite(Long userId) {
+        writeFallbacks.increment();
+        l1.invalidate(userId);
+        if (repairs.size() < maxRepairs) {
+            repairs.add(userId);
+        } else {
+            repairsDropped.increment();
+        }
+        scheduleRepair();
+    }
+
+    // a failure that did not open the breaker gets no recovery callback, so retry on our own
+    private void scheduleRepair() {
+        if (!breaker.isOpen() && repairScheduled.compareAndSet(false, true)) {
+            CompletableFuture.runAsync(this::repair,
+                    CompletableFuture.delayedExecutor(REPAIR_DELAY_SECONDS, TimeUnit.SECONDS));
+        }
+    }
+
+    // results.get(0) is the SCRIPT LOAD reply, then one per command
+    private List<Object> pipelined(RedisScript<Long> script, List<byte[][]> commands, Timer timer) {
+        byte[] source = script.getScriptAsString().getBytes(StandardCharsets.UTF_8);
+        Timer.Sample sample = Timer.start();
+        List<Object> results = breaker.call(() -> redis.executePipelined((RedisCallback<Object>) connection -> {
+            // loaded first in the same pipeline: right after a flush the script cache is empty too
+            connection.scriptingCommands().scriptLoad(source);
+            for (byte[][] keysAndArgs : commands) {
+                connection.scriptingCommands().evalSha(script.getSha1(), ReturnType.INTEGER, 2, keysAndArgs);
+            }
+            return null;
+        }, BYTES));
+        sample.stop(timer);
+        return results;
+    }
+
+    private void invalidateEverywhere(Long userId) {
+        try {
+            breaker.call(() -> {
+                l1.invalidateEverywhere(userId);
+                return null;
+            });
+        } catch (RedisUnavailableException e) {
+            // other nodes drop their copy when the L1 TTL runs out
+            l1.invalidate(userId);
+        }
+    }
+
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    private List<byte[]> executeForList(RedisScript<List> script, List<String> keys, Object... args) {
+        return breaker.call(() -> (List<byte[]>) redis.execute(script, BYTES, BYTES_LIST, keys, args));
+    }
+
+    public static String key(Long userId) {
+        return "balance:" + userId;
+    }
+
+    public static String historicKey(Long userId) {
+        return "balance:" + userId + ":historic";
+    }
+
+    static String lockKey(Long userId) {
+        return "balance:" + userId + ":lock";
+    }
+
+    private static List<String> keys(Long userId) {
+        return List.of(key(userId), historicKey(userId));
+    }
+
+    /** Script arguments: version, balance, history cap and time to live, followed by the items. */
+    public static List<byte[]> header(long version, Money balance, int items, Duration ttl) {
+        List<byte[]> args = new ArrayList<>(items + 4);
+        args.add(ascii(Long.toString(version)));
+        args.add(ascii(balance.toString()));
+        args.add(ascii(Integer.toString(MAX_HISTORIC)));
+        long ttlMillis = ttl.toMillis();
+        if (ttlMillis > 0) {
+            ttlMillis -= ThreadLocalRandom.current().nextLong(ttlMillis / 10 + 1);
+        }
+        args.add(ascii(Long.toString(ttlMillis)));
+        return args;
+    }
+
+    private List<byte[]> appendArgs(long version, Money balance, List<ItemHistoric> items) {
+        List<byte[]> args = header(version, balance, items.size(), ttl);
+        for (ItemHistoric item : items) {
+            args.add(codec.encode(item));
+        }
+        return args;
+    }
+
+    private List<byte[]> replaceArgs(long version, Money balance, List<ItemHistoric> historic) {
+        int size = Math.min(historic.size(), MAX_HISTORIC);
+        List<byte[]> args = header(version, balance, size, ttl);
+        for (int i = 0; i < size; i++) {
+            args.add(codec.encode(historic.get(i)));
+        }
+        return args;
+    }
+
+    private static byte[] ascii(String value) {
+        return value.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    /** The result of {@code balance-read.lua}, or null when absent or not decodable by this node. */
+    public static CacheBalance decode(List<byte[]> raw, CacheCodec codec) {
+        if (raw.size() < 3 || raw.get(0) == null) {
+            return null;
+        }
+        List<ItemHistoric> historic = new ArrayList<>(raw.size() - 3);
+        try {
+            for (int i = 3; i < raw.size(); i++) {
+                historic.add(codec.decode(raw.get(i)));
+            }
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        Money balance = Money.parse(new String(raw.get(0), StandardCharsets.US_ASCII));
+        long version = Long.parseLong(new String(raw.get(1), StandardCharsets.US_ASCII));
+        return new CacheBalance(balance, Collections.unmodifiableList(historic), version, expiresAt(raw.get(2)));
+    }
+
+    // PTTL as returned by the scripts; negative when the key has no expiry
+    private static long expiresAt(byte[] pttl) {
+        long millis = Long.parseLong(new String(pttl, StandardCharsets.US_ASCII));
+        return millis < 0 ? 0 : System.currentTimeMillis() + millis;
+    }
+
+    private static long size(List<byte[]> values) {
+        long size = 0;
+        for (byte[] v : values) {
+            if (v != null) {
+                size += v.length;
+            }
+        }
+        return size;
+    }
+}
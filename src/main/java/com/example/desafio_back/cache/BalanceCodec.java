@@ -0,0 +1,43 @@
+package com.example.desafio_back.cache;
+
+import com.example.desafio_back.dtos.ItemHistoric;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * The codec used for the balance history. Writes with {@code cache.balance.codec}
+ * ({@code binary} or {@code json}) and reads both, telling them apart by the
+ * first byte. For a rolling upgrade from a JSON-only release, deploy with
+ * {@code json} first and switch to {@code binary} once every node runs this code.
+ */
+@Component
+public class BalanceCodec implements CacheCodec {
+
+    private final CacheCodec json;
+    private final CacheCodec binary;
+    private final CacheCodec writer;
+
+    public BalanceCodec(ObjectMapper mapper, @Value("${cache.balance.codec}") String codec) {
+        this.json = new JsonCacheCodec(mapper);
+        this.binary = new BinaryCacheCodec(json);
+        this.writer = switch (codec) {
+            case "binary" -> binary;
+            case "json" -> json;
+            default -> throw new IllegalArgumentException("cache.balance.codec must be binary or json, got " + codec);
+        };
+    }
+
+    @Override
+    public byte[] encode(ItemHistoric item) {
+        return writer.encode(item);
+    }
+
+    @Override
+    public ItemHistoric decode(byte[] bytes) {
+        if (bytes.length > 0 && bytes[0] == '{') {
+            return json.decode(bytes);
+        }
+        return binary.decode(bytes);
+    }
+}
@@ -0,0 +1,154 @@
+package com.example.desafio_back.cache;
+
+import com.example.desafio_back.dtos.ItemHistoric;
+import com.example.desafio_back.model.Money;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+
+/**
+ * Compact item format, typically 8-10 bytes against ~60 for JSON:
+ * <pre>
+ * byte    format version ({@link #V1}); never '{', so JSON items stay readable
+ * byte    type: 0 deposit, 1 payment
+ * varint  date as epoch millis, the local date-time read as UTC (zigzag)
+ * varint  value in cents (zigzag)
+ * </pre>
+ * Items that do not fit (unknown type, no value, a date not in the
+ * {@code dd-MM-yyyy HH:mm:ss} pattern) are written as JSON instead.
+ */
+public class BinaryCacheCodec implements CacheCodec {
+
+    static final byte V1 = 1;
+    private static final byte DEPOSIT = 0;
+    private static final byte PAYMENT = 1;
+
+    private final CacheCodec fallback;
+
+    public BinaryCacheCodec(CacheCodec fallback) {
+        this.fallback = fallback;
+    }
+
+    @Override
+    public byte[] encode(ItemHistoric item) {
+        byte type;
+        if ("deposit".equals(item.type())) {
+            type = DEPOSIT;
+        } else if ("payment".equals(item.type())) {
+            type = PAYMENT;
+        } else {
+            return fallback.encode(item);
+        }
+        Long millis = epochMillis(item.date());
+        if (item.value() == null || millis == null) {
+            return fallback.encode(item);
+        }
+
+        byte[] buf = new byte[2 + 10 + 10];
+        buf[0] = V1;
+        buf[1] = type;
+        int at = writeVarLong(buf, 2, zigzag(millis));
+        at = writeVarLong(buf, at, zigzag(item.value().cents()));
+        return Arrays.copyOf(buf, at);
+    }
+
+    @Override
+    public ItemHistoric decode(byte[] bytes) {
+        if (bytes.length < 4 || bytes[0] != V1) {
+            throw new IllegalArgumentException("Unknown cache item format");
+        }
+        String type = switch (bytes[1]) {
+            case DEPOSIT -> "deposit";
+            case PAYMENT -> "payment";
+            default -> throw new IllegalArgumentException("Unknown item type " + bytes[1]);
+        };
+        int[] at = {2};
+        long millis = unzigzag(readVarLong(bytes, at));
+        long cents = unzigzag(readVarLong(bytes, at));
+        return new ItemHistoric(type, Money.ofCents(cents), format(millis));
+    }
+
+    // fixed pattern dd-MM-yyyy HH:mm:ss, parsed by position (see ItemHistoric)
+    private static Long epochMillis(String date) {
+        if (date == null || date.length() != 19) {
+            return null;
+        }
+        try {
+            LocalDateTime t = LocalDateTime.of(
+                    digits(date, 6, 4), digits(date, 3, 2), digits(date, 0, 2),
+                    digits(date, 11, 2), digits(date, 14, 2), digits(date, 17, 2));
+            return t.toEpochSecond(ZoneOffset.UTC) * 1_000;
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static int digits(String s, int from, int count) {
+        int v = 0;
+        for (int i = from; i < from + count; i++) {
+            int d = s.charAt(i) - '0';
+            if (d < 0 || d > 9) {
+                throw new IllegalArgumentException("Not a digit at " + i);
+            }
+            v = v * 10 + d;
+        }
+        return v;
+    }
+
+    private static String format(long millis) {
+        LocalDateTime t = LocalDateTime.ofEpochSecond(Math.floorDiv(millis, 1_000), 0, ZoneOffset.UTC);
+        char[] c = new char[19];
+        put(c, 0, t.getDayOfMonth(), 2);
+        c[2] = '-';
+        put(c, 3, t.getMonthValue(), 2);
+        c[5] = '-';
+        put(c, 6, t.getYear(), 4);
+        c[10] = ' ';
+        put(c, 11, t.getHour(), 2);
+        c[13] = ':';
+        put(c, 14, t.getMinute(), 2);
+        c[16] = ':';
+        put(c, 17, t.getSecond(), 2);
+        return new String(c);
+    }
+
+    private static void put(char[] c, int at, int value, int width) {
+        for (int i = at + width - 1; i >= at; i--) {
+            c[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+    }
+
+    private static long zigzag(long v) {
+        return (v << 1) ^ (v >> 63);
+    }
+
+    private static long unzigzag(long v) {
+        return (v >>> 1) ^ -(v & 1);
+    }
+
+    private static int writeVarLong(byte[] buf, int at, long v) {
+        while ((v & ~0x7FL) != 0) {
+            buf[at++] = (byte) ((v & 0x7F) | 0x80);
+            v >>>= 7;
+        }
+        buf[at++] = (byte) v;
+        return at;
+    }
+
+    private static long readVarLong(byte[] buf, int[] at) {
+        long v = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            if (at[0] >= buf.length) {
+                throw new IllegalArgumentException("Truncated cache item");
+            }
+            byte b = buf[at[0]++];
+            v |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return v;
+            }
+        }
+        throw new IllegalArgumentException("Malformed varint in cache item");
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.desafio_back.cache;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bloom filter over strings, sized for {@code expectedKeys} at about the given
+ * false positive rate. {@link #mightContain} never misses a key that was
+ * added; it may report one that was not. Lock-free: bits are set with atomic
+ * ORs, so adds and lookups can run from any thread.
+ */
+public class BloomFilter {
+
+    private final int bits;
+    private final int hashes;
+    private final AtomicLongArray words;
+
+    public BloomFilter(long expectedKeys, double falsePositiveRate) {
+        // the usual optimum: m = -n ln p / (ln 2)^2 and k = m/n ln 2
+        long m = (long) Math.ceil(-expectedKeys * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        this.bits = (int) Math.min(Math.max(m, Long.SIZE), Integer.MAX_VALUE - Long.SIZE);
+        this.hashes = Math.max(1, (int) Math.round((double) bits / expectedKeys * Math.log(2)));
+        this.words = new AtomicLongArray((bits + Long.SIZE - 1) / Long.SIZE);
+    }
+
+    // an empty filter of the same size, e.g. the next generation of a RotatingBloomFilter
+    BloomFilter(BloomFilter shape) {
+        this.bits = shape.bits;
+        this.hashes = shape.hashes;
+        this.words = new AtomicLongArray(shape.words.length());
+    }
+
+    public void add(String key) {
+        add(hash(key));
+    }
+
+    public boolean mightContain(String key) {
+        return mightContain(hash(key));
+    }
+
+    public int bitCount() {
+        return bits;
+    }
+
+    public int hashCount() {
+        return hashes;
+    }
+
+    void add(long hash) {
+        for (int i = 0; i < hashes; i++) {
+            int bit = index(hash, i);
+            long mask = 1L << bit;
+            int word = bit >>> 6;
+            if ((words.get(word) & mask) == 0) {
+                words.getAndAccumulate(word, mask, (a, b) -> a | b);
+            }
+        }
+    }
+
+    boolean mightContain(long hash) {
+        for (int i = 0; i < hashes; i++) {
+            int bit = index(hash, i);
+            if ((words.get(bit >>> 6) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // double hashing (Kirsch-Mitzenmacher): the i-th index is h1 + i * h2
+    private int index(long hash, int i) {
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        return Math.floorMod(h1 + i * h2, bits);
+    }
+
+    // FNV-1a over the chars, then the MurmurHash3 finalizer to spread the bits
+    static long hash(String key) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            h ^= key.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,17 @@
+package com.example.desafio_back.cache;
+
+import com.example.desafio_back.dtos.ItemHistoric;
+
+/**
+ * Encoding of one history item as a Redis list element. Implementations must
+ * be able to tell their own output apart from the other formats by its first
+ * byte, so entries written by different releases can be read side by side
+ * (see {@link BalanceCodec}).
+ */
+public interface CacheCodec {
+
+    byte[] encode(ItemHistoric item);
+
+    /** @throws IllegalArgumentException when the bytes are not in a format this codec reads */
+    ItemHistoric decode(byte[] bytes);
+}
@@ -0,0 +1,181 @@
+package com.example.desafio_back.cache;
+
+import com.example.desafio_back.exception.IdempotencyException;
+import com.example.desafio_back.exception.OutcomeUnknownException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Deduplicates commands retried with the same {@code Idempotency-Key}. The
+ * first request claims {@code idem:<userId>:<key>} with SET NX and, once the
+ * command succeeded, marks it done; both keep the key for
+ * {@code idempotency.ttl}. A retry then finds it done and is answered without
+ * running the command again. The value carries a fingerprint of the request,
+ * so reusing a key for a different request is rejected (422), and a retry
+ * while the first is still running gets 409. A command that fails releases the
+ * key, so the client can retry it, unless its outcome is unknown
+ * ({@link OutcomeUnknownException}): then the key stays claimed and retries
+ * get 409 until it expires.
+ * <p>
+ * Most keys are new, so a local {@link RotatingBloomFilter} of the keys this
+ * node has seen lets them skip the lookup and go straight to the claim. A
+ * retry that lands on another node is still caught by the claim.
+ * <p>
+ * A key whose command succeeded but could not be marked done stays claimed
+ * until it expires: retries get 409, never a second execution. While Redis is
+ * unavailable requests with a key fail with 503; requests without one are not
+ * affected.
+ */
+@Slf4j
+@Component
+public class IdempotencyStore {
+
+    public static final String HEADER = "Idempotency-Key";
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+    static final int MAX_KEY_LENGTH = 255;
+
+    private static final String KEY_PREFIX = "idem:";
+    private static final String PENDING = "pending:";
+    private static final String DONE = "done:";
+
+    public enum Outcome { EXECUTED, REPLAYED }
+
+    private final StringRedisTemplate redis;
+    private final RedisCircuitBreaker breaker;
+    private final Duration ttl;
+    private final RotatingBloomFilter seen;
+    private final Timer executed;
+    private final Timer replayed;
+    private final Timer rejected;
+    private final Counter definitelyNew;
+    private final Counter maybeSeen;
+
+    public IdempotencyStore(
+            StringRedisTemplate redis,
+            RedisCircuitBreaker breaker,
+            MeterRegistry registry,
+            @Value("${idempotency.ttl}") Duration ttl,
+            @Value("${idempotency.filter.expected-keys}") long expectedKeys,
+            @Value("${idempotency.filter.false-positive-rate}") double falsePositiveRate
+    ) {
+        this.redis = redis;
+        this.breaker = breaker;
+        this.ttl = ttl;
+        // a key stays in the filter for one to two periods, so at least as long as in Redis
+        this.seen = new RotatingBloomFilter(expectedKeys, falsePositiveRate, ttl);
+        // time spent here, on top of the command itself
+        this.executed = overhead("executed", registry);
+        this.replayed = overhead("replayed", registry);
+        this.rejected = overhead("rejected", registry);
+        this.definitelyNew = Counter.builder("idempotency.filter").tag("result", "new").register(registry);
+        this.maybeSeen = Counter.builder("idempotency.filter").tag("result", "maybe-seen").register(registry);
+    }
+
+    private static Timer overhead(String outcome, MeterRegistry registry) {
+        return Timer.builder("idempotency.overhead").tag("outcome", outcome).register(registry);
+    }
+
+    /**
+     * Runs {@code command} once per {@code key}, or right away when there is no
+     * key. {@code fingerprint} identifies the request a key was first used for.
+     *
+     * @throws IdempotencyException when the key is in use by a running or a different request
+     * @throws RedisUnavailableException when Redis cannot be reached
+     */
+    public Outcome execute(Long userId, String key, String fingerprint, Runnable command) {
+        if (key == null) {
+            command.run();
+            return Outcome.EXECUTED;
+        }
+        if (key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+            throw new IllegalArgumentException(HEADER + " must have 1 to " + MAX_KEY_LENGTH + " characters");
+        }
+
+        String redisKey = KEY_PREFIX + userId + ":" + key;
+        long start = System.nanoTime();
+        try {
+            String existing = lookupOrClaim(redisKey, fingerprint);
+            if (existing != null) {
+                requireReplayable(existing, fingerprint);
+                replayed.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                return Outcome.REPLAYED;
+            }
+        } catch (RuntimeException e) {
+            rejected.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            throw e;
+        }
+        long claimNanos = System.nanoTime() - start;
+
+        try {
+            command.run();
+        } catch (OutcomeUnknownException e) {
+            // may still commit: releasing would let a retry apply it twice
+            log.warn("Outcome of the command of user {} is unknown; its idempotency key stays claimed until it expires", userId);
+            throw e;
+        } catch (RuntimeException | Error e) {
+            release(redisKey);
+            throw e;
+        }
+
+        long doneStart = System.nanoTime();
+        try {
+            breaker.call(() -> {
+                redis.opsForValue().set(redisKey, DONE + fingerprint, ttl);
+                return null;
+            });
+        } catch (RedisUnavailableException e) {
+            log.warn("Could not mark the idempotency key of user {} as done; retries get 409 until it expires", userId);
+        }
+        executed.record(claimNanos + System.nanoTime() - doneStart, TimeUnit.NANOSECONDS);
+        return Outcome.EXECUTED;
+    }
+
+    // the value already stored under the key, or null once this request has claimed it
+    private String lookupOrClaim(String redisKey, String fingerprint) {
+        if (seen.mightContain(redisKey)) {
+            maybeSeen.increment();
+            String existing = breaker.call(() -> redis.opsForValue().get(redisKey));
+            if (existing != null) {
+                return existing;
+            }
+        } else {
+            definitelyNew.increment();
+        }
+        seen.add(redisKey);
+        if (Boolean.TRUE.equals(breaker.call(() -> redis.opsForValue().setIfAbsent(redisKey, PENDING + fingerprint, ttl)))) {
+            return null;
+        }
+        // claimed in between, possibly on another node; gone again means it was just released
+        String existing = breaker.call(() -> redis.opsForValue().get(redisKey));
+        return existing != null ? existing : PENDING + fingerprint;
+    }
+
+    private static void requireReplayable(String existing, String fingerprint) {
+        boolean done = existing.startsWith(DONE);
+        String original = existing.substring(done ? DONE.length() : PENDING.length());
+        if (!original.equals(fingerprint)) {
+            throw new IdempotencyException(HttpStatus.UNPROCESSABLE_ENTITY,
+                    HEADER + " was already used for a different request");
+        }
+        if (!done) {
+            throw new IdempotencyException(HttpStatus.CONFLICT, "A request with this " + HEADER + " is in progress");
+        }
+    }
+
+    private void release(String redisKey) {
+        try {
+            breaker.call(() -> redis.delete(redisKey));
+        } catch (RedisUnavailableException e) {
+            // stays claimed until it expires
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.desafio_back.cache;
+
+import com.example.desafio_back.dtos.ItemHistoric;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+
+/** The original format: the item as a JSON object, so always starting with {@code '{'}. */
+public class JsonCacheCodec implements CacheCodec {
+
+    private final ObjectMapper mapper;
+
+    public JsonCacheCodec(ObjectMapper mapper) {
+        this.mapper = mapper;
+    }
+
+    @Override
+    public byte[] encode(ItemHistoric item) {
+        try {
+            return mapper.writeValueAsBytes(item);
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not serialize cache item", e);
+        }
+    }
+
+    @Override
+    public ItemHistoric decode(byte[] bytes) {
+        try {
+            return mapper.readValue(bytes, ItemHistoric.class);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Could not deserialize cache item", e);
+        }
+    }
+}
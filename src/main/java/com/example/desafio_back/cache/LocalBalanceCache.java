@@ -0,0 +1,143 @@
+package com.example.desafio_back.cache;
+
+import com.example.desafio_back.dtos.BalanceView;
+import com.example.desafio_back.dtos.CacheBalance;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * In-process L1 in front of {@link BalanceCache}. Entries are bounded by size
+ * and age; writes on any node publish the account id on
+ * {@link #INVALIDATION_CHANNEL} so every other node drops its copy. The TTL
+ * bounds staleness if a pub/sub message is ever lost.
+ * <p>
+ * Rendered responses ({@link BalanceCache#getView}) sit in a second cache with
+ * the same bounds and are dropped together with the balance.
+ */
+@Component
+public class LocalBalanceCache implements MessageListener {
+
+    public static final String INVALIDATION_CHANNEL = "balance-invalidations";
+
+    private static final int STRIPES = 4096;
+
+    private final Cache<Long, CacheBalance> cache;
+    private final Cache<Long, View> views;
+    private final StringRedisTemplate redis;
+    private final String nodeId = UUID.randomUUID().toString();
+    // invalidation counters per stripe of accounts: a write only holds back L1
+    // fills of the accounts that share its stripe, not of every account
+    private final AtomicLongArray invalidations = new AtomicLongArray(STRIPES);
+
+    public LocalBalanceCache(
+            StringRedisTemplate redis,
+            MeterRegistry registry,
+            @Value("${cache.balance.l1.max-size}") long maxSize,
+            @Value("${cache.balance.l1.ttl}") Duration ttl
+    ) {
+        this.redis = redis;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        this.views = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(registry, cache, "balance.l1");
+        CaffeineCacheMetrics.monitor(registry, views, "balance.l1.view");
+    }
+
+    public CacheBalance get(Long userId) {
+        return cache.getIfPresent(userId);
+    }
+
+    /**
+     * Snapshot to take before reading the lower tier; {@link #put} is skipped if
+     * the account was invalidated since, so a slow read cannot resurrect a value
+     * that was already replaced.
+     */
+    public long generation(Long userId) {
+        return invalidations.get(stripe(userId));
+    }
+
+    public void put(Long userId, CacheBalance value, long generation) {
+        if (invalidations.get(stripe(userId)) == generation) {
+            cache.put(userId, value);
+        }
+    }
+
+    public BalanceView getView(Long userId, String format) {
+        View view = views.getIfPresent(userId);
+        return view != null && view.format().equals(format) ? view.view() : null;
+    }
+
+    /** Same generation rule as {@link #put}. */
+    public void putView(Long userId, String format, BalanceView view, long generation) {
+        if (invalidations.get(stripe(userId)) == generation) {
+            views.put(userId, new View(format, view));
+        }
+    }
+
+    public void invalidate(Long userId) {
+        invalidations.incrementAndGet(stripe(userId));
+        cache.invalidate(userId);
+        views.invalidate(userId);
+    }
+
+    /** Drops the entry here and asks every other node to do the same. */
+    public void invalidateEverywhere(Long userId) {
+        invalidate(userId);
+        redis.convertAndSend(INVALIDATION_CHANNEL, nodeId + ":" + userId);
+    }
+
+    /** Same as {@link #invalidateEverywhere(Long)} for many accounts, published in one pipeline. */
+    public void invalidateEverywhere(Collection<Long> userIds) {
+        if (userIds.isEmpty()) {
+            return;
+        }
+        for (Long userId : userIds) {
+            invalidate(userId);
+        }
+        byte[] channel = INVALIDATION_CHANNEL.getBytes(StandardCharsets.UTF_8);
+        redis.executePipelined((RedisCallback<Object>) connection -> {
+            for (Long userId : userIds) {
+                connection.publish(channel, (nodeId + ":" + userId).getBytes(StandardCharsets.UTF_8));
+            }
+            return null;
+        });
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        int sep = body.lastIndexOf(':');
+        if (sep < 0 || nodeId.equals(body.substring(0, sep))) {
+            return;
+        }
+        invalidate(Long.valueOf(body.substring(sep + 1)));
+    }
+
+    private static int stripe(Long userId) {
+        // sequential ids would otherwise map to sequential stripes; spread them
+        return (int) ((userId * 0x9E3779B97F4A7C15L) >>> 52);
+    }
+
+    private record View(String format, BalanceView view) {}
+}
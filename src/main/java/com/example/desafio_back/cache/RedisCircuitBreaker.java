@@ -0,0 +1,175 @@
+package com.example.desafio_back.cache;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Latency-aware circuit breaker around Redis. Every call is timed, and one
+ * that fails or takes longer than {@code redis.breaker.slow-call} counts as
+ * bad. Once {@code failure-rate} percent of the last {@code window} calls were
+ * bad, the breaker opens: calls are rejected at once instead of each waiting
+ * for the client timeout, and a background probe PINGs Redis every
+ * {@code probe-interval}. The first PING that answers in time closes it again
+ * and runs the {@link #onRecovery} listeners.
+ * <p>
+ * Lock-free, since it sits on every request path (a {@code synchronized}
+ * section would pin virtual threads).
+ */
+@Slf4j
+@Component
+public class RedisCircuitBreaker {
+
+    private final StringRedisTemplate redis;
+    private final long slowCallNanos;
+    private final int windowSize;
+    private final int failureRate;
+    private final long probeMillis;
+    private final AtomicReference<Window> window;
+    private final AtomicBoolean open = new AtomicBoolean();
+    private final List<Runnable> recoveryListeners = new CopyOnWriteArrayList<>();
+    private final ScheduledExecutorService prober =
+            Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().name("redis-probe").daemon().factory());
+    private final Counter opened;
+    private final Counter rejected;
+
+    public RedisCircuitBreaker(
+            StringRedisTemplate redis,
+            MeterRegistry registry,
+            @Value("${redis.breaker.slow-call}") Duration slowCall,
+            @Value("${redis.breaker.window}") int windowSize,
+            @Value("${redis.breaker.failure-rate}") int failureRate,
+            @Value("${redis.breaker.probe-interval}") Duration probeInterval
+    ) {
+        this.redis = redis;
+        this.slowCallNanos = slowCall.toNanos();
+        this.windowSize = windowSize;
+        this.failureRate = failureRate;
+        this.probeMillis = probeInterval.toMillis();
+        this.window = new AtomicReference<>(new Window(windowSize));
+        this.opened = Counter.builder("redis.breaker.opened").register(registry);
+        this.rejected = Counter.builder("redis.breaker.rejected").register(registry);
+        registry.gauge("redis.breaker.open", Tags.empty(), open, o -> o.get() ? 1 : 0);
+    }
+
+    /**
+     * Runs {@code call} and records how it went.
+     *
+     * @throws RedisUnavailableException when the breaker is open or the call failed
+     */
+    public <T> T call(Supplier<T> call) {
+        if (open.get()) {
+            rejected.increment();
+            throw RedisUnavailableException.OPEN;
+        }
+        long start = System.nanoTime();
+        try {
+            T result = call.get();
+            record(System.nanoTime() - start > slowCallNanos);
+            return result;
+        } catch (DataAccessException e) {
+            record(true);
+            throw new RedisUnavailableException("Redis call failed", e);
+        }
+    }
+
+    public boolean isOpen() {
+        return open.get();
+    }
+
+    /** Runs on the probe thread each time the breaker closes again. */
+    public void onRecovery(Runnable listener) {
+        recoveryListeners.add(listener);
+    }
+
+    @PreDestroy
+    public void stop() {
+        prober.shutdownNow();
+    }
+
+    private void record(boolean bad) {
+        Window current = window.get();
+        int badCalls = current.record(bad);
+        if (bad && current.calls.get() >= windowSize && badCalls * 100L >= (long) failureRate * windowSize
+                && open.compareAndSet(false, true)) {
+            opened.increment();
+            log.warn("Redis circuit breaker opened: {} of the last {} calls failed or were slower than {} ms",
+                    badCalls, windowSize, TimeUnit.NANOSECONDS.toMillis(slowCallNanos));
+            scheduleProbe();
+        }
+    }
+
+    private void scheduleProbe() {
+        try {
+            prober.schedule(this::probe, probeMillis, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // shutting down
+        }
+    }
+
+    private void probe() {
+        if (!healthy()) {
+            scheduleProbe();
+            return;
+        }
+        window.set(new Window(windowSize));
+        open.set(false);
+        log.info("Redis circuit breaker closed");
+        for (Runnable listener : recoveryListeners) {
+            try {
+                listener.run();
+            } catch (RuntimeException e) {
+                log.warn("Redis recovery listener failed", e);
+            }
+        }
+    }
+
+    private boolean healthy() {
+        long start = System.nanoTime();
+        try {
+            redis.execute((RedisCallback<String>) RedisConnection::ping);
+            return System.nanoTime() - start <= slowCallNanos;
+        } catch (DataAccessException e) {
+            return false;
+        }
+    }
+
+    // outcomes of the last calls in a ring; replaced as a whole when the breaker closes
+    private static final class Window {
+        final AtomicIntegerArray outcomes;
+        final AtomicLong calls = new AtomicLong();
+        final AtomicInteger bad = new AtomicInteger();
+
+        Window(int size) {
+            this.outcomes = new AtomicIntegerArray(size);
+        }
+
+        int record(boolean isBad) {
+            int slot = (int) (calls.getAndIncrement() % outcomes.length());
+            int outcome = isBad ? 1 : 0;
+            return bad.addAndGet(outcome - outcomes.getAndSet(slot, outcome));
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.example.desafio_back.cache;
+
+/**
+ * A Redis call that failed, or was not even attempted because
+ * {@link RedisCircuitBreaker} is open. Callers fall back to the database.
+ */
+public class RedisUnavailableException extends RuntimeException {
+
+    static final RedisUnavailableException OPEN = new RedisUnavailableException("Redis circuit breaker is open", null);
+
+    RedisUnavailableException(String message, Throwable cause) {
+        // thrown on every call while the breaker is open: no stack trace to fill
+        super(message, cause, false, cause != null);
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.desafio_back.cache;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.LongSupplier;
+
+/**
+ * {@link BloomFilter} whose entries are forgotten after one to two periods:
+ * keys go into the current generation, lookups check the current and the
+ * previous one, and every {@code period} the previous generation is dropped.
+ * {@link #mightContain} never misses a key added within the last period; it
+ * may report a key that was never added, at about the configured false
+ * positive rate per generation.
+ * <p>
+ * Lock-free: a rotation swaps both generations at once, so a concurrent add
+ * may land in a generation that has just been retired (the caller then sees a
+ * false negative for a key it is still handling, which it must tolerate
+ * anyway).
+ */
+public class RotatingBloomFilter {
+
+    private final BloomFilter shape;
+    private final long periodNanos;
+    private final LongSupplier clock;
+    private final AtomicReference<Generations> generations;
+
+    public RotatingBloomFilter(long expectedKeys, double falsePositiveRate, Duration period) {
+        this(expectedKeys, falsePositiveRate, period, System::nanoTime);
+    }
+
+    RotatingBloomFilter(long expectedKeys, double falsePositiveRate, Duration period, LongSupplier clock) {
+        this.shape = new BloomFilter(expectedKeys, falsePositiveRate);
+        this.periodNanos = period.toNanos();
+        this.clock = clock;
+        this.generations = new AtomicReference<>(
+                new Generations(new BloomFilter(shape), new BloomFilter(shape), clock.getAsLong() + periodNanos));
+    }
+
+    public void add(String key) {
+        rotate().current.add(BloomFilter.hash(key));
+    }
+
+    public boolean mightContain(String key) {
+        long hash = BloomFilter.hash(key);
+        Generations g = rotate();
+        return g.current.mightContain(hash) || g.previous.mightContain(hash);
+    }
+
+    public int bitCount() {
+        return shape.bitCount();
+    }
+
+    public int hashCount() {
+        return shape.hashCount();
+    }
+
+    private Generations rotate() {
+        Generations g = generations.get();
+        long now = clock.getAsLong();
+        if (now - g.rotateAt < 0) {
+            return g;
+        }
+        Generations next = new Generations(new BloomFilter(shape), g.current, now + periodNanos);
+        // losing the race means another thread rotated already
+        return generations.compareAndSet(g, next) ? next : generations.get();
+    }
+
+    private record Generations(BloomFilter current, BloomFilter previous, long rotateAt) {}
+}
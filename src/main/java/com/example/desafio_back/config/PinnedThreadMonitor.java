@@ -0,0 +1,79 @@
+package com.example.desafio_back.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingStream;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Streams the JFR {@code jdk.VirtualThreadPinned} event in-process. A virtual
+ * thread that blocks inside {@code synchronized} (or a native frame) keeps its
+ * carrier thread, which silently shrinks the pool everyone else runs on. Each
+ * occurrence above the threshold is logged with its stack and counted in
+ * {@code jvm.threads.virtual.pinned}, tagged with the first application frame.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "diagnostics.pinning.enabled", havingValue = "true")
+public class PinnedThreadMonitor {
+
+    static final String EVENT = "jdk.VirtualThreadPinned";
+    private static final String APP_PACKAGE = "com.example.desafio_back.";
+
+    private final MeterRegistry registry;
+    private final Duration threshold;
+    private RecordingStream stream;
+
+    public PinnedThreadMonitor(MeterRegistry registry, @Value("${diagnostics.pinning.threshold}") Duration threshold) {
+        this.registry = registry;
+        this.threshold = threshold;
+    }
+
+    @PostConstruct
+    public void start() {
+        stream = new RecordingStream();
+        stream.enable(EVENT).withThreshold(threshold).withStackTrace();
+        stream.onEvent(EVENT, this::onPinned);
+        stream.startAsync();
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (stream != null) {
+            stream.close();
+        }
+    }
+
+    private void onPinned(RecordedEvent event) {
+        String frame = culprit(event);
+        registry.counter("jvm.threads.virtual.pinned", "frame", frame).increment();
+        log.warn("Virtual thread pinned for {} ms at {}\n{}", event.getDuration().toMillis(), frame,
+                event.getStackTrace());
+    }
+
+    // the first frame in our code is what someone can fix; fall back to the top frame
+    private static String culprit(RecordedEvent event) {
+        if (event.getStackTrace() == null || event.getStackTrace().getFrames().isEmpty()) {
+            return "unknown";
+        }
+        RecordedFrame top = event.getStackTrace().getFrames().get(0);
+        for (RecordedFrame f : event.getStackTrace().getFrames()) {
+            if (f.getMethod().getType().getName().startsWith(APP_PACKAGE)) {
+                return describe(f);
+            }
+        }
+        return describe(top);
+    }
+
+    private static String describe(RecordedFrame f) {
+        return f.getMethod().getType().getName() + "." + f.getMethod().getName() + ":" + f.getLineNumber();
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.desafio_back.config;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Records {@code jpa.queries.per_request}, tagged with the route template (not
+ * the raw path) and method so the tag set stays small. Async work, like the
+ * statement stream, runs on another thread and is not counted.
+ */
+@Component
+@Profile("!reactive")
+public class QueryCountFilter extends OncePerRequestFilter {
+
+    private final MeterRegistry registry;
+    // built once per route: the request path only looks the summary up and records
+    private final Map<Route, DistributionSummary> summaries = new ConcurrentHashMap<>();
+
+    public QueryCountFilter(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest req, HttpServletResponse res, FilterChain chain)
+            throws ServletException, IOException {
+        QueryCountInspector.open();
+        try {
+            chain.doFilter(req, res);
+        } finally {
+            int queries = QueryCountInspector.close();
+            Object pattern = req.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            Route route = new Route(pattern == null ? "UNKNOWN" : pattern.toString(), req.getMethod());
+            summaries.computeIfAbsent(route, this::summary).record(queries);
+        }
+    }
+
+    private DistributionSummary summary(Route route) {
+        return DistributionSummary.builder("jpa.queries.per_request")
+                .tag("uri", route.uri())
+                .tag("method", route.method())
+                .register(registry);
+    }
+
+    private record Route(String uri, String method) {}
+}
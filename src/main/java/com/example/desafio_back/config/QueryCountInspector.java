@@ -0,0 +1,33 @@
+package com.example.desafio_back.config;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+/**
+ * Counts the SQL statements Hibernate prepares on the current thread while a
+ * count is open (see {@link QueryCountFilter}). Hibernate instantiates it from
+ * {@code hibernate.session_factory.statement_inspector}, hence the static state.
+ * JdbcTemplate and R2DBC statements are not seen.
+ */
+public class QueryCountInspector implements StatementInspector {
+
+    private static final ThreadLocal<int[]> COUNT = new ThreadLocal<>();
+
+    static void open() {
+        COUNT.set(new int[1]);
+    }
+
+    static int close() {
+        int[] count = COUNT.get();
+        COUNT.remove();
+        return count == null ? 0 : count[0];
+    }
+
+    @Override
+    public String inspect(String sql) {
+        int[] count = COUNT.get();
+        if (count != null) {
+            count[0]++;
+        }
+        return sql;
+    }
+}
@@ -1,29 +1,23 @@
 package com.example.desafio_back.config;
 
-import com.example.desafio_back.dtos.CacheBalance;
+import com.example.desafio_back.cache.LocalBalanceCache;
+import com.example.desafio_back.security.TokenDenylist;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
-import org.springframework.data.redis.core.RedisTemplate;
-import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
-import org.springframework.data.redis.serializer.StringRedisSerializer;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 
 @Configuration
 public class RedisConfig {
 
     @Bean
-    public RedisTemplate<String, CacheBalance> redisTemplate(RedisConnectionFactory cf) {
-        RedisTemplate<String, CacheBalance> t = new RedisTemplate<>();
-        t.setConnectionFactory(cf);
-
-        var keySer   = new StringRedisSerializer();
-        var valueSer = new GenericJackson2JsonRedisSerializer();
-
-        t.setKeySerializer(keySer);
-        t.setValueSerializer(valueSer);
-        t.setHashKeySerializer(keySer);
-        t.setHashValueSerializer(valueSer);
-
-        return t;
+    public RedisMessageListenerContainer redisListenerContainer(
+            RedisConnectionFactory cf, LocalBalanceCache l1, TokenDenylist denylist) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(cf);
+        container.addMessageListener(l1, new ChannelTopic(LocalBalanceCache.INVALIDATION_CHANNEL));
+        container.addMessageListener(denylist, new ChannelTopic(TokenDenylist.REVOCATION_CHANNEL));
+        return container;
     }
 }
@@ -0,0 +1,57 @@
+package com.example.desafio_back.controllers;
+
+import com.example.desafio_back.dtos.BulkRegisterRequest;
+import com.example.desafio_back.dtos.ImportResult;
+import com.example.desafio_back.dtos.UserImportResult;
+import com.example.desafio_back.dtos.WarmupStatus;
+import com.example.desafio_back.services.CacheWarmupService;
+import com.example.desafio_back.services.ImportService;
+import com.example.desafio_back.services.UserImportService;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+// operator endpoints; guarded by the admin API key in SecurityConfig, not by user JWTs
+@RestController
+@Profile("!reactive")
+@RequestMapping("/api/admin")
+@RequiredArgsConstructor
+public class AdminController {
+    private final ImportService importService;
+    private final CacheWarmupService cacheWarmupService;
+    private final UserImportService userImportService;
+
+    @PostMapping(value = "/imports/transactions", consumes = {"text/csv", MediaType.APPLICATION_NDJSON_VALUE})
+    public ImportResult importTransactions(@RequestHeader(HttpHeaders.CONTENT_TYPE) MediaType contentType,
+                                           InputStream body) throws IOException {
+        ImportService.Format format = MediaType.APPLICATION_NDJSON.isCompatibleWith(contentType)
+                ? ImportService.Format.NDJSON
+                : ImportService.Format.CSV;
+        return importService.importTransactions(body, format);
+    }
+
+    // users whose CPF or login is taken are skipped and listed, the others are created
+    @PostMapping("/imports/users")
+    public UserImportResult importUsers(@RequestBody @Valid BulkRegisterRequest r) {
+        return userImportService.importUsers(r.users());
+    }
+
+    // runs in the background; poll the GET for progress
+    @PostMapping("/cache/warmup")
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    public WarmupStatus startCacheWarmup() {
+        return cacheWarmupService.start();
+    }
+
+    @GetMapping("/cache/warmup")
+    public WarmupStatus cacheWarmupStatus() {
+        return cacheWarmupService.status();
+    }
+}
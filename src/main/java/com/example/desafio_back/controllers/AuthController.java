@@ -6,13 +6,17 @@ import com.example.desafio_back.dtos.TokenResponse;
 import com.example.desafio_back.services.AuthService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
 @RestController
+@Profile("!reactive")
 @RequestMapping("/auth")
 @RequiredArgsConstructor
 public class AuthController {
@@ -28,4 +32,13 @@ public class AuthController {
     public TokenResponse login(@RequestBody @Valid LoginRequest r){
         return new TokenResponse(auth.login(r));
     }
+
+    @PostMapping("/logout")
+    public ResponseEntity<Void> logout(@RequestHeader(HttpHeaders.AUTHORIZATION) String authorization){
+        if (!authorization.startsWith("Bearer ")) {
+            throw new IllegalArgumentException("Bearer token required");
+        }
+        auth.logout(authorization.substring(7));
+        return ResponseEntity.noContent().build();
+    }
 }
@@ -1,43 +1,127 @@
 package com.example.desafio_back.controllers;
 
+import com.example.desafio_back.cache.IdempotencyStore;
 import com.example.desafio_back.dtos.BalanceResponse;
+import com.example.desafio_back.dtos.BatchRequest;
+import com.example.desafio_back.dtos.BatchResponse;
 import com.example.desafio_back.dtos.DepositRequest;
 import com.example.desafio_back.dtos.PaymentRequest;
-import com.example.desafio_back.repository.UserRepository;
+import com.example.desafio_back.dtos.TransactionCursor;
+import com.example.desafio_back.dtos.TransactionPage;
+import com.example.desafio_back.enums.StatementFormat;
+import com.example.desafio_back.security.AuthenticatedUser;
 import com.example.desafio_back.services.CommandService;
+import com.example.desafio_back.services.GroupCommitService;
 import com.example.desafio_back.services.QueryService;
+import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.time.LocalDate;
 
 @RestController
+@Profile("!reactive")
 @RequestMapping("/api")
 @RequiredArgsConstructor
 public class BankController {
-    private final UserRepository userRepository;
     private final CommandService command;
     private final QueryService query;
+    private final GroupCommitService groupCommit;
+    private final IdempotencyStore idempotency;
 
     private Long getUserId() {
-        String login = (String) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
-        return userRepository.findByLogin(login).orElseThrow().getId();
+        var user = (AuthenticatedUser) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
+        return user.id();
     }
 
     @PostMapping("/deposits")
-    public ResponseEntity<Void> deposit(@RequestBody DepositRequest r){
-        command.deposit(getUserId(), r.value());
-        return ResponseEntity.ok().build();
+    public ResponseEntity<Void> deposit(@RequestHeader(value = IdempotencyStore.HEADER, required = false) String key,
+                                        @RequestBody DepositRequest r){
+        Long userId = getUserId();
+        return respond(idempotency.execute(userId, key, "deposit:" + r.value(),
+                () -> groupCommit.deposit(userId, r.value())));
     }
 
     @PostMapping("/payments")
-    public ResponseEntity<Void> pay(@RequestBody PaymentRequest r){
-        command.pay(getUserId(), r.value());
+    public ResponseEntity<Void> pay(@RequestHeader(value = IdempotencyStore.HEADER, required = false) String key,
+                                    @RequestBody PaymentRequest r){
+        Long userId = getUserId();
+        return respond(idempotency.execute(userId, key, "payment:" + r.value(),
+                () -> groupCommit.pay(userId, r.value())));
+    }
+
+    // these responses have no body, so a replay only has to repeat the status
+    private static ResponseEntity<Void> respond(IdempotencyStore.Outcome outcome) {
+        if (outcome == IdempotencyStore.Outcome.REPLAYED) {
+            return ResponseEntity.ok().header(IdempotencyStore.REPLAYED_HEADER, "true").build();
+        }
         return ResponseEntity.ok().build();
     }
 
+    @PostMapping("/transactions/batch")
+    public BatchResponse batch(@RequestBody @Valid BatchRequest r){
+        return command.batch(getUserId(), r.operations());
+    }
+
+    // clients that accept JSON get the rendered bytes straight from the cache;
+    // anything else goes through the message converters as before
     @GetMapping("/balance")
-    public BalanceResponse balance(){
-        return query.balance(getUserId());
+    public ResponseEntity<?> balance(@RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept){
+        if (!acceptsJson(accept)) {
+            return ResponseEntity.ok(query.balance(getUserId()));
+        }
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(query.balanceJson(getUserId()));
+    }
+
+    private static boolean acceptsJson(String accept) {
+        if (accept == null || accept.isBlank()) {
+            return true;
+        }
+        try {
+            for (MediaType type : MediaType.parseMediaTypes(accept)) {
+                if (type.getQualityValue() > 0 && type.isCompatibleWith(MediaType.APPLICATION_JSON)) {
+                    return true;
+                }
+            }
+        } catch (InvalidMediaTypeException e) {
+            // let the regular path report it
+        }
+        return false;
+    }
+
+    @GetMapping("/transactions")
+    public TransactionPage transactions(@RequestParam(required = false) String before,
+                                        @RequestParam(defaultValue = "50") int limit){
+        TransactionCursor cursor = before == null ? null : TransactionCursor.decode(before);
+        return query.transactions(getUserId(), cursor, limit);
+    }
+
+    @GetMapping("/statements")
+    public ResponseEntity<StreamingResponseBody> statement(@RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                                           @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                                                           @RequestParam(defaultValue = "csv") String format){
+        if (to.isBefore(from)) {
+            throw new IllegalArgumentException("from must not be after to");
+        }
+        StatementFormat fmt = StatementFormat.from(format);
+        // resolved here: the body is written later on an async thread without the security context
+        Long userId = getUserId();
+
+        String filename = "statement-" + from + "_" + to + "." + fmt.getExtension();
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(fmt.getMediaType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment().filename(filename).build().toString())
+                .body(out -> query.writeStatement(userId, from, to, fmt, out));
     }
 }
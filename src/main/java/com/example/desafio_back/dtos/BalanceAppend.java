@@ -0,0 +1,8 @@
+package com.example.desafio_back.dtos;
+
+import com.example.desafio_back.model.Money;
+
+import java.util.List;
+
+/** New items (oldest first) for a cached balance entry, see {@code BalanceCache#appendAll}. */
+public record BalanceAppend(Long userId, long version, Money balance, List<ItemHistoric> items) {}
@@ -1,6 +1,7 @@
 package com.example.desafio_back.dtos;
 
-import java.math.BigDecimal;
+import com.example.desafio_back.model.Money;
+
 import java.util.List;
 
-public record BalanceResponse(BigDecimal totalBalance, List<ItemHistoric> Historic) {}
\ No newline at end of file
+public record BalanceResponse(Money totalBalance, List<ItemHistoric> Historic) {}
\ No newline at end of file
@@ -0,0 +1,7 @@
+package com.example.desafio_back.dtos;
+
+/**
+ * A balance response as rendered JSON, with the expiry of the cache entry it
+ * was stored in (epoch millis, 0 when it does not expire).
+ */
+public record BalanceView(byte[] json, long expiresAt) {}
@@ -0,0 +1,14 @@
+package com.example.desafio_back.dtos;
+
+import com.example.desafio_back.model.Money;
+
+public record BatchItemResult(int index, String status, Money balance, String error) {
+
+    public static BatchItemResult applied(int index, Money balance) {
+        return new BatchItemResult(index, "applied", balance, null);
+    }
+
+    public static BatchItemResult rejected(int index, String error) {
+        return new BatchItemResult(index, "rejected", null, error);
+    }
+}
@@ -0,0 +1,6 @@
+package com.example.desafio_back.dtos;
+
+import com.example.desafio_back.enums.Type;
+import com.example.desafio_back.model.Money;
+
+public record BatchOperation(Type type, Money value) {}
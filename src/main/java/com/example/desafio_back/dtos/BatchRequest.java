@@ -0,0 +1,8 @@
+package com.example.desafio_back.dtos;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+
+public record BatchRequest(@NotEmpty @Size(max = 500) List<BatchOperation> operations) {}
@@ -0,0 +1,7 @@
+package com.example.desafio_back.dtos;
+
+import com.example.desafio_back.model.Money;
+
+import java.util.List;
+
+public record BatchResponse(Money totalBalance, List<BatchItemResult> results) {}
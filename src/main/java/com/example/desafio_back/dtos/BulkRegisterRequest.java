@@ -0,0 +1,9 @@
+package com.example.desafio_back.dtos;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+
+public record BulkRegisterRequest(@NotEmpty @Size(max = 1000) List<@Valid RegisterRequest> users) {}
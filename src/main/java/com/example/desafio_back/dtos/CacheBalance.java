@@ -1,10 +1,10 @@
 package com.example.desafio_back.dtos;
 
+import com.example.desafio_back.model.Money;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
-import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -12,6 +12,18 @@ import java.util.List;
 @NoArgsConstructor
 @AllArgsConstructor
 public class CacheBalance {
-    private BigDecimal totalBalance;
+    private Money totalBalance;
     private List<ItemHistoric> historic = new ArrayList<>();
-}
\ No newline at end of file
+    // account version the entry was written at (see BalanceCache)
+    private long version;
+    // epoch millis at which Redis drops the entry, 0 when it does not expire
+    private long expiresAt;
+
+    public CacheBalance(Money totalBalance, List<ItemHistoric> historic) {
+        this(totalBalance, historic, 0);
+    }
+
+    public CacheBalance(Money totalBalance, List<ItemHistoric> historic, long version) {
+        this(totalBalance, historic, version, 0);
+    }
+}
@@ -1,6 +1,6 @@
 package com.example.desafio_back.dtos;
 
 
-import java.math.BigDecimal;
+import com.example.desafio_back.model.Money;
 
-public record DepositRequest(BigDecimal value) {}
\ No newline at end of file
+public record DepositRequest(Money value) {}
\ No newline at end of file
@@ -0,0 +1,10 @@
+package com.example.desafio_back.dtos;
+
+import java.util.List;
+
+/**
+ * Outcome of a ledger import. {@code unmatched} rows were valid but named a login
+ * without an account; {@code errors} holds the first few rejection messages only.
+ */
+public record ImportResult(long lines, long imported, long rejected, long unmatched,
+                           int accounts, List<String> errors) {}
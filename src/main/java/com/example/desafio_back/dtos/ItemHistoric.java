@@ -1,5 +1,20 @@
 package com.example.desafio_back.dtos;
 
-import java.math.BigDecimal;
+import com.example.desafio_back.enums.Type;
+import com.example.desafio_back.model.Money;
+import com.example.desafio_back.model.Transaction;
 
-public record ItemHistoric(String type, BigDecimal value, String date) {}
\ No newline at end of file
+import java.time.format.DateTimeFormatter;
+
+public record ItemHistoric(String type, Money value, String date) {
+
+    private static final DateTimeFormatter FMT = DateTimeFormatter.ofPattern("dd-MM-yyyy HH:mm:ss");
+
+    public static ItemHistoric of(Transaction t) {
+        return new ItemHistoric(
+                t.getType() == Type.DEPOSIT ? "deposit" : "payment",
+                t.getValue(),
+                t.getDateTime().format(FMT)
+        );
+    }
+}
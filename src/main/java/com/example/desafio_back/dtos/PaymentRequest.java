@@ -1,5 +1,5 @@
 package com.example.desafio_back.dtos;
 
-import java.math.BigDecimal;
+import com.example.desafio_back.model.Money;
 
-public record PaymentRequest(BigDecimal value) {}
\ No newline at end of file
+public record PaymentRequest(Money value) {}
\ No newline at end of file
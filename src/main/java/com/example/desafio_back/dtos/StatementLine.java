@@ -0,0 +1,9 @@
+package com.example.desafio_back.dtos;
+
+import com.example.desafio_back.enums.Type;
+import com.example.desafio_back.model.Money;
+
+import java.time.LocalDateTime;
+
+/** Constructor projection for statements: no managed entities pile up while streaming. */
+public record StatementLine(Long id, Type type, Money value, LocalDateTime dateTime) {}
@@ -0,0 +1,5 @@
+package com.example.desafio_back.dtos;
+
+import java.util.List;
+
+public record TransactionPage(List<ItemHistoric> items, String nextCursor) {}
@@ -0,0 +1,6 @@
+package com.example.desafio_back.dtos;
+
+import java.util.List;
+
+/** Outcome of a bulk registration; {@code duplicates} are the logins whose CPF or login was taken. */
+public record UserImportResult(int received, int created, List<String> duplicates) {}
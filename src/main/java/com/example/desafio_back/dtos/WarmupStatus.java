@@ -0,0 +1,16 @@
+package com.example.desafio_back.dtos;
+
+import java.time.Instant;
+
+/**
+ * Progress of the cache warm-up. {@code written} counts entries actually
+ * replaced; the rest of {@code accounts} were already cached at their current
+ * version or newer. {@code error} is set only when {@code state} is FAILED.
+ */
+public record WarmupStatus(State state, Instant startedAt, long accounts, long written,
+                           long elapsedMillis, double accountsPerSecond, String error) {
+
+    public enum State { IDLE, RUNNING, DONE, FAILED }
+
+    public static final WarmupStatus IDLE = new WarmupStatus(State.IDLE, null, 0, 0, 0, 0, null);
+}
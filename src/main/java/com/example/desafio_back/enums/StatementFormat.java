@@ -0,0 +1,35 @@
+package com.example.desafio_back.enums;
+
+public enum StatementFormat {
+    CSV("text/csv", "csv"),
+    NDJSON("application/x-ndjson", "ndjson");
+
+    private final String mediaType;
+    private final String extension;
+
+    StatementFormat(String mediaType, String extension) {
+        this.mediaType = mediaType;
+        this.extension = extension;
+    }
+
+    public String getMediaType() {
+        return mediaType;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+
+    public static StatementFormat from(String raw) {
+        if (raw == null) {
+            throw new IllegalArgumentException("Format cannot be null");
+        }
+        String normalized = raw.trim().toLowerCase();
+        for (StatementFormat f : values()) {
+            if (f.extension.equals(normalized)) {
+                return f;
+            }
+        }
+        throw new IllegalArgumentException("Invalid format: " + raw);
+    }
+}
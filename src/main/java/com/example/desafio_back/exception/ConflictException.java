@@ -0,0 +1,9 @@
+package com.example.desafio_back.exception;
+
+/** The request clashes with existing data, e.g. a unique constraint; answered with 409. */
+public class ConflictException extends RuntimeException {
+
+    public ConflictException(String message) {
+        super(message);
+    }
+}
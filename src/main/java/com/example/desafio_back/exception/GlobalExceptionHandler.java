@@ -1,7 +1,10 @@
 package com.example.desafio_back.exception;
 
+import com.example.desafio_back.cache.RedisUnavailableException;
 import org.springframework.context.support.DefaultMessageSourceResolvable;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.validation.FieldError;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
@@ -9,6 +12,8 @@ import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 
 import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.stream.Collectors;
 
 @RestControllerAdvice
@@ -24,4 +29,47 @@ public class GlobalExceptionHandler {
                 ));
         return Map.of("message", "Validation failed", "errors", errors);
     }
-}
\ No newline at end of file
+
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    @ExceptionHandler(IllegalArgumentException.class)
+    public Map<String, Object> handleIllegalArgument(IllegalArgumentException ex) {
+        return Map.of("message", Objects.requireNonNullElse(ex.getMessage(), "Bad request"));
+    }
+
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    @ExceptionHandler(RejectedExecutionException.class)
+    public Map<String, Object> handleRejected(RejectedExecutionException ex) {
+        return Map.of("message", Objects.requireNonNullElse(ex.getMessage(), "Service unavailable"));
+    }
+
+    @ResponseStatus(HttpStatus.GATEWAY_TIMEOUT)
+    @ExceptionHandler(OutcomeUnknownException.class)
+    public Map<String, Object> handleOutcomeUnknown(OutcomeUnknownException ex) {
+        return Map.of("message", ex.getMessage());
+    }
+
+    @ResponseStatus(HttpStatus.CONFLICT)
+    @ExceptionHandler(ConflictException.class)
+    public Map<String, Object> handleConflict(ConflictException ex) {
+        return Map.of("message", ex.getMessage());
+    }
+
+    @ExceptionHandler(TooManyRequestsException.class)
+    public ResponseEntity<Map<String, Object>> handleTooManyRequests(TooManyRequestsException ex) {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(Map.of("message", ex.getMessage()));
+    }
+
+    @ExceptionHandler(IdempotencyException.class)
+    public ResponseEntity<Map<String, Object>> handleIdempotency(IdempotencyException ex) {
+        return ResponseEntity.status(ex.getStatus()).body(Map.of("message", ex.getMessage()));
+    }
+
+    // only reaches here where Redis is required, e.g. for idempotency keys
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    @ExceptionHandler(RedisUnavailableException.class)
+    public Map<String, Object> handleRedisUnavailable(RedisUnavailableException ex) {
+        return Map.of("message", "Service unavailable");
+    }
+}
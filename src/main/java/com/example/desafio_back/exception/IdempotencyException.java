@@ -0,0 +1,16 @@
+package com.example.desafio_back.exception;
+
+import lombok.Getter;
+import org.springframework.http.HttpStatus;
+
+/** An {@code Idempotency-Key} that cannot be used for this request (see IdempotencyStore). */
+@Getter
+public class IdempotencyException extends RuntimeException {
+
+    private final HttpStatus status;
+
+    public IdempotencyException(HttpStatus status, String message) {
+        super(message);
+        this.status = status;
+    }
+}
@@ -0,0 +1,13 @@
+package com.example.desafio_back.exception;
+
+/**
+ * The command was handed over but its result never came back, so it may or
+ * may not have been applied; answered with 504. Unlike a rejection, retrying
+ * it blindly can apply it twice.
+ */
+public class OutcomeUnknownException extends RuntimeException {
+
+    public OutcomeUnknownException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,12 @@
+package com.example.desafio_back.exception;
+
+/**
+ * The server is saturated for this kind of request; answered with 429 so the
+ * client backs off instead of queueing behind the others.
+ */
+public class TooManyRequestsException extends RuntimeException {
+
+    public TooManyRequestsException(String message) {
+        super(message);
+    }
+}
@@ -2,7 +2,6 @@ package com.example.desafio_back.model;
 
 import jakarta.persistence.*;
 import lombok.*;
-import java.math.BigDecimal;
 
 @Entity @Table(name="accounts")
 @Getter @Setter @NoArgsConstructor @AllArgsConstructor @Builder
@@ -14,5 +13,8 @@ public class Account {
     private User user;
 
     @Column(precision = 19, scale = 2)
-    private BigDecimal currentBalance;
+    private Money currentBalance;
+
+    // bumped by every balance change; orders cache updates (see BalanceCache)
+    private Long version;
 }
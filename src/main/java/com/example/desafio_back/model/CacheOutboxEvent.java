@@ -0,0 +1,38 @@
+package com.example.desafio_back.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+
+/**
+ * A cache append recorded in the transaction of the command that caused it,
+ * published to Redis after commit by {@code CacheOutbox}.
+ */
+@Entity
+@Table(name = "cache_outbox")
+@Getter @Setter @NoArgsConstructor @AllArgsConstructor @Builder
+public class CacheOutboxEvent {
+
+    // pooled like transactions, so the insert joins the command's JDBC batch
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "cache_outbox_seq")
+    @SequenceGenerator(name = "cache_outbox_seq", sequenceName = "cache_outbox_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(nullable = false)
+    private Long userId;
+
+    @Column(nullable = false)
+    private Long version;
+
+    @Column(precision = 19, scale = 2)
+    private Money balance;
+
+    // JSON array of ItemHistoric, oldest first
+    @Column(nullable = false, columnDefinition = "text")
+    private String items;
+
+    @Column(nullable = false)
+    private Instant createdAt;
+}
@@ -0,0 +1,195 @@
+package com.example.desafio_back.model;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * An amount in reais, held as a {@code long} of centavos. Matches the
+ * {@code numeric(19, 2)} columns: anything with more decimals is rounded
+ * HALF_UP on the way in, as Postgres does on assignment. Arithmetic is exact
+ * and throws {@link ArithmeticException} on overflow.
+ * <p>
+ * JSON keeps the format of a scale-2 {@link BigDecimal} (a number such as
+ * {@code 100.00}); JPA maps it through {@link MoneyConverter}.
+ */
+@JsonSerialize(using = Money.Serializer.class)
+@JsonDeserialize(using = Money.Deserializer.class)
+public final class Money implements Comparable<Money> {
+
+    public static final Money ZERO = new Money(0);
+
+    private final long cents;
+
+    private Money(long cents) {
+        this.cents = cents;
+    }
+
+    public static Money ofCents(long cents) {
+        return cents == 0 ? ZERO : new Money(cents);
+    }
+
+    public static Money of(BigDecimal value) {
+        return ofCents(value.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact());
+    }
+
+    /**
+     * Parses a plain decimal such as {@code -12.5} without going through
+     * {@link BigDecimal}; other notations (exponents) fall back to it.
+     */
+    public static Money parse(CharSequence text) {
+        int len = text.length();
+        int i = 0;
+        boolean negative = false;
+        if (len > 0 && (text.charAt(0) == '-' || text.charAt(0) == '+')) {
+            negative = text.charAt(0) == '-';
+            i++;
+        }
+        long units = 0;
+        int digits = 0;
+        for (; i < len && isDigit(text.charAt(i)); i++, digits++) {
+            units = Math.addExact(Math.multiplyExact(units, 10), text.charAt(i) - '0');
+        }
+        long fraction = 0;
+        int scale = 0;
+        boolean roundUp = false;
+        if (i < len && text.charAt(i) == '.') {
+            for (i++; i < len && isDigit(text.charAt(i)); i++, digits++) {
+                int d = text.charAt(i) - '0';
+                if (scale < 2) {
+                    fraction = fraction * 10 + d;
+                    scale++;
+                } else if (scale == 2) {
+                    roundUp = d >= 5;
+                    scale++;
+                }
+            }
+        }
+        if (i != len || digits == 0) {
+            return of(new BigDecimal(text.toString()));
+        }
+        for (; scale < 2; scale++) {
+            fraction *= 10;
+        }
+        long cents = Math.addExact(Math.multiplyExact(units, 100), fraction + (roundUp ? 1 : 0));
+        return ofCents(negative ? -cents : cents);
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    public long cents() {
+        return cents;
+    }
+
+    public BigDecimal toBigDecimal() {
+        return BigDecimal.valueOf(cents, 2);
+    }
+
+    public int signum() {
+        return Long.signum(cents);
+    }
+
+    public boolean isPositive() {
+        return cents > 0;
+    }
+
+    public Money plus(Money other) {
+        return ofCents(Math.addExact(cents, other.cents));
+    }
+
+    public Money minus(Money other) {
+        return ofCents(Math.subtractExact(cents, other.cents));
+    }
+
+    public Money abs() {
+        return cents >= 0 ? this : ofCents(Math.negateExact(cents));
+    }
+
+    /**
+     * {@code this * numerator / denominator}, rounded HALF_UP (away from zero)
+     * to the centavo like {@code BigDecimal.setScale(2, HALF_UP)} and Postgres
+     * {@code ROUND(x, 2)}. The product is split so it cannot overflow unless
+     * the result does.
+     */
+    public Money times(long numerator, long denominator) {
+        if (numerator < 0 || denominator <= 0) {
+            throw new IllegalArgumentException("Ratio must be non-negative with a positive denominator");
+        }
+        long a = Math.absExact(cents);
+        long q = a / denominator;
+        long r = a % denominator;
+        long rest = Math.addExact(Math.multiplyExact(Math.multiplyExact(r, numerator), 2), denominator)
+                / Math.multiplyExact(denominator, 2);
+        long result = Math.addExact(Math.multiplyExact(q, numerator), rest);
+        return ofCents(cents < 0 ? -result : result);
+    }
+
+    @Override
+    public int compareTo(Money other) {
+        return Long.compare(cents, other.cents);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof Money m && m.cents == cents;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(cents);
+    }
+
+    /** Plain notation with two decimals, as {@code BigDecimal.toPlainString()} at scale 2. */
+    @Override
+    public String toString() {
+        if (cents == Long.MIN_VALUE) {
+            return toBigDecimal().toPlainString();
+        }
+        long abs = Math.abs(cents);
+        StringBuilder sb = new StringBuilder(24);
+        if (cents < 0) {
+            sb.append('-');
+        }
+        long frac = abs % 100;
+        sb.append(abs / 100).append('.');
+        if (frac < 10) {
+            sb.append('0');
+        }
+        return sb.append(frac).toString();
+    }
+
+    static class Serializer extends JsonSerializer<Money> {
+        @Override
+        public void serialize(Money value, JsonGenerator gen, SerializerProvider serializers) throws IOException {
+            gen.writeNumber(value.toString());
+        }
+    }
+
+    static class Deserializer extends JsonDeserializer<Money> {
+        @Override
+        public Money deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+            JsonToken token = p.currentToken();
+            if (token == JsonToken.VALUE_NUMBER_INT || token == JsonToken.VALUE_NUMBER_FLOAT
+                    || token == JsonToken.VALUE_STRING) {
+                try {
+                    return parse(p.getText().trim());
+                } catch (NumberFormatException | ArithmeticException e) {
+                    return (Money) ctxt.handleWeirdStringValue(Money.class, p.getText(), "not a valid amount");
+                }
+            }
+            return (Money) ctxt.handleUnexpectedToken(Money.class, p);
+        }
+    }
+}
@@ -3,14 +3,24 @@ package com.example.desafio_back.model;
 import com.example.desafio_back.enums.Type;
 import jakarta.persistence.*;
 import lombok.*;
-import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
-@Entity @Table(name="transactions")
+@Entity
+@Table(name = "transactions", indexes = {
+        // backs the keyset pagination in TransactionRepository (account, newest first)
+        @Index(name = "idx_transactions_account_date_id", columnList = "account_id, date_time desc, id desc")
+})
 @Getter @Setter @NoArgsConstructor @AllArgsConstructor @Builder
 public class Transaction {
 
-    @Id @GeneratedValue(strategy = GenerationType.IDENTITY)
+    /** Ids per {@code transactions_seq} value; raw SQL that takes ids must use the same blocks. */
+    public static final int ID_BLOCK = 50;
+
+    // pooled sequence instead of IDENTITY so Hibernate can batch inserts;
+    // ids come in blocks of allocationSize (see data.sql for existing tables)
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "transactions_seq")
+    @SequenceGenerator(name = "transactions_seq", sequenceName = "transactions_seq", allocationSize = ID_BLOCK)
     private Long id;
 
     @ManyToOne(optional = false)
@@ -20,7 +30,7 @@ public class Transaction {
     private Type type;
 
     @Column(precision = 19, scale = 2)
-    private BigDecimal value;
+    private Money value;
 
     private LocalDateTime dateTime;
 }
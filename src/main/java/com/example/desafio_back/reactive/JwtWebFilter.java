@@ -0,0 +1,52 @@
+package com.example.desafio_back.reactive;
+
+import com.example.desafio_back.security.AuthenticatedUser;
+import com.example.desafio_back.security.JwtFilter;
+import com.example.desafio_back.security.JwtUtil;
+import com.example.desafio_back.security.TokenDenylist;
+import io.jsonwebtoken.Claims;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.ReactiveSecurityContextHolder;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * Same checks as {@link JwtFilter}; the authentication goes into the Reactor
+ * context instead of a thread-local. Registered by {@link ReactiveSecurityConfig}
+ * only, not as a bean, so it is not also added to the plain WebFlux chain.
+ */
+@RequiredArgsConstructor
+public class JwtWebFilter implements WebFilter {
+
+    private final JwtUtil jwt;
+    private final TokenDenylist denylist;
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        String auth = exchange.getRequest().getHeaders().getFirst(HttpHeaders.AUTHORIZATION);
+        if (auth == null || !auth.startsWith("Bearer ")) {
+            return chain.filter(exchange);
+        }
+
+        Claims claims = jwt.verify(auth.substring(7)).orElse(null);
+        if (claims == null) {
+            return chain.filter(exchange);
+        }
+        Long userId = claims.get(JwtUtil.USER_ID_CLAIM, Long.class);
+        // tokens issued before the uid claim existed must log in again
+        if (userId == null || denylist.isRevoked(claims.getId())) {
+            return chain.filter(exchange);
+        }
+
+        var principal = new AuthenticatedUser(userId, claims.getSubject());
+        var authentication = new UsernamePasswordAuthenticationToken(principal, null, List.of());
+        return chain.filter(exchange)
+                .contextWrite(ReactiveSecurityContextHolder.withAuthentication(authentication));
+    }
+}
@@ -0,0 +1,173 @@
+package com.example.desafio_back.reactive;
+
+import com.example.desafio_back.dtos.ItemHistoric;
+import com.example.desafio_back.enums.Type;
+import com.example.desafio_back.model.Money;
+import com.example.desafio_back.model.Transaction;
+import com.example.desafio_back.repository.AccountRepository;
+import com.example.desafio_back.repository.UserRepository;
+import com.example.desafio_back.services.CacheOutbox;
+import com.example.desafio_back.services.CommandService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.Readable;
+import org.springframework.context.annotation.Profile;
+import org.springframework.r2dbc.connection.R2dbcTransactionManager;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import org.springframework.transaction.support.DefaultTransactionDefinition;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * All SQL of the reactive variant. Statements mirror the JPA repositories
+ * (the balance updates are literally the same text, see {@link AccountRepository}),
+ * so both variants can run against one database.
+ */
+@Component
+@Profile("reactive")
+public class R2dbcBankStore {
+
+    private final DatabaseClient db;
+    private final ObjectMapper mapper;
+    private final TransactionalOperator tx;
+    private final TransactionalOperator snapshot;
+
+    public R2dbcBankStore(DatabaseClient db, ConnectionFactory connectionFactory, ObjectMapper mapper) {
+        this.db = db;
+        this.mapper = mapper;
+        // not a bean: a second TransactionManager would displace the JPA one
+        R2dbcTransactionManager txManager = new R2dbcTransactionManager(connectionFactory);
+        this.tx = TransactionalOperator.create(txManager);
+
+        // repeatable read so the balance, its version and the history come from one snapshot
+        DefaultTransactionDefinition readOnly = new DefaultTransactionDefinition();
+        readOnly.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        readOnly.setReadOnly(true);
+        this.snapshot = TransactionalOperator.create(txManager, readOnly);
+    }
+
+    public <T> Mono<T> inTransaction(Mono<T> work) {
+        return work.as(tx::transactional);
+    }
+
+    public <T> Mono<T> inSnapshot(Mono<T> work) {
+        return work.as(snapshot::transactional);
+    }
+
+    public Mono<BalanceUpdate> applyDeposit(Long userId, Money amount) {
+        return db.sql(AccountRepository.APPLY_DEPOSIT)
+                .bind("userId", userId)
+                .bind("amount", amount.toBigDecimal())
+                .bind("interest", CommandService.INTEREST)
+                .map(R2dbcBankStore::balanceUpdate)
+                .one();
+    }
+
+    public Mono<BalanceUpdate> applyPayment(Long userId, Money amount) {
+        return db.sql(AccountRepository.APPLY_PAYMENT)
+                .bind("userId", userId)
+                .bind("amount", amount.toBigDecimal())
+                .map(R2dbcBankStore::balanceUpdate)
+                .one();
+    }
+
+    public Mono<Void> insertTransaction(Long accountId, Type type, Money value, LocalDateTime dateTime) {
+        return db.sql("""
+                        INSERT INTO transactions (id, account_id, type, value, date_time)
+                        VALUES (nextval('transactions_seq'), :accountId, :type, :value, :dateTime)
+                        """)
+                .bind("accountId", accountId)
+                .bind("type", type.name())
+                .bind("value", value.toBigDecimal())
+                .bind("dateTime", dateTime)
+                .then();
+    }
+
+    /** Same row as {@link CacheOutbox#append}; must run in the command's transaction. */
+    public Mono<Void> insertCacheEvent(Long userId, long version, Money balance, List<ItemHistoric> items) {
+        return Mono.fromCallable(() -> mapper.writeValueAsString(items))
+                .flatMap(json -> db.sql("""
+                                INSERT INTO cache_outbox (id, user_id, version, balance, items, created_at)
+                                VALUES (nextval('cache_outbox_seq'), :userId, :version, :balance, :items, :createdAt)
+                                """)
+                        .bind("userId", userId)
+                        .bind("version", version)
+                        .bind("balance", balance.toBigDecimal())
+                        .bind("items", json)
+                        .bind("createdAt", Instant.now())
+                        .then());
+    }
+
+    public Mono<BalanceUpdate> findAccount(Long userId) {
+        return db.sql("SELECT id, current_balance, version FROM accounts WHERE user_id = :userId")
+                .bind("userId", userId)
+                .map(R2dbcBankStore::balanceUpdate)
+                .one();
+    }
+
+    /** Newest first, same order as {@code TransactionRepository.findLatest}. */
+    public Mono<List<ItemHistoric>> latest(Long accountId, int limit) {
+        return db.sql("""
+                        SELECT type, value, date_time FROM transactions
+                         WHERE account_id = :accountId
+                         ORDER BY date_time DESC, id DESC
+                         LIMIT :limit
+                        """)
+                .bind("accountId", accountId)
+                .bind("limit", limit)
+                .map(row -> ItemHistoric.of(Transaction.builder()
+                        .type(Type.valueOf(row.get(0, String.class)))
+                        .value(Money.of(row.get(1, BigDecimal.class)))
+                        .dateTime(row.get(2, LocalDateTime.class))
+                        .build()))
+                .all()
+                .collectList();
+    }
+
+    public Mono<Boolean> userExists(String cpf, String login) {
+        return db.sql("SELECT EXISTS (SELECT 1 FROM users WHERE cpf = :cpf OR login = :login)")
+                .bind("cpf", cpf)
+                .bind("login", login)
+                .map(row -> row.get(0, Boolean.class))
+                .one();
+    }
+
+    /** See {@link UserRepository#insertWithAccount}; empty when the CPF or the login is taken. */
+    public Mono<Long> insertUserWithAccount(String completeName, String cpf, String login, String passwordHash) {
+        return db.sql(UserRepository.INSERT_WITH_ACCOUNT)
+                .bind("completeName", completeName)
+                .bind("cpf", cpf)
+                .bind("login", login)
+                .bind("passwordHash", passwordHash)
+                .map(row -> row.get(0, Long.class))
+                .one();
+    }
+
+    public Mono<Credentials> findUserByLogin(String login) {
+        return db.sql("SELECT id, login, password_hash FROM users WHERE login = :login")
+                .bind("login", login)
+                .map(row -> new Credentials(row.get(0, Long.class), row.get(1, String.class), row.get(2, String.class)))
+                .one();
+    }
+
+    // columns by position: both the UPDATE ... RETURNING and the SELECT list id, balance, version
+    private static BalanceUpdate balanceUpdate(Readable row) {
+        BigDecimal balance = row.get(1, BigDecimal.class);
+        Long version = row.get(2, Long.class);
+        return new BalanceUpdate(row.get(0, Long.class),
+                balance == null ? Money.ZERO : Money.of(balance),
+                version == null ? 0 : version);
+    }
+
+    public record BalanceUpdate(Long accountId, Money balance, long version) {}
+
+    public record Credentials(Long userId, String login, String passwordHash) {}
+}
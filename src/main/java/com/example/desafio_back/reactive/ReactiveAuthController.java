@@ -0,0 +1,42 @@
+package com.example.desafio_back.reactive;
+
+import com.example.desafio_back.dtos.LoginRequest;
+import com.example.desafio_back.dtos.RegisterRequest;
+import com.example.desafio_back.dtos.TokenResponse;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Mono;
+
+@RestController
+@Profile("reactive")
+@RequestMapping("/auth")
+@RequiredArgsConstructor
+public class ReactiveAuthController {
+    private final ReactiveAuthService auth;
+
+    @PostMapping("/register")
+    public Mono<ResponseEntity<Void>> register(@RequestBody @Valid RegisterRequest r){
+        return auth.register(r).thenReturn(ResponseEntity.ok().build());
+    }
+
+    @PostMapping("/login")
+    public Mono<TokenResponse> login(@RequestBody @Valid LoginRequest r){
+        return auth.login(r).map(TokenResponse::new);
+    }
+
+    @PostMapping("/logout")
+    public Mono<ResponseEntity<Void>> logout(@RequestHeader(HttpHeaders.AUTHORIZATION) String authorization){
+        if (!authorization.startsWith("Bearer ")) {
+            return Mono.error(new IllegalArgumentException("Bearer token required"));
+        }
+        return auth.logout(authorization.substring(7)).thenReturn(ResponseEntity.noContent().build());
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.desafio_back.reactive;
+
+import com.example.desafio_back.dtos.LoginRequest;
+import com.example.desafio_back.dtos.RegisterRequest;
+import com.example.desafio_back.exception.ConflictException;
+import com.example.desafio_back.security.JwtUtil;
+import com.example.desafio_back.security.PasswordHasher;
+import com.example.desafio_back.security.TokenDenylist;
+import com.example.desafio_back.services.AuthService;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Reactive counterpart of {@link AuthService}. BCrypt runs on the same bounded
+ * {@link PasswordHasher} pool as the servlet variant, so a flood is shed with
+ * 429 instead of queueing; the blocking denylist write runs on the bounded
+ * elastic scheduler instead of an event-loop thread.
+ */
+@Service
+@Profile("reactive")
+@RequiredArgsConstructor
+public class ReactiveAuthService {
+
+    private final R2dbcBankStore store;
+    private final PasswordHasher hasher;
+    private final JwtUtil jwt;
+    private final TokenDenylist denylist;
+
+    public Mono<Void> register(RegisterRequest request) {
+        String cpfDigits = request.cpf().replaceAll("\\D", "");
+
+        // the lookup only spares the hash for an obvious duplicate; the insert is what decides
+        return store.userExists(cpfDigits, request.login())
+                .flatMap(exists -> exists
+                        ? Mono.error(new ConflictException(AuthService.ALREADY_EXISTS))
+                        : Mono.fromFuture(() -> hasher.encodeAsync(request.password())))
+                .flatMap(hash -> store.insertUserWithAccount(request.completeName(), cpfDigits, request.login(), hash))
+                .switchIfEmpty(Mono.error(() -> new ConflictException(AuthService.ALREADY_EXISTS)))
+                .then();
+    }
+
+    public Mono<String> login(LoginRequest request) {
+        return Mono.justOrEmpty(request.login())
+                .flatMap(store::findUserByLogin)
+                .switchIfEmpty(Mono.error(() -> new RuntimeException("Invalid credentials")))
+                .flatMap(user -> Mono.fromFuture(() -> hasher.matchesAsync(request.password(), user.passwordHash()))
+                        .flatMap(matches -> matches
+                                ? Mono.just(jwt.generate(user.login(), user.userId()))
+                                : Mono.error(new RuntimeException("Invalid credentials"))));
+    }
+
+    public Mono<Void> logout(String token) {
+        return Mono.fromCallable(() -> {
+                    Claims claims;
+                    try {
+                        claims = jwt.getClaims(token);
+                    } catch (JwtException e) {
+                        throw new IllegalArgumentException("Invalid token");
+                    }
+                    // as in AuthService: no jti, nothing to revoke
+                    if (claims.getId() == null || claims.getExpiration() == null) {
+                        throw new IllegalArgumentException("Invalid token");
+                    }
+                    denylist.revoke(claims.getId(), claims.getExpiration().getTime());
+                    return claims;
+                })
+                .subscribeOn(Schedulers.boundedElastic())
+                .then();
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.desafio_back.reactive;
+
+import com.example.desafio_back.cache.BalanceCache;
+import com.example.desafio_back.cache.CacheCodec;
+import com.example.desafio_back.cache.LocalBalanceCache;
+import com.example.desafio_back.dtos.CacheBalance;
+import com.example.desafio_back.dtos.ItemHistoric;
+import com.example.desafio_back.model.Money;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.serializer.GenericToStringSerializer;
+import org.springframework.data.redis.serializer.RedisElementReader;
+import org.springframework.data.redis.serializer.RedisElementWriter;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Non-blocking twin of {@link BalanceCache}: same key layout and the same Lua
+ * scripts, so both variants can share one Redis. There is no L1 here, but
+ * writes still publish on {@link LocalBalanceCache#INVALIDATION_CHANNEL} so
+ * servlet nodes drop their local copies. Commands reach Redis only through the
+ * cache outbox, after their transaction commits, so there is no append here.
+ */
+@Component
+@Profile("reactive")
+public class ReactiveBalanceCache {
+
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> READ =
+            RedisScript.of(new ClassPathResource("redis/balance-read.lua"), List.class);
+    private static final RedisScript<Long> REPLACE =
+            RedisScript.of(new ClassPathResource("redis/balance-replace.lua"), Long.class);
+
+    private static final RedisElementWriter<byte[]> BYTES = RedisElementWriter.from(RedisSerializer.byteArray());
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    private static final RedisElementReader<List> BYTES_LIST = (RedisElementReader) RedisElementReader.from(RedisSerializer.byteArray());
+    private static final RedisElementReader<Long> LONG = RedisElementReader.from(new GenericToStringSerializer<>(Long.class));
+
+    private final ReactiveStringRedisTemplate redis;
+    private final CacheCodec codec;
+    private final Duration ttl;
+    private final String nodeId = UUID.randomUUID().toString();
+
+    public ReactiveBalanceCache(ReactiveStringRedisTemplate redis, CacheCodec codec,
+                                @Value("${cache.balance.ttl}") Duration ttl) {
+        this.redis = redis;
+        this.codec = codec;
+        this.ttl = ttl;
+    }
+
+    @SuppressWarnings("unchecked")
+    public Mono<CacheBalance> get(Long userId) {
+        return redis.execute(READ, keys(userId), List.of(), BYTES, BYTES_LIST)
+                .next()
+                .flatMap(raw -> Mono.justOrEmpty(BalanceCache.decode((List<byte[]>) raw, codec)));
+    }
+
+    /** See {@link BalanceCache#replace}. */
+    public Mono<Long> replace(Long userId, long version, Money balance, List<ItemHistoric> historic) {
+        int size = Math.min(historic.size(), BalanceCache.MAX_HISTORIC);
+        List<byte[]> args = BalanceCache.header(version, balance, size, ttl);
+        for (int i = 0; i < size; i++) {
+            args.add(codec.encode(historic.get(i)));
+        }
+        return redis.execute(REPLACE, keys(userId), args, BYTES, LONG)
+                .next()
+                .defaultIfEmpty(0L)
+                .flatMap(result -> result > 0 ? invalidate(userId).thenReturn(result) : Mono.just(result));
+    }
+
+    private Mono<Long> invalidate(Long userId) {
+        return redis.convertAndSend(LocalBalanceCache.INVALIDATION_CHANNEL, nodeId + ":" + userId);
+    }
+
+    private static List<String> keys(Long userId) {
+        return List.of(BalanceCache.key(userId), BalanceCache.historicKey(userId));
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.desafio_back.reactive;
+
+import com.example.desafio_back.controllers.BankController;
+import com.example.desafio_back.dtos.BalanceResponse;
+import com.example.desafio_back.dtos.DepositRequest;
+import com.example.desafio_back.dtos.PaymentRequest;
+import com.example.desafio_back.security.AuthenticatedUser;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Mono;
+
+/** The hot paths of {@link BankController}, same routes and payloads. */
+@RestController
+@Profile("reactive")
+@RequestMapping("/api")
+@RequiredArgsConstructor
+public class ReactiveBankController {
+    private final ReactiveCommandService command;
+    private final ReactiveQueryService query;
+
+    @PostMapping("/deposits")
+    public Mono<ResponseEntity<Void>> deposit(@AuthenticationPrincipal AuthenticatedUser user,
+                                              @RequestBody DepositRequest r){
+        return command.deposit(user.id(), r.value()).thenReturn(ResponseEntity.ok().build());
+    }
+
+    @PostMapping("/payments")
+    public Mono<ResponseEntity<Void>> pay(@AuthenticationPrincipal AuthenticatedUser user,
+                                          @RequestBody PaymentRequest r){
+        return command.pay(user.id(), r.value()).thenReturn(ResponseEntity.ok().build());
+    }
+
+    @GetMapping("/balance")
+    public Mono<BalanceResponse> balance(@AuthenticationPrincipal AuthenticatedUser user){
+        return query.balance(user.id());
+    }
+}
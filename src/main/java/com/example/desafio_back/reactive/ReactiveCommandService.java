@@ -0,0 +1,60 @@
+package com.example.desafio_back.reactive;
+
+import com.example.desafio_back.dtos.ItemHistoric;
+import com.example.desafio_back.enums.Type;
+import com.example.desafio_back.model.Money;
+import com.example.desafio_back.model.Transaction;
+import com.example.desafio_back.services.CacheOutbox;
+import com.example.desafio_back.services.CommandService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/** Reactive counterpart of {@link CommandService#deposit} and {@link CommandService#pay}. */
+@Service
+@Profile("reactive")
+@RequiredArgsConstructor
+public class ReactiveCommandService {
+
+    private final R2dbcBankStore store;
+    private final CacheOutbox outbox;
+
+    public Mono<Void> deposit(Long userId, Money amount) {
+        return apply(userId, Type.DEPOSIT, amount);
+    }
+
+    public Mono<Void> pay(Long userId, Money amount) {
+        return apply(userId, Type.PAYMENT, amount);
+    }
+
+    private Mono<Void> apply(Long userId, Type type, Money amount) {
+        return Mono.defer(() -> {
+            CommandService.requireValidAmount(amount);
+            LocalDateTime now = LocalDateTime.now();
+
+            Mono<R2dbcBankStore.BalanceUpdate> update = type == Type.DEPOSIT
+                    ? store.applyDeposit(userId, amount)
+                    : store.applyPayment(userId, amount);
+
+            // as in the servlet variant, the cache append goes through the outbox,
+            // so a rolled-back command never reaches Redis
+            return store.inTransaction(update
+                    .switchIfEmpty(Mono.error(() -> new NoSuchElementException("No value present")))
+                    .flatMap(updated -> store.insertTransaction(updated.accountId(), type, amount, now)
+                            .then(store.insertCacheEvent(userId, updated.version(), updated.balance(),
+                                    List.of(ItemHistoric.of(Transaction.builder()
+                                            .type(type)
+                                            .value(amount)
+                                            .dateTime(now)
+                                            .build()))))))
+                    // R2DBC commits don't trigger the JPA synchronization that wakes the relay
+                    .doOnSuccess(done -> outbox.wakeUp())
+                    .then();
+        });
+    }
+}
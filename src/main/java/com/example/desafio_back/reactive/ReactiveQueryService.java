@@ -0,0 +1,35 @@
+package com.example.desafio_back.reactive;
+
+import com.example.desafio_back.cache.BalanceCache;
+import com.example.desafio_back.dtos.BalanceResponse;
+import com.example.desafio_back.services.QueryService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.util.NoSuchElementException;
+
+/** Reactive counterpart of {@link QueryService#balance}. */
+@Service
+@Profile("reactive")
+@RequiredArgsConstructor
+public class ReactiveQueryService {
+
+    private final R2dbcBankStore store;
+    private final ReactiveBalanceCache cache;
+
+    public Mono<BalanceResponse> balance(Long userId) {
+        return cache.get(userId)
+                .map(cached -> new BalanceResponse(cached.getTotalBalance(), cached.getHistoric()))
+                .switchIfEmpty(Mono.defer(() -> load(userId)));
+    }
+
+    private Mono<BalanceResponse> load(Long userId) {
+        return store.inSnapshot(store.findAccount(userId)
+                        .switchIfEmpty(Mono.error(() -> new NoSuchElementException("No value present")))
+                        .flatMap(acc -> store.latest(acc.accountId(), BalanceCache.MAX_HISTORIC)
+                                .flatMap(items -> cache.replace(userId, acc.version(), acc.balance(), items)
+                                        .thenReturn(new BalanceResponse(acc.balance(), items)))));
+    }
+}
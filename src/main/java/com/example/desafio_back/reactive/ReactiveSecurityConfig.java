@@ -0,0 +1,67 @@
+package com.example.desafio_back.reactive;
+
+import com.example.desafio_back.security.JwtUtil;
+import com.example.desafio_back.security.SecurityConfig;
+import com.example.desafio_back.security.TimedPasswordEncoder;
+import com.example.desafio_back.security.TokenDenylist;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.security.config.annotation.web.reactive.EnableWebFluxSecurity;
+import org.springframework.security.config.web.server.SecurityWebFiltersOrder;
+import org.springframework.security.config.web.server.ServerHttpSecurity;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.web.server.SecurityWebFilterChain;
+import org.springframework.security.web.server.ServerAuthenticationEntryPoint;
+import org.springframework.security.web.server.context.NoOpServerSecurityContextRepository;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+
+/** WebFlux version of {@link SecurityConfig}: stateless, JWT on everything but {@code /auth/**}. */
+@Configuration
+@Profile("reactive")
+@EnableWebFluxSecurity
+public class ReactiveSecurityConfig {
+
+    private static final byte[] UNAUTHORIZED_BODY =
+            "{\"error\":\"Unauthorized\",\"message\":\"JWT is missing or invalid\"}".getBytes(StandardCharsets.UTF_8);
+
+    @Bean
+    public SecurityWebFilterChain reactiveFilterChain(ServerHttpSecurity http, JwtUtil jwt, TokenDenylist denylist) {
+        return http
+                .csrf(ServerHttpSecurity.CsrfSpec::disable)
+                .cors(ServerHttpSecurity.CorsSpec::disable)
+                .httpBasic(ServerHttpSecurity.HttpBasicSpec::disable)
+                .formLogin(ServerHttpSecurity.FormLoginSpec::disable)
+                .securityContextRepository(NoOpServerSecurityContextRepository.getInstance())
+                .exceptionHandling(eh -> eh.authenticationEntryPoint(unauthorizedEntryPoint()))
+                .authorizeExchange(auth -> auth
+                        .pathMatchers("/auth/**").permitAll()
+                        .anyExchange().authenticated()
+                )
+                .addFilterAt(new JwtWebFilter(jwt, denylist), SecurityWebFiltersOrder.AUTHENTICATION)
+                .build();
+    }
+
+    static ServerAuthenticationEntryPoint unauthorizedEntryPoint() {
+        return (exchange, e) -> {
+            var response = exchange.getResponse();
+            response.setStatusCode(HttpStatus.UNAUTHORIZED);
+            response.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+            DataBuffer body = response.bufferFactory().wrap(UNAUTHORIZED_BODY);
+            return response.writeWith(Mono.just(body));
+        };
+    }
+
+    @Bean
+    public PasswordEncoder passwordEncoder(MeterRegistry registry, @Value("${auth.bcrypt.cost}") int cost) {
+        return new TimedPasswordEncoder(new BCryptPasswordEncoder(cost), registry);
+    }
+}
@@ -1,10 +1,59 @@
 package com.example.desafio_back.repository;
 
 import com.example.desafio_back.model.Account;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.math.BigDecimal;
 import java.util.Optional;
 
 public interface AccountRepository extends JpaRepository<Account, Long> {
     Optional<Account> findByUserId(Long userId);
+
+    // batches fold many operations in memory, so they hold the row lock for the whole transaction
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select a from Account a where a.user.id = :userId")
+    Optional<Account> findByUserIdForUpdate(@Param("userId") Long userId);
+
+    interface BalanceUpdate {
+        Long getId();
+        BigDecimal getCurrentBalance();
+        Long getVersion();
+    }
+
+    // shared with the reactive variant (R2dbcBankStore), which binds the same named parameters
+    String APPLY_DEPOSIT = """
+            UPDATE accounts
+               SET current_balance = CASE
+                       WHEN current_balance < 0
+                           THEN ROUND(current_balance - ABS(current_balance) * :interest, 2) + :amount
+                       ELSE COALESCE(current_balance, 0) + :amount
+                   END,
+                   version = COALESCE(version, 0) + 1
+             WHERE user_id = :userId
+            RETURNING id AS id, current_balance AS currentBalance, version AS version
+            """;
+
+    String APPLY_PAYMENT = """
+            UPDATE accounts
+               SET current_balance = COALESCE(current_balance, 0) - :amount,
+                   version = COALESCE(version, 0) + 1
+             WHERE user_id = :userId
+            RETURNING id AS id, current_balance AS currentBalance, version AS version
+            """;
+
+    // single statement: the row lock taken by the UPDATE serializes concurrent
+    // commands on the same account, so there is no read-modify-write window.
+    // The interest rule is mirrored in CommandService.afterDeposit for batches.
+    @Query(value = APPLY_DEPOSIT, nativeQuery = true)
+    Optional<BalanceUpdate> applyDeposit(@Param("userId") Long userId,
+                                         @Param("amount") BigDecimal amount,
+                                         @Param("interest") BigDecimal interest);
+
+    @Query(value = APPLY_PAYMENT, nativeQuery = true)
+    Optional<BalanceUpdate> applyPayment(@Param("userId") Long userId,
+                                         @Param("amount") BigDecimal amount);
 }
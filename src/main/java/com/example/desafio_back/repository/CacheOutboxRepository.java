@@ -0,0 +1,18 @@
+package com.example.desafio_back.repository;
+
+import com.example.desafio_back.model.CacheOutboxEvent;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+
+public interface CacheOutboxRepository extends JpaRepository<CacheOutboxEvent, Long> {
+
+    // held until the relay's transaction ends, so a single relay publishes at a time across nodes
+    @Query(value = "SELECT pg_try_advisory_xact_lock(:key)", nativeQuery = true)
+    boolean tryRelayLock(@Param("key") long key);
+
+    @Query(value = "SELECT * FROM cache_outbox ORDER BY id LIMIT :limit", nativeQuery = true)
+    List<CacheOutboxEvent> findOldest(@Param("limit") int limit);
+}
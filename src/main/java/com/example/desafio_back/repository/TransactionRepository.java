@@ -1,11 +1,54 @@
 package com.example.desafio_back.repository;
 
+import com.example.desafio_back.dtos.StatementLine;
 import com.example.desafio_back.model.Transaction;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.stream.Stream;
 
 public interface TransactionRepository extends JpaRepository<Transaction, Long> {
-    List<Transaction> findByAccountIdOrderByDateTimeDesc(Long accountId);
 
-}
\ No newline at end of file
+    // keyset pagination over idx_transactions_account_date_id, newest first
+    @Query("""
+            select t from Transaction t
+             where t.account.id = :accountId
+             order by t.dateTime desc, t.id desc
+            """)
+    List<Transaction> findLatest(@Param("accountId") Long accountId, Limit limit);
+
+    @Query("""
+            select t from Transaction t
+             where t.account.id = :accountId
+               and (t.dateTime < :dateTime or (t.dateTime = :dateTime and t.id < :id))
+             order by t.dateTime desc, t.id desc
+            """)
+    List<Transaction> findBefore(@Param("accountId") Long accountId,
+                                 @Param("dateTime") LocalDateTime dateTime,
+                                 @Param("id") Long id,
+                                 Limit limit);
+
+    // read-only cursor for statements: the fetch size keeps the driver from
+    // buffering the whole result set; callers must consume it inside a transaction
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("""
+            select new com.example.desafio_back.dtos.StatementLine(t.id, t.type, t.value, t.dateTime)
+              from Transaction t
+             where t.account.id = :accountId
+               and t.dateTime >= :from and t.dateTime < :to
+             order by t.dateTime, t.id
+            """)
+    Stream<StatementLine> streamStatement(@Param("accountId") Long accountId,
+                                          @Param("from") LocalDateTime from,
+                                          @Param("to") LocalDateTime to);
+}
@@ -2,11 +2,41 @@ package com.example.desafio_back.repository;
 
 import com.example.desafio_back.model.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.Optional;
 
 public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findByLogin(String login);
-    boolean existsByCpf(String cpf);
-    boolean existsByLogin(String login);
+    boolean existsByCpfOrLogin(String cpf, String login);
+
+    String INSERT_WITH_ACCOUNT = """
+            WITH new_user AS (
+                INSERT INTO users (complete_name, cpf, login, password_hash)
+                VALUES (:completeName, :cpf, :login, :passwordHash)
+                ON CONFLICT DO NOTHING
+                RETURNING id
+            ), new_account AS (
+                INSERT INTO accounts (user_id, current_balance, version)
+                SELECT id, 0, 0 FROM new_user
+            )
+            SELECT id FROM new_user
+            """;
+
+    // one round trip, atomic as a single statement; empty when the CPF or the login is taken
+    @Transactional
+    @Query(value = INSERT_WITH_ACCOUNT, nativeQuery = true)
+    Optional<Long> insertWithAccount(@Param("completeName") String completeName,
+                                     @Param("cpf") String cpf,
+                                     @Param("login") String login,
+                                     @Param("passwordHash") String passwordHash);
+
+    // compare-and-set: a password changed meanwhile is not overwritten by a rehash of the old one
+    @Transactional
+    @Modifying
+    @Query("update User u set u.passwordHash = :newHash where u.id = :id and u.passwordHash = :oldHash")
+    int updatePasswordHash(@Param("id") Long id, @Param("oldHash") String oldHash, @Param("newHash") String newHash);
 }
\ No newline at end of file
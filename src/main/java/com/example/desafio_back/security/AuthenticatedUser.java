@@ -0,0 +1,4 @@
+package com.example.desafio_back.security;
+
+/** Principal built from the JWT claims, so controllers never look the caller up in the database. */
+public record AuthenticatedUser(Long id, String login) {}
@@ -1,11 +1,12 @@
 package com.example.desafio_back.security;
 
-import com.example.desafio_back.repository.UserRepository;
+import io.jsonwebtoken.Claims;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
-import lombok.RequiredArgsConstructor;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Component;
@@ -15,11 +16,19 @@ import java.io.IOException;
 import java.util.List;
 
 @Component
-@RequiredArgsConstructor
 public class JwtFilter extends OncePerRequestFilter {
 
     private final JwtUtil jwt;
-    private final UserRepository userRepository;
+    private final TokenDenylist denylist;
+    private final Timer valid;
+    private final Timer invalid;
+
+    public JwtFilter(JwtUtil jwt, TokenDenylist denylist, MeterRegistry registry) {
+        this.jwt = jwt;
+        this.denylist = denylist;
+        this.valid = Timer.builder("auth.jwt.verify").tag("result", "valid").register(registry);
+        this.invalid = Timer.builder("auth.jwt.verify").tag("result", "invalid").register(registry);
+    }
 
     @Override
     protected void doFilterInternal(HttpServletRequest req, HttpServletResponse res, FilterChain chain)
@@ -30,13 +39,18 @@ public class JwtFilter extends OncePerRequestFilter {
             if (auth != null && auth.startsWith("Bearer ")) {
                 String token = auth.substring(7);
                 try {
-                    if (jwt.isValid(token)) {
-                        String login = jwt.getSubject(token);
-                        userRepository.findByLogin(login).ifPresent(u -> {
+                    Timer.Sample sample = Timer.start();
+                    Claims claims = jwt.verify(token).orElse(null);
+                    sample.stop(claims != null ? valid : invalid);
+                    if (claims != null) {
+                        Long userId = claims.get(JwtUtil.USER_ID_CLAIM, Long.class);
+                        // tokens issued before the uid claim existed must log in again
+                        if (userId != null && !denylist.isRevoked(claims.getId())) {
+                            var principal = new AuthenticatedUser(userId, claims.getSubject());
                             var authentication =
-                                    new UsernamePasswordAuthenticationToken(login, null, List.of());
+                                    new UsernamePasswordAuthenticationToken(principal, null, List.of());
                             SecurityContextHolder.getContext().setAuthentication(authentication);
-                        });
+                        }
                     }
                 } catch (Exception ignored) {
                 }
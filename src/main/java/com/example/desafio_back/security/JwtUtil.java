@@ -1,56 +1,115 @@
 package com.example.desafio_back.security;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.security.Keys;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import javax.crypto.SecretKey;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Date;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 
 @Component
 public class JwtUtil {
 
+    public static final String USER_ID_CLAIM = "uid";
+
     private final SecretKey key;
     private final long expirationMillis;
+    private final JwtParser parser;
+
+    // tokens that already passed signature verification, keyed by their SHA-256 so
+    // raw bearer tokens are never held in memory; each entry lives until the token expires
+    private final Cache<TokenDigest, Claims> verified;
 
     public JwtUtil(
             @Value("${jwt.secret}") String secret,
-            @Value("${jwt.expiration}") long expirationMillis
+            @Value("${jwt.expiration}") long expirationMillis,
+            @Value("${jwt.cache.max-size}") long cacheMaxSize
     ) {
         this.key = Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8));
         this.expirationMillis = expirationMillis;
+        this.parser = Jwts.parserBuilder()
+                .setSigningKey(key)
+                .setAllowedClockSkewSeconds(60)
+                .build();
+        this.verified = Caffeine.newBuilder()
+                .maximumSize(cacheMaxSize)
+                .expireAfter(new Expiry<TokenDigest, Claims>() {
+                    public long expireAfterCreate(TokenDigest digest, Claims claims, long now) {
+                        Date exp = claims.getExpiration();
+                        long ttl = exp == null ? expirationMillis : exp.getTime() - System.currentTimeMillis();
+                        return TimeUnit.MILLISECONDS.toNanos(Math.max(0, ttl));
+                    }
+                    public long expireAfterUpdate(TokenDigest digest, Claims claims, long now, long current) {
+                        return current;
+                    }
+                    public long expireAfterRead(TokenDigest digest, Claims claims, long now, long current) {
+                        return current;
+                    }
+                })
+                .build();
     }
 
-    public String generate(String username) {
+    public String generate(String username, Long userId) {
         Date now = new Date();
         Date exp = new Date(now.getTime() + expirationMillis);
         return Jwts.builder()
+                .setId(UUID.randomUUID().toString())
                 .setSubject(username)
+                .claim(USER_ID_CLAIM, userId)
                 .setIssuedAt(now)
                 .setExpiration(exp)
                 .signWith(key, SignatureAlgorithm.HS256)
                 .compact();
     }
 
+    /** Verifies the token once and returns its claims, or empty when it is invalid or expired. */
+    public Optional<Claims> verify(String token) {
+        try {
+            return Optional.of(getClaims(token));
+        } catch (JwtException | IllegalArgumentException e) {
+            return Optional.empty();
+        }
+    }
+
+    public Claims getClaims(String token) {
+        TokenDigest digest = TokenDigest.of(token);
+        Claims claims = verified.getIfPresent(digest);
+        if (claims == null) {
+            claims = parser.parseClaimsJws(token).getBody();
+            verified.put(digest, claims);
+        }
+        return claims;
+    }
+
     public String getSubject(String token) {
-        return parser().parseClaimsJws(token).getBody().getSubject();
+        return getClaims(token).getSubject();
     }
 
     public boolean isValid(String token) {
-        try {
-            parser().parseClaimsJws(token);
-            return true;
-        } catch (JwtException | IllegalArgumentException e) {
-            return false;
-        }
+        return verify(token).isPresent();
     }
 
-    private JwtParser parser() {
-        return Jwts.parserBuilder()
-                .setSigningKey(key)
-                .setAllowedClockSkewSeconds(60)
-                .build();
+    private record TokenDigest(long a, long b, long c, long d) {
+
+        static TokenDigest of(String token) {
+            try {
+                byte[] hash = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII));
+                ByteBuffer buf = ByteBuffer.wrap(hash);
+                return new TokenDigest(buf.getLong(), buf.getLong(), buf.getLong(), buf.getLong());
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+        }
     }
 }
@@ -0,0 +1,218 @@
+package com.example.desafio_back.security;
+
+import com.example.desafio_back.exception.TooManyRequestsException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Runs the {@link PasswordEncoder} (BCrypt) on a dedicated pool of
+ * {@code auth.hashing.threads} threads (0 = one per core) with a queue of
+ * {@code auth.hashing.queue-capacity}, so a login burst uses at most those
+ * cores and leaves the request threads to everything else. When the queue is
+ * full a request fails at once with {@link TooManyRequestsException} (429);
+ * one that waits longer than {@code auth.hashing.timeout} fails with 503.
+ * <p>
+ * Hashes made with a cost other than {@code auth.bcrypt.cost} are re-encoded
+ * after a successful login ({@link #rehash}), in the background and only
+ * while the queue is at most half full.
+ */
+@Slf4j
+@Component
+public class PasswordHasher {
+
+    // $2a$10$..., $2b$12$...
+    private static final Pattern BCRYPT_COST = Pattern.compile("^\\$2[aby]?\\$(\\d{2})\\$");
+
+    private final PasswordEncoder encoder;
+    private final int cost;
+    private final long timeoutNanos;
+    private final int queueCapacity;
+    private final ThreadPoolExecutor executor;
+    private final Timer queued;
+    private final Counter rejected;
+    private final Counter rehashed;
+
+    public PasswordHasher(
+            PasswordEncoder encoder,
+            MeterRegistry registry,
+            @Value("${auth.bcrypt.cost}") int cost,
+            @Value("${auth.hashing.threads}") int threads,
+            @Value("${auth.hashing.queue-capacity}") int queueCapacity,
+            @Value("${auth.hashing.timeout}") Duration timeout
+    ) {
+        this.encoder = encoder;
+        this.cost = cost;
+        this.timeoutNanos = timeout.toNanos();
+        this.queueCapacity = queueCapacity;
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                Thread.ofPlatform().name("password-hasher-", 0).daemon().factory());
+        // the hashing time itself is auth.password{op} (TimedPasswordEncoder)
+        this.queued = Timer.builder("auth.hashing.wait").register(registry);
+        this.rejected = Counter.builder("auth.hashing.rejected").register(registry);
+        this.rehashed = Counter.builder("auth.hashing.rehashed").register(registry);
+        registry.gauge("auth.hashing.queued", Tags.empty(), executor, e -> e.getQueue().size());
+        registry.gauge("auth.hashing.active", Tags.empty(), executor, ThreadPoolExecutor::getActiveCount);
+    }
+
+    public String encode(CharSequence rawPassword) {
+        return await(submit(() -> encoder.encode(rawPassword)));
+    }
+
+    /**
+     * Encodes many passwords, at most one per pool thread at a time, so a bulk
+     * registration shares the pool with logins instead of filling its queue.
+     */
+    public List<String> encodeAll(List<? extends CharSequence> rawPasswords) {
+        List<String> hashes = new ArrayList<>(rawPasswords.size());
+        int wave = executor.getMaximumPoolSize();
+        for (int from = 0; from < rawPasswords.size(); from += wave) {
+            List<Future<String>> futures = new ArrayList<>(wave);
+            for (CharSequence raw : rawPasswords.subList(from, Math.min(from + wave, rawPasswords.size()))) {
+                futures.add(submit(() -> encoder.encode(raw)));
+            }
+            for (Future<String> future : futures) {
+                hashes.add(await(future));
+            }
+        }
+        return hashes;
+    }
+
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return await(submit(() -> encoder.matches(rawPassword, encodedPassword)));
+    }
+
+    /**
+     * Non-blocking {@link #encode}, for the reactive variant: same pool, same
+     * limits. Throws {@link TooManyRequestsException} right away when the queue
+     * is full; the future fails with {@link RejectedExecutionException} after
+     * the timeout.
+     */
+    public CompletableFuture<String> encodeAsync(CharSequence rawPassword) {
+        return submitAsync(() -> encoder.encode(rawPassword));
+    }
+
+    /** Non-blocking {@link #matches}, see {@link #encodeAsync}. */
+    public CompletableFuture<Boolean> matchesAsync(CharSequence rawPassword, String encodedPassword) {
+        return submitAsync(() -> encoder.matches(rawPassword, encodedPassword));
+    }
+
+    /** Whether {@code encodedPassword} was made with another cost than the configured one. */
+    public boolean needsRehash(String encodedPassword) {
+        Matcher m = BCRYPT_COST.matcher(encodedPassword);
+        return m.find() && Integer.parseInt(m.group(1)) != cost;
+    }
+
+    /**
+     * Encodes {@code rawPassword} again in the background and hands the new hash
+     * to {@code store}. Skipped while the pool is busy; the next login retries.
+     */
+    public void rehash(CharSequence rawPassword, Consumer<String> store) {
+        if (executor.getQueue().size() > queueCapacity / 2) {
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    store.accept(encoder.encode(rawPassword));
+                    rehashed.increment();
+                } catch (RuntimeException e) {
+                    log.warn("Could not store the rehashed password", e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // filled up in between
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        executor.shutdownNow();
+    }
+
+    private <T> Future<T> submit(Callable<T> task) {
+        long submittedAt = System.nanoTime();
+        try {
+            return executor.submit(() -> {
+                queued.record(System.nanoTime() - submittedAt, TimeUnit.NANOSECONDS);
+                return task.call();
+            });
+        } catch (RejectedExecutionException e) {
+            throw tooBusy(e);
+        }
+    }
+
+    private <T> CompletableFuture<T> submitAsync(Supplier<T> task) {
+        long submittedAt = System.nanoTime();
+        CompletableFuture<T> future;
+        try {
+            // a task still queued when the future times out is skipped, not run
+            future = CompletableFuture.supplyAsync(() -> {
+                queued.record(System.nanoTime() - submittedAt, TimeUnit.NANOSECONDS);
+                return task.get();
+            }, executor);
+        } catch (RejectedExecutionException e) {
+            throw tooBusy(e);
+        }
+        return future.orTimeout(timeoutNanos, TimeUnit.NANOSECONDS)
+                .exceptionallyCompose(e -> {
+                    if (e instanceof TimeoutException) {
+                        rejected.increment();
+                        return CompletableFuture.failedFuture(new RejectedExecutionException("Password hashing timed out"));
+                    }
+                    return CompletableFuture.failedFuture(e);
+                });
+    }
+
+    private RuntimeException tooBusy(RejectedExecutionException e) {
+        if (executor.isShutdown()) {
+            return e;
+        }
+        rejected.increment();
+        return new TooManyRequestsException("Too many login attempts, try again shortly");
+    }
+
+    private <T> T await(Future<T> future) {
+        try {
+            return future.get(timeoutNanos, TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            rejected.increment();
+            throw new RejectedExecutionException("Password hashing timed out");
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new RejectedExecutionException("Interrupted while hashing the password");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException("Password hashing failed", e.getCause());
+        }
+    }
+}
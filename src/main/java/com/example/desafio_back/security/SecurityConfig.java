@@ -1,10 +1,15 @@
 package com.example.desafio_back.security;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
 import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
 import org.springframework.http.MediaType;
+import org.springframework.security.authorization.AuthorizationDecision;
+import org.springframework.security.authorization.AuthorizationManager;
 import org.springframework.security.config.annotation.method.configuration.EnableMethodSecurity;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
@@ -13,17 +18,21 @@ import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.AuthenticationEntryPoint;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.access.intercept.RequestAuthorizationContext;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 
 import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
 import java.util.Map;
 
 @Configuration
+@Profile("!reactive")
 @EnableMethodSecurity
 public class SecurityConfig {
 
     @Bean
-    public SecurityFilterChain filterChain(HttpSecurity http, JwtFilter jwt) throws Exception {
+    public SecurityFilterChain filterChain(HttpSecurity http, JwtFilter jwt,
+                                           @Value("${admin.api-key}") String adminApiKey) throws Exception {
         return http
                 .csrf(AbstractHttpConfigurer::disable)
                 .cors(AbstractHttpConfigurer::disable)
@@ -31,12 +40,26 @@ public class SecurityConfig {
                 .exceptionHandling(eh -> eh.authenticationEntryPoint(unauthorizedEntryPoint()))
                 .authorizeHttpRequests(auth -> auth
                         .requestMatchers("/auth/**").permitAll()
+                        .requestMatchers("/api/admin/**", "/actuator/prometheus").access(adminKey(adminApiKey))
                         .anyRequest().authenticated()
                 )
                 .addFilterBefore(jwt, UsernamePasswordAuthenticationFilter.class)
                 .build();
     }
 
+    /**
+     * Admin endpoints take a shared key in {@code X-Admin-Key} instead of a user JWT.
+     * A blank key (the default) disables them.
+     */
+    static AuthorizationManager<RequestAuthorizationContext> adminKey(String apiKey) {
+        byte[] expected = apiKey.getBytes(StandardCharsets.UTF_8);
+        return (authentication, ctx) -> {
+            String given = ctx.getRequest().getHeader("X-Admin-Key");
+            return new AuthorizationDecision(expected.length > 0 && given != null
+                    && MessageDigest.isEqual(expected, given.getBytes(StandardCharsets.UTF_8)));
+        };
+    }
+
     @Bean
     public AuthenticationEntryPoint unauthorizedEntryPoint() {
         return (request, response, authException) -> {
@@ -49,7 +72,7 @@ public class SecurityConfig {
     }
 
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public PasswordEncoder passwordEncoder(MeterRegistry registry, @Value("${auth.bcrypt.cost}") int cost) {
+        return new TimedPasswordEncoder(new BCryptPasswordEncoder(cost), registry);
     }
 }
@@ -0,0 +1,90 @@
+package com.example.desafio_back.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Revoked token ids (jti). Checked on every request, so lookups only touch a
+ * local map: Redis holds the durable copy (one key per token, expiring with
+ * it) and pub/sub on {@link #REVOCATION_CHANNEL} keeps every node's map in
+ * sync. Entries leave the map when the token would have expired anyway.
+ */
+@Slf4j
+@Component
+public class TokenDenylist implements MessageListener {
+
+    public static final String REVOCATION_CHANNEL = "jwt-revocations";
+    private static final String KEY_PREFIX = "jwt:revoked:";
+
+    private final StringRedisTemplate redis;
+    private final Cache<String, Long> revoked = Caffeine.newBuilder()
+            .expireAfter(new Expiry<String, Long>() {
+                public long expireAfterCreate(String jti, Long expiresAt, long now) {
+                    return TimeUnit.MILLISECONDS.toNanos(Math.max(0, expiresAt - System.currentTimeMillis()));
+                }
+                public long expireAfterUpdate(String jti, Long expiresAt, long now, long current) {
+                    return expireAfterCreate(jti, expiresAt, now);
+                }
+                public long expireAfterRead(String jti, Long expiresAt, long now, long current) {
+                    return current;
+                }
+            })
+            .build();
+
+    public TokenDenylist(StringRedisTemplate redis) {
+        this.redis = redis;
+    }
+
+    public boolean isRevoked(String jti) {
+        return jti != null && revoked.getIfPresent(jti) != null;
+    }
+
+    public void revoke(String jti, long expiresAtMillis) {
+        long ttl = expiresAtMillis - System.currentTimeMillis();
+        if (ttl <= 0) {
+            return;
+        }
+        revoked.put(jti, expiresAtMillis);
+        redis.opsForValue().set(KEY_PREFIX + jti, Long.toString(expiresAtMillis), Duration.ofMillis(ttl));
+        redis.convertAndSend(REVOCATION_CHANNEL, jti + ":" + expiresAtMillis);
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        int sep = body.lastIndexOf(':');
+        if (sep > 0) {
+            revoked.put(body.substring(0, sep), Long.valueOf(body.substring(sep + 1)));
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        ScanOptions options = ScanOptions.scanOptions().match(KEY_PREFIX + "*").count(1000).build();
+        try (Cursor<String> keys = redis.scan(options)) {
+            while (keys.hasNext()) {
+                String key = keys.next();
+                String expiresAt = redis.opsForValue().get(key);
+                if (expiresAt != null) {
+                    revoked.put(key.substring(KEY_PREFIX.length()), Long.valueOf(expiresAt));
+                }
+            }
+        } catch (RuntimeException e) {
+            log.warn("Could not load revoked tokens from Redis", e);
+        }
+    }
+}
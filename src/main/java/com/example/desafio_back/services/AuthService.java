@@ -2,55 +2,72 @@ package com.example.desafio_back.services;
 
 import com.example.desafio_back.dtos.LoginRequest;
 import com.example.desafio_back.dtos.RegisterRequest;
-import com.example.desafio_back.model.Account;
-import com.example.desafio_back.model.User;
-import com.example.desafio_back.repository.AccountRepository;
+import com.example.desafio_back.exception.ConflictException;
 import com.example.desafio_back.repository.UserRepository;
 import com.example.desafio_back.security.JwtUtil;
+import com.example.desafio_back.security.PasswordHasher;
+import com.example.desafio_back.security.TokenDenylist;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
 import lombok.RequiredArgsConstructor;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
-
-import java.math.BigDecimal;
 
 @Service
 @RequiredArgsConstructor
 public class AuthService {
 
+    public static final String ALREADY_EXISTS = "CPF/Login already exists";
+
     private final UserRepository userRepository;
-    private final AccountRepository accountRepository;
-    private final PasswordEncoder encoder;
+    private final RegistrationFilter registrationFilter;
+    private final PasswordHasher hasher;
     private final JwtUtil jwt;
+    private final TokenDenylist denylist;
 
-    @Transactional
+    /**
+     * Creates the user and its zero-balance account in one statement. The
+     * unique constraints decide duplicates; the filter only spares the BCrypt
+     * hash for the ones it can confirm upfront.
+     */
     public void register(RegisterRequest request) {
         String cpfDigits = request.cpf().replaceAll("\\D", "");
 
-        if (userRepository.existsByCpf(cpfDigits) || userRepository.existsByLogin(request.login())) {
-            throw new IllegalArgumentException("CPF/Login already exists");
+        if (registrationFilter.mightBeTaken(cpfDigits, request.login())
+                && userRepository.existsByCpfOrLogin(cpfDigits, request.login())) {
+            throw new ConflictException(ALREADY_EXISTS);
         }
 
-        var user = userRepository.save(User.builder()
-                .completeName(request.completeName())
-                .cpf(cpfDigits)
-                .login(request.login())
-                .passwordHash(encoder.encode(request.password()))
-                .build());
-
-        accountRepository.save(Account.builder()
-                .user(user)
-                .currentBalance(BigDecimal.ZERO)
-                .build());
+        String hash = hasher.encode(request.password());
+        userRepository.insertWithAccount(request.completeName(), cpfDigits, request.login(), hash)
+                .orElseThrow(() -> new ConflictException(ALREADY_EXISTS));
+        registrationFilter.added(cpfDigits, request.login());
     }
 
     public String login(LoginRequest request) {
         var user = userRepository.findByLogin(request.login())
                 .orElseThrow(() -> new RuntimeException("Invalid credentials"));
 
-        if (!encoder.matches(request.password(), user.getPasswordHash())) {
+        String hash = user.getPasswordHash();
+        if (!hasher.matches(request.password(), hash)) {
             throw new RuntimeException("Invalid credentials");
         }
-        return jwt.generate(user.getLogin());
+        if (hasher.needsRehash(hash)) {
+            hasher.rehash(request.password(), newHash -> userRepository.updatePasswordHash(user.getId(), hash, newHash));
+        }
+        return jwt.generate(user.getLogin(), user.getId());
+    }
+
+    public void logout(String token) {
+        Claims claims;
+        try {
+            claims = jwt.getClaims(token);
+        } catch (JwtException e) {
+            throw new IllegalArgumentException("Invalid token");
+        }
+        // tokens issued before revocation existed carry no jti and cannot be revoked
+        if (claims.getId() == null || claims.getExpiration() == null) {
+            throw new IllegalArgumentException("Invalid token");
+        }
+        denylist.revoke(claims.getId(), claims.getExpiration().getTime());
     }
 }
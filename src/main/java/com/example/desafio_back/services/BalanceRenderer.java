@@ -0,0 +1,46 @@
+package com.example.desafio_back.services;
+
+import com.example.desafio_back.dtos.BalanceResponse;
+import com.example.desafio_back.dtos.ItemHistoric;
+import com.example.desafio_back.model.Money;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Renders {@link BalanceResponse} with the application's ObjectMapper, i.e. the
+ * same bytes the regular JSON path sends. {@link #format()} fingerprints the
+ * rendering of a fixed sample: a change to the response shape or to the mapper
+ * settings yields a new format, so views rendered by another release are ignored.
+ */
+@Component
+public class BalanceRenderer {
+
+    private static final BalanceResponse SAMPLE = new BalanceResponse(Money.ofCents(-1_234),
+            List.of(new ItemHistoric("deposit", Money.ofCents(100), "01-01-2025 10:00:00")));
+
+    private final ObjectMapper mapper;
+    private final String format;
+
+    public BalanceRenderer(ObjectMapper mapper) {
+        this.mapper = mapper;
+        CRC32 crc = new CRC32();
+        crc.update(render(SAMPLE));
+        this.format = Long.toHexString(crc.getValue());
+    }
+
+    public String format() {
+        return format;
+    }
+
+    public byte[] render(BalanceResponse response) {
+        try {
+            return mapper.writeValueAsBytes(response);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not render balance", e);
+        }
+    }
+}
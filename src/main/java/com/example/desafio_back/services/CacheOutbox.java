@@ -0,0 +1,225 @@
+package com.example.desafio_back.services;
+
+import com.example.desafio_back.cache.BalanceCache;
+import com.example.desafio_back.cache.RedisUnavailableException;
+import com.example.desafio_back.dtos.BalanceAppend;
+import com.example.desafio_back.dtos.ItemHistoric;
+import com.example.desafio_back.model.CacheOutboxEvent;
+import com.example.desafio_back.model.Money;
+import com.example.desafio_back.repository.CacheOutboxRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Transactional outbox for the cache writes of commands. {@link #append}
+ * stores the update as a {@code cache_outbox} row in the command's own
+ * transaction, so it commits or rolls back with it: the request never waits on
+ * Redis, and the cache can no longer get ahead of the database.
+ * <p>
+ * A relay thread then reads the oldest {@code cache.outbox.batch-size} events,
+ * publishes them with one pipelined {@link BalanceCache#appendAll} and deletes
+ * them in the same transaction. A commit wakes the relay of its node; events
+ * committed on other nodes are picked up within {@code cache.outbox.poll-interval}.
+ * An advisory lock lets only one relay publish at a time across nodes, and each
+ * batch goes out sorted by account and version, so an account's appends reach
+ * Redis in order. Should that order still break (pooled ids are not commit
+ * order, so two versions may straddle batches), the version check of the append
+ * script drops the entry instead of letting it go stale.
+ * <p>
+ * When Redis is unavailable the batch rolls back and is retried on the next
+ * poll. A batch published but not deleted (the relay died before its commit)
+ * goes out again, and the version check turns the repeats into no-ops.
+ */
+@Slf4j
+@Service
+public class CacheOutbox {
+
+    // arbitrary; only has to differ from other advisory locks taken on this database
+    static final long RELAY_LOCK = 0x6361_6368_655f_6f62L;
+
+    private static final TypeReference<List<ItemHistoric>> ITEMS = new TypeReference<>() {};
+    private static final Comparator<CacheOutboxEvent> PER_ACCOUNT =
+            Comparator.comparing(CacheOutboxEvent::getUserId).thenComparing(CacheOutboxEvent::getVersion);
+
+    private final CacheOutboxRepository repository;
+    private final BalanceCache balanceCache;
+    private final ObjectMapper mapper;
+    private final TransactionTemplate tx;
+    private final int batchSize;
+    private final long pollNanos;
+    private final Counter published;
+    private final Counter failures;
+    private final Timer lag;
+    // registered once per transaction: Spring keeps synchronizations in a set
+    private final TransactionSynchronization wakeRelay = new TransactionSynchronization() {
+        @Override
+        public void afterCommit() {
+            wakeUp();
+        }
+    };
+
+    private volatile boolean running;
+    private volatile Thread relay;
+
+    public CacheOutbox(
+            CacheOutboxRepository repository,
+            BalanceCache balanceCache,
+            ObjectMapper mapper,
+            PlatformTransactionManager txManager,
+            MeterRegistry registry,
+            @Value("${cache.outbox.batch-size}") int batchSize,
+            @Value("${cache.outbox.poll-interval}") Duration pollInterval
+    ) {
+        this.repository = repository;
+        this.balanceCache = balanceCache;
+        this.mapper = mapper;
+        this.tx = new TransactionTemplate(txManager);
+        this.batchSize = batchSize;
+        this.pollNanos = pollInterval.toNanos();
+        this.published = Counter.builder("cache.outbox.published").register(registry);
+        this.failures = Counter.builder("cache.outbox.failures").register(registry);
+        this.lag = Timer.builder("cache.outbox.lag").register(registry);
+    }
+
+    /**
+     * Records new items (oldest first) for the account's cache entry. Must run
+     * inside the transaction that moved the account to {@code version}.
+     */
+    public void append(Long userId, long version, Money balance, List<ItemHistoric> items) {
+        repository.save(CacheOutboxEvent.builder()
+                .userId(userId)
+                .version(version)
+                .balance(balance)
+                .items(writeItems(items))
+                .createdAt(Instant.now())
+                .build());
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(wakeRelay);
+        }
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        Thread thread = new Thread(this::run, "cache-outbox-relay");
+        thread.setDaemon(true);
+        relay = thread;
+        thread.start();
+    }
+
+    // events still queued are published by another node or after the restart
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        Thread thread = relay;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+            thread.join(TimeUnit.SECONDS.toMillis(10));
+        }
+    }
+
+    /** Wakes this node's relay; for commits made outside JPA (the reactive variant). */
+    public void wakeUp() {
+        Thread thread = relay;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+        }
+    }
+
+    private void run() {
+        while (running) {
+            int n = 0;
+            try {
+                n = relayOnce();
+            } catch (RedisUnavailableException e) {
+                // logged by the circuit breaker; the events stay for the next poll
+                failures.increment();
+            } catch (RuntimeException e) {
+                failures.increment();
+                log.warn("Cache outbox relay failed", e);
+            }
+            // keeps going while there is work; another node's commits wake nobody here
+            if (n == 0) {
+                LockSupport.parkNanos(this, pollNanos);
+            }
+        }
+    }
+
+    /**
+     * Publishes and deletes one batch. Returns its size, 0 when there was
+     * nothing to publish or another node's relay holds the lock.
+     */
+    int relayOnce() {
+        Integer n = tx.execute(status -> {
+            if (!repository.tryRelayLock(RELAY_LOCK)) {
+                return 0;
+            }
+            List<CacheOutboxEvent> events = repository.findOldest(batchSize);
+            if (events.isEmpty()) {
+                return 0;
+            }
+
+            List<CacheOutboxEvent> ordered = new ArrayList<>(events);
+            ordered.sort(PER_ACCOUNT);
+            List<BalanceAppend> appends = new ArrayList<>(ordered.size());
+            List<Long> ids = new ArrayList<>(ordered.size());
+            for (CacheOutboxEvent event : ordered) {
+                ids.add(event.getId());
+                List<ItemHistoric> items = readItems(event);
+                // the account's next append finds the version gap and drops its entry
+                if (items != null) {
+                    appends.add(new BalanceAppend(event.getUserId(), event.getVersion(), event.getBalance(), items));
+                }
+            }
+            balanceCache.appendAll(appends);
+            repository.deleteAllByIdInBatch(ids);
+
+            Instant now = Instant.now();
+            for (CacheOutboxEvent event : ordered) {
+                lag.record(Duration.between(event.getCreatedAt(), now));
+            }
+            return events.size();
+        });
+        int relayed = n == null ? 0 : n;
+        published.increment(relayed);
+        return relayed;
+    }
+
+    private String writeItems(List<ItemHistoric> items) {
+        try {
+            return mapper.writeValueAsString(items);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize cache outbox items", e);
+        }
+    }
+
+    private List<ItemHistoric> readItems(CacheOutboxEvent event) {
+        try {
+            return mapper.readValue(event.getItems(), ITEMS);
+        } catch (JsonProcessingException e) {
+            log.error("Dropping unreadable cache outbox event {} of user {}", event.getId(), event.getUserId(), e);
+            return null;
+        }
+    }
+}
@@ -0,0 +1,303 @@
+package com.example.desafio_back.services;
+
+import com.example.desafio_back.cache.BalanceCache;
+import com.example.desafio_back.dtos.CacheBalance;
+import com.example.desafio_back.dtos.ItemHistoric;
+import com.example.desafio_back.dtos.WarmupStatus;
+import com.example.desafio_back.dtos.WarmupStatus.State;
+import com.example.desafio_back.enums.Type;
+import com.example.desafio_back.model.Money;
+import com.example.desafio_back.model.Transaction;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Rebuilds every {@code balance:*} entry after Redis lost its data, so the
+ * first reads after a restart or flush do not all fall back to the database.
+ * <p>
+ * One SQL statement streams every account with its latest
+ * {@link BalanceCache#MAX_HISTORIC} transactions through a cursor, in account
+ * order. Rows are grouped into entries and handed in batches of
+ * {@code cache.warmup.batch-size} to {@code cache.warmup.workers} threads, each
+ * writing its batch with {@link BalanceCache#replaceAll} (one pipelined
+ * round-trip). When the workers fall behind, the reader writes the next batch
+ * itself, so at most a few batches are held in memory.
+ * <p>
+ * Writes keep the version check of the replace script: an entry that live
+ * traffic already moved past the snapshot is left alone.
+ */
+@Slf4j
+@Service
+public class CacheWarmupService {
+
+    // the filter sits next to the window so Postgres can stop numbering each account at the cap
+    private static final String LATEST_PER_ACCOUNT = """
+            SELECT a.user_id, a.current_balance, a.version, t.type, t.value, t.date_time
+              FROM accounts a
+              LEFT JOIN (
+                    SELECT * FROM (
+                        SELECT account_id, type, value, date_time,
+                               ROW_NUMBER() OVER (PARTITION BY account_id ORDER BY date_time DESC, id DESC) AS rn
+                          FROM transactions
+                    ) numbered
+                     WHERE rn <= ?
+                   ) t ON t.account_id = a.id
+             ORDER BY a.id, t.rn
+            """;
+    private static final long PROGRESS_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(5);
+
+    private final JdbcTemplate jdbc;
+    private final TransactionTemplate tx;
+    private final BalanceCache balanceCache;
+    private final int batchSize;
+    private final int workers;
+    private final boolean onStartup;
+    private final Counter written;
+    private final Counter skipped;
+    private final Timer duration;
+
+    private volatile Run current;
+
+    public CacheWarmupService(
+            DataSource dataSource,
+            PlatformTransactionManager txManager,
+            BalanceCache balanceCache,
+            MeterRegistry registry,
+            @Value("${cache.warmup.batch-size}") int batchSize,
+            @Value("${cache.warmup.workers}") int workers,
+            @Value("${cache.warmup.on-startup}") boolean onStartup
+    ) {
+        this.jdbc = new JdbcTemplate(dataSource);
+        // Postgres only streams through a cursor inside a transaction with a fetch size
+        this.jdbc.setFetchSize(1_000);
+        this.tx = new TransactionTemplate(txManager);
+        this.tx.setReadOnly(true);
+        this.balanceCache = balanceCache;
+        this.batchSize = batchSize;
+        this.workers = workers;
+        this.onStartup = onStartup;
+        this.written = Counter.builder("cache.warmup.accounts").tag("result", "written").register(registry);
+        this.skipped = Counter.builder("cache.warmup.accounts").tag("result", "skipped").register(registry);
+        this.duration = Timer.builder("cache.warmup").register(registry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUpOnStartup() {
+        if (onStartup) {
+            start();
+        }
+    }
+
+    /** Starts a run in the background unless one is in progress; returns its status either way. */
+    public WarmupStatus start() {
+        Run run = begin();
+        if (run != null) {
+            Thread thread = new Thread(() -> execute(run), "cache-warmup");
+            thread.setDaemon(true);
+            thread.start();
+        }
+        return status();
+    }
+
+    /** Runs in the calling thread and returns the final status. */
+    public WarmupStatus warmUp() {
+        Run run = begin();
+        if (run == null) {
+            throw new IllegalStateException("Cache warm-up already running");
+        }
+        execute(run);
+        return run.status();
+    }
+
+    /** The running or last finished run. */
+    public WarmupStatus status() {
+        Run run = current;
+        return run == null ? WarmupStatus.IDLE : run.status();
+    }
+
+    private synchronized Run begin() {
+        if (current != null && current.state == State.RUNNING) {
+            return null;
+        }
+        current = new Run();
+        return current;
+    }
+
+    private void execute(Run run) {
+        log.info("Cache warm-up started: {} workers, batches of {}", workers, batchSize);
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(workers, workers, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(workers),
+                Thread.ofPlatform().name("cache-warmup-", 0).daemon().factory(),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+        try {
+            Reader reader = new Reader(run, pool);
+            tx.executeWithoutResult(status -> jdbc.query(LATEST_PER_ACCOUNT, reader, BalanceCache.MAX_HISTORIC));
+            reader.finish();
+            pool.shutdown();
+            pool.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        } catch (RuntimeException e) {
+            run.fail(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            run.fail(e);
+        } finally {
+            pool.shutdownNow();
+        }
+        run.finish();
+        duration.record(run.elapsedNanos(), TimeUnit.NANOSECONDS);
+
+        WarmupStatus status = run.status();
+        if (status.state() == State.FAILED) {
+            log.warn("Cache warm-up failed after {} accounts: {}", status.accounts(), status.error());
+        } else {
+            log.info("Cache warm-up done: {} accounts, {} written in {} ms ({} accounts/s)",
+                    status.accounts(), status.written(), status.elapsedMillis(), Math.round(status.accountsPerSecond()));
+        }
+    }
+
+    private void write(Run run, Map<Long, CacheBalance> batch) {
+        // a batch that fails is not retried: the accounts are rebuilt by their next read
+        if (run.error != null) {
+            return;
+        }
+        try {
+            int n = balanceCache.replaceAll(batch);
+            run.accounts.addAndGet(batch.size());
+            run.written.addAndGet(n);
+            written.increment(n);
+            skipped.increment(batch.size() - n);
+        } catch (RuntimeException e) {
+            run.fail(e);
+        }
+    }
+
+    /** Groups the rows of one account into an entry and hands full batches to the pool. */
+    private final class Reader implements RowCallbackHandler {
+        private final Run run;
+        private final ThreadPoolExecutor pool;
+        private Map<Long, CacheBalance> batch = new LinkedHashMap<>();
+        private Long userId;
+        private CacheBalance entry;
+        private long lastProgress = System.nanoTime();
+
+        Reader(Run run, ThreadPoolExecutor pool) {
+            this.run = run;
+            this.pool = pool;
+        }
+
+        @Override
+        public void processRow(ResultSet rs) throws SQLException {
+            long rowUserId = rs.getLong(1);
+            if (userId == null || userId != rowUserId) {
+                add();
+                BigDecimal balance = rs.getBigDecimal(2);
+                userId = rowUserId;
+                entry = new CacheBalance(balance == null ? Money.ZERO : Money.of(balance), new ArrayList<>(), rs.getLong(3));
+            }
+            // an account without transactions comes as a single row of nulls from the outer join
+            String type = rs.getString(4);
+            if (type != null) {
+                entry.getHistoric().add(ItemHistoric.of(Transaction.builder()
+                        .type(Type.valueOf(type))
+                        .value(Money.of(rs.getBigDecimal(5)))
+                        .dateTime(rs.getObject(6, LocalDateTime.class))
+                        .build()));
+            }
+        }
+
+        void finish() {
+            add();
+            submit();
+        }
+
+        private void add() {
+            if (entry == null) {
+                return;
+            }
+            batch.put(userId, entry);
+            entry = null;
+            if (batch.size() >= batchSize) {
+                submit();
+            }
+        }
+
+        private void submit() {
+            if (run.error != null) {
+                throw new IllegalStateException("Cache warm-up aborted", run.error);
+            }
+            if (batch.isEmpty()) {
+                return;
+            }
+            Map<Long, CacheBalance> full = batch;
+            batch = new LinkedHashMap<>();
+            pool.execute(() -> write(run, full));
+
+            long now = System.nanoTime();
+            if (now - lastProgress >= PROGRESS_INTERVAL_NANOS) {
+                lastProgress = now;
+                WarmupStatus status = run.status();
+                log.info("Cache warm-up: {} accounts, {} written ({} accounts/s)",
+                        status.accounts(), status.written(), Math.round(status.accountsPerSecond()));
+            }
+        }
+    }
+
+    private static final class Run {
+        final Instant startedAt = Instant.now();
+        final long startNanos = System.nanoTime();
+        final AtomicLong accounts = new AtomicLong();
+        final AtomicLong written = new AtomicLong();
+        volatile State state = State.RUNNING;
+        volatile Throwable error;
+        volatile long endNanos;
+
+        synchronized void fail(Throwable e) {
+            if (error == null) {
+                error = e;
+            }
+        }
+
+        void finish() {
+            endNanos = System.nanoTime();
+            state = error == null ? State.DONE : State.FAILED;
+        }
+
+        long elapsedNanos() {
+            return (state == State.RUNNING ? System.nanoTime() : endNanos) - startNanos;
+        }
+
+        WarmupStatus status() {
+            long elapsed = elapsedNanos();
+            long done = accounts.get();
+            double perSecond = elapsed > 0 ? done * 1e9 / elapsed : 0;
+            String message = error == null ? null : String.valueOf(error.getMessage());
+            return new WarmupStatus(state, startedAt, done, written.get(),
+                    TimeUnit.NANOSECONDS.toMillis(elapsed), perSecond, message);
+        }
+    }
+}
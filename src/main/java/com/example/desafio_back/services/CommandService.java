@@ -1,107 +1,186 @@
 package com.example.desafio_back.services;
 
-import com.example.desafio_back.dtos.CacheBalance;
+import com.example.desafio_back.dtos.BatchItemResult;
+import com.example.desafio_back.dtos.BatchOperation;
+import com.example.desafio_back.dtos.BatchResponse;
 import com.example.desafio_back.dtos.ItemHistoric;
 import com.example.desafio_back.enums.Type;
 import com.example.desafio_back.model.Account;
+import com.example.desafio_back.model.Money;
 import com.example.desafio_back.model.Transaction;
 import com.example.desafio_back.repository.AccountRepository;
 import com.example.desafio_back.repository.TransactionRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import jakarta.transaction.Transactional;
-import lombok.RequiredArgsConstructor;
-import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
-
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.SortedMap;
+
+/**
+ * Deposits, payments and batches. Cache updates go through {@link CacheOutbox}
+ * in the same transaction, so commands only wait for the database commit.
+ */
 @Service
-@RequiredArgsConstructor
 public class CommandService {
 
     private final AccountRepository accountRepository;
     private final TransactionRepository transactionRepository;
-    private final RedisTemplate<String, CacheBalance> redis;
+    private final CacheOutbox cacheOutbox;
+    // measured inside the transaction: the commit itself shows up in http.server.requests
+    private final Timer depositTimer;
+    private final Timer paymentTimer;
+
+    // 10.2% charged on a negative balance before a deposit; the BigDecimal form binds into the SQL
+    public static final long INTEREST_PER_MILLE = 102;
+    public static final BigDecimal INTEREST = BigDecimal.valueOf(INTEREST_PER_MILLE, 3);
+
+    public CommandService(AccountRepository accountRepository, TransactionRepository transactionRepository,
+                          CacheOutbox cacheOutbox, MeterRegistry registry) {
+        this.accountRepository = accountRepository;
+        this.transactionRepository = transactionRepository;
+        this.cacheOutbox = cacheOutbox;
+        this.depositTimer = Timer.builder("bank.commands").tag("type", "deposit").register(registry);
+        this.paymentTimer = Timer.builder("bank.commands").tag("type", "payment").register(registry);
+    }
 
-    private static final BigDecimal INTEREST = new BigDecimal("0.102");
-    private static final DateTimeFormatter FMT = DateTimeFormatter.ofPattern("dd-MM-yyyy HH:mm:ss");
+    @Transactional
+    public void deposit(Long userId, Money amount) {
+        depositTimer.record(() -> doDeposit(userId, amount));
+    }
 
     @Transactional
-    public void deposit(Long userId, BigDecimal amount) {
-        if (amount == null || amount.compareTo(BigDecimal.ZERO) <= 0) {
-            throw new IllegalArgumentException("Invalid amount");
-        }
+    public void pay(Long userId, Money amount) {
+        paymentTimer.record(() -> doPay(userId, amount));
+    }
 
-        Account acc = accountRepository.findByUserId(userId).orElseThrow();
-        BigDecimal balance = acc.getCurrentBalance() == null ? BigDecimal.ZERO : acc.getCurrentBalance();
+    private void doDeposit(Long userId, Money amount) {
+        requireValidAmount(amount);
 
-        if (balance.compareTo(BigDecimal.ZERO) < 0) {
-            BigDecimal interest = balance.abs().multiply(INTEREST);
-            acc.setCurrentBalance(balance.subtract(interest).add(amount));
-        } else {
-            acc.setCurrentBalance(balance.add(amount));
-        }
+        var updated = accountRepository.applyDeposit(userId, amount.toBigDecimal(), INTEREST).orElseThrow();
 
         Transaction tx = transactionRepository.save(Transaction.builder()
-                .account(acc)
+                .account(accountRepository.getReferenceById(updated.getId()))
                 .type(Type.DEPOSIT)
                 .value(amount)
                 .dateTime(LocalDateTime.now())
                 .build());
 
-        accountRepository.save(acc);
-
-        writeThrough(userId, acc, tx);
+        recordCacheAppend(userId, updated, tx);
     }
 
-    @Transactional
-    public void pay(Long userId, BigDecimal amount) {
-        if (amount == null || amount.compareTo(BigDecimal.ZERO) <= 0) {
-            throw new IllegalArgumentException("Invalid amount");
-        }
+    private void doPay(Long userId, Money amount) {
+        requireValidAmount(amount);
 
-        Account acc = accountRepository.findByUserId(userId).orElseThrow();
-        BigDecimal balance = acc.getCurrentBalance() == null ? BigDecimal.ZERO : acc.getCurrentBalance();
-        acc.setCurrentBalance(balance.subtract(amount));
+        var updated = accountRepository.applyPayment(userId, amount.toBigDecimal()).orElseThrow();
 
         Transaction tx = transactionRepository.save(Transaction.builder()
-                .account(acc)
+                .account(accountRepository.getReferenceById(updated.getId()))
                 .type(Type.PAYMENT)
                 .value(amount)
                 .dateTime(LocalDateTime.now())
                 .build());
 
-        accountRepository.save(acc);
+        recordCacheAppend(userId, updated, tx);
+    }
+
+    /**
+     * Applies the operations in order inside one transaction. Invalid items are
+     * rejected individually and do not affect the others; the account is updated
+     * once, the transactions go out as one JDBC batch and the cache receives a
+     * single append covering all applied items.
+     */
+    @Transactional
+    public BatchResponse batch(Long userId, List<BatchOperation> operations) {
+        Account acc = accountRepository.findByUserIdForUpdate(userId).orElseThrow();
+        return apply(userId, acc, operations);
+    }
 
-        writeThrough(userId, acc, tx);
+    /**
+     * Group-commit flush (see {@link GroupCommitService}): applies each user's
+     * operations like {@link #batch}, all in one transaction. Accounts are locked
+     * in user id order; users without an account are left out of the result.
+     * One user's failure rolls back the whole group; the caller retries its
+     * users separately.
+     */
+    @Transactional
+    public Map<Long, BatchResponse> applyGroup(SortedMap<Long, List<BatchOperation>> operationsByUser) {
+        Map<Long, BatchResponse> responses = new HashMap<>();
+        operationsByUser.forEach((userId, operations) -> accountRepository.findByUserIdForUpdate(userId)
+                .ifPresent(acc -> responses.put(userId, apply(userId, acc, operations))));
+        return responses;
     }
 
-    private void writeThrough(Long userId, Account acc, Transaction newTx) {
-        String key = cacheKey(userId);
+    public static void requireValidAmount(Money amount) {
+        if (amount == null || !amount.isPositive()) {
+            throw new IllegalArgumentException("Invalid amount");
+        }
+    }
 
-        CacheBalance cb = redis.opsForValue().get(key);
-        if (cb == null){
-            cb = new CacheBalance();
+    // expects the account row to be locked by the caller
+    private BatchResponse apply(Long userId, Account acc, List<BatchOperation> operations) {
+        Money balance = Objects.requireNonNullElse(acc.getCurrentBalance(), Money.ZERO);
+        LocalDateTime now = LocalDateTime.now();
+        List<BatchItemResult> results = new ArrayList<>(operations.size());
+        List<Transaction> applied = new ArrayList<>(operations.size());
+
+        for (int i = 0; i < operations.size(); i++) {
+            BatchOperation op = operations.get(i);
+            if (op == null || op.type() == null) {
+                results.add(BatchItemResult.rejected(i, "Invalid type"));
+                continue;
+            }
+            if (op.value() == null || !op.value().isPositive()) {
+                results.add(BatchItemResult.rejected(i, "Invalid amount"));
+                continue;
+            }
+
+            balance = op.type() == Type.DEPOSIT
+                    ? afterDeposit(balance, op.value())
+                    : balance.minus(op.value());
+            applied.add(Transaction.builder()
+                    .account(acc)
+                    .type(op.type())
+                    .value(op.value())
+                    .dateTime(now)
+                    .build());
+            results.add(BatchItemResult.applied(i, balance));
         }
 
-        cb.setTotalBalance(acc.getCurrentBalance());
+        if (applied.isEmpty()) {
+            return new BatchResponse(balance, results);
+        }
 
-        String type = (newTx.getType() == Type.DEPOSIT) ? "deposit" : "payment";
-        cb.getHistoric().add(0, new ItemHistoric(
-                type,
-                newTx.getValue(),
-                newTx.getDateTime().format(FMT)
-        ));
+        long version = Objects.requireNonNullElse(acc.getVersion(), 0L) + 1;
+        acc.setCurrentBalance(balance);
+        acc.setVersion(version);
+        transactionRepository.saveAll(applied);
 
-        if (cb.getHistoric().size() > 200) {
-            cb.getHistoric().remove(cb.getHistoric().size() - 1);
+        List<ItemHistoric> items = new ArrayList<>(applied.size());
+        for (Transaction tx : applied) {
+            items.add(ItemHistoric.of(tx));
         }
+        cacheOutbox.append(userId, version, balance, items);
 
-        redis.opsForValue().set(key, cb);
+        return new BatchResponse(balance, results);
+    }
+
+    // same rule as AccountRepository.applyDeposit; Money rounds HALF_UP like Postgres ROUND on numeric
+    public static Money afterDeposit(Money balance, Money amount) {
+        if (balance.signum() < 0) {
+            balance = balance.minus(balance.abs().times(INTEREST_PER_MILLE, 1_000));
+        }
+        return balance.plus(amount);
     }
 
-    public static String cacheKey(Long userId) {
-        return "balance:" + userId;
+    private void recordCacheAppend(Long userId, AccountRepository.BalanceUpdate updated, Transaction newTx) {
+        cacheOutbox.append(userId, updated.getVersion(), Money.of(updated.getCurrentBalance()), List.of(ItemHistoric.of(newTx)));
     }
 }
@@ -0,0 +1,286 @@
+package com.example.desafio_back.services;
+
+import com.example.desafio_back.dtos.BatchItemResult;
+import com.example.desafio_back.dtos.BatchOperation;
+import com.example.desafio_back.dtos.BatchResponse;
+import com.example.desafio_back.enums.Type;
+import com.example.desafio_back.exception.OutcomeUnknownException;
+import com.example.desafio_back.model.Money;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Entry point for single deposits and payments. With
+ * {@code commands.group-commit.enabled} off it simply calls {@link CommandService}.
+ * With it on, commands wait in a bounded queue and one flusher thread commits
+ * them in groups: a flush starts with the first queued command and takes
+ * whatever arrives within {@code linger}, up to {@code max-batch} commands.
+ * Commands for the same account are coalesced into one row update, one version
+ * bump and one cache append. Callers block until their group has committed,
+ * for at most {@code timeout}: a command still queued by then is rejected, one
+ * already in a flush fails with {@link OutcomeUnknownException}.
+ * <p>
+ * A group whose transaction fails is applied again one user at a time, so a
+ * command that cannot be applied fails only its own user's callers.
+ * <p>
+ * A flush that fails in any way, {@link Error}s included, fails its callers
+ * and the flusher carries on. Should the flusher still stop, whatever is
+ * queued fails and later commands are rejected at once instead of waiting for
+ * a thread that is gone.
+ */
+@Slf4j
+@Service
+public class GroupCommitService {
+
+    private final CommandService command;
+    private final boolean enabled;
+    private final int maxBatch;
+    private final long lingerNanos;
+    private final long timeoutNanos;
+    private final BlockingQueue<Pending> queue;
+    private final Timer flushTimer;
+    private final DistributionSummary batchSize;
+    private final Counter split;
+
+    private volatile boolean running;
+    private volatile boolean stopped;
+    private Thread flusher;
+
+    public GroupCommitService(
+            CommandService command,
+            MeterRegistry registry,
+            @Value("${commands.group-commit.enabled}") boolean enabled,
+            @Value("${commands.group-commit.max-batch}") int maxBatch,
+            @Value("${commands.group-commit.linger}") Duration linger,
+            @Value("${commands.group-commit.queue-capacity}") int queueCapacity,
+            @Value("${commands.group-commit.timeout}") Duration timeout
+    ) {
+        this.command = command;
+        this.enabled = enabled;
+        this.maxBatch = maxBatch;
+        this.lingerNanos = linger.toNanos();
+        this.timeoutNanos = timeout.toNanos();
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.flushTimer = Timer.builder("commands.group_commit.flush").register(registry);
+        this.batchSize = DistributionSummary.builder("commands.group_commit.batch_size").register(registry);
+        this.split = Counter.builder("commands.group_commit.split").register(registry);
+        registry.gaugeCollectionSize("commands.group_commit.queued", Tags.empty(), queue);
+    }
+
+    public void deposit(Long userId, Money amount) {
+        if (!enabled) {
+            command.deposit(userId, amount);
+            return;
+        }
+        submit(userId, new BatchOperation(Type.DEPOSIT, amount));
+    }
+
+    public void pay(Long userId, Money amount) {
+        if (!enabled) {
+            command.pay(userId, amount);
+            return;
+        }
+        submit(userId, new BatchOperation(Type.PAYMENT, amount));
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        running = true;
+        flusher = new Thread(this::run, "group-commit");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    // lets the flusher drain what is already queued before the context closes
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        if (flusher != null) {
+            flusher.join(TimeUnit.SECONDS.toMillis(10));
+        }
+    }
+
+    private void submit(Long userId, BatchOperation operation) {
+        CommandService.requireValidAmount(operation.value());
+
+        if (stopped) {
+            throw new RejectedExecutionException("Group commit is not running");
+        }
+        Pending pending = new Pending(userId, operation, new CompletableFuture<>());
+        if (!queue.offer(pending)) {
+            throw new RejectedExecutionException("Too many pending commands");
+        }
+        // the flusher may have stopped right after the check and drained the queue already
+        if (stopped && queue.remove(pending)) {
+            throw new RejectedExecutionException("Group commit is not running");
+        }
+
+        BatchItemResult result;
+        try {
+            result = pending.done().get(timeoutNanos, TimeUnit.NANOSECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException("Group commit failed", e.getCause());
+        } catch (TimeoutException e) {
+            // still queued means never applied; otherwise its group may yet commit
+            if (queue.remove(pending)) {
+                throw new RejectedExecutionException("Timed out waiting for the group commit");
+            }
+            throw new OutcomeUnknownException("Timed out waiting for the group commit; the command may still be applied");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            if (queue.remove(pending)) {
+                throw new RejectedExecutionException("Interrupted while waiting for the group commit");
+            }
+            throw new OutcomeUnknownException("Interrupted while waiting for the group commit; the command may still be applied");
+        }
+        if (!"applied".equals(result.status())) {
+            throw new IllegalArgumentException(result.error());
+        }
+    }
+
+    private void run() {
+        List<Pending> group = new ArrayList<>(maxBatch);
+        try {
+            while (running || !queue.isEmpty()) {
+                try {
+                    Pending first = queue.poll(100, TimeUnit.MILLISECONDS);
+                    if (first == null) {
+                        continue;
+                    }
+                    group.add(first);
+                    collect(group, System.nanoTime() + lingerNanos);
+                    flush(group);
+                } catch (InterruptedException e) {
+                    group.forEach(p -> p.done().completeExceptionally(e));
+                    Thread.currentThread().interrupt();
+                    return;
+                } catch (Throwable e) {
+                    group.forEach(p -> p.done().completeExceptionally(e));
+                    log.error("Group commit flusher failed; continuing", e);
+                } finally {
+                    group.clear();
+                }
+            }
+        } finally {
+            stopped = true;
+            List<Pending> left = new ArrayList<>();
+            queue.drainTo(left);
+            RejectedExecutionException gone = new RejectedExecutionException("Group commit is not running");
+            left.forEach(p -> p.done().completeExceptionally(gone));
+        }
+    }
+
+    private void collect(List<Pending> group, long deadline) throws InterruptedException {
+        while (group.size() < maxBatch) {
+            queue.drainTo(group, maxBatch - group.size());
+            long left = deadline - System.nanoTime();
+            if (group.size() >= maxBatch || left <= 0) {
+                return;
+            }
+            Pending next = queue.poll(left, TimeUnit.NANOSECONDS);
+            if (next == null) {
+                return;
+            }
+            group.add(next);
+        }
+    }
+
+    private void flush(List<Pending> group) {
+        SortedMap<Long, List<BatchOperation>> byUser = new TreeMap<>();
+        for (Pending p : group) {
+            byUser.computeIfAbsent(p.userId(), k -> new ArrayList<>()).add(p.operation());
+        }
+
+        // recorded before any caller is released, so readers never see a stale summary
+        batchSize.record(group.size());
+        Timer.Sample sample = Timer.start();
+        try {
+            Map<Long, RuntimeException> failures = new HashMap<>();
+            Map<Long, BatchResponse> responses = apply(byUser, failures);
+
+            // each user's results come back in submission order
+            Map<Long, Integer> next = new HashMap<>();
+            for (Pending p : group) {
+                RuntimeException failure = failures.get(p.userId());
+                if (failure != null) {
+                    p.done().completeExceptionally(failure);
+                    continue;
+                }
+                BatchResponse response = responses.get(p.userId());
+                if (response == null) {
+                    p.done().completeExceptionally(new NoSuchElementException("No value present"));
+                    continue;
+                }
+                int index = next.merge(p.userId(), 1, Integer::sum) - 1;
+                p.done().complete(response.results().get(index));
+            }
+        } catch (Throwable e) {
+            // Errors too: a caller left without an answer would wait for its timeout
+            group.forEach(p -> p.done().completeExceptionally(e));
+            if (e instanceof Error) {
+                log.error("Group commit flush failed", e);
+            }
+        } finally {
+            sample.stop(flushTimer);
+        }
+    }
+
+    /**
+     * Applies the group in one transaction. Should that fail, nothing was
+     * committed, and each user is applied again in a transaction of their own,
+     * so only the users whose commands fail (an overflowing balance, a bad row)
+     * get the error; theirs end up in {@code failures}.
+     */
+    private Map<Long, BatchResponse> apply(SortedMap<Long, List<BatchOperation>> byUser,
+                                           Map<Long, RuntimeException> failures) {
+        try {
+            return command.applyGroup(byUser);
+        } catch (RuntimeException e) {
+            if (byUser.size() == 1) {
+                throw e;
+            }
+            split.increment();
+            Map<Long, BatchResponse> responses = new HashMap<>();
+            byUser.forEach((userId, operations) -> {
+                try {
+                    responses.putAll(command.applyGroup(new TreeMap<>(Map.of(userId, operations))));
+                } catch (RuntimeException userFailure) {
+                    failures.put(userId, userFailure);
+                }
+            });
+            return responses;
+        }
+    }
+
+    private record Pending(Long userId, BatchOperation operation, CompletableFuture<BatchItemResult> done) {}
+}
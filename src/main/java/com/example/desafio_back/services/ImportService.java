@@ -0,0 +1,209 @@
+package com.example.desafio_back.services;
+
+import com.example.desafio_back.cache.BalanceCache;
+import com.example.desafio_back.dtos.ImportResult;
+import com.example.desafio_back.dtos.ItemHistoric;
+import com.example.desafio_back.model.Money;
+import com.example.desafio_back.model.Transaction;
+import com.example.desafio_back.repository.TransactionRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.postgresql.PGConnection;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Bulk import of legacy ledgers. The input is read line by line and sent to
+ * Postgres with COPY in chunks of {@code import.chunk-size} rows, each chunk in
+ * its own transaction: COPY into a temp staging table, then one
+ * INSERT ... SELECT that resolves logins to accounts. Afterwards every touched
+ * account is replayed in date order to recompute its balance, and its cache
+ * entry is rebuilt; that also happens when the import stops halfway (bad
+ * chunk, client gone), for the chunks already committed.
+ * <p>
+ * Memory is bounded by one chunk plus the set of touched account ids, whatever
+ * the size of the input.
+ */
+@Service
+public class ImportService {
+
+    public enum Format { CSV, NDJSON }
+
+    // ON COMMIT DELETE ROWS empties the table after every chunk; the table itself
+    // lives as long as the pooled connection
+    private static final String CREATE_STAGING = """
+            CREATE TEMP TABLE IF NOT EXISTS import_staging (
+                login     text,
+                type      varchar(16),
+                value     numeric(19, 2),
+                date_time timestamp
+            ) ON COMMIT DELETE ROWS
+            """;
+    private static final String COPY_STAGING =
+            "COPY import_staging (login, type, value, date_time) FROM STDIN (FORMAT csv)";
+    // ids are taken like Hibernate's pooled optimizer does: each sequence value hi
+    // stands for the block (hi - ID_BLOCK, hi], so one nextval per ID_BLOCK rows
+    private static final String INSERT_FROM_STAGING = """
+            WITH matched AS (
+                SELECT a.id AS account_id, s.type, s.value, s.date_time,
+                       row_number() OVER () - 1 AS n
+                  FROM import_staging s
+                  JOIN users u ON u.login = s.login
+                  JOIN accounts a ON a.user_id = u.id
+            ), blocks AS (
+                SELECT b, nextval('transactions_seq') AS hi
+                  FROM generate_series(0, (SELECT (count(*) + %1$d - 1) / %1$d - 1 FROM matched)) b
+            ), inserted AS (
+                INSERT INTO transactions (id, account_id, type, value, date_time)
+                SELECT k.hi - %1$d + 1 + m.n %% %1$d, m.account_id, m.type, m.value, m.date_time
+                  FROM matched m
+                  JOIN blocks k ON k.b = m.n / %1$d
+                RETURNING account_id
+            )
+            SELECT account_id, count(*) FROM inserted GROUP BY account_id
+            """.formatted(Transaction.ID_BLOCK);
+
+    private final JdbcTemplate jdbc;
+    private final TransactionTemplate tx;
+    private final TransactionRepository transactionRepository;
+    private final BalanceCache balanceCache;
+    private final ObjectMapper mapper;
+    private final int chunkSize;
+
+    public ImportService(
+            DataSource dataSource,
+            PlatformTransactionManager txManager,
+            TransactionRepository transactionRepository,
+            BalanceCache balanceCache,
+            ObjectMapper mapper,
+            @Value("${import.chunk-size}") int chunkSize
+    ) {
+        this.jdbc = new JdbcTemplate(dataSource);
+        // lets the replay stream an account's history through a cursor instead of loading it
+        this.jdbc.setFetchSize(1_000);
+        this.tx = new TransactionTemplate(txManager);
+        this.transactionRepository = transactionRepository;
+        this.balanceCache = balanceCache;
+        this.mapper = mapper;
+        this.chunkSize = chunkSize;
+    }
+
+    public ImportResult importTransactions(InputStream input, Format format) throws IOException {
+        LedgerReader reader = new LedgerReader(
+                new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8)), format, mapper);
+
+        Set<Long> touched = new HashSet<>();
+        StringBuilder chunk = new StringBuilder();
+        long accepted = 0;
+        long imported = 0;
+        int rows = 0;
+
+        try {
+            LedgerRow row;
+            while ((row = reader.next()) != null) {
+                chunk.append(row.toCsv());
+                accepted++;
+                if (++rows == chunkSize) {
+                    imported += copy(chunk.toString(), touched);
+                    chunk.setLength(0);
+                    rows = 0;
+                }
+            }
+            if (rows > 0) {
+                imported += copy(chunk.toString(), touched);
+            }
+        } catch (IOException | RuntimeException e) {
+            // the chunks committed so far stay; their accounts must still match the ledger
+            try {
+                rebuildAll(touched);
+            } catch (RuntimeException rebuildFailure) {
+                e.addSuppressed(rebuildFailure);
+            }
+            throw e;
+        }
+        rebuildAll(touched);
+
+        return new ImportResult(reader.lines(), imported, reader.rejected(), accepted - imported,
+                touched.size(), reader.errors());
+    }
+
+    private long copy(String csv, Set<Long> touched) {
+        Long inserted = tx.execute(status -> jdbc.execute((ConnectionCallback<Long>) con -> {
+            try (Statement st = con.createStatement()) {
+                st.execute(CREATE_STAGING);
+            }
+            try {
+                con.unwrap(PGConnection.class).getCopyAPI().copyIn(COPY_STAGING, new StringReader(csv));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+
+            long count = 0;
+            try (Statement st = con.createStatement(); ResultSet rs = st.executeQuery(INSERT_FROM_STAGING)) {
+                while (rs.next()) {
+                    touched.add(rs.getLong(1));
+                    count += rs.getLong(2);
+                }
+            }
+            return count;
+        }));
+        return inserted == null ? 0 : inserted;
+    }
+
+    private void rebuildAll(Set<Long> accountIds) {
+        for (Long accountId : accountIds) {
+            rebuild(accountId);
+        }
+    }
+
+    /**
+     * Replays the account's whole history with the same rules as {@link CommandService},
+     * holding the row lock so live commands wait instead of interleaving.
+     */
+    private void rebuild(Long accountId) {
+        Rebuilt rebuilt = tx.execute(status -> {
+            Long userId = jdbc.queryForObject(
+                    "SELECT user_id FROM accounts WHERE id = ? FOR UPDATE", Long.class, accountId);
+
+            Money[] balance = {Money.ZERO};
+            jdbc.query("SELECT type, value FROM transactions WHERE account_id = ? ORDER BY date_time, id", rs -> {
+                Money value = Money.of(rs.getBigDecimal(2));
+                balance[0] = "DEPOSIT".equals(rs.getString(1))
+                        ? CommandService.afterDeposit(balance[0], value)
+                        : balance[0].minus(value);
+            }, accountId);
+
+            Long version = jdbc.queryForObject(
+                    "UPDATE accounts SET current_balance = ?, version = COALESCE(version, 0) + 1 WHERE id = ? RETURNING version",
+                    Long.class, balance[0].toBigDecimal(), accountId);
+
+            List<ItemHistoric> items = transactionRepository
+                    .findLatest(accountId, Limit.of(BalanceCache.MAX_HISTORIC)).stream()
+                    .map(ItemHistoric::of)
+                    .toList();
+            return new Rebuilt(userId, version, balance[0], items);
+        });
+
+        balanceCache.replace(rebuilt.userId(), rebuilt.version(), rebuilt.balance(), rebuilt.items());
+    }
+
+    private record Rebuilt(Long userId, long version, Money balance, List<ItemHistoric> items) {}
+}
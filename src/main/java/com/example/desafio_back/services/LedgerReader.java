@@ -0,0 +1,100 @@
+package com.example.desafio_back.services;
+
+import com.example.desafio_back.enums.Type;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Pulls ledger rows one line at a time from a CSV ({@code login,type,value,dateTime},
+ * header optional) or NDJSON stream. Invalid lines are skipped and counted; only the
+ * first {@link #MAX_ERRORS} messages are kept so memory does not grow with the input.
+ */
+final class LedgerReader {
+
+    static final int MAX_ERRORS = 20;
+    private static final String CSV_HEADER = "login,type,value,dateTime";
+
+    private final BufferedReader in;
+    private final ImportService.Format format;
+    private final ObjectMapper mapper;
+
+    private long lines;
+    private long rejected;
+    private final List<String> errors = new ArrayList<>();
+
+    LedgerReader(BufferedReader in, ImportService.Format format, ObjectMapper mapper) {
+        this.in = in;
+        this.format = format;
+        this.mapper = mapper;
+    }
+
+    /** Next valid row, or {@code null} at the end of the stream. */
+    LedgerRow next() throws IOException {
+        String line;
+        while ((line = in.readLine()) != null) {
+            lines++;
+            if (line.isBlank() || (lines == 1 && format == ImportService.Format.CSV
+                    && line.replace(" ", "").equalsIgnoreCase(CSV_HEADER))) {
+                continue;
+            }
+            try {
+                return format == ImportService.Format.CSV ? fromCsv(line) : fromJson(line);
+            } catch (IllegalArgumentException | DateTimeParseException | JsonProcessingException e) {
+                rejected++;
+                if (errors.size() < MAX_ERRORS) {
+                    errors.add("line " + lines + ": " + e.getMessage());
+                }
+            }
+        }
+        return null;
+    }
+
+    long lines() {
+        return lines;
+    }
+
+    long rejected() {
+        return rejected;
+    }
+
+    List<String> errors() {
+        return errors;
+    }
+
+    private static LedgerRow fromCsv(String line) {
+        String[] f = line.split(",", -1);
+        if (f.length != 4) {
+            throw new IllegalArgumentException("expected 4 columns, got " + f.length);
+        }
+        return row(f[0], f[1], f[2], f[3]);
+    }
+
+    private LedgerRow fromJson(String line) throws JsonProcessingException {
+        JsonNode n = mapper.readTree(line);
+        return row(n.path("login").asText(null), n.path("type").asText(null),
+                n.path("value").asText(null), n.path("dateTime").asText(null));
+    }
+
+    private static LedgerRow row(String login, String type, String value, String dateTime) {
+        if (login == null || login.isBlank()) {
+            throw new IllegalArgumentException("missing login");
+        }
+        if (value == null || dateTime == null) {
+            throw new IllegalArgumentException("missing value or dateTime");
+        }
+        BigDecimal amount = new BigDecimal(value.trim());
+        if (amount.signum() <= 0 || amount.stripTrailingZeros().scale() > 2) {
+            throw new IllegalArgumentException("Invalid amount");
+        }
+        return new LedgerRow(login.trim(), Type.from(type), amount, LocalDateTime.parse(dateTime.trim()));
+    }
+}
@@ -0,0 +1,15 @@
+package com.example.desafio_back.services;
+
+import com.example.desafio_back.enums.Type;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/** One validated line of a legacy ledger, ready for the COPY staging table. */
+record LedgerRow(String login, Type type, BigDecimal value, LocalDateTime dateTime) {
+
+    /** CSV line in the column order of {@code import_staging}, login quoted for COPY. */
+    String toCsv() {
+        return '"' + login.replace("\"", "\"\"") + "\"," + type.getValue() + ',' + value.toPlainString() + ',' + dateTime + '\n';
+    }
+}
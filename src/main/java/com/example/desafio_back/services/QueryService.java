@@ -1,57 +1,259 @@
 package com.example.desafio_back.services;
 
+import com.example.desafio_back.cache.BalanceCache;
+import com.example.desafio_back.cache.SingleFlight;
 import com.example.desafio_back.dtos.BalanceResponse;
+import com.example.desafio_back.dtos.BalanceView;
 import com.example.desafio_back.dtos.CacheBalance;
 import com.example.desafio_back.dtos.ItemHistoric;
-import com.example.desafio_back.enums.Type;
+import com.example.desafio_back.dtos.StatementLine;
+import com.example.desafio_back.dtos.TransactionCursor;
+import com.example.desafio_back.dtos.TransactionPage;
+import com.example.desafio_back.enums.StatementFormat;
 import com.example.desafio_back.model.Account;
+import com.example.desafio_back.model.Money;
 import com.example.desafio_back.model.Transaction;
 import com.example.desafio_back.repository.AccountRepository;
 import com.example.desafio_back.repository.TransactionRepository;
-import lombok.RequiredArgsConstructor;
-import org.springframework.data.redis.core.RedisTemplate;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
-import java.math.BigDecimal;
-import java.time.format.DateTimeFormatter;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
 
+/**
+ * Reads. Balance reads are served from {@link BalanceCache}; on a miss the
+ * entry is rebuilt from the database by one caller per account and node
+ * ({@link SingleFlight}), and with {@code cache.balance.load-lock} set by one
+ * node at a time, the others waiting for its result.
+ * <p>
+ * Entries are also rebuilt a little before they expire, with the probabilistic
+ * early refresh of Vattani et al. ("XFetch"): a read refreshes when
+ * {@code now - delta * beta * ln(random) >= expiresAt}, where {@code delta} is
+ * the mean rebuild time on this node. The closer the expiry and the slower the
+ * rebuild, the likelier a read refreshes, so a hot entry is normally refreshed
+ * by a single read instead of expiring under load.
+ */
 @Service
-@RequiredArgsConstructor
 public class QueryService {
 
+    public static final int MAX_PAGE_SIZE = 200;
+
+    private static final long LOCK_POLL_MILLIS = 10;
+
     private final AccountRepository accountRepository;
     private final TransactionRepository transactionRepository;
-    private final RedisTemplate<String, CacheBalance> redis;
+    private final BalanceCache balanceCache;
+    private final BalanceRenderer renderer;
+    private final TransactionTemplate snapshotTx;
+    private final SingleFlight<Long, Snapshot> rebuilds = new SingleFlight<>();
+    private final Duration loadLock;
+    private final double earlyRefreshBeta;
+    private final Timer fromView;
+    private final Timer fromCache;
+    private final Timer fromDatabase;
+    private final Timer rebuildTimer;
+    private final Counter earlyRefreshes;
+    private final Counter coalesced;
 
-    private static final DateTimeFormatter FMT = DateTimeFormatter.ofPattern("dd-MM-yyyy HH:mm:ss");
+    public QueryService(AccountRepository accountRepository, TransactionRepository transactionRepository,
+                        BalanceCache balanceCache, BalanceRenderer renderer, PlatformTransactionManager txManager,
+                        MeterRegistry registry,
+                        @Value("${cache.balance.load-lock}") Duration loadLock,
+                        @Value("${cache.balance.early-refresh-beta}") double earlyRefreshBeta) {
+        this.accountRepository = accountRepository;
+        this.transactionRepository = transactionRepository;
+        this.balanceCache = balanceCache;
+        this.renderer = renderer;
+        // repeatable read so the balance, its version and the history come from one snapshot;
+        // only rebuilds open it, cache hits never take a connection
+        this.snapshotTx = new TransactionTemplate(txManager);
+        this.snapshotTx.setReadOnly(true);
+        this.snapshotTx.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.loadLock = loadLock;
+        this.earlyRefreshBeta = earlyRefreshBeta;
+        this.fromView = Timer.builder("bank.balance.reads").tag("source", "view").register(registry);
+        this.fromCache = Timer.builder("bank.balance.reads").tag("source", "cache").register(registry);
+        this.fromDatabase = Timer.builder("bank.balance.reads").tag("source", "database").register(registry);
+        this.rebuildTimer = Timer.builder("bank.balance.rebuilds").register(registry);
+        this.earlyRefreshes = Counter.builder("bank.balance.early_refreshes").register(registry);
+        this.coalesced = Counter.builder("bank.balance.coalesced").register(registry);
+        registry.gauge("bank.balance.rebuilds.in_flight", rebuilds, SingleFlight::inFlight);
+    }
 
-    @Transactional(readOnly = true)
     public BalanceResponse balance(Long userId) {
-        String key = CommandService.cacheKey(userId);
+        return load(userId, Timer.start(), false).response();
+    }
 
-        CacheBalance cached = redis.opsForValue().get(key);
-        if (cached != null && cached.getTotalBalance() != null) {
-            return new BalanceResponse(cached.getTotalBalance(), cached.getHistoric());
+    /**
+     * {@link #balance} as the JSON the endpoint sends. On a hit the bytes come
+     * from the cache exactly as stored, with no object mapping; otherwise the
+     * response is rendered once and kept for the next reads of the same version.
+     */
+    public byte[] balanceJson(Long userId) {
+        Timer.Sample sample = Timer.start();
+        BalanceView view = balanceCache.getView(userId, renderer.format()).orElse(null);
+        if (view != null && !refreshEarly(view.expiresAt())) {
+            sample.stop(fromView);
+            return view.json();
         }
 
-        Account acc = accountRepository.findByUserId(userId).orElseThrow();
-        BigDecimal total = acc.getCurrentBalance() == null ? BigDecimal.ZERO : acc.getCurrentBalance();
+        Snapshot snapshot = load(userId, sample, view != null);
+        byte[] json = renderer.render(snapshot.response());
+        balanceCache.putView(userId, snapshot.version(), renderer.format(), json);
+        return json;
+    }
+
+    private Snapshot load(Long userId, Timer.Sample sample, boolean refresh) {
+        CacheBalance cached = balanceCache.get(userId).orElse(null);
+        if (cached != null && !refresh && !refreshEarly(cached.getExpiresAt())) {
+            sample.stop(fromCache);
+            return snapshot(cached);
+        }
+        if (cached != null) {
+            earlyRefreshes.increment();
+        }
+
+        Snapshot rebuilt = rebuilds.execute(userId, () -> rebuild(userId, cached), coalesced::increment);
+        // includes the failed cache read and the wait for the rebuild, i.e. the full cost of a miss
+        sample.stop(fromDatabase);
+        return rebuilt;
+    }
+
+    boolean refreshEarly(long expiresAt) {
+        if (expiresAt == 0) {
+            return false;
+        }
+        double delta = rebuildTimer.mean(TimeUnit.MILLISECONDS);
+        double random = 1 - ThreadLocalRandom.current().nextDouble();
+        return System.currentTimeMillis() - delta * earlyRefreshBeta * Math.log(random) >= expiresAt;
+    }
+
+    private Snapshot rebuild(Long userId, CacheBalance cached) {
+        if (loadLock.isZero()) {
+            return loadFromDatabase(userId);
+        }
+        if (!balanceCache.tryLock(userId, loadLock)) {
+            // another node is rebuilding: keep serving the current entry, or wait for the new one
+            if (cached != null) {
+                return snapshot(cached);
+            }
+            CacheBalance filled = awaitRebuild(userId);
+            return filled != null ? snapshot(filled) : loadFromDatabase(userId);
+        }
+        try {
+            return loadFromDatabase(userId);
+        } finally {
+            balanceCache.unlock(userId);
+        }
+    }
 
-        List<Transaction> txs = transactionRepository.findByAccountIdOrderByDateTimeDesc(acc.getId());
+    // null when the lock holder did not fill the entry in time; the caller then loads it itself
+    private CacheBalance awaitRebuild(Long userId) {
+        long deadline = System.nanoTime() + loadLock.toNanos();
+        try {
+            while (System.nanoTime() < deadline) {
+                Thread.sleep(LOCK_POLL_MILLIS);
+                CacheBalance filled = balanceCache.get(userId).orElse(null);
+                if (filled != null) {
+                    return filled;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return null;
+    }
+
+    private Snapshot loadFromDatabase(Long userId) {
+        Timer.Sample sample = Timer.start();
+        Snapshot loaded = snapshotTx.execute(status -> {
+            Account acc = accountRepository.findByUserId(userId).orElseThrow();
+            Money total = acc.getCurrentBalance() == null ? Money.ZERO : acc.getCurrentBalance();
+
+            // the cache only ever holds the newest page; older items go through transactions()
+            List<ItemHistoric> items = transactionRepository
+                    .findLatest(acc.getId(), Limit.of(BalanceCache.MAX_HISTORIC)).stream()
+                    .map(ItemHistoric::of)
+                    .toList();
+
+            long version = acc.getVersion() == null ? 0 : acc.getVersion();
+            return new Snapshot(new BalanceResponse(total, items), version);
+        });
+        balanceCache.replace(userId, loaded.version(), loaded.response().totalBalance(), loaded.response().Historic());
+        sample.stop(rebuildTimer);
+        return loaded;
+    }
+
+    private static Snapshot snapshot(CacheBalance cached) {
+        return new Snapshot(new BalanceResponse(cached.getTotalBalance(), cached.getHistoric()), cached.getVersion());
+    }
+
+    private record Snapshot(BalanceResponse response, long version) {}
+
+    @Transactional(readOnly = true)
+    public TransactionPage transactions(Long userId, TransactionCursor before, int limit) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
 
-        List<ItemHistoric> items = txs.stream()
-                .map(t -> new ItemHistoric(
-                        t.getType() == Type.DEPOSIT ? "deposit" : "payment",
-                        t.getValue(),
-                        t.getDateTime().format(FMT)
-                ))
-                .toList();
+        Account acc = accountRepository.findByUserId(userId).orElseThrow();
 
-        redis.opsForValue().set(key, new CacheBalance(total, items));
+        // one extra row tells whether there is a next page without a count query
+        Limit fetch = Limit.of(limit + 1);
+        List<Transaction> txs = before == null
+                ? transactionRepository.findLatest(acc.getId(), fetch)
+                : transactionRepository.findBefore(acc.getId(), before.dateTime(), before.id(), fetch);
+
+        if (txs.size() <= limit) {
+            return new TransactionPage(txs.stream().map(ItemHistoric::of).toList(), null);
+        }
 
-        return new BalanceResponse(total, items);
+        List<Transaction> page = txs.subList(0, limit);
+        Transaction last = page.get(limit - 1);
+        return new TransactionPage(
+                page.stream().map(ItemHistoric::of).toList(),
+                new TransactionCursor(last.getDateTime(), last.getId()).encode()
+        );
     }
 
-}
\ No newline at end of file
+    /**
+     * Streams the statement for {@code [from, to]} (whole days) straight from a
+     * database cursor to {@code out}; heap use does not depend on the range.
+     */
+    @Transactional(readOnly = true)
+    public void writeStatement(Long userId, LocalDate from, LocalDate to, StatementFormat format, OutputStream out)
+            throws IOException {
+        Account acc = accountRepository.findByUserId(userId).orElseThrow();
+
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        StatementWriter statement = new StatementWriter(writer, format);
+        try (Stream<StatementLine> lines = transactionRepository.streamStatement(
+                acc.getId(), from.atStartOfDay(), to.plusDays(1).atStartOfDay())) {
+            Iterator<StatementLine> it = lines.iterator();
+            while (it.hasNext()) {
+                statement.write(it.next());
+            }
+        }
+        statement.finish();
+    }
+}
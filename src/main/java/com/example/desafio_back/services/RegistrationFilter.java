@@ -0,0 +1,99 @@
+package com.example.desafio_back.services;
+
+import com.example.desafio_back.cache.BloomFilter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-memory {@link BloomFilter} of the CPFs and logins already registered, so
+ * that registration can tell a surely new user from a possible duplicate
+ * before it spends a BCrypt hash. Filled from {@code users} in the background
+ * at startup and updated by every registration on this node.
+ * <p>
+ * The unique constraints stay the source of truth: a possible duplicate is
+ * confirmed in the database, and a user the filter has not seen yet (still
+ * loading, or registered on another node) is caught by the insert itself.
+ */
+@Slf4j
+@Service
+public class RegistrationFilter {
+
+    private final JdbcTemplate jdbc;
+    private final TransactionTemplate tx;
+    private final BloomFilter taken;
+    private final Counter definitelyNew;
+    private final Counter maybeTaken;
+
+    public RegistrationFilter(
+            DataSource dataSource,
+            PlatformTransactionManager txManager,
+            MeterRegistry registry,
+            @Value("${auth.register.filter.expected-users}") long expectedUsers,
+            @Value("${auth.register.filter.false-positive-rate}") double falsePositiveRate
+    ) {
+        this.jdbc = new JdbcTemplate(dataSource);
+        // Postgres only streams through a cursor inside a transaction with a fetch size
+        this.jdbc.setFetchSize(10_000);
+        this.tx = new TransactionTemplate(txManager);
+        this.tx.setReadOnly(true);
+        // a CPF and a login per user
+        this.taken = new BloomFilter(2 * expectedUsers, falsePositiveRate);
+        this.definitelyNew = Counter.builder("auth.register.filter").tag("result", "new").register(registry);
+        this.maybeTaken = Counter.builder("auth.register.filter").tag("result", "maybe-taken").register(registry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadInBackground() {
+        Thread thread = new Thread(this::load, "registration-filter-load");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /** Adds every registered user; runs in the calling thread. */
+    public void load() {
+        long start = System.nanoTime();
+        try {
+            long[] users = new long[1];
+            tx.executeWithoutResult(status -> jdbc.query("SELECT cpf, login FROM users", rs -> {
+                added(rs.getString(1), rs.getString(2));
+                users[0]++;
+            }));
+            log.info("Registration filter loaded {} users in {} ms",
+                    users[0], TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        } catch (RuntimeException e) {
+            // registrations then rely on the unique constraints alone
+            log.warn("Could not load the registration filter", e);
+        }
+    }
+
+    /** False when neither the CPF nor the login can be registered already. */
+    public boolean mightBeTaken(String cpf, String login) {
+        boolean maybe = taken.mightContain(cpfKey(cpf)) || taken.mightContain(loginKey(login));
+        (maybe ? maybeTaken : definitelyNew).increment();
+        return maybe;
+    }
+
+    public void added(String cpf, String login) {
+        taken.add(cpfKey(cpf));
+        taken.add(loginKey(login));
+    }
+
+    private static String cpfKey(String cpf) {
+        return "cpf:" + cpf;
+    }
+
+    private static String loginKey(String login) {
+        return "login:" + login;
+    }
+}
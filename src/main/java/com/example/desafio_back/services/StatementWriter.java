@@ -0,0 +1,55 @@
+package com.example.desafio_back.services;
+
+import com.example.desafio_back.dtos.StatementLine;
+import com.example.desafio_back.enums.StatementFormat;
+import com.example.desafio_back.enums.Type;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/** Writes statement lines one at a time; nothing is kept between lines. */
+final class StatementWriter {
+
+    private static final JsonFactory JSON = new JsonFactory();
+
+    private final Writer out;
+    private final StatementFormat format;
+    private final JsonGenerator json;
+
+    StatementWriter(Writer out, StatementFormat format) throws IOException {
+        this.out = out;
+        this.format = format;
+        if (format == StatementFormat.NDJSON) {
+            this.json = JSON.createGenerator(out).disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            this.json.setRootValueSeparator(null);
+        } else {
+            this.json = null;
+            out.write("id,type,value,dateTime\n");
+        }
+    }
+
+    void write(StatementLine line) throws IOException {
+        String type = line.type() == Type.DEPOSIT ? "deposit" : "payment";
+        if (json == null) {
+            out.write(line.id() + "," + type + "," + line.value() + "," + line.dateTime() + "\n");
+            return;
+        }
+        json.writeStartObject();
+        json.writeNumberField("id", line.id());
+        json.writeStringField("type", type);
+        json.writeFieldName("value");
+        json.writeNumber(line.value().toString());
+        json.writeStringField("dateTime", line.dateTime().toString());
+        json.writeEndObject();
+        json.writeRaw('\n');
+    }
+
+    void finish() throws IOException {
+        if (json != null) {
+            json.flush();
+        }
+        out.flush();
+    }
+}
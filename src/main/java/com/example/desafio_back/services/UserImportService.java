@@ -0,0 +1,134 @@
+package com.example.desafio_back.services;
+
+import com.example.desafio_back.dtos.RegisterRequest;
+import com.example.desafio_back.dtos.UserImportResult;
+import com.example.desafio_back.security.PasswordHasher;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Bulk registration for operators. Users and their zero-balance accounts go
+ * in with one statement per {@code auth.register.batch-size} users, each batch
+ * atomic on its own; a user whose CPF or login is taken (in the database or
+ * earlier in the same request) is skipped and reported instead of failing the
+ * batch. Possible duplicates flagged by the {@link RegistrationFilter} are
+ * confirmed with a single query first, so they cost no BCrypt hash.
+ */
+@Service
+public class UserImportService {
+
+    private static final String INSERT_USERS_WITH_ACCOUNTS = """
+            WITH new_users AS (
+                INSERT INTO users (complete_name, cpf, login, password_hash)
+                SELECT * FROM unnest(?::text[], ?::text[], ?::text[], ?::text[])
+                ON CONFLICT DO NOTHING
+                RETURNING id, cpf, login
+            ), new_accounts AS (
+                INSERT INTO accounts (user_id, current_balance, version)
+                SELECT id, 0, 0 FROM new_users
+            )
+            SELECT cpf, login FROM new_users
+            """;
+    private static final String FIND_TAKEN =
+            "SELECT cpf, login FROM users WHERE cpf = ANY(?::text[]) OR login = ANY(?::text[])";
+
+    private final JdbcTemplate jdbc;
+    private final PasswordHasher hasher;
+    private final RegistrationFilter registrationFilter;
+    private final int batchSize;
+
+    public UserImportService(
+            DataSource dataSource,
+            PasswordHasher hasher,
+            RegistrationFilter registrationFilter,
+            @Value("${auth.register.batch-size}") int batchSize
+    ) {
+        this.jdbc = new JdbcTemplate(dataSource);
+        this.hasher = hasher;
+        this.registrationFilter = registrationFilter;
+        this.batchSize = batchSize;
+    }
+
+    public UserImportResult importUsers(List<RegisterRequest> requests) {
+        List<RegisterRequest> users = new ArrayList<>(requests.size());
+        for (RegisterRequest r : requests) {
+            users.add(new RegisterRequest(r.completeName(), r.cpf().replaceAll("\\D", ""), r.login(), r.password()));
+        }
+
+        List<RegisterRequest> fresh = withoutTaken(users);
+        List<String> hashes = hasher.encodeAll(fresh.stream().map(RegisterRequest::password).toList());
+
+        Set<String> created = new HashSet<>();
+        for (int from = 0; from < fresh.size(); from += batchSize) {
+            int to = Math.min(from + batchSize, fresh.size());
+            created.addAll(insert(fresh.subList(from, to), hashes.subList(from, to)));
+        }
+
+        // logins are unique, so each created one stands for exactly one request
+        Set<String> unclaimed = new HashSet<>(created);
+        List<String> duplicates = new ArrayList<>();
+        for (RegisterRequest user : users) {
+            if (!unclaimed.remove(user.login())) {
+                duplicates.add(user.login());
+            }
+        }
+        return new UserImportResult(requests.size(), created.size(), duplicates);
+    }
+
+    // drops the users whose CPF or login is confirmed taken; only asks about the filter's suspects
+    private List<RegisterRequest> withoutTaken(List<RegisterRequest> users) {
+        List<String> cpfs = new ArrayList<>();
+        List<String> logins = new ArrayList<>();
+        for (RegisterRequest user : users) {
+            if (registrationFilter.mightBeTaken(user.cpf(), user.login())) {
+                cpfs.add(user.cpf());
+                logins.add(user.login());
+            }
+        }
+        if (cpfs.isEmpty()) {
+            return users;
+        }
+
+        Set<String> takenCpfs = new HashSet<>();
+        Set<String> takenLogins = new HashSet<>();
+        jdbc.query(con -> {
+            PreparedStatement ps = con.prepareStatement(FIND_TAKEN);
+            ps.setArray(1, con.createArrayOf("text", cpfs.toArray()));
+            ps.setArray(2, con.createArrayOf("text", logins.toArray()));
+            return ps;
+        }, rs -> {
+            takenCpfs.add(rs.getString(1));
+            takenLogins.add(rs.getString(2));
+        });
+        return users.stream()
+                .filter(u -> !takenCpfs.contains(u.cpf()) && !takenLogins.contains(u.login()))
+                .toList();
+    }
+
+    // returns the logins created
+    private List<String> insert(List<RegisterRequest> batch, List<String> hashes) {
+        Object[] names = batch.stream().map(RegisterRequest::completeName).toArray();
+        Object[] cpfs = batch.stream().map(RegisterRequest::cpf).toArray();
+        Object[] logins = batch.stream().map(RegisterRequest::login).toArray();
+        List<String> created = jdbc.query(con -> {
+            PreparedStatement ps = con.prepareStatement(INSERT_USERS_WITH_ACCOUNTS);
+            ps.setArray(1, con.createArrayOf("text", names));
+            ps.setArray(2, con.createArrayOf("text", cpfs));
+            ps.setArray(3, con.createArrayOf("text", logins));
+            ps.setArray(4, con.createArrayOf("text", hashes.toArray()));
+            return ps;
+        }, (rs, i) -> {
+            registrationFilter.added(rs.getString(1), rs.getString(2));
+            return rs.getString(2);
+        });
+        return created;
+    }
+}
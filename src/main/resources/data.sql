@@ -0,0 +1,5 @@
+-- transactions used to be IDENTITY: move the pooled sequence past existing ids
+-- (no-op once it is ahead). Runs after Hibernate's schema update on every start.
+SELECT setval('transactions_seq', GREATEST(
+        (SELECT last_value FROM transactions_seq),
+        (SELECT COALESCE(MAX(id), 0) FROM transactions)));
@@ -0,0 +1,37 @@
+-- KEYS[1] balance hash, KEYS[2] historic list
+-- ARGV[1] version, ARGV[2] balance, ARGV[3] max historic size, ARGV[4] ttl in ms (0 = none),
+-- ARGV[5..] items, oldest first
+-- returns 1 when applied, 0 when the entry is absent or already newer, -1 when a
+-- version gap was found and the entry was dropped so the next read rebuilds it
+local function is_hash(key)
+    local t = redis.call('TYPE', key)
+    if type(t) == 'table' then
+        t = t.ok
+    end
+    return t == 'hash'
+end
+
+if not is_hash(KEYS[1]) then
+    return 0
+end
+local current = tonumber(redis.call('HGET', KEYS[1], 'version') or '0')
+local version = tonumber(ARGV[1])
+if version <= current then
+    return 0
+end
+if version > current + 1 then
+    redis.call('DEL', KEYS[1], KEYS[2])
+    return -1
+end
+for i = 5, #ARGV do
+    redis.call('LPUSH', KEYS[2], ARGV[i])
+end
+redis.call('LTRIM', KEYS[2], 0, tonumber(ARGV[3]) - 1)
+redis.call('HSET', KEYS[1], 'balance', ARGV[2], 'version', ARGV[1])
+-- the rendered view is of the previous version (see balance-view.lua)
+redis.call('HDEL', KEYS[1], 'view', 'view_tag')
+if tonumber(ARGV[4]) > 0 then
+    redis.call('PEXPIRE', KEYS[1], ARGV[4])
+    redis.call('PEXPIRE', KEYS[2], ARGV[4])
+end
+return 1
@@ -0,0 +1,23 @@
+-- KEYS[1] balance hash, KEYS[2] historic list
+-- returns { balance, version, pttl, item1, item2, ... } newest first, or nil on a miss;
+-- pttl is the remaining time to live in ms, -1 when the entry does not expire
+local function is_hash(key)
+    local t = redis.call('TYPE', key)
+    if type(t) == 'table' then
+        t = t.ok
+    end
+    return t == 'hash'
+end
+
+if not is_hash(KEYS[1]) then
+    return false
+end
+local head = redis.call('HMGET', KEYS[1], 'balance', 'version')
+if not head[1] then
+    return false
+end
+local items = redis.call('LRANGE', KEYS[2], 0, -1)
+table.insert(items, 1, tostring(redis.call('PTTL', KEYS[1])))
+table.insert(items, 1, head[2] or '0')
+table.insert(items, 1, head[1])
+return items
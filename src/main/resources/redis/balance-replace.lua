@@ -0,0 +1,39 @@
+-- KEYS[1] balance hash, KEYS[2] historic list
+-- ARGV[1] version, ARGV[2] balance, ARGV[3] max historic size, ARGV[4] ttl in ms (0 = none),
+-- ARGV[5..] items, newest first
+-- returns 1 when written, 2 when the cached entry already is at this version (only its
+-- expiry is pushed back), 0 when it is newer
+local function is_hash(key)
+    local t = redis.call('TYPE', key)
+    if type(t) == 'table' then
+        t = t.ok
+    end
+    return t == 'hash'
+end
+
+local function expire()
+    if tonumber(ARGV[4]) > 0 then
+        redis.call('PEXPIRE', KEYS[1], ARGV[4])
+        redis.call('PEXPIRE', KEYS[2], ARGV[4])
+    end
+end
+
+if is_hash(KEYS[1]) then
+    local current = tonumber(redis.call('HGET', KEYS[1], 'version') or '0')
+    local version = tonumber(ARGV[1])
+    if current > version then
+        return 0
+    end
+    if current == version then
+        expire()
+        return 2
+    end
+end
+redis.call('DEL', KEYS[1], KEYS[2])
+if #ARGV > 4 then
+    redis.call('RPUSH', KEYS[2], unpack(ARGV, 5))
+    redis.call('LTRIM', KEYS[2], 0, tonumber(ARGV[3]) - 1)
+end
+redis.call('HSET', KEYS[1], 'balance', ARGV[2], 'version', ARGV[1])
+expire()
+return 1
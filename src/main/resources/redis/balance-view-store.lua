@@ -0,0 +1,19 @@
+-- KEYS[1] balance hash
+-- ARGV[1] render format, ARGV[2] version the view was rendered from, ARGV[3] rendered response
+-- returns 1 when stored, 0 when the entry is absent or has moved on to another version
+local function is_hash(key)
+    local t = redis.call('TYPE', key)
+    if type(t) == 'table' then
+        t = t.ok
+    end
+    return t == 'hash'
+end
+
+if not is_hash(KEYS[1]) then
+    return 0
+end
+if (redis.call('HGET', KEYS[1], 'version') or '0') ~= ARGV[2] then
+    return 0
+end
+redis.call('HSET', KEYS[1], 'view', ARGV[3], 'view_tag', ARGV[1] .. ':' .. ARGV[2])
+return 1
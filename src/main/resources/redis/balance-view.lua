@@ -0,0 +1,21 @@
+-- KEYS[1] balance hash
+-- ARGV[1] render format of the caller
+-- returns { view, pttl } with the rendered response stored by balance-view-store.lua and
+-- the remaining time to live of the entry in ms (-1 when it does not expire), or nil
+-- when there is none, it was rendered for an older version or in another format
+local function is_hash(key)
+    local t = redis.call('TYPE', key)
+    if type(t) == 'table' then
+        t = t.ok
+    end
+    return t == 'hash'
+end
+
+if not is_hash(KEYS[1]) then
+    return false
+end
+local fields = redis.call('HMGET', KEYS[1], 'version', 'view_tag', 'view')
+if not fields[3] or fields[2] ~= ARGV[1] .. ':' .. (fields[1] or '0') then
+    return false
+end
+return { fields[3], tostring(redis.call('PTTL', KEYS[1])) }
@@ -0,0 +1,418 @@
+package com.example.desafio_back.cache;
+
+import com.example.desafio_back.dtos.BalanceAppend;
+import com.example.desafio_back.dtos.CacheBalance;
+import com.example.desafio_back.dtos.ItemHistoric;
+import com.example.desafio_back.model.Money;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.fppt.jedismock.RedisServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BalanceCacheTest {
+
+    static final Duration TTL = Duration.ofHours(1);
+
+    static RedisServer server;
+    static LettuceConnectionFactory connectionFactory;
+    static StringRedisTemplate redis;
+
+    SimpleMeterRegistry registry;
+    RedisCircuitBreaker breaker;
+    BalanceCache cache;
+
+    @BeforeAll
+    static void connect() throws IOException {
+        server = RedisServer.newRedisServer().start();
+        connectionFactory = new LettuceConnectionFactory(
+                new RedisStandaloneConfiguration(server.getHost(), server.getBindPort()));
+        connectionFactory.afterPropertiesSet();
+        redis = new StringRedisTemplate(connectionFactory);
+    }
+
+    @AfterAll
+    static void disconnect() throws IOException {
+        connectionFactory.destroy();
+        server.stop();
+    }
+
+    @BeforeEach
+    void setUp() {
+        redis.getConnectionFactory().getConnection().serverCommands().flushAll();
+        registry = new SimpleMeterRegistry();
+        LocalBalanceCache l1 = new LocalBalanceCache(redis, registry, 1_000, Duration.ofMinutes(1));
+        breaker = new RedisCircuitBreaker(redis, registry, Duration.ofSeconds(1), 4, 50, Duration.ofMillis(20));
+        cache = new BalanceCache(redis, new BalanceCodec(new ObjectMapper(), "binary"), l1, breaker, registry, TTL, 100);
+    }
+
+    @AfterEach
+    void tearDown() {
+        breaker.stop();
+    }
+
+    @Test
+    void get_returnsEmpty_onMiss() {
+        assertThat(cache.get(1L)).isEmpty();
+    }
+
+    @Test
+    void replace_thenGet_roundTripsBalanceAndHistoric() {
+        cache.replace(1L, 3, Money.parse("80.00"), List.of(item("payment", "20.00"), item("deposit", "100.00")));
+
+        CacheBalance cached = cache.get(1L).orElseThrow();
+
+        assertThat(cached.getTotalBalance()).isEqualTo(Money.parse("80.00"));
+        assertThat(cached.getHistoric()).extracting(ItemHistoric::type).containsExactly("payment", "deposit");
+    }
+
+    @Test
+    void replace_withEmptyHistoric_isStillAHit() {
+        cache.replace(1L, 0, Money.ZERO, List.of());
+
+        assertThat(cache.get(1L)).hasValueSatisfying(c -> assertThat(c.getHistoric()).isEmpty());
+    }
+
+    @Test
+    void append_isIgnored_whenEntryIsCold() {
+        assertThat(cache.append(1L, 1, Money.parse("10.00"), List.of(item("deposit", "10.00")))).isZero();
+
+        assertThat(cache.get(1L)).isEmpty();
+    }
+
+    @Test
+    void append_pushesNewestFirst_andCapsHistoric() {
+        List<ItemHistoric> full = new ArrayList<>();
+        for (int i = 0; i < BalanceCache.MAX_HISTORIC; i++) {
+            full.add(item("deposit", "1.00"));
+        }
+        cache.replace(1L, 1, Money.parse("200.00"), full);
+
+        assertThat(cache.append(1L, 2, Money.parse("150.00"), List.of(item("payment", "50.00")))).isEqualTo(1);
+
+        CacheBalance cached = cache.get(1L).orElseThrow();
+        assertThat(cached.getTotalBalance()).isEqualTo(Money.parse("150.00"));
+        assertThat(cached.getHistoric()).hasSize(BalanceCache.MAX_HISTORIC);
+        assertThat(cached.getHistoric().get(0).type()).isEqualTo("payment");
+    }
+
+    @Test
+    void append_skipsStaleVersion() {
+        cache.replace(1L, 5, Money.parse("50.00"), List.of());
+
+        assertThat(cache.append(1L, 5, Money.parse("10.00"), List.of(item("deposit", "10.00")))).isZero();
+
+        CacheBalance cached = cache.get(1L).orElseThrow();
+        assertThat(cached.getTotalBalance()).isEqualTo(Money.parse("50.00"));
+        assertThat(cached.getHistoric()).isEmpty();
+    }
+
+    @Test
+    void append_dropsEntry_onVersionGap() {
+        cache.replace(1L, 5, Money.parse("50.00"), List.of());
+
+        assertThat(cache.append(1L, 7, Money.parse("10.00"), List.of(item("deposit", "10.00")))).isEqualTo(-1);
+
+        assertThat(cache.get(1L)).isEmpty();
+    }
+
+    @Test
+    void replace_doesNotOverwriteNewerEntry() {
+        cache.replace(1L, 5, Money.parse("50.00"), List.of());
+
+        assertThat(cache.replace(1L, 4, Money.parse("40.00"), List.of())).isZero();
+
+        assertThat(cache.get(1L).orElseThrow().getTotalBalance()).isEqualTo(Money.parse("50.00"));
+    }
+
+    @Test
+    void replaceAll_writesEveryEntry_exceptThoseAlreadyNewer() {
+        cache.replace(2L, 5, Money.parse("50.00"), List.of());
+        // the script cache is empty after a flush; the pipeline must load it itself
+        redis.execute((RedisCallback<Object>) connection -> {
+            connection.scriptingCommands().scriptFlush();
+            return null;
+        });
+        Map<Long, CacheBalance> entries = new LinkedHashMap<>();
+        entries.put(1L, new CacheBalance(Money.parse("80.00"), List.of(item("payment", "20.00"), item("deposit", "100.00")), 2));
+        entries.put(2L, new CacheBalance(Money.parse("40.00"), List.of(), 4));
+        entries.put(3L, new CacheBalance(Money.ZERO, List.of(), 0));
+
+        assertThat(cache.replaceAll(entries)).isEqualTo(2);
+
+        CacheBalance first = cache.get(1L).orElseThrow();
+        assertThat(first.getVersion()).isEqualTo(2);
+        assertThat(first.getHistoric()).extracting(ItemHistoric::type).containsExactly("payment", "deposit");
+        assertThat(cache.get(2L).orElseThrow().getTotalBalance()).isEqualTo(Money.parse("50.00"));
+        assertThat(cache.get(3L)).isPresent();
+    }
+
+    @Test
+    void appendAll_appliesInOrder_andSkipsColdOrStaleEntries() {
+        cache.replace(1L, 1, Money.parse("10.00"), List.of(item("deposit", "10.00")));
+        cache.replace(2L, 3, Money.parse("30.00"), List.of());
+        assertThat(cache.get(1L)).isPresent();
+        redis.execute((RedisCallback<Object>) connection -> {
+            connection.scriptingCommands().scriptFlush();
+            return null;
+        });
+
+        int applied = cache.appendAll(List.of(
+                new BalanceAppend(1L, 2, Money.parse("7.00"), List.of(item("payment", "3.00"))),
+                new BalanceAppend(1L, 3, Money.parse("12.00"), List.of(item("deposit", "5.00"))),
+                new BalanceAppend(2L, 3, Money.parse("99.00"), List.of(item("deposit", "69.00"))),
+                new BalanceAppend(3L, 1, Money.parse("1.00"), List.of(item("deposit", "1.00")))));
+
+        assertThat(applied).isEqualTo(2);
+        // served from Redis again, not from the L1 copy taken before
+        CacheBalance first = cache.get(1L).orElseThrow();
+        assertThat(first.getVersion()).isEqualTo(3);
+        assertThat(first.getTotalBalance()).isEqualTo(Money.parse("12.00"));
+        assertThat(first.getHistoric()).containsExactly(item("deposit", "5.00"), item("payment", "3.00"), item("deposit", "10.00"));
+        assertThat(cache.get(2L).orElseThrow().getTotalBalance()).isEqualTo(Money.parse("30.00"));
+        assertThat(cache.get(3L)).isEmpty();
+    }
+
+    @Test
+    void entries_expireWithJitter_andReportTheirExpiry() {
+        long before = System.currentTimeMillis();
+        cache.replace(1L, 1, Money.parse("10.00"), List.of(item("deposit", "10.00")));
+        cache.putView(1L, 1, "f1", "{}".getBytes(StandardCharsets.UTF_8));
+
+        long ttl = redis.getExpire(BalanceCache.key(1L), TimeUnit.MILLISECONDS);
+        assertThat(ttl).isBetween(TTL.toMillis() * 9 / 10 - 1_000, TTL.toMillis());
+        assertThat(redis.getExpire(BalanceCache.historicKey(1L), TimeUnit.MILLISECONDS)).isPositive();
+        assertThat(cache.get(1L).orElseThrow().getExpiresAt()).isBetween(before + ttl - 1_000, before + TTL.toMillis() + 1_000);
+        assertThat(cache.getView(1L, "f1").orElseThrow().expiresAt()).isPositive();
+    }
+
+    @Test
+    void replace_atTheCachedVersion_onlyPushesTheExpiryBack() {
+        cache.replace(1L, 3, Money.parse("10.00"), List.of(item("deposit", "10.00")));
+        cache.putView(1L, 3, "f1", "{}".getBytes(StandardCharsets.UTF_8));
+        redis.expire(BalanceCache.key(1L), Duration.ofSeconds(5));
+
+        assertThat(cache.replace(1L, 3, Money.parse("10.00"), List.of(item("deposit", "10.00")))).isEqualTo(2);
+
+        assertThat(redis.getExpire(BalanceCache.key(1L), TimeUnit.SECONDS)).isGreaterThan(60);
+        assertThat(cache.getView(1L, "f1")).isPresent();
+    }
+
+    @Test
+    void entries_doNotExpire_withoutTtl() {
+        BalanceCache forever = new BalanceCache(redis, new BalanceCodec(new ObjectMapper(), "binary"),
+                new LocalBalanceCache(redis, registry, 1_000, Duration.ofMinutes(1)), breaker, registry, Duration.ZERO, 100);
+        forever.replace(1L, 1, Money.parse("10.00"), List.of());
+
+        assertThat(redis.getExpire(BalanceCache.key(1L))).isEqualTo(-1);
+        assertThat(forever.get(1L).orElseThrow().getExpiresAt()).isZero();
+    }
+
+    @Test
+    void tryLock_isExclusiveUntilUnlocked() {
+        assertThat(cache.tryLock(1L, Duration.ofSeconds(2))).isTrue();
+        assertThat(cache.tryLock(1L, Duration.ofSeconds(2))).isFalse();
+
+        cache.unlock(1L);
+
+        assertThat(cache.tryLock(1L, Duration.ofSeconds(2))).isTrue();
+    }
+
+    @Test
+    void replace_overwritesLegacyJsonBlob() {
+        redis.opsForValue().set(BalanceCache.key(1L), "{\"totalBalance\":1}");
+
+        assertThat(cache.get(1L)).isEmpty();
+        cache.replace(1L, 1, Money.parse("2.00"), List.of());
+
+        assertThat(cache.get(1L).orElseThrow().getTotalBalance()).isEqualTo(Money.parse("2.00"));
+    }
+
+    @Test
+    void get_readsEntriesWrittenAsJson() {
+        LocalBalanceCache l1 = new LocalBalanceCache(redis, registry, 1_000, Duration.ofMinutes(1));
+        BalanceCache jsonWriter = new BalanceCache(redis, new BalanceCodec(new ObjectMapper(), "json"), l1, breaker,
+                registry, TTL, 100);
+        jsonWriter.replace(1L, 1, Money.parse("10.00"), List.of(item("deposit", "10.00")));
+        cache.append(1L, 2, Money.parse("7.00"), List.of(item("payment", "3.00")));
+
+        assertThat(cache.get(1L).orElseThrow().getHistoric())
+                .containsExactly(item("payment", "3.00"), item("deposit", "10.00"));
+    }
+
+    @Test
+    void get_treatsUndecodableItemsAsMiss() {
+        cache.replace(1L, 1, Money.parse("10.00"), List.of());
+        redis.opsForList().leftPush(BalanceCache.historicKey(1L), "\u0009future");
+
+        assertThat(cache.get(1L)).isEmpty();
+    }
+
+    @Test
+    void view_isServedForTheVersionAndFormatItWasStoredWith() {
+        cache.replace(1L, 3, Money.parse("10.00"), List.of());
+        byte[] view = "{\"totalBalance\":10.00}".getBytes(StandardCharsets.UTF_8);
+
+        assertThat(cache.putView(1L, 3, "f1", view)).isEqualTo(1);
+
+        assertThat(cache.getView(1L, "f1")).hasValueSatisfying(v -> assertThat(v.json()).isEqualTo(view));
+        assertThat(cache.getView(1L, "f2")).isEmpty();
+    }
+
+    @Test
+    void view_isDroppedByWrites() {
+        cache.replace(1L, 3, Money.parse("10.00"), List.of());
+        cache.putView(1L, 3, "f1", "{}".getBytes(StandardCharsets.UTF_8));
+
+        cache.append(1L, 4, Money.parse("15.00"), List.of(item("deposit", "5.00")));
+
+        assertThat(cache.getView(1L, "f1")).isEmpty();
+        assertThat(cache.get(1L).orElseThrow().getVersion()).isEqualTo(4);
+    }
+
+    @Test
+    void putView_isRejected_whenEntryMovedOn() {
+        cache.replace(1L, 4, Money.parse("10.00"), List.of());
+
+        assertThat(cache.putView(1L, 3, "f1", "{}".getBytes(StandardCharsets.UTF_8))).isZero();
+        assertThat(cache.putView(2L, 0, "f1", "{}".getBytes(StandardCharsets.UTF_8))).isZero();
+
+        assertThat(cache.getView(1L, "f1")).isEmpty();
+    }
+
+    @Test
+    void view_ignoresViewLeftByAnOlderWriter() {
+        cache.replace(1L, 3, Money.parse("10.00"), List.of());
+        cache.putView(1L, 3, "f1", "{}".getBytes(StandardCharsets.UTF_8));
+        // a writer that does not know about views only bumps balance and version
+        redis.opsForHash().put(BalanceCache.key(1L), "version", "4");
+
+        assertThat(cache.getView(1L, "f1")).isEmpty();
+    }
+
+    @Test
+    void get_servesRepeatReadsFromL1() {
+        cache.replace(1L, 1, Money.parse("10.00"), List.of());
+        cache.get(1L);
+        redis.delete(List.of(BalanceCache.key(1L), BalanceCache.historicKey(1L)));
+
+        assertThat(cache.get(1L)).hasValueSatisfying(c -> assertThat(c.getTotalBalance()).isEqualTo(Money.parse("10.00")));
+        assertThat(registry.get("cache.gets").tags("cache", "balance.l1", "result", "hit").functionCounter().count())
+                .isEqualTo(1);
+        assertThat(registry.get("cache.gets").tags("cache", "balance.l2", "result", "hit").counter().count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    void append_dropsL1Copy() {
+        cache.replace(1L, 1, Money.parse("10.00"), List.of());
+        cache.get(1L);
+
+        cache.append(1L, 2, Money.parse("15.00"), List.of(item("deposit", "5.00")));
+
+        assertThat(cache.get(1L).orElseThrow().getTotalBalance()).isEqualTo(Money.parse("15.00"));
+    }
+
+    private static ItemHistoric item(String type, String value) {
+        return new ItemHistoric(type, Money.parse(value), "01-01-2025 10:00:00");
+    }
+
+    // the accounts below get their own ids: a repair scheduled by one test may run during the next
+    @Test
+    void redisDown_readsMiss_andSkippedWritesAreDroppedOnRecovery() throws InterruptedException {
+        registry = new SimpleMeterRegistry();
+        FlakyRedisTemplate flaky = flakyTemplate();
+        RedisCircuitBreaker flakyBreaker = new RedisCircuitBreaker(flaky, registry, Duration.ofSeconds(1), 4, 50, Duration.ofMillis(20));
+        BalanceCache degraded = new BalanceCache(flaky, new BalanceCodec(new ObjectMapper(), "binary"),
+                new LocalBalanceCache(flaky, registry, 1_000, Duration.ofMinutes(1)), flakyBreaker, registry, TTL, 100);
+        try {
+            degraded.replace(41L, 1, Money.parse("10.00"), List.of(item("deposit", "10.00")));
+            assertThat(degraded.get(41L)).isPresent();
+
+            flaky.down = true;
+            assertThat(degraded.append(41L, 2, Money.parse("7.00"), List.of(item("payment", "3.00")))).isZero();
+            for (int i = 0; i < 4 && !flakyBreaker.isOpen(); i++) {
+                // the L1 copy went with the skipped write
+                assertThat(degraded.get(41L)).isEmpty();
+            }
+            assertThat(flakyBreaker.isOpen()).isTrue();
+            assertThat(registry.get("balance.cache.fallbacks").tag("op", "write").counter().count()).isEqualTo(1.0);
+            assertThat(registry.get("balance.cache.fallbacks").tag("op", "read").counter().count()).isPositive();
+            assertThat(registry.get("balance.cache.repairs.pending").gauge().value()).isEqualTo(1.0);
+
+            flaky.down = false;
+            // the entry still holds version 1, so it is dropped and the next read rebuilds it
+            awaitDropped(41L);
+            assertThat(degraded.get(41L)).isEmpty();
+        } finally {
+            flakyBreaker.stop();
+        }
+    }
+
+    @Test
+    void redisFailingOnce_dropsTheEntryShortlyAfter_withoutOpeningTheBreaker() throws InterruptedException {
+        registry = new SimpleMeterRegistry();
+        FlakyRedisTemplate flaky = flakyTemplate();
+        RedisCircuitBreaker flakyBreaker = new RedisCircuitBreaker(flaky, registry, Duration.ofSeconds(1), 50, 50, Duration.ofMillis(20));
+        BalanceCache degraded = new BalanceCache(flaky, new BalanceCodec(new ObjectMapper(), "binary"),
+                new LocalBalanceCache(flaky, registry, 1_000, Duration.ofMinutes(1)), flakyBreaker, registry, TTL, 100);
+        try {
+            degraded.replace(42L, 1, Money.parse("10.00"), List.of());
+            flaky.down = true;
+            degraded.append(42L, 2, Money.parse("7.00"), List.of(item("payment", "3.00")));
+            flaky.down = false;
+
+            assertThat(flakyBreaker.isOpen()).isFalse();
+            awaitDropped(42L);
+        } finally {
+            flakyBreaker.stop();
+        }
+    }
+
+    @Test
+    void tryLock_letsEveryNodeLoad_whenRedisIsDown() {
+        registry = new SimpleMeterRegistry();
+        FlakyRedisTemplate flaky = flakyTemplate();
+        BalanceCache degraded = new BalanceCache(flaky, new BalanceCodec(new ObjectMapper(), "binary"),
+                new LocalBalanceCache(flaky, registry, 1_000, Duration.ofMinutes(1)), breaker, registry, TTL, 100);
+        flaky.down = true;
+
+        assertThat(degraded.tryLock(1L, Duration.ofSeconds(2))).isTrue();
+        assertThat(degraded.tryLock(1L, Duration.ofSeconds(2))).isTrue();
+        degraded.unlock(1L);
+        assertThat(registry.get("balance.cache.fallbacks").tag("op", "lock").counter().count()).isEqualTo(2.0);
+    }
+
+    private static FlakyRedisTemplate flakyTemplate() {
+        FlakyRedisTemplate flaky = new FlakyRedisTemplate(connectionFactory);
+        flaky.afterPropertiesSet();
+        return flaky;
+    }
+
+    private void awaitDropped(Long userId) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (redis.hasKey(BalanceCache.key(userId)) && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(redis.hasKey(BalanceCache.key(userId))).isFalse();
+        assertThat(registry.get("balance.cache.repairs.pending").gauge().value()).isZero();
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.desafio_back.cache;
+
+import com.example.desafio_back.dtos.ItemHistoric;
+import com.example.desafio_back.model.Money;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class BalanceCodecTest {
+
+    final BalanceCodec binary = new BalanceCodec(new ObjectMapper(), "binary");
+    final BalanceCodec json = new BalanceCodec(new ObjectMapper(), "json");
+
+    @Test
+    void binary_roundTrips_inAFewBytes() {
+        ItemHistoric item = new ItemHistoric("payment", Money.parse("1234.56"), "31-12-2025 23:59:59");
+
+        byte[] bytes = binary.encode(item);
+
+        assertThat(bytes[0]).isEqualTo(BinaryCacheCodec.V1);
+        assertThat(bytes.length).isLessThan(json.encode(item).length / 4);
+        assertThat(binary.decode(bytes)).isEqualTo(item);
+    }
+
+    @Test
+    void binary_keepsNegativeValuesAndDatesBeforeEpoch() {
+        ItemHistoric item = new ItemHistoric("payment", Money.parse("-0.01"), "15-06-1969 08:30:00");
+
+        assertThat(binary.decode(binary.encode(item))).isEqualTo(item);
+    }
+
+    @Test
+    void binary_fallsBackToJson_forItemsItCannotRepresent() {
+        ItemHistoric oddDate = new ItemHistoric("deposit", Money.ofCents(100), "2025-01-01T10:00");
+        ItemHistoric unknownType = new ItemHistoric("refund", Money.ofCents(100), "01-01-2025 10:00:00");
+
+        for (ItemHistoric item : new ItemHistoric[]{oddDate, unknownType}) {
+            byte[] bytes = binary.encode(item);
+            assertThat(bytes[0]).isEqualTo((byte) '{');
+            assertThat(binary.decode(bytes)).isEqualTo(item);
+        }
+    }
+
+    @Test
+    void readsBothFormats_whateverItWrites() {
+        ItemHistoric item = new ItemHistoric("deposit", Money.parse("10.00"), "01-01-2025 10:00:00");
+
+        assertThat(json.decode(binary.encode(item))).isEqualTo(item);
+        assertThat(binary.decode(json.encode(item))).isEqualTo(item);
+    }
+
+    @Test
+    void decode_rejectsUnknownFormatVersion() {
+        assertThatThrownBy(() -> binary.decode(new byte[]{9, 0, 0, 0}))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void rejectsUnknownCodecName() {
+        assertThatThrownBy(() -> new BalanceCodec(new ObjectMapper(), "protobuf"))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,35 @@
+package com.example.desafio_back.cache;
+
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.time.Duration;
+
+/** A template that can be made to fail or stall every command, for breaker tests. */
+class FlakyRedisTemplate extends StringRedisTemplate {
+
+    volatile boolean down;
+    volatile Duration delay = Duration.ZERO;
+
+    FlakyRedisTemplate(RedisConnectionFactory connectionFactory) {
+        super(connectionFactory);
+    }
+
+    // every command, script and pipeline ends up here
+    @Override
+    public <T> T execute(RedisCallback<T> action, boolean exposeConnection, boolean pipeline) {
+        if (down) {
+            throw new RedisConnectionFailureException("Redis is down");
+        }
+        if (!delay.isZero()) {
+            try {
+                Thread.sleep(delay);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return super.execute(action, exposeConnection, pipeline);
+    }
+}
@@ -0,0 +1,172 @@
+package com.example.desafio_back.cache;
+
+import com.example.desafio_back.exception.IdempotencyException;
+import com.example.desafio_back.exception.OutcomeUnknownException;
+import com.github.fppt.jedismock.RedisServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.http.HttpStatus;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class IdempotencyStoreTest {
+
+    static RedisServer server;
+    static LettuceConnectionFactory connectionFactory;
+
+    FlakyRedisTemplate redis;
+    SimpleMeterRegistry registry;
+    RedisCircuitBreaker breaker;
+    IdempotencyStore store;
+    AtomicInteger runs;
+
+    @BeforeAll
+    static void connect() throws IOException {
+        server = RedisServer.newRedisServer().start();
+        connectionFactory = new LettuceConnectionFactory(
+                new RedisStandaloneConfiguration(server.getHost(), server.getBindPort()));
+        connectionFactory.afterPropertiesSet();
+    }
+
+    @AfterAll
+    static void disconnect() throws IOException {
+        connectionFactory.destroy();
+        server.stop();
+    }
+
+    @BeforeEach
+    void setUp() {
+        redis = new FlakyRedisTemplate(connectionFactory);
+        redis.afterPropertiesSet();
+        redis.getConnectionFactory().getConnection().serverCommands().flushAll();
+        registry = new SimpleMeterRegistry();
+        breaker = new RedisCircuitBreaker(redis, registry, Duration.ofSeconds(1), 50, 50, Duration.ofSeconds(1));
+        store = new IdempotencyStore(redis, breaker, registry, Duration.ofHours(1), 1_000, 0.01);
+        runs = new AtomicInteger();
+    }
+
+    @AfterEach
+    void tearDown() {
+        breaker.stop();
+    }
+
+    @Test
+    void withoutKey_alwaysRuns() {
+        store.execute(1L, null, "deposit:1.00", runs::incrementAndGet);
+        store.execute(1L, null, "deposit:1.00", runs::incrementAndGet);
+
+        assertThat(runs).hasValue(2);
+        assertThat(redis.keys("idem:*")).isEmpty();
+    }
+
+    @Test
+    void retry_isReplayed_withoutRunningAgain() {
+        assertThat(store.execute(1L, "k", "deposit:1.00", runs::incrementAndGet)).isEqualTo(IdempotencyStore.Outcome.EXECUTED);
+        assertThat(store.execute(1L, "k", "deposit:1.00", runs::incrementAndGet)).isEqualTo(IdempotencyStore.Outcome.REPLAYED);
+
+        assertThat(runs).hasValue(1);
+        assertThat(redis.getExpire("idem:1:k")).isPositive();
+        assertThat(registry.get("idempotency.overhead").tag("outcome", "executed").timer().count()).isEqualTo(1);
+        assertThat(registry.get("idempotency.overhead").tag("outcome", "replayed").timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    void keys_areScopedPerUser() {
+        store.execute(1L, "k", "deposit:1.00", runs::incrementAndGet);
+        store.execute(2L, "k", "deposit:1.00", runs::incrementAndGet);
+
+        assertThat(runs).hasValue(2);
+    }
+
+    @Test
+    void retryOnAnotherNode_isCaughtByTheClaim() {
+        IdempotencyStore otherNode = new IdempotencyStore(redis, breaker, new SimpleMeterRegistry(), Duration.ofHours(1), 1_000, 0.01);
+        store.execute(1L, "k", "deposit:1.00", runs::incrementAndGet);
+
+        assertThat(otherNode.execute(1L, "k", "deposit:1.00", runs::incrementAndGet)).isEqualTo(IdempotencyStore.Outcome.REPLAYED);
+        assertThat(runs).hasValue(1);
+    }
+
+    @Test
+    void newKeys_skipTheLookup() {
+        store.execute(1L, "a", "deposit:1.00", runs::incrementAndGet);
+        store.execute(1L, "b", "deposit:1.00", runs::incrementAndGet);
+        store.execute(1L, "a", "deposit:1.00", runs::incrementAndGet);
+
+        assertThat(registry.get("idempotency.filter").tag("result", "new").counter().count()).isEqualTo(2);
+        assertThat(registry.get("idempotency.filter").tag("result", "maybe-seen").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void sameKey_forADifferentRequest_isRejected() {
+        store.execute(1L, "k", "deposit:1.00", runs::incrementAndGet);
+
+        assertThatThrownBy(() -> store.execute(1L, "k", "payment:1.00", runs::incrementAndGet))
+                .isInstanceOf(IdempotencyException.class)
+                .extracting("status").isEqualTo(HttpStatus.UNPROCESSABLE_ENTITY);
+        assertThat(runs).hasValue(1);
+    }
+
+    @Test
+    void retry_whileTheFirstIsRunning_conflicts() {
+        store.execute(1L, "k", "deposit:1.00", () ->
+                assertThatThrownBy(() -> store.execute(1L, "k", "deposit:1.00", runs::incrementAndGet))
+                        .isInstanceOf(IdempotencyException.class)
+                        .extracting("status").isEqualTo(HttpStatus.CONFLICT));
+
+        assertThat(runs).hasValue(0);
+    }
+
+    @Test
+    void failedCommand_releasesTheKey() {
+        assertThatThrownBy(() -> store.execute(1L, "k", "deposit:1.00", () -> {
+            throw new IllegalArgumentException("Invalid amount");
+        })).isInstanceOf(IllegalArgumentException.class);
+
+        assertThat(redis.hasKey("idem:1:k")).isFalse();
+        assertThat(store.execute(1L, "k", "deposit:1.00", runs::incrementAndGet)).isEqualTo(IdempotencyStore.Outcome.EXECUTED);
+    }
+
+    @Test
+    void commandWithUnknownOutcome_keepsTheKey_soRetriesConflict() {
+        assertThatThrownBy(() -> store.execute(1L, "k", "deposit:1.00", () -> {
+            throw new OutcomeUnknownException("Timed out");
+        })).isInstanceOf(OutcomeUnknownException.class);
+
+        assertThatThrownBy(() -> store.execute(1L, "k", "deposit:1.00", runs::incrementAndGet))
+                .isInstanceOf(IdempotencyException.class)
+                .extracting("status").isEqualTo(HttpStatus.CONFLICT);
+        assertThat(runs).hasValue(0);
+    }
+
+    @Test
+    void rejectsBlankOrOversizedKeys() {
+        assertThatThrownBy(() -> store.execute(1L, " ", "deposit:1.00", runs::incrementAndGet))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> store.execute(1L, "k".repeat(IdempotencyStore.MAX_KEY_LENGTH + 1), "deposit:1.00", runs::incrementAndGet))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThat(runs).hasValue(0);
+    }
+
+    @Test
+    void redisDown_failsKeyedRequests_withoutRunningThem() {
+        redis.down = true;
+
+        assertThatThrownBy(() -> store.execute(1L, "k", "deposit:1.00", runs::incrementAndGet))
+                .isInstanceOf(RedisUnavailableException.class);
+        store.execute(1L, null, "deposit:1.00", runs::incrementAndGet);
+
+        assertThat(runs).hasValue(1);
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.desafio_back.cache;
+
+import com.example.desafio_back.dtos.BalanceView;
+import com.example.desafio_back.dtos.CacheBalance;
+import com.example.desafio_back.model.Money;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class LocalBalanceCacheTest {
+
+    StringRedisTemplate redis;
+    LocalBalanceCache l1;
+
+    @BeforeEach
+    void setUp() {
+        redis = mock(StringRedisTemplate.class);
+        l1 = new LocalBalanceCache(redis, new SimpleMeterRegistry(), 100, Duration.ofMinutes(1));
+    }
+
+    @Test
+    void put_isSkipped_whenInvalidatedDuringRead() {
+        long generation = l1.generation(1L);
+        l1.invalidate(1L);
+
+        l1.put(1L, balance("1.00"), generation);
+
+        assertThat(l1.get(1L)).isNull();
+    }
+
+    @Test
+    void put_isKept_whenOnlyOtherAccountsWereInvalidated() {
+        long generation = l1.generation(1L);
+        for (long other = 2; other < 100; other++) {
+            l1.invalidate(other);
+        }
+
+        l1.put(1L, balance("1.00"), generation);
+        l1.putView(1L, "json", new BalanceView(new byte[0], 0), generation);
+
+        assertThat(l1.get(1L)).isNotNull();
+        assertThat(l1.getView(1L, "json")).isNotNull();
+    }
+
+    @Test
+    void invalidateEverywhere_publishesToOtherNodes_andIgnoresOwnEcho() {
+        l1.put(1L, balance("1.00"), l1.generation(1L));
+
+        l1.invalidateEverywhere(1L);
+
+        ArgumentCaptor<String> msg = ArgumentCaptor.forClass(String.class);
+        verify(redis).convertAndSend(eq(LocalBalanceCache.INVALIDATION_CHANNEL), msg.capture());
+        assertThat(msg.getValue()).endsWith(":1");
+
+        l1.put(1L, balance("2.00"), l1.generation(1L));
+        l1.onMessage(message(msg.getValue()), null);
+        assertThat(l1.get(1L)).isNotNull();
+    }
+
+    @Test
+    void onMessage_fromAnotherNode_dropsEntry() {
+        l1.put(7L, balance("1.00"), l1.generation(7L));
+
+        l1.onMessage(message("other-node:7"), null);
+
+        assertThat(l1.get(7L)).isNull();
+    }
+
+    private static CacheBalance balance(String total) {
+        return new CacheBalance(Money.parse(total), List.of());
+    }
+
+    private static DefaultMessage message(String body) {
+        return new DefaultMessage(LocalBalanceCache.INVALIDATION_CHANNEL.getBytes(StandardCharsets.UTF_8),
+                body.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,127 @@
+package com.example.desafio_back.cache;
+
+import com.github.fppt.jedismock.RedisServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class RedisCircuitBreakerTest {
+
+    static RedisServer server;
+    static LettuceConnectionFactory connectionFactory;
+
+    FlakyRedisTemplate redis;
+    SimpleMeterRegistry registry;
+    RedisCircuitBreaker breaker;
+
+    @BeforeAll
+    static void connect() throws IOException {
+        server = RedisServer.newRedisServer().start();
+        connectionFactory = new LettuceConnectionFactory(
+                new RedisStandaloneConfiguration(server.getHost(), server.getBindPort()));
+        connectionFactory.afterPropertiesSet();
+    }
+
+    @AfterAll
+    static void disconnect() throws IOException {
+        connectionFactory.destroy();
+        server.stop();
+    }
+
+    @BeforeEach
+    void setUp() {
+        redis = new FlakyRedisTemplate(connectionFactory);
+        redis.afterPropertiesSet();
+        registry = new SimpleMeterRegistry();
+        breaker = new RedisCircuitBreaker(redis, registry, Duration.ofMillis(100), 4, 50, Duration.ofMillis(20));
+    }
+
+    @AfterEach
+    void tearDown() {
+        breaker.stop();
+    }
+
+    @Test
+    void call_passesResultsThrough_whileRedisIsHealthy() {
+        redis.opsForValue().set("k", "v");
+
+        assertThat(breaker.call(() -> redis.opsForValue().get("k"))).isEqualTo("v");
+        assertThat(breaker.isOpen()).isFalse();
+    }
+
+    @Test
+    void call_wrapsFailures_andStaysClosedBelowTheFailureRate() {
+        breaker.call(() -> redis.hasKey("k"));
+        breaker.call(() -> redis.hasKey("k"));
+        breaker.call(() -> redis.hasKey("k"));
+        redis.down = true;
+
+        assertThatThrownBy(() -> breaker.call(() -> redis.hasKey("k")))
+                .isInstanceOf(RedisUnavailableException.class)
+                .hasCauseInstanceOf(RedisConnectionFailureException.class);
+        assertThat(breaker.isOpen()).isFalse();
+    }
+
+    @Test
+    void opens_onFailures_andRejectsWithoutCallingRedis() {
+        redis.down = true;
+        failCalls(4);
+
+        assertThat(breaker.isOpen()).isTrue();
+        assertThat(registry.get("redis.breaker.open").gauge().value()).isEqualTo(1.0);
+
+        redis.down = false;
+        int[] calls = {0};
+        assertThatThrownBy(() -> breaker.call(() -> calls[0]++)).isSameAs(RedisUnavailableException.OPEN);
+        assertThat(calls[0]).isZero();
+        assertThat(registry.get("redis.breaker.rejected").counter().count()).isEqualTo(1.0);
+    }
+
+    @Test
+    void opens_onSlowCalls() {
+        redis.delay = Duration.ofMillis(150);
+        for (int i = 0; i < 4; i++) {
+            breaker.call(() -> redis.hasKey("k"));
+        }
+
+        assertThat(breaker.isOpen()).isTrue();
+        assertThat(registry.get("redis.breaker.opened").counter().count()).isEqualTo(1.0);
+    }
+
+    @Test
+    void probe_closesOnceRedisAnswers_andRunsRecoveryListeners() throws InterruptedException {
+        CountDownLatch recovered = new CountDownLatch(1);
+        breaker.onRecovery(recovered::countDown);
+        redis.down = true;
+        failCalls(4);
+
+        // still down: the probe keeps it open
+        Thread.sleep(100);
+        assertThat(breaker.isOpen()).isTrue();
+
+        redis.down = false;
+        assertThat(recovered.await(2, TimeUnit.SECONDS)).isTrue();
+        assertThat(breaker.isOpen()).isFalse();
+        assertThat(breaker.call(() -> redis.hasKey("k"))).isFalse();
+    }
+
+    private void failCalls(int n) {
+        for (int i = 0; i < n; i++) {
+            assertThatThrownBy(() -> breaker.call(() -> redis.hasKey("k"))).isInstanceOf(RedisUnavailableException.class);
+        }
+    }
+}
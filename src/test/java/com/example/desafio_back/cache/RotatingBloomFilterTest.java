@@ -0,0 +1,54 @@
+package com.example.desafio_back.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RotatingBloomFilterTest {
+
+    AtomicLong now = new AtomicLong();
+    RotatingBloomFilter filter = new RotatingBloomFilter(10_000, 0.01, Duration.ofMinutes(1), now::get);
+
+    @Test
+    void sizesBitsAndHashes_forTheFalsePositiveRate() {
+        // ~9.6 bits and 7 hashes per key at 1%
+        assertThat(filter.bitCount()).isBetween(95_000, 97_000);
+        assertThat(filter.hashCount()).isEqualTo(7);
+    }
+
+    @Test
+    void neverMissesAddedKeys_andRarelyReportsOthers() {
+        for (int i = 0; i < 10_000; i++) {
+            filter.add("idem:1:key-" + i);
+        }
+        for (int i = 0; i < 10_000; i++) {
+            assertThat(filter.mightContain("idem:1:key-" + i)).isTrue();
+        }
+
+        int falsePositives = 0;
+        for (int i = 0; i < 100_000; i++) {
+            if (filter.mightContain("idem:2:other-" + i)) {
+                falsePositives++;
+            }
+        }
+        assertThat(falsePositives).isLessThan(2_000);
+    }
+
+    @Test
+    void keepsKeysForAtLeastOnePeriod_thenForgetsThem() {
+        filter.add("a");
+        now.addAndGet(TimeUnit.SECONDS.toNanos(61));
+        filter.add("b");
+
+        assertThat(filter.mightContain("a")).isTrue();
+        assertThat(filter.mightContain("b")).isTrue();
+
+        now.addAndGet(TimeUnit.SECONDS.toNanos(61));
+        assertThat(filter.mightContain("a")).isFalse();
+        assertThat(filter.mightContain("b")).isTrue();
+    }
+}
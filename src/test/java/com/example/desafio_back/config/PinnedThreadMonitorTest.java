@@ -0,0 +1,44 @@
+package com.example.desafio_back.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PinnedThreadMonitorTest {
+
+    SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    PinnedThreadMonitor monitor = new PinnedThreadMonitor(registry, Duration.ofMillis(5));
+
+    @AfterEach
+    void tearDown() {
+        monitor.stop();
+    }
+
+    @Test
+    void countsBlockingInsideSynchronized_byApplicationFrame() throws Exception {
+        monitor.start();
+
+        Thread.ofVirtual().start(this::sleepWhileHoldingMonitor).join();
+
+        long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        while (registry.find("jvm.threads.virtual.pinned").counter() == null && System.nanoTime() < deadline) {
+            Thread.sleep(50);
+        }
+        Counter pinned = registry.find("jvm.threads.virtual.pinned").counter();
+        assertThat(pinned).isNotNull();
+        assertThat(pinned.getId().getTag("frame")).startsWith(PinnedThreadMonitorTest.class.getName() + ".sleepWhileHoldingMonitor");
+    }
+
+    private synchronized void sleepWhileHoldingMonitor() {
+        try {
+            Thread.sleep(50);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.desafio_back.config;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.servlet.HandlerMapping;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class QueryCountFilterTest {
+
+    SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    QueryCountFilter filter = new QueryCountFilter(registry);
+    QueryCountInspector inspector = new QueryCountInspector();
+
+    @Test
+    void recordsStatementsPerRequest_underTheRouteTemplate() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/balance");
+
+        filter.doFilter(request, new MockHttpServletResponse(), (req, res) -> {
+            inspector.inspect("select 1");
+            inspector.inspect("select 2");
+            req.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, "/api/balance");
+        });
+
+        DistributionSummary summary = registry.get("jpa.queries.per_request")
+                .tags("uri", "/api/balance", "method", "GET").summary();
+        assertThat(summary.count()).isEqualTo(1);
+        assertThat(summary.totalAmount()).isEqualTo(2);
+    }
+
+    @Test
+    void repeatedRequests_recordIntoTheSameSummary() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            filter.doFilter(new MockHttpServletRequest("POST", "/api/deposits"), new MockHttpServletResponse(), (req, res) -> {
+                inspector.inspect("update accounts");
+                req.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, "/api/deposits");
+            });
+        }
+
+        assertThat(registry.find("jpa.queries.per_request").summaries()).hasSize(1);
+        assertThat(registry.get("jpa.queries.per_request").tags("uri", "/api/deposits", "method", "POST")
+                .summary().count()).isEqualTo(3);
+    }
+
+    @Test
+    void statementsOutsideARequest_areNotCounted() throws Exception {
+        inspector.inspect("select 1");
+
+        filter.doFilter(new MockHttpServletRequest("GET", "/nowhere"), new MockHttpServletResponse(), (req, res) -> {});
+
+        DistributionSummary summary = registry.get("jpa.queries.per_request").tag("uri", "UNKNOWN").summary();
+        assertThat(summary.totalAmount()).isZero();
+    }
+}
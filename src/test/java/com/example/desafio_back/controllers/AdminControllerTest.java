@@ -0,0 +1,73 @@
+package com.example.desafio_back.controllers;
+
+import com.example.desafio_back.dtos.BulkRegisterRequest;
+import com.example.desafio_back.dtos.ImportResult;
+import com.example.desafio_back.dtos.RegisterRequest;
+import com.example.desafio_back.dtos.UserImportResult;
+import com.example.desafio_back.dtos.WarmupStatus;
+import com.example.desafio_back.services.CacheWarmupService;
+import com.example.desafio_back.services.ImportService;
+import com.example.desafio_back.services.UserImportService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.time.Instant;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+class AdminControllerTest {
+
+    ImportService importService;
+    CacheWarmupService cacheWarmupService;
+    UserImportService userImportService;
+
+    AdminController controller;
+
+    @BeforeEach
+    void setUp() {
+        importService = mock(ImportService.class);
+        cacheWarmupService = mock(CacheWarmupService.class);
+        userImportService = mock(UserImportService.class);
+        controller = new AdminController(importService, cacheWarmupService, userImportService);
+    }
+
+    @Test
+    void importTransactions_picksFormatFromContentType() throws Exception {
+        InputStream body = new ByteArrayInputStream(new byte[0]);
+        ImportResult result = new ImportResult(0, 0, 0, 0, 0, List.of());
+        when(importService.importTransactions(any(), any())).thenReturn(result);
+
+        assertThat(controller.importTransactions(MediaType.parseMediaType("text/csv"), body)).isSameAs(result);
+        controller.importTransactions(MediaType.APPLICATION_NDJSON, body);
+
+        verify(importService).importTransactions(body, ImportService.Format.CSV);
+        verify(importService).importTransactions(body, ImportService.Format.NDJSON);
+    }
+
+    @Test
+    void importUsers_delegatesTheList() {
+        var users = List.of(new RegisterRequest("John", "52998224725", "jdoe", "secret"));
+        UserImportResult result = new UserImportResult(1, 1, List.of());
+        when(userImportService.importUsers(users)).thenReturn(result);
+
+        assertThat(controller.importUsers(new BulkRegisterRequest(users))).isSameAs(result);
+    }
+
+    @Test
+    void cacheWarmup_startsInBackground_andReportsStatus() {
+        WarmupStatus running = new WarmupStatus(WarmupStatus.State.RUNNING, Instant.now(), 500, 480, 1_000, 500, null);
+        when(cacheWarmupService.start()).thenReturn(running);
+        when(cacheWarmupService.status()).thenReturn(running);
+
+        assertThat(controller.startCacheWarmup()).isSameAs(running);
+        assertThat(controller.cacheWarmupStatus()).isSameAs(running);
+
+        verify(cacheWarmupService).start();
+        verify(cacheWarmupService, never()).warmUp();
+    }
+}
@@ -33,4 +33,11 @@ class AuthControllerTest {
         assertThat(resp.token()).isEqualTo("JWT123");
         verify(authService).login(req);
     }
+
+    @Test
+    void logout_revokesBearerToken() {
+        controller.logout("Bearer JWT123");
+
+        verify(authService).logout("JWT123");
+    }
 }
@@ -1,72 +1,167 @@
 package com.example.desafio_back.controllers;
 
+import com.example.desafio_back.cache.IdempotencyStore;
 import com.example.desafio_back.dtos.BalanceResponse;
+import com.example.desafio_back.dtos.BatchItemResult;
+import com.example.desafio_back.dtos.BatchOperation;
+import com.example.desafio_back.dtos.BatchRequest;
+import com.example.desafio_back.dtos.BatchResponse;
 import com.example.desafio_back.dtos.DepositRequest;
 import com.example.desafio_back.dtos.PaymentRequest;
-import com.example.desafio_back.model.User;
-import com.example.desafio_back.repository.UserRepository;
+import com.example.desafio_back.dtos.TransactionCursor;
+import com.example.desafio_back.dtos.TransactionPage;
+import com.example.desafio_back.enums.StatementFormat;
+import com.example.desafio_back.enums.Type;
+import com.example.desafio_back.model.Money;
+import com.example.desafio_back.security.AuthenticatedUser;
 import com.example.desafio_back.services.CommandService;
+import com.example.desafio_back.services.GroupCommitService;
 import com.example.desafio_back.services.QueryService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
 
-import java.math.BigDecimal;
-import java.util.Optional;
+import java.time.LocalDate;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.Mockito.*;
 
 class BankControllerTest {
 
-    UserRepository userRepository;
     CommandService commandService;
     QueryService queryService;
+    GroupCommitService groupCommitService;
+    IdempotencyStore idempotencyStore;
 
     BankController controller;
 
     @BeforeEach
     void setUp() {
-        userRepository = mock(UserRepository.class);
         commandService = mock(CommandService.class);
         queryService = mock(QueryService.class);
-        controller = new BankController(userRepository, commandService, queryService);
+        groupCommitService = mock(GroupCommitService.class);
+        idempotencyStore = mock(IdempotencyStore.class);
+        when(idempotencyStore.execute(any(), any(), any(), any())).thenAnswer(inv -> {
+            inv.<Runnable>getArgument(3).run();
+            return IdempotencyStore.Outcome.EXECUTED;
+        });
+        controller = new BankController(commandService, queryService, groupCommitService, idempotencyStore);
 
         SecurityContextHolder.getContext().setAuthentication(
-                new UsernamePasswordAuthenticationToken("jdoe", null)
+                new UsernamePasswordAuthenticationToken(new AuthenticatedUser(42L, "jdoe"), null)
         );
-
-        User fakeUser = User.builder().id(42L).login("jdoe").build();
-        when(userRepository.findByLogin("jdoe")).thenReturn(Optional.of(fakeUser));
     }
 
     @Test
     void deposit_callsServiceWithCorrectUserId() {
-        DepositRequest req = new DepositRequest(new BigDecimal("100.00"));
+        DepositRequest req = new DepositRequest(Money.parse("100.00"));
+
+        var resp = controller.deposit(null, req);
+
+        verify(groupCommitService).deposit(42L, Money.parse("100.00"));
+        assertThat(resp.getHeaders().containsKey(IdempotencyStore.REPLAYED_HEADER)).isFalse();
+    }
+
+    @Test
+    void deposit_passesIdempotencyKey_andFingerprintsTheRequest() {
+        controller.deposit("k-1", new DepositRequest(Money.parse("100.00")));
+
+        verify(idempotencyStore).execute(eq(42L), eq("k-1"), eq("deposit:100.00"), any());
+        verify(groupCommitService).deposit(42L, Money.parse("100.00"));
+    }
 
-        controller.deposit(req);
+    @Test
+    void pay_replay_answersOkWithoutRunningTheCommand() {
+        doReturn(IdempotencyStore.Outcome.REPLAYED)
+                .when(idempotencyStore).execute(eq(42L), eq("k-1"), eq("payment:50.00"), any());
+
+        var resp = controller.pay("k-1", new PaymentRequest(Money.parse("50.00")));
 
-        verify(commandService).deposit(42L, new BigDecimal("100.00"));
+        assertThat(resp.getStatusCode().value()).isEqualTo(200);
+        assertThat(resp.getHeaders().getFirst(IdempotencyStore.REPLAYED_HEADER)).isEqualTo("true");
+        verifyNoInteractions(groupCommitService);
     }
 
     @Test
     void pay_callsServiceWithCorrectUserId() {
-        PaymentRequest req = new PaymentRequest(new BigDecimal("50.00"));
+        PaymentRequest req = new PaymentRequest(Money.parse("50.00"));
+
+        controller.pay(null, req);
+
+        verify(groupCommitService).pay(42L, Money.parse("50.00"));
+    }
+
+    @Test
+    void batch_delegatesOperationsWithCorrectUserId() {
+        var ops = java.util.List.of(new BatchOperation(Type.DEPOSIT, Money.parse("10.00")));
+        BatchResponse mockResponse = new BatchResponse(Money.parse("10.00"),
+                java.util.List.of(BatchItemResult.applied(0, Money.parse("10.00"))));
+        when(commandService.batch(42L, ops)).thenReturn(mockResponse);
+
+        assertThat(controller.batch(new BatchRequest(ops))).isSameAs(mockResponse);
+    }
+
+    @Test
+    void balance_writesRenderedJson_whenClientAcceptsJson() {
+        byte[] json = "{}".getBytes();
+        when(queryService.balanceJson(42L)).thenReturn(json);
 
-        controller.pay(req);
+        for (String accept : new String[]{null, "*/*", "application/json", "text/html, application/*;q=0.8"}) {
+            var resp = controller.balance(accept);
 
-        verify(commandService).pay(42L, new BigDecimal("50.00"));
+            assertThat(resp.getBody()).isSameAs(json);
+            assertThat(resp.getHeaders().getContentType()).isEqualTo(MediaType.APPLICATION_JSON);
+        }
+        verify(queryService, never()).balance(any());
     }
 
     @Test
-    void balance_returnsResponseFromService() {
-        BalanceResponse mockResponse = new BalanceResponse(new BigDecimal("500.00"), java.util.List.of());
+    void balance_fallsBackToObjectMapping_forOtherAcceptHeaders() {
+        BalanceResponse mockResponse = new BalanceResponse(Money.parse("500.00"), java.util.List.of());
         when(queryService.balance(42L)).thenReturn(mockResponse);
 
-        BalanceResponse resp = controller.balance();
+        for (String accept : new String[]{"text/csv", "application/json;q=0", "not a media type"}) {
+            assertThat(controller.balance(accept).getBody()).isSameAs(mockResponse);
+        }
+        verify(queryService, never()).balanceJson(any());
+    }
+
+    @Test
+    void transactions_decodesCursor_andDelegatesToService() {
+        TransactionCursor cursor = new TransactionCursor(java.time.LocalDateTime.of(2025, 1, 2, 9, 0), 20L);
+        TransactionPage page = new TransactionPage(java.util.List.of(), null);
+        when(queryService.transactions(42L, cursor, 10)).thenReturn(page);
+
+        assertThat(controller.transactions(cursor.encode(), 10)).isSameAs(page);
+    }
+
+    @Test
+    void statement_setsHeaders_andStreamsForTheCallingUser() throws Exception {
+        LocalDate from = LocalDate.of(2025, 1, 1);
+        LocalDate to = LocalDate.of(2025, 1, 31);
+
+        var resp = controller.statement(from, to, "NDJSON");
+
+        assertThat(resp.getHeaders().getContentType()).hasToString("application/x-ndjson");
+        assertThat(resp.getHeaders().getContentDisposition().getFilename()).isEqualTo("statement-2025-01-01_2025-01-31.ndjson");
+
+        // the body runs later, possibly without a security context
+        SecurityContextHolder.clearContext();
+        var out = new java.io.ByteArrayOutputStream();
+        resp.getBody().writeTo(out);
+        verify(queryService).writeStatement(42L, from, to, StatementFormat.NDJSON, out);
+    }
+
+    @Test
+    void statement_rejectsInvertedRange_andUnknownFormat() {
+        LocalDate day = LocalDate.of(2025, 1, 2);
 
-        assertThat(resp.totalBalance()).isEqualByComparingTo("500.00");
-        verify(queryService).balance(42L);
+        assertThatThrownBy(() -> controller.statement(day, day.minusDays(1), "csv"))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> controller.statement(day, day, "xml"))
+                .isInstanceOf(IllegalArgumentException.class);
     }
 }
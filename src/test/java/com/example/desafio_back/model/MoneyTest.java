@@ -0,0 +1,93 @@
+package com.example.desafio_back.model;
+
+import com.example.desafio_back.dtos.ItemHistoric;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.exc.InvalidFormatException;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class MoneyTest {
+
+    final ObjectMapper mapper = new ObjectMapper();
+
+    @Test
+    void parse_readsPlainDecimals_andRoundsHalfUpLikeTheColumn() {
+        assertThat(Money.parse("100").cents()).isEqualTo(10_000);
+        assertThat(Money.parse("0.5").cents()).isEqualTo(50);
+        assertThat(Money.parse("-12.34").cents()).isEqualTo(-1_234);
+        assertThat(Money.parse("+.01").cents()).isEqualTo(1);
+        assertThat(Money.parse("0.125").cents()).isEqualTo(13);
+        assertThat(Money.parse("0.1249").cents()).isEqualTo(12);
+        assertThat(Money.parse("-0.125").cents()).isEqualTo(-13);
+        assertThat(Money.parse("1E+2").cents()).isEqualTo(10_000);
+    }
+
+    @Test
+    void parse_rejectsGarbageAndOverflow() {
+        assertThatThrownBy(() -> Money.parse("abc")).isInstanceOf(NumberFormatException.class);
+        assertThatThrownBy(() -> Money.parse("-")).isInstanceOf(NumberFormatException.class);
+        assertThatThrownBy(() -> Money.parse("99999999999999999999")).isInstanceOf(ArithmeticException.class);
+    }
+
+    @Test
+    void toString_isScaleTwoPlainNotation() {
+        assertThat(Money.ofCents(0)).hasToString("0.00");
+        assertThat(Money.ofCents(5)).hasToString("0.05");
+        assertThat(Money.ofCents(-105)).hasToString("-1.05");
+        assertThat(Money.ofCents(Long.MIN_VALUE)).hasToString(BigDecimal.valueOf(Long.MIN_VALUE, 2).toPlainString());
+    }
+
+    @Test
+    void times_matchesBigDecimalHalfUp() {
+        BigDecimal rate = new BigDecimal("0.102");
+        for (long cents = -100_000; cents <= 100_000; cents += 7) {
+            BigDecimal expected = BigDecimal.valueOf(cents, 2).multiply(rate).setScale(2, RoundingMode.HALF_UP);
+            assertThat(Money.ofCents(cents).times(102, 1_000).toBigDecimal()).isEqualTo(expected);
+        }
+    }
+
+    @Test
+    void times_doesNotOverflowOnLargeBalances() {
+        long cents = Long.MAX_VALUE / 2;
+        BigDecimal expected = BigDecimal.valueOf(cents, 2).multiply(new BigDecimal("0.102")).setScale(2, RoundingMode.HALF_UP);
+
+        assertThat(Money.ofCents(cents).times(102, 1_000).toBigDecimal()).isEqualTo(expected);
+    }
+
+    @Test
+    void arithmetic_throwsOnOverflow() {
+        assertThatThrownBy(() -> Money.ofCents(Long.MAX_VALUE).plus(Money.ofCents(1)))
+                .isInstanceOf(ArithmeticException.class);
+    }
+
+    @Test
+    void json_keepsTheBigDecimalFormat() throws Exception {
+        ItemHistoric item = new ItemHistoric("deposit", Money.parse("100"), "01-01-2025 10:00:00");
+
+        assertThat(mapper.writeValueAsString(item))
+                .isEqualTo("{\"type\":\"deposit\",\"value\":100.00,\"date\":\"01-01-2025 10:00:00\"}");
+        assertThat(mapper.readValue("{\"value\":10}", ItemHistoric.class).value()).isEqualTo(Money.ofCents(1_000));
+        assertThat(mapper.readValue("{\"value\":\"10.5\"}", ItemHistoric.class).value()).isEqualTo(Money.ofCents(1_050));
+        assertThat(mapper.readValue("{\"value\":null}", ItemHistoric.class).value()).isNull();
+    }
+
+    @Test
+    void json_rejectsNonNumbers() {
+        assertThatThrownBy(() -> mapper.readValue("{\"value\":\"ten\"}", ItemHistoric.class))
+                .isInstanceOf(InvalidFormatException.class);
+    }
+
+    @Test
+    void converter_roundTripsThroughTheColumnType() {
+        MoneyConverter converter = new MoneyConverter();
+
+        assertThat(converter.convertToDatabaseColumn(Money.parse("12.3"))).isEqualTo(new BigDecimal("12.30"));
+        assertThat(converter.convertToEntityAttribute(new BigDecimal("12.30"))).isEqualTo(Money.ofCents(1_230));
+        assertThat(converter.convertToDatabaseColumn(null)).isNull();
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.desafio_back.reactive;
+
+import com.example.desafio_back.security.AuthenticatedUser;
+import com.example.desafio_back.security.JwtUtil;
+import com.example.desafio_back.security.TokenDenylist;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.ReactiveSecurityContextHolder;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.web.server.WebFilterChain;
+import reactor.test.StepVerifier;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class JwtWebFilterTest {
+
+    static final String SECRET = "0123456789abcdef0123456789abcdef0123456789abcdef";
+
+    JwtUtil jwt = new JwtUtil(SECRET, 60_000, 100);
+    TokenDenylist denylist = mock(TokenDenylist.class);
+    AtomicReference<Authentication> seen = new AtomicReference<>();
+
+    // records what the downstream chain sees in the Reactor context
+    WebFilterChain chain = exchange -> ReactiveSecurityContextHolder.getContext()
+            .map(SecurityContext::getAuthentication)
+            .doOnNext(seen::set)
+            .then();
+
+    JwtWebFilter filter = new JwtWebFilter(jwt, denylist);
+
+    @Test
+    void validToken_authenticatesWithPrincipalFromClaims() {
+        StepVerifier.create(filter.filter(exchange("Bearer " + jwt.generate("jdoe", 42L)), chain)).verifyComplete();
+
+        assertThat(seen.get().getPrincipal()).isEqualTo(new AuthenticatedUser(42L, "jdoe"));
+    }
+
+    @Test
+    void revokedToken_isNotAuthenticated() {
+        String token = jwt.generate("jdoe", 42L);
+        when(denylist.isRevoked(jwt.getClaims(token).getId())).thenReturn(true);
+
+        StepVerifier.create(filter.filter(exchange("Bearer " + token), chain)).verifyComplete();
+
+        assertThat(seen.get()).isNull();
+    }
+
+    @Test
+    void invalidOrMissingToken_isNotAuthenticated() {
+        StepVerifier.create(filter.filter(exchange("Bearer not-a-jwt"), chain)).verifyComplete();
+        StepVerifier.create(filter.filter(exchange(null), chain)).verifyComplete();
+
+        assertThat(seen.get()).isNull();
+    }
+
+    static MockServerWebExchange exchange(String authorization) {
+        var request = MockServerHttpRequest.get("/api/balance");
+        if (authorization != null) {
+            request.header(HttpHeaders.AUTHORIZATION, authorization);
+        }
+        return MockServerWebExchange.from(request);
+    }
+}
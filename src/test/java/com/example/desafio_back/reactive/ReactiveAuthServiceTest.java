@@ -0,0 +1,80 @@
+package com.example.desafio_back.reactive;
+
+import com.example.desafio_back.dtos.RegisterRequest;
+import com.example.desafio_back.exception.ConflictException;
+import com.example.desafio_back.exception.TooManyRequestsException;
+import com.example.desafio_back.security.JwtUtil;
+import com.example.desafio_back.security.PasswordHasher;
+import com.example.desafio_back.security.TokenDenylist;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.util.concurrent.CompletableFuture;
+
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class ReactiveAuthServiceTest {
+
+    R2dbcBankStore store;
+    PasswordHasher hasher;
+
+    ReactiveAuthService service;
+
+    @BeforeEach
+    void setUp() {
+        store = mock(R2dbcBankStore.class);
+        hasher = mock(PasswordHasher.class);
+        service = new ReactiveAuthService(store, hasher, mock(JwtUtil.class), mock(TokenDenylist.class));
+    }
+
+    @Test
+    void register_insertsUserAndAccountInOneStatement_andStripsCpfMask() {
+        when(store.userExists("12345678901", "jdoe")).thenReturn(Mono.just(false));
+        when(hasher.encodeAsync("secret")).thenReturn(CompletableFuture.completedFuture("ENC(secret)"));
+        when(store.insertUserWithAccount("John Doe", "12345678901", "jdoe", "ENC(secret)")).thenReturn(Mono.just(42L));
+
+        StepVerifier.create(service.register(new RegisterRequest("John Doe", "123.456.789-01", "jdoe", "secret")))
+                .verifyComplete();
+
+        verify(store).insertUserWithAccount("John Doe", "12345678901", "jdoe", "ENC(secret)");
+    }
+
+    @Test
+    void register_rejectsKnownDuplicate_withConflict_beforeHashing() {
+        when(store.userExists("12345678901", "jdoe")).thenReturn(Mono.just(true));
+
+        StepVerifier.create(service.register(new RegisterRequest("John Doe", "12345678901", "jdoe", "secret")))
+                .expectError(ConflictException.class)
+                .verify();
+
+        verifyNoInteractions(hasher);
+        verify(store, never()).insertUserWithAccount(any(), any(), any(), any());
+    }
+
+    @Test
+    void register_mapsConcurrentDuplicate_toConflict() {
+        // another registration took the CPF/login between the lookup and the insert
+        when(store.userExists("12345678901", "jdoe")).thenReturn(Mono.just(false));
+        when(hasher.encodeAsync("secret")).thenReturn(CompletableFuture.completedFuture("ENC(secret)"));
+        when(store.insertUserWithAccount(any(), any(), any(), any())).thenReturn(Mono.empty());
+
+        StepVerifier.create(service.register(new RegisterRequest("John Doe", "12345678901", "jdoe", "secret")))
+                .expectErrorMessage("CPF/Login already exists")
+                .verify();
+    }
+
+    @Test
+    void register_isShed_whenTheHashingPoolIsFull() {
+        when(store.userExists("12345678901", "jdoe")).thenReturn(Mono.just(false));
+        when(hasher.encodeAsync("secret")).thenThrow(new TooManyRequestsException("Too many login attempts, try again shortly"));
+
+        StepVerifier.create(service.register(new RegisterRequest("John Doe", "12345678901", "jdoe", "secret")))
+                .expectError(TooManyRequestsException.class)
+                .verify();
+
+        verify(store, never()).insertUserWithAccount(any(), any(), any(), any());
+    }
+}
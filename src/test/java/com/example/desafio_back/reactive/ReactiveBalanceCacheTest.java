@@ -0,0 +1,102 @@
+package com.example.desafio_back.reactive;
+
+import com.example.desafio_back.cache.BalanceCache;
+import com.example.desafio_back.cache.BalanceCodec;
+import com.example.desafio_back.cache.LocalBalanceCache;
+import com.example.desafio_back.cache.RedisCircuitBreaker;
+import com.example.desafio_back.dtos.ItemHistoric;
+import com.example.desafio_back.model.Money;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.fppt.jedismock.RedisServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import reactor.test.StepVerifier;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ReactiveBalanceCacheTest {
+
+    static RedisServer server;
+    static LettuceConnectionFactory connectionFactory;
+    static StringRedisTemplate redis;
+
+    ReactiveBalanceCache cache;
+    BalanceCache servletCache;
+
+    @BeforeAll
+    static void connect() throws IOException {
+        server = RedisServer.newRedisServer().start();
+        connectionFactory = new LettuceConnectionFactory(
+                new RedisStandaloneConfiguration(server.getHost(), server.getBindPort()));
+        connectionFactory.afterPropertiesSet();
+        redis = new StringRedisTemplate(connectionFactory);
+    }
+
+    @AfterAll
+    static void disconnect() throws IOException {
+        connectionFactory.destroy();
+        server.stop();
+    }
+
+    @BeforeEach
+    void setUp() {
+        redis.getConnectionFactory().getConnection().serverCommands().flushAll();
+        BalanceCodec codec = new BalanceCodec(new ObjectMapper(), "binary");
+        cache = new ReactiveBalanceCache(new ReactiveStringRedisTemplate(connectionFactory), codec, Duration.ofHours(1));
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        servletCache = new BalanceCache(redis, codec,
+                new LocalBalanceCache(redis, registry, 1_000, Duration.ofMinutes(1)),
+                new RedisCircuitBreaker(redis, registry, Duration.ofSeconds(1), 50, 50, Duration.ofSeconds(1)),
+                registry, Duration.ofHours(1), 100);
+    }
+
+    @Test
+    void get_isEmpty_onMiss() {
+        StepVerifier.create(cache.get(1L)).verifyComplete();
+    }
+
+    @Test
+    void replace_roundTrips() {
+        StepVerifier.create(cache.replace(1L, 2, Money.parse("7.00"),
+                        List.of(item("payment", "3.00"), item("deposit", "10.00"))))
+                .expectNext(1L)
+                .verifyComplete();
+
+        StepVerifier.create(cache.get(1L))
+                .assertNext(cached -> {
+                    assertThat(cached.getTotalBalance()).isEqualTo(Money.parse("7.00"));
+                    assertThat(cached.getHistoric()).containsExactly(item("payment", "3.00"), item("deposit", "10.00"));
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    void entries_areShared_withTheServletCache() {
+        servletCache.replace(1L, 3, Money.parse("50.00"), List.of(item("deposit", "50.00")));
+
+        StepVerifier.create(cache.get(1L))
+                .assertNext(cached -> assertThat(cached.getTotalBalance()).isEqualTo(Money.parse("50.00")))
+                .verifyComplete();
+
+        StepVerifier.create(cache.replace(2L, 4, Money.parse("40.00"), List.of(item("payment", "10.00"))))
+                .expectNext(1L)
+                .verifyComplete();
+        assertThat(servletCache.get(2L)).hasValueSatisfying(cached ->
+                assertThat(cached.getHistoric()).singleElement().isEqualTo(item("payment", "10.00")));
+    }
+
+    static ItemHistoric item(String type, String value) {
+        return new ItemHistoric(type, Money.parse(value), "01-01-2025 10:00:00");
+    }
+}
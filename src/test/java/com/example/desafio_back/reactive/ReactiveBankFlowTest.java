@@ -0,0 +1,95 @@
+package com.example.desafio_back.reactive;
+
+import com.example.desafio_back.dtos.TokenResponse;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/** Register, login, deposit, pay and read the balance through the reactive profile. */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("reactive")
+@Testcontainers(disabledWithoutDocker = true)
+class ReactiveBankFlowTest {
+
+    @Container
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @Container
+    @ServiceConnection(name = "redis")
+    static GenericContainer<?> redis = new GenericContainer<>("redis:7-alpine").withExposedPorts(6379);
+
+    @DynamicPropertySource
+    static void database(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+        registry.add("spring.r2dbc.url", () -> "r2dbc:postgresql://%s:%d/%s".formatted(
+                postgres.getHost(), postgres.getFirstMappedPort(), postgres.getDatabaseName()));
+        registry.add("spring.r2dbc.username", postgres::getUsername);
+        registry.add("spring.r2dbc.password", postgres::getPassword);
+    }
+
+    @Autowired WebTestClient client;
+
+    @Test
+    void depositPayAndBalance() {
+        client.post().uri("/auth/register")
+                .bodyValue(Map.of("completeName", "Jane Doe", "cpf", "52998224725", "login", "jdoe", "password", "secret"))
+                .exchange()
+                .expectStatus().isOk();
+
+        TokenResponse token = client.post().uri("/auth/login")
+                .bodyValue(Map.of("login", "jdoe", "password", "secret"))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(TokenResponse.class)
+                .returnResult().getResponseBody();
+        assertThat(token).isNotNull();
+        String bearer = "Bearer " + token.token();
+
+        client.get().uri("/api/balance").exchange().expectStatus().isUnauthorized();
+
+        client.post().uri("/api/deposits").header(HttpHeaders.AUTHORIZATION, bearer)
+                .bodyValue(Map.of("value", "100.00"))
+                .exchange()
+                .expectStatus().isOk();
+        client.post().uri("/api/payments").header(HttpHeaders.AUTHORIZATION, bearer)
+                .bodyValue(Map.of("value", "30.00"))
+                .exchange()
+                .expectStatus().isOk();
+
+        client.get().uri("/api/balance").header(HttpHeaders.AUTHORIZATION, bearer)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.totalBalance").isEqualTo(70.0)
+                .jsonPath("$.Historic.length()").isEqualTo(2)
+                .jsonPath("$.Historic[0].type").isEqualTo("payment");
+    }
+
+    @Test
+    void registerTwice_returnsConflict() {
+        Map<String, String> body = Map.of("completeName", "John Roe", "cpf", "11144477735", "login", "jroe", "password", "secret");
+        client.post().uri("/auth/register").bodyValue(body).exchange().expectStatus().isOk();
+
+        client.post().uri("/auth/register").bodyValue(body)
+                .exchange()
+                .expectStatus().isEqualTo(409)
+                .expectBody()
+                .jsonPath("$.message").isEqualTo("CPF/Login already exists");
+    }
+}
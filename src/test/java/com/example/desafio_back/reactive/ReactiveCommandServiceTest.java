@@ -0,0 +1,107 @@
+package com.example.desafio_back.reactive;
+
+import com.example.desafio_back.dtos.ItemHistoric;
+import com.example.desafio_back.enums.Type;
+import com.example.desafio_back.model.Money;
+import com.example.desafio_back.services.CacheOutbox;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+import reactor.test.publisher.PublisherProbe;
+
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class ReactiveCommandServiceTest {
+
+    R2dbcBankStore store;
+    CacheOutbox outbox;
+
+    ReactiveCommandService service;
+
+    @BeforeEach
+    void setUp() {
+        store = mock(R2dbcBankStore.class);
+        outbox = mock(CacheOutbox.class);
+
+        when(store.inTransaction(any())).thenAnswer(inv -> inv.getArgument(0));
+        when(store.insertTransaction(anyLong(), any(), any(), any())).thenReturn(Mono.empty());
+        when(store.insertCacheEvent(anyLong(), anyLong(), any(), anyList())).thenReturn(Mono.empty());
+
+        service = new ReactiveCommandService(store, outbox);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void deposit_insertsTransaction_andStagesCacheAppend() {
+        when(store.applyDeposit(7L, Money.parse("100.00")))
+                .thenReturn(Mono.just(new R2dbcBankStore.BalanceUpdate(1L, Money.parse("100.00"), 3)));
+
+        StepVerifier.create(service.deposit(7L, Money.parse("100.00"))).verifyComplete();
+
+        verify(store).insertTransaction(eq(1L), eq(Type.DEPOSIT), eq(Money.parse("100.00")), any());
+        ArgumentCaptor<List<ItemHistoric>> items = ArgumentCaptor.forClass(List.class);
+        verify(store).insertCacheEvent(eq(7L), eq(3L), eq(Money.parse("100.00")), items.capture());
+        assertThat(items.getValue()).singleElement().satisfies(item -> {
+            assertThat(item.type()).isEqualTo("deposit");
+            assertThat(item.value()).isEqualTo(Money.parse("100.00"));
+        });
+        verify(outbox).wakeUp();
+    }
+
+    @Test
+    void pay_usesPaymentUpdate() {
+        when(store.applyPayment(7L, Money.parse("30.00")))
+                .thenReturn(Mono.just(new R2dbcBankStore.BalanceUpdate(1L, Money.parse("-30.00"), 2)));
+
+        StepVerifier.create(service.pay(7L, Money.parse("30.00"))).verifyComplete();
+
+        verify(store).insertTransaction(eq(1L), eq(Type.PAYMENT), eq(Money.parse("30.00")), any());
+        verify(store).insertCacheEvent(eq(7L), eq(2L), eq(Money.parse("-30.00")), anyList());
+    }
+
+    @Test
+    void invalidAmount_failsWithoutTouchingTheDatabase() {
+        StepVerifier.create(service.deposit(7L, Money.ZERO))
+                .expectErrorMessage("Invalid amount")
+                .verify();
+
+        verifyNoInteractions(outbox);
+        verify(store, never()).applyDeposit(any(), any());
+    }
+
+    @Test
+    void missingAccount_failsWithNoSuchElement() {
+        when(store.applyPayment(eq(7L), any())).thenReturn(Mono.empty());
+
+        StepVerifier.create(service.pay(7L, Money.ofCents(1_000)))
+                .expectError(NoSuchElementException.class)
+                .verify();
+
+        verify(store, never()).insertCacheEvent(any(), anyLong(), any(), any());
+        verifyNoInteractions(outbox);
+    }
+
+    @Test
+    void failedInsert_stagesNoCacheAppend() {
+        when(store.applyDeposit(7L, Money.parse("10.00")))
+                .thenReturn(Mono.just(new R2dbcBankStore.BalanceUpdate(1L, Money.parse("10.00"), 1)));
+        when(store.insertTransaction(anyLong(), any(), any(), any()))
+                .thenReturn(Mono.error(new IllegalStateException("boom")));
+        PublisherProbe<Void> cacheEvent = PublisherProbe.empty();
+        when(store.insertCacheEvent(anyLong(), anyLong(), any(), anyList())).thenReturn(cacheEvent.mono());
+
+        StepVerifier.create(service.deposit(7L, Money.parse("10.00")))
+                .expectErrorMessage("boom")
+                .verify();
+
+        cacheEvent.assertWasNotSubscribed();
+        verifyNoInteractions(outbox);
+    }
+}
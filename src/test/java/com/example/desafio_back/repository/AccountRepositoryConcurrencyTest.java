@@ -0,0 +1,173 @@
+package com.example.desafio_back.repository;
+
+import com.example.desafio_back.model.Account;
+import com.example.desafio_back.model.Money;
+import com.example.desafio_back.model.User;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// correctness only; throughput of both flows is compared in benchmarks/ (BalanceUpdateBenchmark)
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Testcontainers(disabledWithoutDocker = true)
+class AccountRepositoryConcurrencyTest {
+
+    @Container
+    @ServiceConnection
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    static final int THREADS = 16;
+    static final int OPS_PER_THREAD = 200;
+    static final BigDecimal ONE = new BigDecimal("1.00");
+    static final BigDecimal INTEREST = new BigDecimal("0.102");
+
+    @Autowired AccountRepository accountRepository;
+    @Autowired UserRepository userRepository;
+    @Autowired PlatformTransactionManager txManager;
+
+    TransactionTemplate tx;
+
+    @BeforeEach
+    void setUp() {
+        tx = new TransactionTemplate(txManager);
+    }
+
+    @Test
+    void applyDeposit_chargesInterest_whenBalanceIsNegative() {
+        Long userId = newAccount("-100.00");
+
+        var updated = tx.execute(s -> accountRepository.applyDeposit(userId, new BigDecimal("200.00"), INTEREST));
+
+        assertThat(updated).isPresent();
+        assertThat(updated.get().getCurrentBalance()).isEqualByComparingTo("89.80");
+    }
+
+    @Test
+    void applyPayment_mayLeaveBalanceNegative() {
+        Long userId = newAccount("10.00");
+
+        var updated = tx.execute(s -> accountRepository.applyPayment(userId, new BigDecimal("25.00")));
+
+        assertThat(updated).isPresent();
+        assertThat(updated.get().getCurrentBalance()).isEqualByComparingTo("-15.00");
+    }
+
+    @Test
+    void applyDeposit_returnsEmpty_whenAccountDoesNotExist() {
+        var updated = tx.execute(s -> accountRepository.applyDeposit(-1L, ONE, INTEREST));
+
+        assertThat(updated).isEmpty();
+    }
+
+    @Test
+    void atomicUpdate_losesNoUpdates() throws Exception {
+        Long userId = newAccount("0.00");
+
+        hammer(() -> atomicDeposit(userId, ONE));
+
+        BigDecimal expected = ONE.multiply(BigDecimal.valueOf((long) THREADS * OPS_PER_THREAD));
+        assertThat(balanceOf(userId)).isEqualTo(Money.of(expected));
+    }
+
+    @Test
+    void loadModifySave_losesAnUpdate_whenReadsInterleave() throws Exception {
+        Long userId = newAccount("0.00");
+        // both transactions read the balance before either writes it back
+        CountDownLatch bothRead = new CountDownLatch(2);
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < 2; i++) {
+                futures.add(pool.submit(() -> legacyDeposit(userId, ONE, bothRead)));
+            }
+            for (Future<?> f : futures) {
+                f.get(10, TimeUnit.SECONDS);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertThat(balanceOf(userId)).isEqualTo(Money.parse("1.00"));
+    }
+
+    // the pre-existing CommandService flow: SELECT, modify in Java, UPDATE
+    private void legacyDeposit(Long userId, BigDecimal amount, CountDownLatch bothRead) {
+        tx.executeWithoutResult(s -> {
+            Account acc = accountRepository.findByUserId(userId).orElseThrow();
+            bothRead.countDown();
+            try {
+                bothRead.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            acc.setCurrentBalance(acc.getCurrentBalance().plus(Money.of(amount)));
+            accountRepository.save(acc);
+        });
+    }
+
+    private void atomicDeposit(Long userId, BigDecimal amount) {
+        tx.executeWithoutResult(s -> accountRepository.applyDeposit(userId, amount, INTEREST).orElseThrow());
+    }
+
+    private void hammer(Runnable op) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                futures.add(pool.submit(() -> {
+                    start.await();
+                    for (int n = 0; n < OPS_PER_THREAD; n++) {
+                        op.run();
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> f : futures) {
+                f.get();
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private Long newAccount(String balance) {
+        String login = "user" + System.nanoTime();
+        User user = userRepository.save(User.builder()
+                .completeName("Concurrency Test")
+                .cpf(login.substring(login.length() - 11))
+                .login(login)
+                .passwordHash("x")
+                .build());
+        accountRepository.save(Account.builder().user(user).currentBalance(Money.parse(balance)).build());
+        return user.getId();
+    }
+
+    private Money balanceOf(Long userId) {
+        return accountRepository.findByUserId(userId).orElseThrow().getCurrentBalance();
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.desafio_back.security;
+
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class JwtFilterTest {
+
+    static final String SECRET = "0123456789abcdef0123456789abcdef0123456789abcdef";
+
+    JwtUtil jwt = new JwtUtil(SECRET, 60_000, 100);
+    TokenDenylist denylist = mock(TokenDenylist.class);
+    FilterChain chain = mock(FilterChain.class);
+
+    JwtFilter filter = new JwtFilter(jwt, denylist, new SimpleMeterRegistry());
+
+    @BeforeEach
+    @AfterEach
+    void clearContext() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void validToken_authenticatesWithPrincipalFromClaims() throws Exception {
+        filter.doFilter(request(jwt.generate("jdoe", 42L)), new MockHttpServletResponse(), chain);
+
+        var principal = SecurityContextHolder.getContext().getAuthentication().getPrincipal();
+        assertThat(principal).isEqualTo(new AuthenticatedUser(42L, "jdoe"));
+        verify(chain).doFilter(any(), any());
+    }
+
+    @Test
+    void revokedToken_isNotAuthenticated() throws Exception {
+        String token = jwt.generate("jdoe", 42L);
+        when(denylist.isRevoked(jwt.getClaims(token).getId())).thenReturn(true);
+
+        filter.doFilter(request(token), new MockHttpServletResponse(), chain);
+
+        assertThat(SecurityContextHolder.getContext().getAuthentication()).isNull();
+        verify(chain).doFilter(any(), any());
+    }
+
+    @Test
+    void tokenWithoutUserIdClaim_isNotAuthenticated() throws Exception {
+        String legacy = Jwts.builder()
+                .setSubject("jdoe")
+                .setExpiration(new Date(System.currentTimeMillis() + 60_000))
+                .signWith(Keys.hmacShaKeyFor(SECRET.getBytes(StandardCharsets.UTF_8)), SignatureAlgorithm.HS256)
+                .compact();
+
+        filter.doFilter(request(legacy), new MockHttpServletResponse(), chain);
+
+        assertThat(SecurityContextHolder.getContext().getAuthentication()).isNull();
+    }
+
+    private static MockHttpServletRequest request(String token) {
+        MockHttpServletRequest req = new MockHttpServletRequest("GET", "/api/balance");
+        req.addHeader("Authorization", "Bearer " + token);
+        return req;
+    }
+}
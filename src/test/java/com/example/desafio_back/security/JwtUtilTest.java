@@ -0,0 +1,57 @@
+package com.example.desafio_back.security;
+
+import io.jsonwebtoken.Claims;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class JwtUtilTest {
+
+    static final String SECRET = "0123456789abcdef0123456789abcdef0123456789abcdef";
+
+    JwtUtil jwt = new JwtUtil(SECRET, 60_000, 100);
+
+    @Test
+    void verify_returnsClaims_andReusesThemForTheSameToken() {
+        String token = jwt.generate("jdoe", 42L);
+
+        Claims first = jwt.verify(token).orElseThrow();
+        Claims second = jwt.verify(token).orElseThrow();
+
+        assertThat(first.getSubject()).isEqualTo("jdoe");
+        assertThat(first.get(JwtUtil.USER_ID_CLAIM, Long.class)).isEqualTo(42L);
+        assertThat(first.getId()).isNotBlank();
+        assertThat(second).isSameAs(first);
+    }
+
+    @Test
+    void verify_rejectsTamperedToken() {
+        String token = jwt.generate("jdoe", 42L);
+        String tampered = token.substring(0, token.length() - 2) + (token.endsWith("A") ? "BB" : "AA");
+
+        assertThat(jwt.verify(tampered)).isEmpty();
+        assertThat(jwt.isValid(tampered)).isFalse();
+    }
+
+    @Test
+    void verify_rejectsTokenSignedWithAnotherKey() {
+        String foreign = new JwtUtil("another-secret-another-secret-another-secret!!", 60_000, 100)
+                .generate("jdoe", 42L);
+
+        assertThat(jwt.verify(foreign)).isEmpty();
+    }
+
+    @Test
+    void verify_rejectsExpiredToken() {
+        JwtUtil shortLived = new JwtUtil(SECRET, -120_000, 100);
+        String token = shortLived.generate("jdoe", 42L);
+
+        assertThat(shortLived.verify(token)).isEmpty();
+    }
+
+    @Test
+    void verify_rejectsGarbage() {
+        assertThat(jwt.verify("not.a.jwt")).isEmpty();
+        assertThat(jwt.verify("")).isEmpty();
+    }
+}
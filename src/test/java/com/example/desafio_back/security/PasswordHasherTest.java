@@ -0,0 +1,146 @@
+package com.example.desafio_back.security;
+
+import com.example.desafio_back.exception.TooManyRequestsException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PasswordHasherTest {
+
+    SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    PasswordHasher hasher;
+
+    @AfterEach
+    void tearDown() {
+        hasher.stop();
+    }
+
+    @Test
+    void encodesAndMatches_onTheHashingPool() {
+        hasher = new PasswordHasher(new BCryptPasswordEncoder(4), registry, 4, 2, 8, Duration.ofSeconds(5));
+
+        String hash = hasher.encode("secret");
+
+        assertThat(hash).startsWith("$2a$04$");
+        assertThat(hasher.matches("secret", hash)).isTrue();
+        assertThat(hasher.matches("wrong", hash)).isFalse();
+        assertThat(registry.get("auth.hashing.wait").timer().count()).isEqualTo(3);
+    }
+
+    @Test
+    void needsRehash_whenTheCostDiffers_eitherWay() {
+        hasher = new PasswordHasher(new BCryptPasswordEncoder(5), registry, 5, 1, 8, Duration.ofSeconds(5));
+
+        assertThat(hasher.needsRehash(new BCryptPasswordEncoder(4).encode("x"))).isTrue();
+        assertThat(hasher.needsRehash(new BCryptPasswordEncoder(6).encode("x"))).isTrue();
+        assertThat(hasher.needsRehash(new BCryptPasswordEncoder(5).encode("x"))).isFalse();
+        assertThat(hasher.needsRehash("not-bcrypt")).isFalse();
+    }
+
+    @Test
+    void rehash_storesAHashWithTheConfiguredCost() throws Exception {
+        hasher = new PasswordHasher(new BCryptPasswordEncoder(5), registry, 5, 1, 8, Duration.ofSeconds(5));
+        CompletableFuture<String> stored = new CompletableFuture<>();
+
+        hasher.rehash("secret", stored::complete);
+
+        String hash = stored.get(5, TimeUnit.SECONDS);
+        assertThat(hash).startsWith("$2a$05$");
+        assertThat(hasher.matches("secret", hash)).isTrue();
+    }
+
+    @Test
+    void fullQueue_failsFastWith429_andSkipsRehashes() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+        hasher = new PasswordHasher(blockingEncoder(started, release), registry, 10, 1, 2, Duration.ofSeconds(5));
+
+        // one running, two queued
+        CompletableFuture<?> running = CompletableFuture.runAsync(() -> hasher.encode("a"));
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+        CompletableFuture<?> queued1 = CompletableFuture.runAsync(() -> hasher.encode("b"));
+        CompletableFuture<?> queued2 = CompletableFuture.runAsync(() -> hasher.encode("c"));
+        awaitQueued(2);
+
+        assertThatThrownBy(() -> hasher.encode("d")).isInstanceOf(TooManyRequestsException.class);
+        hasher.rehash("e", hash -> { throw new AssertionError("should have been skipped"); });
+        assertThat(registry.get("auth.hashing.rejected").counter().count()).isEqualTo(1);
+
+        release.countDown();
+        CompletableFuture.allOf(running, queued1, queued2).get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void slowHashing_timesOutWith503() {
+        CountDownLatch release = new CountDownLatch(1);
+        hasher = new PasswordHasher(blockingEncoder(new CountDownLatch(1), release), registry, 10, 1, 2, Duration.ofMillis(50));
+
+        assertThatThrownBy(() -> hasher.encode("a"))
+                .isInstanceOf(RejectedExecutionException.class)
+                .hasMessageContaining("timed out");
+        release.countDown();
+    }
+
+    @Test
+    void async_sharesThePoolLimits() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+        hasher = new PasswordHasher(blockingEncoder(started, release), registry, 10, 1, 1, Duration.ofMillis(100));
+
+        hasher.encodeAsync("a");
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+        CompletableFuture<String> queued = hasher.encodeAsync("b");
+
+        assertThatThrownBy(() -> hasher.encodeAsync("c")).isInstanceOf(TooManyRequestsException.class);
+        assertThatThrownBy(() -> queued.get(5, TimeUnit.SECONDS))
+                .hasCauseInstanceOf(RejectedExecutionException.class)
+                .hasMessageContaining("timed out");
+
+        release.countDown();
+        // the timed-out task is dropped, not run
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (registry.get("auth.hashing.queued").gauge().value() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertThat(hasher.matchesAsync("d", "hash:d").get(5, TimeUnit.SECONDS)).isTrue();
+    }
+
+    private void awaitQueued(int n) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (registry.get("auth.hashing.queued").gauge().value() < n && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertThat(registry.get("auth.hashing.queued").gauge().value()).isEqualTo(n);
+    }
+
+    private static PasswordEncoder blockingEncoder(CountDownLatch started, CountDownLatch release) {
+        return new PasswordEncoder() {
+            @Override
+            public String encode(CharSequence rawPassword) {
+                started.countDown();
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return "hash:" + rawPassword;
+            }
+
+            @Override
+            public boolean matches(CharSequence rawPassword, String encodedPassword) {
+                return encodedPassword.equals(encode(rawPassword));
+            }
+        };
+    }
+}
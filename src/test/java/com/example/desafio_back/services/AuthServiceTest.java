@@ -2,18 +2,21 @@ package com.example.desafio_back.services;
 
 import com.example.desafio_back.dtos.LoginRequest;
 import com.example.desafio_back.dtos.RegisterRequest;
-import com.example.desafio_back.model.Account;
+import com.example.desafio_back.exception.ConflictException;
 import com.example.desafio_back.model.User;
-import com.example.desafio_back.repository.AccountRepository;
 import com.example.desafio_back.repository.UserRepository;
 import com.example.desafio_back.security.JwtUtil;
+import com.example.desafio_back.security.PasswordHasher;
+import com.example.desafio_back.security.TokenDenylist;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.MalformedJwtException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
-import org.mockito.ArgumentCaptor;
-import org.springframework.security.crypto.password.PasswordEncoder;
 
-import java.math.BigDecimal;
+import java.util.Date;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 import static org.assertj.core.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -21,85 +24,76 @@ import static org.mockito.Mockito.*;
 class AuthServiceTest {
 
     UserRepository userRepository;
-    AccountRepository accountRepository;
-    PasswordEncoder encoder;
+    RegistrationFilter registrationFilter;
+    PasswordHasher encoder;
     JwtUtil jwt;
+    TokenDenylist denylist;
 
     AuthService service;
 
     @BeforeEach
     void setUp() {
         userRepository = mock(UserRepository.class);
-        accountRepository = mock(AccountRepository.class);
-        encoder = mock(PasswordEncoder.class);
+        registrationFilter = mock(RegistrationFilter.class);
+        encoder = mock(PasswordHasher.class);
         jwt = mock(JwtUtil.class);
-        service = new AuthService(userRepository, accountRepository, encoder, jwt);
+        denylist = mock(TokenDenylist.class);
+        service = new AuthService(userRepository, registrationFilter, encoder, jwt, denylist);
     }
 
     @Test
-    void register_createsUserWithEncodedPassword_andZeroBalanceAccount_andStripsCpfMask() {
-
+    void register_insertsUserAndAccountInOneStatement_withEncodedPassword_andStripsCpfMask() {
         RegisterRequest req = new RegisterRequest("John Doe", "123.456.789-01", "jdoe", "secret");
-
-        when(userRepository.existsByCpf("12345678901")).thenReturn(false);
-        when(userRepository.existsByLogin("jdoe")).thenReturn(false);
+        when(registrationFilter.mightBeTaken("12345678901", "jdoe")).thenReturn(false);
         when(encoder.encode("secret")).thenReturn("ENC(secret)");
-
-        when(userRepository.save(any(User.class))).thenAnswer(inv -> {
-            User u = inv.getArgument(0);
-            u.setId(42L);
-            return u;
-        });
+        when(userRepository.insertWithAccount("John Doe", "12345678901", "jdoe", "ENC(secret)")).thenReturn(Optional.of(42L));
 
         service.register(req);
 
-        ArgumentCaptor<User> userCap = ArgumentCaptor.forClass(User.class);
-        verify(userRepository).save(userCap.capture());
-        User savedUser = userCap.getValue();
-
-        assertThat(savedUser.getCompleteName()).isEqualTo("John Doe");
-        assertThat(savedUser.getCpf()).isEqualTo("12345678901");
-        assertThat(savedUser.getLogin()).isEqualTo("jdoe");
-        assertThat(savedUser.getPasswordHash()).isEqualTo("ENC(secret)");
-
-        ArgumentCaptor<Account> accCap = ArgumentCaptor.forClass(Account.class);
-        verify(accountRepository).save(accCap.capture());
-        Account savedAcc = accCap.getValue();
-        assertThat(savedAcc.getCurrentBalance()).isEqualByComparingTo(BigDecimal.ZERO);
-        assertThat(savedAcc.getUser()).isSameAs(savedUser);
-
+        verify(userRepository).insertWithAccount("John Doe", "12345678901", "jdoe", "ENC(secret)");
+        verify(userRepository, never()).existsByCpfOrLogin(any(), any());
+        verify(registrationFilter).added("12345678901", "jdoe");
         verifyNoInteractions(jwt);
     }
 
     @Test
-    void register_rejectsExistingCpf() {
+    void register_rejectsConfirmedDuplicate_beforeHashing() {
         RegisterRequest req = new RegisterRequest("John", "12345678901", "jdoe", "x");
-
-        when(userRepository.existsByCpf("12345678901")).thenReturn(true);
+        when(registrationFilter.mightBeTaken("12345678901", "jdoe")).thenReturn(true);
+        when(userRepository.existsByCpfOrLogin("12345678901", "jdoe")).thenReturn(true);
 
         assertThatThrownBy(() -> service.register(req))
-                .isInstanceOf(IllegalArgumentException.class)
+                .isInstanceOf(ConflictException.class)
                 .hasMessageContaining("already exists");
 
-        verify(userRepository, never()).save(any());
-        verify(accountRepository, never()).save(any());
-        verifyNoInteractions(jwt);
+        verifyNoInteractions(encoder);
+        verify(userRepository, never()).insertWithAccount(any(), any(), any(), any());
     }
 
     @Test
-    void register_rejectsExistingLogin() {
+    void register_filterFalsePositive_stillRegisters() {
         RegisterRequest req = new RegisterRequest("John", "12345678901", "jdoe", "x");
+        when(registrationFilter.mightBeTaken("12345678901", "jdoe")).thenReturn(true);
+        when(userRepository.existsByCpfOrLogin("12345678901", "jdoe")).thenReturn(false);
+        when(encoder.encode("x")).thenReturn("ENC(x)");
+        when(userRepository.insertWithAccount("John", "12345678901", "jdoe", "ENC(x)")).thenReturn(Optional.of(1L));
 
-        when(userRepository.existsByCpf("12345678901")).thenReturn(false);
-        when(userRepository.existsByLogin("jdoe")).thenReturn(true);
+        service.register(req);
 
-        assertThatThrownBy(() -> service.register(req))
-                .isInstanceOf(IllegalArgumentException.class)
-                .hasMessageContaining("already exists");
+        verify(registrationFilter).added("12345678901", "jdoe");
+    }
 
-        verify(userRepository, never()).save(any());
-        verify(accountRepository, never()).save(any());
-        verifyNoInteractions(jwt);
+    @Test
+    void register_rejectsDuplicateCaughtByTheConstraint() {
+        // e.g. registered on another node, or concurrently
+        RegisterRequest req = new RegisterRequest("John", "12345678901", "jdoe", "x");
+        when(registrationFilter.mightBeTaken("12345678901", "jdoe")).thenReturn(false);
+        when(encoder.encode("x")).thenReturn("ENC(x)");
+        when(userRepository.insertWithAccount("John", "12345678901", "jdoe", "ENC(x)")).thenReturn(Optional.empty());
+
+        assertThatThrownBy(() -> service.register(req)).isInstanceOf(ConflictException.class);
+
+        verify(registrationFilter, never()).added(any(), any());
     }
 
     @Test
@@ -113,12 +107,41 @@ class AuthServiceTest {
 
         when(userRepository.findByLogin("jdoe")).thenReturn(Optional.of(dbUser));
         when(encoder.matches("secret", "ENC(secret)")).thenReturn(true);
-        when(jwt.generate("jdoe")).thenReturn("JWT123");
+        when(jwt.generate("jdoe", 7L)).thenReturn("JWT123");
 
         String token = service.login(req);
 
         assertThat(token).isEqualTo("JWT123");
-        verify(jwt).generate("jdoe");
+        verify(jwt).generate("jdoe", 7L);
+    }
+
+    @Test
+    void login_rehashesPasswordWithAnotherCost_afterItMatched() {
+        User dbUser = User.builder().id(7L).login("jdoe").passwordHash("$2a$04$old").build();
+        when(userRepository.findByLogin("jdoe")).thenReturn(Optional.of(dbUser));
+        when(encoder.matches("secret", "$2a$04$old")).thenReturn(true);
+        when(encoder.needsRehash("$2a$04$old")).thenReturn(true);
+        doAnswer(inv -> {
+            inv.<Consumer<String>>getArgument(1).accept("$2a$10$new");
+            return null;
+        }).when(encoder).rehash(eq("secret"), any());
+
+        service.login(new LoginRequest("jdoe", "secret"));
+
+        verify(userRepository).updatePasswordHash(7L, "$2a$04$old", "$2a$10$new");
+    }
+
+    @Test
+    void login_keepsHash_whenCostIsCurrent_orPasswordIsWrong() {
+        User dbUser = User.builder().id(7L).login("jdoe").passwordHash("$2a$04$old").build();
+        when(userRepository.findByLogin("jdoe")).thenReturn(Optional.of(dbUser));
+        when(encoder.matches("secret", "$2a$04$old")).thenReturn(true);
+        when(encoder.needsRehash("$2a$04$old")).thenReturn(false);
+
+        service.login(new LoginRequest("jdoe", "secret"));
+        assertThatThrownBy(() -> service.login(new LoginRequest("jdoe", "wrong"))).isInstanceOf(RuntimeException.class);
+
+        verify(encoder, never()).rehash(any(), any());
     }
 
     @Test
@@ -147,6 +170,38 @@ class AuthServiceTest {
                 .isInstanceOf(RuntimeException.class)
                 .hasMessageContaining("Invalid credentials");
 
-        verify(jwt, never()).generate(anyString());
+        verify(jwt, never()).generate(anyString(), anyLong());
+    }
+
+    @Test
+    void logout_revokesTokenUntilItExpires() {
+        Claims claims = Jwts.claims().setId("jti-1").setExpiration(new Date(4_000_000_000_000L));
+        when(jwt.getClaims("JWT123")).thenReturn(claims);
+
+        service.logout("JWT123");
+
+        verify(denylist).revoke("jti-1", 4_000_000_000_000L);
+    }
+
+    @Test
+    void logout_rejectsTokenWithoutJti() {
+        // signed before tokens carried an id
+        Claims claims = Jwts.claims().setSubject("jdoe").setExpiration(new Date(4_000_000_000_000L));
+        when(jwt.getClaims("OLD")).thenReturn(claims);
+
+        assertThatThrownBy(() -> service.logout("OLD"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Invalid token");
+
+        verifyNoInteractions(denylist);
+    }
+
+    @Test
+    void logout_rejectsInvalidToken() {
+        when(jwt.getClaims("garbage")).thenThrow(new MalformedJwtException("bad"));
+
+        assertThatThrownBy(() -> service.logout("garbage")).isInstanceOf(IllegalArgumentException.class);
+
+        verifyNoInteractions(denylist);
     }
 }
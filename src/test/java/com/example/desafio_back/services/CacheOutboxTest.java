@@ -0,0 +1,144 @@
+package com.example.desafio_back.services;
+
+import com.example.desafio_back.cache.BalanceCache;
+import com.example.desafio_back.dtos.BalanceAppend;
+import com.example.desafio_back.dtos.ItemHistoric;
+import com.example.desafio_back.model.Money;
+import com.example.desafio_back.repository.CacheOutboxRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Testcontainers(disabledWithoutDocker = true)
+class CacheOutboxTest {
+
+    @Container
+    @ServiceConnection
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @Autowired CacheOutboxRepository repository;
+    @Autowired PlatformTransactionManager txManager;
+    @Autowired DataSource dataSource;
+
+    BalanceCache balanceCache;
+    List<BalanceAppend> published;
+    TransactionTemplate tx;
+    CacheOutbox outbox;
+
+    @BeforeEach
+    void setUp() {
+        repository.deleteAllInBatch();
+        balanceCache = mock(BalanceCache.class);
+        published = new CopyOnWriteArrayList<>();
+        when(balanceCache.appendAll(any())).thenAnswer(inv -> {
+            List<BalanceAppend> appends = inv.getArgument(0);
+            published.addAll(appends);
+            return appends.size();
+        });
+        tx = new TransactionTemplate(txManager);
+        outbox = new CacheOutbox(repository, balanceCache, new ObjectMapper(), txManager,
+                new SimpleMeterRegistry(), 500, Duration.ofMillis(50));
+    }
+
+    @Test
+    void append_isRolledBackWithTheCommand() {
+        tx.executeWithoutResult(status -> {
+            outbox.append(1L, 2, Money.parse("10.00"), List.of(item("deposit", "10.00")));
+            status.setRollbackOnly();
+        });
+
+        assertThat(repository.count()).isZero();
+        assertThat(outbox.relayOnce()).isZero();
+        verifyNoInteractions(balanceCache);
+    }
+
+    @Test
+    void relayOnce_publishesEachAccountInVersionOrder_andDeletesTheBatch() {
+        // ids do not follow versions: pooled sequences hand out blocks per node
+        tx.executeWithoutResult(status -> {
+            outbox.append(2L, 8, Money.parse("8.00"), List.of(item("deposit", "1.00")));
+            outbox.append(1L, 5, Money.parse("5.00"), List.of(item("payment", "2.00"), item("deposit", "7.00")));
+            outbox.append(2L, 7, Money.parse("7.00"), List.of(item("payment", "3.00")));
+        });
+
+        assertThat(outbox.relayOnce()).isEqualTo(3);
+
+        assertThat(published).extracting(BalanceAppend::userId, BalanceAppend::version)
+                .containsExactly(tuple(1L, 5L), tuple(2L, 7L), tuple(2L, 8L));
+        assertThat(published.get(0).items()).containsExactly(item("payment", "2.00"), item("deposit", "7.00"));
+        assertThat(published.get(0).balance()).isEqualTo(Money.parse("5.00"));
+        assertThat(repository.count()).isZero();
+        assertThat(outbox.relayOnce()).isZero();
+    }
+
+    @Test
+    void relayOnce_keepsTheBatch_whenPublishingFails() {
+        tx.executeWithoutResult(status -> outbox.append(1L, 2, Money.parse("10.00"), List.of(item("deposit", "10.00"))));
+        doThrow(new IllegalStateException("redis down")).when(balanceCache).appendAll(any());
+
+        try {
+            outbox.relayOnce();
+        } catch (IllegalStateException expected) {
+            // retried on the next poll
+        }
+
+        assertThat(repository.count()).isEqualTo(1);
+    }
+
+    @Test
+    void relayOnce_yields_whileAnotherRelayHoldsTheLock() throws InterruptedException {
+        tx.executeWithoutResult(status -> outbox.append(1L, 2, Money.parse("10.00"), List.of(item("deposit", "10.00"))));
+        CountDownLatch locked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Thread other = new Thread(() -> tx.executeWithoutResult(status -> {
+            new JdbcTemplate(dataSource).queryForObject("SELECT pg_advisory_xact_lock(?)::text", String.class,
+                    CacheOutbox.RELAY_LOCK);
+            locked.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }));
+        other.start();
+        assertThat(locked.await(5, TimeUnit.SECONDS)).isTrue();
+
+        assertThat(outbox.relayOnce()).isZero();
+
+        release.countDown();
+        other.join();
+        assertThat(outbox.relayOnce()).isEqualTo(1);
+    }
+
+    private static ItemHistoric item(String type, String value) {
+        return new ItemHistoric(type, Money.parse(value), "01-01-2025 10:00:00");
+    }
+}
@@ -0,0 +1,124 @@
+package com.example.desafio_back.services;
+
+import com.example.desafio_back.cache.BalanceCache;
+import com.example.desafio_back.dtos.CacheBalance;
+import com.example.desafio_back.dtos.ItemHistoric;
+import com.example.desafio_back.dtos.WarmupStatus;
+import com.example.desafio_back.enums.Type;
+import com.example.desafio_back.model.Account;
+import com.example.desafio_back.model.Money;
+import com.example.desafio_back.model.Transaction;
+import com.example.desafio_back.model.User;
+import com.example.desafio_back.repository.AccountRepository;
+import com.example.desafio_back.repository.TransactionRepository;
+import com.example.desafio_back.repository.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import javax.sql.DataSource;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Testcontainers(disabledWithoutDocker = true)
+class CacheWarmupServiceTest {
+
+    @Container
+    @ServiceConnection
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @Autowired DataSource dataSource;
+    @Autowired PlatformTransactionManager txManager;
+    @Autowired AccountRepository accountRepository;
+    @Autowired UserRepository userRepository;
+    @Autowired TransactionRepository transactionRepository;
+
+    BalanceCache balanceCache;
+    Map<Long, CacheBalance> written;
+    CacheWarmupService service;
+
+    @BeforeEach
+    void setUp() {
+        balanceCache = mock(BalanceCache.class);
+        written = new ConcurrentHashMap<>();
+        when(balanceCache.replaceAll(any())).thenAnswer(inv -> {
+            Map<Long, CacheBalance> batch = inv.getArgument(0);
+            written.putAll(batch);
+            return batch.size();
+        });
+        // batches of two so the accounts spread over several workers
+        service = new CacheWarmupService(dataSource, txManager, balanceCache, new SimpleMeterRegistry(), 2, 2, false);
+    }
+
+    @Test
+    void warmUp_writesEveryAccount_withItsLatestTransactionsNewestFirst() {
+        Account busy = newAccount(Money.parse("300.00"), 7L);
+        for (int i = 0; i < BalanceCache.MAX_HISTORIC + 5; i++) {
+            transactionRepository.save(Transaction.builder()
+                    .account(busy)
+                    .type(i % 2 == 0 ? Type.DEPOSIT : Type.PAYMENT)
+                    .value(Money.ofCents(100 + i))
+                    .dateTime(LocalDateTime.of(2025, 1, 1, 0, 0).plusMinutes(i))
+                    .build());
+        }
+        Account idle = newAccount(Money.ZERO, 0L);
+        Account other = newAccount(Money.parse("5.00"), 1L);
+
+        WarmupStatus status = service.warmUp();
+
+        assertThat(status.state()).isEqualTo(WarmupStatus.State.DONE);
+        assertThat(status.accounts()).isGreaterThanOrEqualTo(3);
+        assertThat(status.written()).isEqualTo(status.accounts());
+
+        CacheBalance entry = written.get(busy.getUser().getId());
+        assertThat(entry.getVersion()).isEqualTo(7L);
+        assertThat(entry.getTotalBalance()).isEqualTo(Money.parse("300.00"));
+        assertThat(entry.getHistoric()).hasSize(BalanceCache.MAX_HISTORIC);
+        assertThat(entry.getHistoric().get(0)).extracting(ItemHistoric::value)
+                .isEqualTo(Money.ofCents(100 + BalanceCache.MAX_HISTORIC + 4));
+
+        assertThat(written.get(idle.getUser().getId()).getHistoric()).isEmpty();
+        assertThat(written.get(other.getUser().getId()).getTotalBalance()).isEqualTo(Money.parse("5.00"));
+    }
+
+    @Test
+    void warmUp_reportsFailure_whenRedisWritesFail() {
+        newAccount(Money.ZERO, 0L);
+        when(balanceCache.replaceAll(any())).thenThrow(new IllegalStateException("redis down"));
+
+        WarmupStatus status = service.warmUp();
+
+        assertThat(status.state()).isEqualTo(WarmupStatus.State.FAILED);
+        assertThat(status.error()).contains("redis down");
+        assertThat(service.status().state()).isEqualTo(WarmupStatus.State.FAILED);
+    }
+
+    private Account newAccount(Money balance, long version) {
+        String login = "user" + System.nanoTime();
+        User user = userRepository.save(User.builder()
+                .completeName("Warmup Test")
+                .cpf(login.substring(login.length() - 11))
+                .login(login)
+                .passwordHash("x")
+                .build());
+        return accountRepository.save(Account.builder().user(user).currentBalance(balance).version(version).build());
+    }
+}
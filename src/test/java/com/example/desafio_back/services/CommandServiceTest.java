@@ -1,20 +1,26 @@
 package com.example.desafio_back.services;
 
-import com.example.desafio_back.dtos.CacheBalance;
+import com.example.desafio_back.dtos.BatchItemResult;
+import com.example.desafio_back.dtos.BatchOperation;
+import com.example.desafio_back.dtos.BatchResponse;
 import com.example.desafio_back.dtos.ItemHistoric;
 import com.example.desafio_back.enums.Type;
 import com.example.desafio_back.model.Account;
+import com.example.desafio_back.model.Money;
 import com.example.desafio_back.model.Transaction;
 import com.example.desafio_back.repository.AccountRepository;
 import com.example.desafio_back.repository.TransactionRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
-import org.springframework.data.redis.core.RedisTemplate;
-import org.springframework.data.redis.core.ValueOperations;
 
 import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.SortedMap;
+import java.util.TreeMap;
 
 import static org.assertj.core.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
@@ -24,12 +30,7 @@ class CommandServiceTest {
 
     AccountRepository accountRepository;
     TransactionRepository transactionRepository;
-
-    @SuppressWarnings("unchecked")
-    RedisTemplate<String, CacheBalance> redis;
-
-    @SuppressWarnings("unchecked")
-    ValueOperations<String, CacheBalance> valueOps;
+    CacheOutbox cacheOutbox;
 
     CommandService service;
 
@@ -37,109 +38,205 @@ class CommandServiceTest {
     void setUp() {
         accountRepository = mock(AccountRepository.class);
         transactionRepository = mock(TransactionRepository.class);
+        cacheOutbox = mock(CacheOutbox.class);
 
-        redis = mock(RedisTemplate.class);
-        valueOps = mock(ValueOperations.class);
-        when(redis.opsForValue()).thenReturn(valueOps);
-
-         when(transactionRepository.save(any(Transaction.class)))
+        when(transactionRepository.save(any(Transaction.class)))
                 .thenAnswer(inv -> inv.getArgument(0));
 
-        service = new CommandService(accountRepository, transactionRepository, redis);
+        service = new CommandService(accountRepository, transactionRepository, cacheOutbox, new SimpleMeterRegistry());
     }
 
     @Test
-    void deposit_appliesInterest_whenBalanceIsNegative_andWritesThroughCache() {
-         Account acc = Account.builder().id(1L).currentBalance(new BigDecimal("-100.00")).build();
-        when(accountRepository.findByUserId(99L)).thenReturn(Optional.of(acc));
-        when(valueOps.get("balance:99")).thenReturn(null);
-        service.deposit(99L, new BigDecimal("200.00"));
+    void deposit_appliesInterest_whenBalanceIsNegative_andRecordsCacheAppend() {
+        Account acc = Account.builder().id(1L).build();
+        when(accountRepository.applyDeposit(99L, new BigDecimal("200.00"), new BigDecimal("0.102")))
+                .thenReturn(Optional.of(balanceUpdate(1L, "89.80", 4L)));
+        when(accountRepository.getReferenceById(1L)).thenReturn(acc);
+
+        service.deposit(99L, Money.parse("200.00"));
 
-        assertThat(acc.getCurrentBalance()).isEqualByComparingTo("89.80");
         ArgumentCaptor<Transaction> txCap = ArgumentCaptor.forClass(Transaction.class);
         verify(transactionRepository).save(txCap.capture());
         Transaction saved = txCap.getValue();
         assertThat(saved.getType()).isEqualTo(Type.DEPOSIT);
-        assertThat(saved.getValue()).isEqualByComparingTo("200.00");
+        assertThat(saved.getValue()).isEqualTo(Money.parse("200.00"));
         assertThat(saved.getAccount()).isSameAs(acc);
-        verify(accountRepository).save(acc);
-
-        ArgumentCaptor<CacheBalance> cbCap = ArgumentCaptor.forClass(CacheBalance.class);
-        verify(valueOps).set(eq("balance:99"), cbCap.capture());
-        CacheBalance cached = cbCap.getValue();
-        assertThat(cached.getTotalBalance()).isEqualByComparingTo("89.80");
-        assertThat(cached.getHistoric()).isNotEmpty();
-        ItemHistoric first = cached.getHistoric().get(0);
+        verify(accountRepository, never()).findByUserId(any());
+        verify(accountRepository, never()).save(any());
+
+        List<ItemHistoric> items = captureAppend(99L, 4L, "89.80");
+        assertThat(items).hasSize(1);
+        ItemHistoric first = items.get(0);
         assertThat(first.type()).isEqualTo("deposit");
-        assertThat(first.value()).isEqualByComparingTo("200.00");
+        assertThat(first.value()).isEqualTo(Money.parse("200.00"));
         assertThat(first.date()).matches("\\d{2}-\\d{2}-\\d{4} \\d{2}:\\d{2}:\\d{2}");
     }
 
     @Test
-    void deposit_addsNormally_whenBalanceIsZeroOrPositive_andUpdatesExistingCache() {
-        Account acc = Account.builder().id(2L).currentBalance(new BigDecimal("50.00")).build();
-        when(accountRepository.findByUserId(2L)).thenReturn(Optional.of(acc));
-
-        CacheBalance existing = new CacheBalance();
-        existing.setTotalBalance(new BigDecimal("50.00"));
-        existing.getHistoric().add(new ItemHistoric("payment", new BigDecimal("10.00"), "01-01-2025 09:00:00"));
-        when(valueOps.get("balance:2")).thenReturn(existing);
+    void deposit_addsNormally_whenBalanceIsZeroOrPositive_andRecordsCacheAppend() {
+        when(accountRepository.applyDeposit(eq(2L), eq(new BigDecimal("25.30")), any()))
+                .thenReturn(Optional.of(balanceUpdate(2L, "75.30", 8L)));
 
-        service.deposit(2L, new BigDecimal("25.30"));
+        service.deposit(2L, Money.parse("25.30"));
 
-        assertThat(acc.getCurrentBalance()).isEqualByComparingTo("75.30");
         verify(transactionRepository).save(any(Transaction.class));
-        verify(accountRepository).save(acc);
-
-        ArgumentCaptor<CacheBalance> cbCap = ArgumentCaptor.forClass(CacheBalance.class);
-        verify(valueOps).set(eq("balance:2"), cbCap.capture());
-        CacheBalance cached = cbCap.getValue();
-        assertThat(cached.getTotalBalance()).isEqualByComparingTo("75.30");
-        assertThat(cached.getHistoric()).hasSize(2);
-        assertThat(cached.getHistoric().get(0).type()).isEqualTo("deposit");
-        assertThat(cached.getHistoric().get(0).value()).isEqualByComparingTo("25.30");
+
+        List<ItemHistoric> items = captureAppend(2L, 8L, "75.30");
+        assertThat(items).hasSize(1);
+        assertThat(items.get(0).type()).isEqualTo("deposit");
+        assertThat(items.get(0).value()).isEqualTo(Money.parse("25.30"));
     }
 
     @Test
-    void pay_debits_mayBecomeNegative_andWritesThroughCache() {
-        Account acc = Account.builder().id(3L).currentBalance(new BigDecimal("10.00")).build();
-        when(accountRepository.findByUserId(3L)).thenReturn(Optional.of(acc));
-        when(valueOps.get("balance:3")).thenReturn(null);
+    void pay_debits_mayBecomeNegative_andRecordsCacheAppend() {
+        when(accountRepository.applyPayment(3L, new BigDecimal("25.00")))
+                .thenReturn(Optional.of(balanceUpdate(3L, "-15.00", 1L)));
 
-        service.pay(3L, new BigDecimal("25.00"));
+        service.pay(3L, Money.parse("25.00"));
 
-        assertThat(acc.getCurrentBalance()).isEqualByComparingTo("-15.00");
         verify(transactionRepository).save(argThat(t ->
                 t.getType() == Type.PAYMENT &&
-                        t.getValue().compareTo(new BigDecimal("25.00")) == 0
+                        t.getValue().equals(Money.parse("25.00"))
         ));
-        verify(accountRepository).save(acc);
-
-        ArgumentCaptor<CacheBalance> cbCap = ArgumentCaptor.forClass(CacheBalance.class);
-        verify(valueOps).set(eq("balance:3"), cbCap.capture());
-        CacheBalance cached = cbCap.getValue();
-        assertThat(cached.getTotalBalance()).isEqualByComparingTo("-15.00");
-        assertThat(cached.getHistoric()).isNotEmpty();
-        assertThat(cached.getHistoric().get(0).type()).isEqualTo("payment");
+
+        List<ItemHistoric> items = captureAppend(3L, 1L, "-15.00");
+        assertThat(items).hasSize(1);
+        assertThat(items.get(0).type()).isEqualTo("payment");
+    }
+
+    @Test
+    void deposit_throws_whenAccountDoesNotExist() {
+        when(accountRepository.applyDeposit(eq(404L), any(), any())).thenReturn(Optional.empty());
+
+        assertThatThrownBy(() -> service.deposit(404L, Money.parse("1.00")))
+                .isInstanceOf(java.util.NoSuchElementException.class);
+
+        verifyNoInteractions(transactionRepository, cacheOutbox);
     }
 
     @Test
     void deposit_rejectsInvalidAmount() {
         assertThatThrownBy(() -> service.deposit(1L, null)).isInstanceOf(IllegalArgumentException.class);
-        assertThatThrownBy(() -> service.deposit(1L, BigDecimal.ZERO)).isInstanceOf(IllegalArgumentException.class);
-        assertThatThrownBy(() -> service.deposit(1L, new BigDecimal("-1"))).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> service.deposit(1L, Money.ZERO)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> service.deposit(1L, Money.parse("-1"))).isInstanceOf(IllegalArgumentException.class);
 
-        verifyNoInteractions(accountRepository, transactionRepository);
-        verify(valueOps, never()).set(anyString(), any());
+        verifyNoInteractions(accountRepository, transactionRepository, cacheOutbox);
     }
 
     @Test
     void pay_rejectsInvalidAmount() {
         assertThatThrownBy(() -> service.pay(1L, null)).isInstanceOf(IllegalArgumentException.class);
-        assertThatThrownBy(() -> service.pay(1L, BigDecimal.ZERO)).isInstanceOf(IllegalArgumentException.class);
-        assertThatThrownBy(() -> service.pay(1L, new BigDecimal("-1"))).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> service.pay(1L, Money.ZERO)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> service.pay(1L, Money.parse("-1"))).isInstanceOf(IllegalArgumentException.class);
+
+        verifyNoInteractions(accountRepository, transactionRepository, cacheOutbox);
+    }
+
+    @Test
+    void batch_foldsOperationsInOrder_andRecordsOneCacheAppend() {
+        Account acc = Account.builder().id(1L).currentBalance(Money.parse("-100.00")).version(6L).build();
+        when(accountRepository.findByUserIdForUpdate(9L)).thenReturn(Optional.of(acc));
+
+        BatchResponse resp = service.batch(9L, List.of(
+                new BatchOperation(Type.DEPOSIT, Money.parse("200.00")),
+                new BatchOperation(Type.PAYMENT, Money.parse("50.00")),
+                new BatchOperation(Type.DEPOSIT, Money.parse("10.00"))));
+
+        // -100 -> -110.20 + 200 = 89.80 -> 39.80 -> 49.80
+        assertThat(resp.totalBalance()).isEqualTo(Money.parse("49.80"));
+        assertThat(resp.results()).extracting(BatchItemResult::status).containsOnly("applied");
+        assertThat(resp.results()).extracting(BatchItemResult::balance)
+                .containsExactly(Money.parse("89.80"), Money.parse("39.80"), Money.parse("49.80"));
+        assertThat(acc.getCurrentBalance()).isEqualTo(Money.parse("49.80"));
+        assertThat(acc.getVersion()).isEqualTo(7L);
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<Transaction>> txCap = ArgumentCaptor.forClass(List.class);
+        verify(transactionRepository).saveAll(txCap.capture());
+        assertThat(txCap.getValue()).extracting(Transaction::getType)
+                .containsExactly(Type.DEPOSIT, Type.PAYMENT, Type.DEPOSIT);
+        verify(transactionRepository, never()).save(any());
+
+        List<ItemHistoric> items = captureAppend(9L, 7L, "49.80");
+        assertThat(items).extracting(ItemHistoric::type).containsExactly("deposit", "payment", "deposit");
+    }
+
+    @Test
+    void batch_rejectsInvalidItems_withoutFailingTheOthers() {
+        Account acc = Account.builder().id(1L).currentBalance(Money.parse("10.00")).version(1L).build();
+        when(accountRepository.findByUserIdForUpdate(9L)).thenReturn(Optional.of(acc));
+
+        BatchResponse resp = service.batch(9L, List.of(
+                new BatchOperation(Type.PAYMENT, Money.parse("-5")),
+                new BatchOperation(null, Money.parse("5")),
+                new BatchOperation(Type.PAYMENT, Money.parse("4.00"))));
+
+        assertThat(resp.results()).extracting(BatchItemResult::status)
+                .containsExactly("rejected", "rejected", "applied");
+        assertThat(resp.results().get(0).error()).isEqualTo("Invalid amount");
+        assertThat(resp.totalBalance()).isEqualTo(Money.parse("6.00"));
+        captureAppend(9L, 2L, "6.00");
+    }
+
+    @Test
+    void batch_leavesAccountAndCacheAlone_whenNothingApplies() {
+        Account acc = Account.builder().id(1L).currentBalance(Money.parse("10.00")).version(1L).build();
+        when(accountRepository.findByUserIdForUpdate(9L)).thenReturn(Optional.of(acc));
+
+        BatchResponse resp = service.batch(9L, List.of(new BatchOperation(Type.DEPOSIT, null)));
+
+        assertThat(resp.results()).extracting(BatchItemResult::status).containsExactly("rejected");
+        assertThat(acc.getVersion()).isEqualTo(1L);
+        verifyNoInteractions(transactionRepository, cacheOutbox);
+    }
+
+    @Test
+    void applyGroup_appliesEachUser_andSkipsMissingAccounts() {
+        Account a = Account.builder().id(1L).currentBalance(Money.parse("10.00")).version(1L).build();
+        Account b = Account.builder().id(2L).currentBalance(Money.ZERO).version(0L).build();
+        when(accountRepository.findByUserIdForUpdate(1L)).thenReturn(Optional.of(a));
+        when(accountRepository.findByUserIdForUpdate(2L)).thenReturn(Optional.of(b));
+        when(accountRepository.findByUserIdForUpdate(3L)).thenReturn(Optional.empty());
+
+        SortedMap<Long, List<BatchOperation>> byUser = new TreeMap<>(Map.of(
+                1L, List.of(new BatchOperation(Type.PAYMENT, Money.parse("4.00")),
+                        new BatchOperation(Type.PAYMENT, Money.parse("1.00"))),
+                2L, List.of(new BatchOperation(Type.DEPOSIT, Money.parse("3.00"))),
+                3L, List.of(new BatchOperation(Type.DEPOSIT, Money.parse("3.00")))));
+
+        Map<Long, BatchResponse> responses = service.applyGroup(byUser);
+
+        assertThat(responses).containsOnlyKeys(1L, 2L);
+        assertThat(responses.get(1L).totalBalance()).isEqualTo(Money.parse("5.00"));
+        assertThat(a.getVersion()).isEqualTo(2L);
+        assertThat(b.getCurrentBalance()).isEqualTo(Money.parse("3.00"));
+        verify(cacheOutbox).append(eq(1L), eq(2L), any(), argThat(items -> items.size() == 2));
+        verify(cacheOutbox).append(eq(2L), eq(1L), any(), argThat(items -> items.size() == 1));
+    }
+
+    @Test
+    void afterDeposit_roundsInterestLikeTheDatabase() {
+        // -10.25 * 1.102 = -11.2955 -> -11.30 (half away from zero, as Postgres ROUND)
+        assertThat(CommandService.afterDeposit(Money.parse("-10.25"), Money.parse("1.00")))
+                .isEqualTo(Money.parse("-10.30"));
+        assertThat(CommandService.afterDeposit(Money.ZERO, Money.parse("1.00")))
+                .isEqualTo(Money.parse("1.00"));
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<ItemHistoric> captureAppend(Long userId, long version, String balance) {
+        ArgumentCaptor<List<ItemHistoric>> itemsCap = ArgumentCaptor.forClass(List.class);
+        ArgumentCaptor<Money> balanceCap = ArgumentCaptor.forClass(Money.class);
+        verify(cacheOutbox).append(eq(userId), eq(version), balanceCap.capture(), itemsCap.capture());
+        assertThat(balanceCap.getValue()).isEqualTo(Money.parse(balance));
+        return itemsCap.getValue();
+    }
 
-        verifyNoInteractions(accountRepository, transactionRepository);
-        verify(valueOps, never()).set(anyString(), any());
+    static AccountRepository.BalanceUpdate balanceUpdate(Long accountId, String balance, Long version) {
+        return new AccountRepository.BalanceUpdate() {
+            public Long getId() { return accountId; }
+            public BigDecimal getCurrentBalance() { return new BigDecimal(balance); }
+            public Long getVersion() { return version; }
+        };
     }
 }
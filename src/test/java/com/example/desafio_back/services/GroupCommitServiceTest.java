@@ -0,0 +1,217 @@
+package com.example.desafio_back.services;
+
+import com.example.desafio_back.dtos.BatchItemResult;
+import com.example.desafio_back.dtos.BatchOperation;
+import com.example.desafio_back.dtos.BatchResponse;
+import com.example.desafio_back.enums.Type;
+import com.example.desafio_back.exception.OutcomeUnknownException;
+import com.example.desafio_back.model.Money;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.SortedMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class GroupCommitServiceTest {
+
+    CommandService command = mock(CommandService.class);
+    SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    GroupCommitService service;
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        service.stop();
+    }
+
+    @Test
+    void disabled_callsCommandServiceDirectly() {
+        service = newService(false, 10, Duration.ofMillis(1), 10);
+
+        service.deposit(1L, Money.parse("10.00"));
+        service.pay(1L, Money.parse("5.00"));
+
+        verify(command).deposit(1L, Money.parse("10.00"));
+        verify(command).pay(1L, Money.parse("5.00"));
+        verify(command, never()).applyGroup(any());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void enabled_coalescesQueuedCommandsPerAccount_andAcksAfterCommit() throws Exception {
+        List<SortedMap<Long, List<BatchOperation>>> flushed = new ArrayList<>();
+        when(command.applyGroup(any())).thenAnswer(inv -> {
+            SortedMap<Long, List<BatchOperation>> byUser = inv.getArgument(0);
+            flushed.add(byUser);
+            return Map.of(
+                    1L, response(byUser.get(1L).size()),
+                    2L, response(byUser.get(2L).size()));
+        });
+        service = newService(true, 100, Duration.ofMillis(200), 100);
+        service.start();
+
+        CountDownLatch go = new CountDownLatch(1);
+        List<CompletableFuture<Void>> callers = new ArrayList<>();
+        for (long user : new long[]{1, 2, 1, 1}) {
+            callers.add(CompletableFuture.runAsync(() -> {
+                await(go);
+                service.deposit(user, Money.parse("1.00"));
+            }));
+        }
+        go.countDown();
+        CompletableFuture.allOf(callers.toArray(CompletableFuture[]::new)).get(5, TimeUnit.SECONDS);
+
+        assertThat(flushed).hasSize(1);
+        assertThat(flushed.get(0).get(1L)).hasSize(3);
+        assertThat(flushed.get(0).get(2L)).hasSize(1);
+        assertThat(registry.get("commands.group_commit.batch_size").summary().max()).isEqualTo(4);
+    }
+
+    @Test
+    void enabled_failsCaller_whenAccountIsMissing_orFlushFails() {
+        when(command.applyGroup(any()))
+                .thenReturn(Map.of())
+                .thenThrow(new IllegalStateException("db down"));
+        service = newService(true, 10, Duration.ofMillis(1), 10);
+        service.start();
+
+        assertThatThrownBy(() -> service.pay(404L, Money.ofCents(100))).isInstanceOf(NoSuchElementException.class);
+        assertThatThrownBy(() -> service.pay(1L, Money.ofCents(100))).hasMessage("db down");
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void enabled_failedGroup_isRetriedPerUser_andFailsOnlyTheOffendingUser() throws Exception {
+        when(command.applyGroup(any())).thenAnswer(inv -> {
+            SortedMap<Long, List<BatchOperation>> byUser = inv.getArgument(0);
+            if (byUser.containsKey(2L)) {
+                throw new ArithmeticException("long overflow");
+            }
+            Map<Long, BatchResponse> responses = new HashMap<>();
+            byUser.forEach((user, ops) -> responses.put(user, response(ops.size())));
+            return responses;
+        });
+        service = newService(true, 100, Duration.ofMillis(1), 100);
+
+        CompletableFuture<Void> healthy = CompletableFuture.runAsync(() -> service.deposit(1L, Money.parse("1.00")));
+        CompletableFuture<Void> overflowing = CompletableFuture.runAsync(() -> service.deposit(2L, Money.parse("1.00")));
+        // both queued before the flusher starts, so they share one group
+        while (registry.get("commands.group_commit.queued").gauge().value() < 2) {
+            Thread.onSpinWait();
+        }
+        service.start();
+
+        healthy.get(5, TimeUnit.SECONDS);
+        assertThatThrownBy(() -> overflowing.get(5, TimeUnit.SECONDS))
+                .hasCauseInstanceOf(ArithmeticException.class);
+        assertThat(registry.get("commands.group_commit.split").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void enabled_validatesAmount_beforeQueueing() {
+        service = newService(true, 10, Duration.ofMillis(1), 10);
+
+        assertThatThrownBy(() -> service.deposit(1L, Money.ZERO)).isInstanceOf(IllegalArgumentException.class);
+        verifyNoInteractions(command);
+    }
+
+    @Test
+    void enabled_rejects_whenQueueIsFull() {
+        // flusher not started: the first command occupies the only slot forever
+        service = newService(true, 10, Duration.ofMillis(1), 1);
+        CompletableFuture.runAsync(() -> service.deposit(1L, Money.ofCents(100)));
+        while (registry.get("commands.group_commit.queued").gauge().value() < 1) {
+            Thread.onSpinWait();
+        }
+
+        assertThatThrownBy(() -> service.deposit(2L, Money.ofCents(100))).isInstanceOf(RejectedExecutionException.class);
+        service.start(); // releases the parked caller
+    }
+
+    @Test
+    void enabled_flushThrowingAnError_failsItsCallers_andTheFlusherCarriesOn() {
+        when(command.applyGroup(any()))
+                .thenThrow(new StackOverflowError())
+                .thenAnswer(inv -> Map.of(1L, response(1)));
+        service = newService(true, 10, Duration.ofMillis(1), 10);
+        service.start();
+
+        assertThatThrownBy(() -> service.pay(1L, Money.ofCents(100)))
+                .isInstanceOf(IllegalStateException.class)
+                .hasCauseInstanceOf(StackOverflowError.class);
+        service.pay(1L, Money.ofCents(100));
+
+        verify(command, times(2)).applyGroup(any());
+    }
+
+    @Test
+    void enabled_callerGivesUp_afterTheTimeout_andLeavesTheQueue() {
+        // flusher not started: nothing will ever answer
+        service = new GroupCommitService(command, registry, true, 10, Duration.ofMillis(1), 10, Duration.ofMillis(50));
+
+        assertThatThrownBy(() -> service.deposit(1L, Money.ofCents(100)))
+                .isInstanceOf(RejectedExecutionException.class)
+                .hasMessageContaining("Timed out");
+        assertThat(registry.get("commands.group_commit.queued").gauge().value()).isZero();
+    }
+
+    @Test
+    void enabled_timeoutAfterTheFlushTookTheCommand_reportsAnUnknownOutcome() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        when(command.applyGroup(any())).thenAnswer(inv -> {
+            release.await(5, TimeUnit.SECONDS);
+            return Map.of(1L, response(1));
+        });
+        service = new GroupCommitService(command, registry, true, 10, Duration.ofMillis(1), 10, Duration.ofMillis(50));
+        service.start();
+
+        assertThatThrownBy(() -> service.deposit(1L, Money.ofCents(100)))
+                .isInstanceOf(OutcomeUnknownException.class);
+        release.countDown();
+    }
+
+    @Test
+    void enabled_rejectsAtOnce_onceTheFlusherHasStopped() throws InterruptedException {
+        service = newService(true, 10, Duration.ofMillis(1), 10);
+        service.start();
+        service.stop();
+
+        assertThatThrownBy(() -> service.deposit(1L, Money.ofCents(100)))
+                .isInstanceOf(RejectedExecutionException.class)
+                .hasMessageContaining("not running");
+        verifyNoInteractions(command);
+    }
+
+    private GroupCommitService newService(boolean enabled, int maxBatch, Duration linger, int capacity) {
+        return new GroupCommitService(command, registry, enabled, maxBatch, linger, capacity, Duration.ofSeconds(5));
+    }
+
+    private static BatchResponse response(int items) {
+        List<BatchItemResult> results = new ArrayList<>();
+        for (int i = 0; i < items; i++) {
+            results.add(BatchItemResult.applied(i, Money.ofCents(100)));
+        }
+        return new BatchResponse(Money.ofCents(100), results);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
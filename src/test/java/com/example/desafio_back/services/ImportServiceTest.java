@@ -0,0 +1,180 @@
+package com.example.desafio_back.services;
+
+import com.example.desafio_back.cache.BalanceCache;
+import com.example.desafio_back.dtos.ImportResult;
+import com.example.desafio_back.dtos.ItemHistoric;
+import com.example.desafio_back.enums.Type;
+import com.example.desafio_back.model.Account;
+import com.example.desafio_back.model.Money;
+import com.example.desafio_back.model.Transaction;
+import com.example.desafio_back.model.User;
+import com.example.desafio_back.repository.AccountRepository;
+import com.example.desafio_back.repository.TransactionRepository;
+import com.example.desafio_back.repository.UserRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import javax.sql.DataSource;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Testcontainers(disabledWithoutDocker = true)
+class ImportServiceTest {
+
+    @Container
+    @ServiceConnection
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @Autowired DataSource dataSource;
+    @Autowired PlatformTransactionManager txManager;
+    @Autowired AccountRepository accountRepository;
+    @Autowired UserRepository userRepository;
+    @Autowired TransactionRepository transactionRepository;
+
+    BalanceCache balanceCache;
+    ImportService service;
+
+    @BeforeEach
+    void setUp() {
+        balanceCache = mock(BalanceCache.class);
+        // tiny chunks so the test crosses several COPY round-trips
+        service = new ImportService(dataSource, txManager, transactionRepository, balanceCache, new ObjectMapper(), 2);
+    }
+
+    @Test
+    void importsCsv_inChunks_andReplaysBalanceInDateOrder() throws Exception {
+        User user = newUser();
+        Account acc = accountRepository.findByUserId(user.getId()).orElseThrow();
+
+        // out of order on purpose: the payment happened first, so the deposit pays interest
+        String csv = """
+                login,type,value,dateTime
+                %1$s,DEPOSIT,200.00,2024-01-02T10:00:00
+                %1$s,PAYMENT,100.00,2024-01-01T10:00:00
+                nobody,DEPOSIT,1.00,2024-01-01T10:00:00
+                %1$s,DEPOSIT,oops,2024-01-01T10:00:00
+                """.formatted(user.getLogin());
+
+        ImportResult result = service.importTransactions(
+                new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)), ImportService.Format.CSV);
+
+        assertThat(result.imported()).isEqualTo(2);
+        assertThat(result.unmatched()).isEqualTo(1);
+        assertThat(result.rejected()).isEqualTo(1);
+        assertThat(result.accounts()).isEqualTo(1);
+
+        Account reloaded = accountRepository.findById(acc.getId()).orElseThrow();
+        assertThat(reloaded.getCurrentBalance()).isEqualTo(Money.parse("89.80"));
+        assertThat(reloaded.getVersion()).isEqualTo(1L);
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<ItemHistoric>> items = ArgumentCaptor.forClass(List.class);
+        verify(balanceCache).replace(eq(user.getId()), eq(1L), eq(Money.parse("89.80")),
+                items.capture());
+        assertThat(items.getValue()).extracting(ItemHistoric::type).containsExactly("deposit", "payment");
+    }
+
+    @Test
+    void failureAfterACommittedChunk_stillRebuildsItsAccounts() {
+        User user = newUser();
+        Account acc = accountRepository.findByUserId(user.getId()).orElseThrow();
+        String csv = """
+                login,type,value,dateTime
+                %1$s,DEPOSIT,100.00,2024-01-01T10:00:00
+                %1$s,DEPOSIT,50.00,2024-01-02T10:00:00
+                %1$s,PAYMENT,30.00,2024-01-03T10:00:00
+                """.formatted(user.getLogin());
+        // the client disconnects while the second chunk is being read
+        InputStream input = new SequenceInputStream(
+                new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)),
+                new InputStream() {
+                    @Override
+                    public int read() throws IOException {
+                        throw new IOException("connection reset");
+                    }
+                });
+
+        assertThatThrownBy(() -> service.importTransactions(input, ImportService.Format.CSV))
+                .isInstanceOf(IOException.class);
+
+        Account reloaded = accountRepository.findById(acc.getId()).orElseThrow();
+        assertThat(jdbc().queryForObject("SELECT count(*) FROM transactions WHERE account_id = ?", Long.class, acc.getId()))
+                .isEqualTo(2L);
+        assertThat(reloaded.getCurrentBalance()).isEqualTo(Money.parse("150.00"));
+        assertThat(reloaded.getVersion()).isEqualTo(1L);
+        verify(balanceCache).replace(eq(user.getId()), eq(1L), eq(Money.parse("150.00")), any());
+    }
+
+    @Test
+    void importedIds_comeInPooledBlocks_likeHibernates() throws Exception {
+        User user = newUser();
+        service = new ImportService(dataSource, txManager, transactionRepository, balanceCache, new ObjectMapper(), 1_000);
+        StringBuilder csv = new StringBuilder("login,type,value,dateTime\n");
+        for (int i = 0; i < Transaction.ID_BLOCK + 1; i++) {
+            csv.append(user.getLogin()).append(",DEPOSIT,1.00,2024-01-01T10:00:00\n");
+        }
+        Long before = jdbc().queryForObject("SELECT last_value FROM transactions_seq", Long.class);
+
+        service.importTransactions(new ByteArrayInputStream(csv.toString().getBytes(StandardCharsets.UTF_8)),
+                ImportService.Format.CSV);
+
+        Long after = jdbc().queryForObject("SELECT last_value FROM transactions_seq", Long.class);
+        assertThat(after - before).isEqualTo(2L * Transaction.ID_BLOCK);
+        List<Long> ids = jdbc().queryForList("SELECT id FROM transactions WHERE account_id = ? ORDER BY id", Long.class,
+                accountRepository.findByUserId(user.getId()).orElseThrow().getId());
+        assertThat(ids).hasSize(Transaction.ID_BLOCK + 1).doesNotHaveDuplicates();
+        assertThat(ids.get(ids.size() - 1)).isLessThanOrEqualTo(after);
+        assertThat(ids.get(0)).isGreaterThan(before);
+
+        // no import ran through Hibernate here, so its first block comes after the imported ones
+        Transaction saved = transactionRepository.save(Transaction.builder()
+                .account(accountRepository.findByUserId(user.getId()).orElseThrow())
+                .type(Type.DEPOSIT)
+                .value(Money.parse("1.00"))
+                .dateTime(LocalDateTime.now())
+                .build());
+        assertThat(saved.getId()).isGreaterThan(after);
+    }
+
+    private JdbcTemplate jdbc() {
+        return new JdbcTemplate(dataSource);
+    }
+
+    private User newUser() {
+        String login = "user" + System.nanoTime();
+        User user = userRepository.save(User.builder()
+                .completeName("Import Test")
+                .cpf(login.substring(login.length() - 11))
+                .login(login)
+                .passwordHash("x")
+                .build());
+        accountRepository.save(Account.builder().user(user).currentBalance(Money.ZERO).version(0L).build());
+        return user;
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.desafio_back.services;
+
+import com.example.desafio_back.enums.Type;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LedgerReaderTest {
+
+    @Test
+    void csv_skipsHeader_andRejectsInvalidLines() throws IOException {
+        LedgerReader reader = reader(ImportService.Format.CSV, """
+                login,type,value,dateTime
+                jdoe,deposit,100.00,2024-01-01T10:00:00
+                jdoe,PAYMENT,-1,2024-01-01T11:00:00
+                jdoe,refund,1,2024-01-01T11:00:00
+                jdoe,PAYMENT,1.005,2024-01-01T11:00:00
+                too,few,columns
+
+                mary,PAYMENT,20,2024-01-02T09:30:00
+                """);
+
+        List<LedgerRow> rows = drain(reader);
+
+        assertThat(rows).extracting(LedgerRow::login).containsExactly("jdoe", "mary");
+        assertThat(rows.get(0).type()).isEqualTo(Type.DEPOSIT);
+        assertThat(reader.rejected()).isEqualTo(4);
+        assertThat(reader.errors()).hasSize(4).first().asString().startsWith("line 3:");
+    }
+
+    @Test
+    void ndjson_readsOneObjectPerLine() throws IOException {
+        LedgerReader reader = reader(ImportService.Format.NDJSON, """
+                {"login":"jdoe","type":"DEPOSIT","value":10.5,"dateTime":"2024-01-01T10:00:00"}
+                {"login":"jdoe","type":"DEPOSIT"}
+                not json
+                """);
+
+        List<LedgerRow> rows = drain(reader);
+
+        assertThat(rows).hasSize(1);
+        assertThat(rows.get(0).value()).isEqualByComparingTo("10.50");
+        assertThat(reader.lines()).isEqualTo(3);
+        assertThat(reader.rejected()).isEqualTo(2);
+    }
+
+    @Test
+    void keepsOnlyTheFirstErrors() throws IOException {
+        LedgerReader reader = reader(ImportService.Format.CSV, "bad\n".repeat(LedgerReader.MAX_ERRORS * 3));
+
+        drain(reader);
+
+        assertThat(reader.rejected()).isEqualTo(LedgerReader.MAX_ERRORS * 3L);
+        assertThat(reader.errors()).hasSize(LedgerReader.MAX_ERRORS);
+    }
+
+    @Test
+    void toCsv_quotesLoginForCopy() {
+        LedgerRow row = new LedgerRow("a\"b", Type.PAYMENT, new java.math.BigDecimal("1.50"),
+                java.time.LocalDateTime.of(2024, 1, 1, 10, 0));
+
+        assertThat(row.toCsv()).isEqualTo("\"a\"\"b\",PAYMENT,1.50,2024-01-01T10:00\n");
+    }
+
+    private static LedgerReader reader(ImportService.Format format, String input) {
+        return new LedgerReader(new BufferedReader(new StringReader(input)), format, new ObjectMapper());
+    }
+
+    private static List<LedgerRow> drain(LedgerReader reader) throws IOException {
+        List<LedgerRow> rows = new ArrayList<>();
+        LedgerRow row;
+        while ((row = reader.next()) != null) {
+            rows.add(row);
+        }
+        return rows;
+    }
+}
@@ -1,26 +1,51 @@
 package com.example.desafio_back.services;
 
+import com.example.desafio_back.cache.BalanceCache;
 import com.example.desafio_back.dtos.BalanceResponse;
+import com.example.desafio_back.dtos.BalanceView;
 import com.example.desafio_back.dtos.CacheBalance;
 import com.example.desafio_back.dtos.ItemHistoric;
+import com.example.desafio_back.dtos.StatementLine;
+import com.example.desafio_back.dtos.TransactionCursor;
+import com.example.desafio_back.dtos.TransactionPage;
+import com.example.desafio_back.enums.StatementFormat;
 import com.example.desafio_back.enums.Type;
 import com.example.desafio_back.model.Account;
+import com.example.desafio_back.model.Money;
 import com.example.desafio_back.model.Transaction;
 import com.example.desafio_back.repository.AccountRepository;
 import com.example.desafio_back.repository.TransactionRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
-import org.springframework.data.redis.core.RedisTemplate;
-import org.springframework.data.redis.core.ValueOperations;
+import org.mockito.InOrder;
+import org.springframework.data.domain.Limit;
+import org.springframework.transaction.PlatformTransactionManager;
 
-import java.math.BigDecimal;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.Month;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
 
@@ -28,12 +53,9 @@ class QueryServiceTest {
 
     AccountRepository accountRepository;
     TransactionRepository transactionRepository;
-
-    @SuppressWarnings("unchecked")
-    RedisTemplate<String, CacheBalance> redis;
-
-    @SuppressWarnings("unchecked")
-    ValueOperations<String, CacheBalance> valueOps;
+    BalanceCache balanceCache;
+    SimpleMeterRegistry registry;
+    BalanceRenderer renderer;
 
     QueryService service;
 
@@ -41,99 +63,354 @@ class QueryServiceTest {
     void setUp() {
         accountRepository = mock(AccountRepository.class);
         transactionRepository = mock(TransactionRepository.class);
-        redis = mock(RedisTemplate.class);
-        valueOps = mock(ValueOperations.class);
+        balanceCache = mock(BalanceCache.class);
+        registry = new SimpleMeterRegistry();
+
+        renderer = new BalanceRenderer(new ObjectMapper());
+
+        service = newService(Duration.ZERO);
+    }
+
+    private QueryService newService(Duration loadLock) {
+        return new QueryService(accountRepository, transactionRepository, balanceCache, renderer,
+                mock(PlatformTransactionManager.class), registry, loadLock, 1.0);
+    }
+
+    @Test
+    void balanceJson_servesStoredView_withoutTouchingTheData() {
+        byte[] view = "{\"stored\":true}".getBytes(StandardCharsets.UTF_8);
+        when(balanceCache.getView(7L, renderer.format())).thenReturn(Optional.of(new BalanceView(view, 0)));
+
+        assertThat(service.balanceJson(7L)).isSameAs(view);
+
+        verify(balanceCache, never()).get(any());
+        verifyNoInteractions(accountRepository, transactionRepository);
+        assertThat(registry.get("bank.balance.reads").tag("source", "view").timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    void balanceJson_rendersOnViewMiss_andStoresItForTheCachedVersion() {
+        CacheBalance cached = new CacheBalance(Money.parse("10.00"),
+                List.of(new ItemHistoric("deposit", Money.parse("10.00"), "01-01-2025 10:00:00")), 4);
+        when(balanceCache.getView(7L, renderer.format())).thenReturn(Optional.empty());
+        when(balanceCache.get(7L)).thenReturn(Optional.of(cached));
 
-        when(redis.opsForValue()).thenReturn(valueOps);
+        byte[] json = service.balanceJson(7L);
 
-        service = new QueryService(accountRepository, transactionRepository, redis);
+        assertThat(new String(json, StandardCharsets.UTF_8)).isEqualTo(
+                "{\"totalBalance\":10.00,\"Historic\":[{\"type\":\"deposit\",\"value\":10.00,\"date\":\"01-01-2025 10:00:00\"}]}");
+        verify(balanceCache).putView(7L, 4L, renderer.format(), json);
+    }
+
+    @Test
+    void balanceJson_refreshesEarly_whenTheViewIsAboutToExpire() {
+        byte[] view = "{\"stored\":true}".getBytes(StandardCharsets.UTF_8);
+        long expiresAt = System.currentTimeMillis() - 1;
+        when(balanceCache.getView(7L, renderer.format())).thenReturn(Optional.of(new BalanceView(view, expiresAt)));
+        when(balanceCache.get(7L)).thenReturn(Optional.of(new CacheBalance(Money.parse("1.00"), List.of(), 2, expiresAt)));
+        when(accountRepository.findByUserId(7L)).thenReturn(Optional.of(
+                Account.builder().id(70L).currentBalance(Money.parse("1.00")).version(2L).build()));
+
+        byte[] json = service.balanceJson(7L);
+
+        assertThat(json).isNotEqualTo(view);
+        verify(balanceCache).replace(eq(7L), eq(2L), eq(Money.parse("1.00")), any());
+        verify(balanceCache).putView(7L, 2L, renderer.format(), json);
+        assertThat(registry.get("bank.balance.early_refreshes").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void renderer_format_changesWithTheRendering() {
+        BalanceRenderer indented = new BalanceRenderer(new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT));
+
+        assertThat(indented.format()).isNotEqualTo(renderer.format());
+        assertThat(new BalanceRenderer(new ObjectMapper()).format()).isEqualTo(renderer.format());
     }
 
     @Test
     void balance_returnsFromCache_whenPresent() {
         Long userId = 7L;
-        String key = CommandService.cacheKey(userId);
 
         CacheBalance cached = new CacheBalance(
-                new BigDecimal("123.45"),
+                Money.parse("123.45"),
                 List.of(
-                        new ItemHistoric("deposit", new BigDecimal("50.00"), "01-01-2025 10:00:00"),
-                        new ItemHistoric("payment", new BigDecimal("20.00"), "02-01-2025 09:00:00")
+                        new ItemHistoric("deposit", Money.parse("50.00"), "01-01-2025 10:00:00"),
+                        new ItemHistoric("payment", Money.parse("20.00"), "02-01-2025 09:00:00")
                 )
         );
 
-        when(valueOps.get(key)).thenReturn(cached);
+        when(balanceCache.get(userId)).thenReturn(Optional.of(cached));
 
         BalanceResponse resp = service.balance(userId);
 
-        assertThat(resp.totalBalance()).isEqualByComparingTo("123.45");
+        assertThat(resp.totalBalance()).isEqualTo(Money.parse("123.45"));
         assertThat(resp.Historic()).hasSize(2);
         assertThat(resp.Historic().get(0))
                 .usingRecursiveComparison()
-                .isEqualTo(new ItemHistoric("deposit", new BigDecimal("50.00"), "01-01-2025 10:00:00"));
+                .isEqualTo(new ItemHistoric("deposit", Money.parse("50.00"), "01-01-2025 10:00:00"));
 
         verifyNoInteractions(accountRepository, transactionRepository);
-        verify(valueOps, never()).set(anyString(), any(CacheBalance.class));
+        verify(balanceCache, never()).replace(any(), anyLong(), any(), any());
+        assertThat(registry.get("bank.balance.reads").tag("source", "cache").timer().count()).isEqualTo(1);
+        assertThat(registry.get("bank.balance.reads").tag("source", "database").timer().count()).isZero();
     }
 
     @Test
     void balance_buildsFromDatabase_andCaches_whenCacheMiss() {
         Long userId = 5L;
-        String key = CommandService.cacheKey(userId);
 
-        when(valueOps.get(key)).thenReturn(null);
+        when(balanceCache.get(userId)).thenReturn(Optional.empty());
 
-        Account acc = Account.builder().id(10L).currentBalance(new BigDecimal("80.00")).build();
+        Account acc = Account.builder().id(10L).currentBalance(Money.parse("80.00")).version(3L).build();
         when(accountRepository.findByUserId(userId)).thenReturn(Optional.of(acc));
 
         List<Transaction> txs = List.of(
                 Transaction.builder()
                         .type(Type.DEPOSIT)
-                        .value(new BigDecimal("100.00"))
+                        .value(Money.parse("100.00"))
                         .dateTime(LocalDateTime.of(2025, Month.JANUARY, 2, 12, 0, 0))
                         .build(),
                 Transaction.builder()
                         .type(Type.PAYMENT)
-                        .value(new BigDecimal("20.00"))
+                        .value(Money.parse("20.00"))
                         .dateTime(LocalDateTime.of(2025, Month.JANUARY, 3, 9, 30, 0))
                         .build()
         );
-        when(transactionRepository.findByAccountIdOrderByDateTimeDesc(10L)).thenReturn(txs);
+        when(transactionRepository.findLatest(10L, Limit.of(BalanceCache.MAX_HISTORIC))).thenReturn(txs);
 
         BalanceResponse resp = service.balance(userId);
 
-        assertThat(resp.totalBalance()).isEqualByComparingTo("80.00");
+        assertThat(resp.totalBalance()).isEqualTo(Money.parse("80.00"));
         assertThat(resp.Historic()).hasSize(2);
         assertThat(resp.Historic().get(0).type()).isIn("deposit", "payment");
         assertThat(resp.Historic().get(0).value()).isNotNull();
         assertThat(resp.Historic().get(0).date())
                 .matches("\\d{2}-\\d{2}-\\d{4} \\d{2}:\\d{2}:\\d{2}");
 
-        ArgumentCaptor<CacheBalance> cacheCap = ArgumentCaptor.forClass(CacheBalance.class);
-        verify(valueOps).set(eq(key), cacheCap.capture());
-        CacheBalance toCache = cacheCap.getValue();
-
-        assertThat(toCache.getTotalBalance()).isEqualByComparingTo("80.00");
-        assertThat(toCache.getHistoric()).hasSize(2);
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<ItemHistoric>> itemsCap = ArgumentCaptor.forClass(List.class);
+        verify(balanceCache).replace(eq(userId), eq(3L), argThat(b -> b.equals(Money.parse("80.00"))),
+                itemsCap.capture());
+        assertThat(itemsCap.getValue()).hasSize(2);
 
         verify(accountRepository).findByUserId(userId);
-        verify(transactionRepository).findByAccountIdOrderByDateTimeDesc(10L);
+        verify(transactionRepository).findLatest(10L, Limit.of(BalanceCache.MAX_HISTORIC));
+        assertThat(registry.get("bank.balance.reads").tag("source", "database").timer().count()).isEqualTo(1);
     }
 
     @Test
-    void balance_treatsNullBalance_asZero() {
+    void balance_treatsNullBalanceAndVersion_asZero() {
         Long userId = 9L;
-        String key = CommandService.cacheKey(userId);
 
-        when(valueOps.get(key)).thenReturn(null);
+        when(balanceCache.get(userId)).thenReturn(Optional.empty());
 
         Account acc = Account.builder().id(99L).currentBalance(null).build();
         when(accountRepository.findByUserId(userId)).thenReturn(Optional.of(acc));
-        when(transactionRepository.findByAccountIdOrderByDateTimeDesc(99L)).thenReturn(List.of());
+        when(transactionRepository.findLatest(eq(99L), any())).thenReturn(List.of());
 
         BalanceResponse resp = service.balance(userId);
 
-        assertThat(resp.totalBalance()).isEqualByComparingTo(BigDecimal.ZERO);
-        verify(valueOps).set(eq(key), any(CacheBalance.class));
+        assertThat(resp.totalBalance()).isEqualTo(Money.ZERO);
+        verify(balanceCache).replace(eq(userId), eq(0L), any(Money.class), eq(List.of()));
+    }
+
+    @Test
+    void balance_coalescesConcurrentMisses_intoOneDatabaseLoad() throws Exception {
+        int callers = 8;
+        when(balanceCache.get(5L)).thenReturn(Optional.empty());
+        CountDownLatch release = new CountDownLatch(1);
+        Account acc = Account.builder().id(10L).currentBalance(Money.parse("80.00")).version(3L).build();
+        when(accountRepository.findByUserId(5L)).thenAnswer(inv -> {
+            release.await();
+            return Optional.of(acc);
+        });
+        when(transactionRepository.findLatest(eq(10L), any())).thenReturn(List.of());
+        Counter coalesced = registry.get("bank.balance.coalesced").counter();
+
+        try (ExecutorService pool = Executors.newFixedThreadPool(callers)) {
+            List<Future<BalanceResponse>> results = new ArrayList<>();
+            for (int i = 0; i < callers; i++) {
+                results.add(pool.submit(() -> service.balance(5L)));
+            }
+            // hold the first load until every other caller has joined it
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (coalesced.count() < callers - 1 && System.nanoTime() < deadline) {
+                Thread.sleep(5);
+            }
+            release.countDown();
+
+            for (Future<BalanceResponse> result : results) {
+                assertThat(result.get(5, TimeUnit.SECONDS).totalBalance()).isEqualTo(Money.parse("80.00"));
+            }
+        }
+
+        assertThat(coalesced.count()).isEqualTo(callers - 1);
+        verify(accountRepository, times(1)).findByUserId(5L);
+        verify(balanceCache, times(1)).replace(eq(5L), eq(3L), any(), any());
+    }
+
+    @Test
+    void balance_sharesTheLoadersFailure_withWaitingCallers() throws Exception {
+        when(balanceCache.get(5L)).thenReturn(Optional.empty());
+        CountDownLatch release = new CountDownLatch(1);
+        when(accountRepository.findByUserId(5L)).thenAnswer(inv -> {
+            release.await();
+            return Optional.empty();
+        });
+
+        try (ExecutorService pool = Executors.newFixedThreadPool(2)) {
+            Future<BalanceResponse> first = pool.submit(() -> service.balance(5L));
+            Future<BalanceResponse> second = pool.submit(() -> service.balance(5L));
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (registry.get("bank.balance.coalesced").counter().count() < 1 && System.nanoTime() < deadline) {
+                Thread.sleep(5);
+            }
+            release.countDown();
+
+            assertThatThrownBy(first::get).hasCauseInstanceOf(NoSuchElementException.class);
+            assertThatThrownBy(second::get).hasCauseInstanceOf(NoSuchElementException.class);
+        }
+        verify(accountRepository, times(1)).findByUserId(5L);
+    }
+
+    @Test
+    void balance_refreshesEarly_onlyNearExpiry() {
+        Account acc = Account.builder().id(10L).currentBalance(Money.parse("1.00")).version(1L).build();
+        when(accountRepository.findByUserId(5L)).thenReturn(Optional.of(acc));
+        long farAway = System.currentTimeMillis() + TimeUnit.HOURS.toMillis(1);
+        when(balanceCache.get(5L)).thenReturn(Optional.of(new CacheBalance(Money.parse("1.00"), List.of(), 1, farAway)));
+
+        service.balance(5L);
+        verifyNoInteractions(accountRepository);
+
+        long expired = System.currentTimeMillis() - 1;
+        when(balanceCache.get(5L)).thenReturn(Optional.of(new CacheBalance(Money.parse("1.00"), List.of(), 1, expired)));
+        service.balance(5L);
+
+        verify(accountRepository).findByUserId(5L);
+        verify(balanceCache).replace(eq(5L), eq(1L), any(), any());
+        assertThat(registry.get("bank.balance.early_refreshes").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void refreshEarly_isNever_forEntriesWithoutExpiry() {
+        assertThat(service.refreshEarly(0)).isFalse();
+        assertThat(service.refreshEarly(System.currentTimeMillis() - 1)).isTrue();
+    }
+
+    @Test
+    void balance_waitsForAnotherNodesRebuild_whenTheLoadLockIsTaken() {
+        service = newService(Duration.ofSeconds(1));
+        CacheBalance filled = new CacheBalance(Money.parse("3.00"), List.of(), 4);
+        when(balanceCache.get(5L)).thenReturn(Optional.empty(), Optional.empty(), Optional.of(filled));
+        when(balanceCache.tryLock(5L, Duration.ofSeconds(1))).thenReturn(false);
+
+        assertThat(service.balance(5L).totalBalance()).isEqualTo(Money.parse("3.00"));
+
+        verifyNoInteractions(accountRepository, transactionRepository);
+        verify(balanceCache, never()).unlock(any());
+    }
+
+    @Test
+    void balance_rebuildsUnderTheLoadLock_andReleasesIt() {
+        service = newService(Duration.ofSeconds(1));
+        when(balanceCache.get(5L)).thenReturn(Optional.empty());
+        when(balanceCache.tryLock(5L, Duration.ofSeconds(1))).thenReturn(true);
+        when(accountRepository.findByUserId(5L)).thenReturn(Optional.of(
+                Account.builder().id(10L).currentBalance(Money.parse("2.00")).version(1L).build()));
+
+        assertThat(service.balance(5L).totalBalance()).isEqualTo(Money.parse("2.00"));
+
+        InOrder order = inOrder(balanceCache);
+        order.verify(balanceCache).tryLock(5L, Duration.ofSeconds(1));
+        order.verify(balanceCache).replace(eq(5L), eq(1L), any(), any());
+        order.verify(balanceCache).unlock(5L);
+    }
+
+    @Test
+    void transactions_returnsFirstPage_withCursorToTheNext() {
+        Account acc = Account.builder().id(10L).build();
+        when(accountRepository.findByUserId(5L)).thenReturn(Optional.of(acc));
+        when(transactionRepository.findLatest(10L, Limit.of(3))).thenReturn(List.of(
+                tx(30L, LocalDateTime.of(2025, Month.JANUARY, 3, 9, 0)),
+                tx(20L, LocalDateTime.of(2025, Month.JANUARY, 2, 9, 0)),
+                tx(10L, LocalDateTime.of(2025, Month.JANUARY, 1, 9, 0))
+        ));
+
+        TransactionPage page = service.transactions(5L, null, 2);
+
+        assertThat(page.items()).hasSize(2);
+        assertThat(page.nextCursor()).isNotNull();
+        assertThat(TransactionCursor.decode(page.nextCursor()))
+                .isEqualTo(new TransactionCursor(LocalDateTime.of(2025, Month.JANUARY, 2, 9, 0), 20L));
+        verifyNoInteractions(balanceCache);
+    }
+
+    @Test
+    void transactions_seeksPastCursor_andEndsWithoutNextCursor() {
+        Account acc = Account.builder().id(10L).build();
+        when(accountRepository.findByUserId(5L)).thenReturn(Optional.of(acc));
+        LocalDateTime at = LocalDateTime.of(2025, Month.JANUARY, 2, 9, 0);
+        when(transactionRepository.findBefore(10L, at, 20L, Limit.of(3)))
+                .thenReturn(List.of(tx(10L, LocalDateTime.of(2025, Month.JANUARY, 1, 9, 0))));
+
+        TransactionPage page = service.transactions(5L, new TransactionCursor(at, 20L), 2);
+
+        assertThat(page.items()).hasSize(1);
+        assertThat(page.nextCursor()).isNull();
+        verify(transactionRepository, never()).findLatest(any(), any());
+    }
+
+    @Test
+    void transactions_rejectsOutOfRangeLimit() {
+        assertThatThrownBy(() -> service.transactions(5L, null, 0)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> service.transactions(5L, null, QueryService.MAX_PAGE_SIZE + 1))
+                .isInstanceOf(IllegalArgumentException.class);
+
+        verifyNoInteractions(accountRepository, transactionRepository);
+    }
+
+    @Test
+    void transactionCursor_rejectsGarbage() {
+        assertThatThrownBy(() -> TransactionCursor.decode("not-a-cursor")).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static Transaction tx(Long id, LocalDateTime at) {
+        return Transaction.builder().id(id).type(Type.DEPOSIT).value(Money.parse("1.00")).dateTime(at).build();
+    }
+
+    @Test
+    void writeStatement_streamsCsvForWholeDays() throws Exception {
+        when(accountRepository.findByUserId(7L)).thenReturn(Optional.of(Account.builder().id(70L).build()));
+        when(transactionRepository.streamStatement(70L,
+                LocalDateTime.of(2025, 1, 1, 0, 0), LocalDateTime.of(2025, 2, 1, 0, 0)))
+                .thenReturn(Stream.of(
+                        new StatementLine(1L, Type.DEPOSIT, Money.parse("50.00"), LocalDateTime.of(2025, 1, 1, 10, 0)),
+                        new StatementLine(2L, Type.PAYMENT, Money.parse("20.00"), LocalDateTime.of(2025, 1, 31, 23, 59, 59))));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        service.writeStatement(7L, LocalDate.of(2025, 1, 1), LocalDate.of(2025, 1, 31), StatementFormat.CSV, out);
+
+        assertThat(out.toString(StandardCharsets.UTF_8)).isEqualTo("""
+                id,type,value,dateTime
+                1,deposit,50.00,2025-01-01T10:00
+                2,payment,20.00,2025-01-31T23:59:59
+                """);
+    }
+
+    @Test
+    void writeStatement_streamsNdjson_andClosesTheCursor() throws Exception {
+        when(accountRepository.findByUserId(7L)).thenReturn(Optional.of(Account.builder().id(70L).build()));
+        AtomicBoolean closed = new AtomicBoolean();
+        when(transactionRepository.streamStatement(eq(70L), any(), any()))
+                .thenReturn(Stream.of(new StatementLine(1L, Type.DEPOSIT, Money.parse("50.00"),
+                        LocalDateTime.of(2025, 1, 1, 10, 0))).onClose(() -> closed.set(true)));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        service.writeStatement(7L, LocalDate.of(2025, 1, 1), LocalDate.of(2025, 1, 1), StatementFormat.NDJSON, out);
+
+        assertThat(out.toString(StandardCharsets.UTF_8))
+                .isEqualTo("{\"id\":1,\"type\":\"deposit\",\"value\":50.00,\"dateTime\":\"2025-01-01T10:00\"}\n");
+        assertThat(closed).isTrue();
     }
 }
@@ -0,0 +1,103 @@
+package com.example.desafio_back.services;
+
+import com.example.desafio_back.dtos.RegisterRequest;
+import com.example.desafio_back.dtos.UserImportResult;
+import com.example.desafio_back.model.Money;
+import com.example.desafio_back.repository.AccountRepository;
+import com.example.desafio_back.repository.UserRepository;
+import com.example.desafio_back.security.PasswordHasher;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Testcontainers(disabledWithoutDocker = true)
+class UserImportServiceTest {
+
+    @Container
+    @ServiceConnection
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @Autowired DataSource dataSource;
+    @Autowired PlatformTransactionManager txManager;
+    @Autowired UserRepository userRepository;
+    @Autowired AccountRepository accountRepository;
+
+    SimpleMeterRegistry registry;
+    PasswordHasher hasher;
+    RegistrationFilter filter;
+    UserImportService service;
+
+    @BeforeEach
+    void setUp() {
+        accountRepository.deleteAllInBatch();
+        userRepository.deleteAllInBatch();
+        registry = new SimpleMeterRegistry();
+        hasher = new PasswordHasher(new BCryptPasswordEncoder(4), registry, 4, 2, 16, Duration.ofSeconds(10));
+        filter = new RegistrationFilter(dataSource, txManager, registry, 1_000, 0.01);
+        // tiny batches so the test crosses several INSERT round-trips
+        service = new UserImportService(dataSource, hasher, filter, 2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        hasher.stop();
+    }
+
+    @Test
+    void insertWithAccount_createsBoth_andReturnsEmptyOnTakenCpfOrLogin() {
+        Long id = userRepository.insertWithAccount("John", "52998224725", "jdoe", "x").orElseThrow();
+
+        assertThat(accountRepository.findByUserId(id).orElseThrow().getCurrentBalance()).isEqualTo(Money.ZERO);
+        assertThat(userRepository.insertWithAccount("Other", "52998224725", "other", "x")).isEmpty();
+        assertThat(userRepository.insertWithAccount("Other", "11144477735", "jdoe", "x")).isEmpty();
+        assertThat(userRepository.count()).isEqualTo(1);
+        assertThat(accountRepository.count()).isEqualTo(1);
+    }
+
+    @Test
+    void importUsers_createsUsersAndAccountsInBatches_andReportsDuplicates() {
+        userRepository.insertWithAccount("Existing", "52998224725", "taken", "x");
+        filter.load();
+
+        UserImportResult result = service.importUsers(List.of(
+                user("111.444.777-35", "ana"),
+                user("529.982.247-25", "bob"),   // CPF taken
+                user("390.533.447-05", "taken"), // login taken
+                user("935.411.347-80", "ana"),   // login repeated in the request
+                user("123.456.789-09", "carl")));
+
+        assertThat(result.received()).isEqualTo(5);
+        assertThat(result.created()).isEqualTo(2);
+        assertThat(result.duplicates()).containsExactly("bob", "taken", "ana");
+        assertThat(userRepository.findByLogin("ana").orElseThrow().getCpf()).isEqualTo("11144477735");
+        assertThat(accountRepository.count()).isEqualTo(3);
+        // the confirmed duplicates were never hashed
+        assertThat(registry.get("auth.hashing.wait").timer().count()).isEqualTo(3);
+        assertThat(filter.mightBeTaken("12345678909", "nobody")).isTrue();
+    }
+
+    private static RegisterRequest user(String cpf, String login) {
+        return new RegisterRequest("Bulk " + login, cpf, login, "secret");
+    }
+}